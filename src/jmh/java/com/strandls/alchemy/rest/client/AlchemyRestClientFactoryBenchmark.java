@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Guice;
+
+/**
+ * Benchmarks creating proxy instances with a warm proxy class cache.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlchemyRestClientFactoryBenchmark {
+    /**
+     * The factory.
+     */
+    private AlchemyRestClientFactory factory;
+
+    /**
+     * Create the factory.
+     */
+    @Setup
+    public void setup() {
+        factory =
+                Guice.createInjector(new BenchmarkModule(new CannedConnectorProvider()))
+                        .getInstance(AlchemyRestClientFactory.class);
+    }
+
+    /**
+     * @return a proxy instance.
+     * @throws Exception
+     */
+    @Benchmark
+    public Object getInstance() throws Exception {
+        return factory.getInstance(TestWebserviceWithPathStub.class);
+    }
+}
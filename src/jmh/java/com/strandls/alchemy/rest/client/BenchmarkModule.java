@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client;
+
+import javax.ws.rs.client.Client;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Names;
+
+/**
+ * Binds the client factory dependencies for benchmarks, with a client
+ * using a {@link CannedConnectorProvider} transport.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class BenchmarkModule extends AbstractModule {
+    /**
+     * The base uri, never connected to.
+     */
+    public static final String BASE_URI = "http://localhost:9998/";
+
+    /**
+     * The transport.
+     */
+    private final CannedConnectorProvider transport;
+
+    /**
+     * @param transport
+     *            the transport for the client.
+     */
+    public BenchmarkModule(final CannedConnectorProvider transport) {
+        this.transport = transport;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.inject.AbstractModule#configure()
+     */
+    @Override
+    protected void configure() {
+        bind(String.class).annotatedWith(
+                Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM)).toInstance(BASE_URI);
+        install(new ExceptionObjectMapperModule());
+    }
+
+    /**
+     * @return the client using the canned transport.
+     */
+    @Provides
+    @Singleton
+    Client getClient() {
+        return transport.createClient();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Future;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.client.spi.ConnectorProvider;
+import org.glassfish.jersey.message.internal.OutboundMessageContext;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * A no-op transport for benchmarks. Serializes request entities to a null
+ * stream and answers every request with the same canned json response, so
+ * that benchmarks measure the client and not the network.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class CannedConnectorProvider implements ConnectorProvider {
+    /**
+     * The status of the canned response.
+     */
+    private volatile Response.Status status = Response.Status.OK;
+
+    /**
+     * The json body of the canned response.
+     */
+    private volatile byte[] body = new byte[0];
+
+    /**
+     * Set the canned response.
+     *
+     * @param status
+     *            the response status.
+     * @param json
+     *            the json response body.
+     */
+    public void setResponse(final Response.Status status, final String json) {
+        this.status = status;
+        body = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a client using this transport.
+     */
+    public Client createClient() {
+        return ClientBuilder.newClient(new ClientConfig().connectorProvider(this).register(
+                JacksonJsonProvider.class));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.glassfish.jersey.client.spi.ConnectorProvider#getConnector(javax.ws
+     * .rs.client.Client, javax.ws.rs.core.Configuration)
+     */
+    @Override
+    public Connector getConnector(final Client client, final Configuration runtimeConfig) {
+        return new Connector() {
+            @Override
+            public ClientResponse apply(final ClientRequest request) {
+                if (request.hasEntity()) {
+                    request.setStreamProvider(new OutboundMessageContext.StreamProvider() {
+                        @Override
+                        public OutputStream getOutputStream(final int contentLength) {
+                            return ByteStreams.nullOutputStream();
+                        }
+                    });
+                    try {
+                        request.writeEntity();
+                    } catch (final IOException e) {
+                        throw new ProcessingException(e);
+                    }
+                }
+
+                final ClientResponse response = new ClientResponse(status, request);
+                response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE,
+                        MediaType.APPLICATION_JSON);
+                response.setEntityStream(new ByteArrayInputStream(body));
+                return response;
+            }
+
+            @Override
+            public Future<?> apply(final ClientRequest request,
+                    final AsyncConnectorCallback callback) {
+                try {
+                    callback.response(apply(request));
+                } catch (final ProcessingException e) {
+                    callback.failure(e);
+                }
+                return Futures.immediateFuture(null);
+            }
+
+            @Override
+            public String getName() {
+                return "canned";
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
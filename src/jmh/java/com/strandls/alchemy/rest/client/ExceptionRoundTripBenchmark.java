@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.strandls.alchemy.rest.client.exception.ThrowableToResponseMapper;
+
+/**
+ * Benchmarks the exception round trip, the server side
+ * {@link ThrowableToResponseMapper} marshalling an exception and the proxy
+ * raising it again from the error response, with full and compact payloads.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionRoundTripBenchmark {
+    /**
+     * Write compact payloads.
+     */
+    @Param({ "false", "true" })
+    private boolean compact;
+
+    /**
+     * The exception raised on the server.
+     */
+    private final TestCustomException exception = new TestCustomException(42);
+
+    /**
+     * The transport answering with the marshalled exception.
+     */
+    private final CannedConnectorProvider transport = new CannedConnectorProvider();
+
+    /**
+     * The server side mapper.
+     */
+    private ThrowableToResponseMapper throwableToResponseMapper;
+
+    /**
+     * The proxy.
+     */
+    private TestWebserviceWithPathStub service;
+
+    /**
+     * Create the proxy.
+     *
+     * @throws Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        final Injector injector = Guice.createInjector(new BenchmarkModule(transport));
+        throwableToResponseMapper = injector.getInstance(ThrowableToResponseMapper.class);
+        throwableToResponseMapper.setCompact(compact);
+        service =
+                injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                        TestWebserviceWithPathStub.class);
+    }
+
+    /**
+     * @return the exception raised by the proxy.
+     * @throws IOException
+     */
+    @Benchmark
+    public Throwable roundTrip() throws IOException {
+        final Response response = throwableToResponseMapper.apply(exception);
+        final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(entity);
+        transport.setResponse(Response.Status.fromStatusCode(response.getStatus()),
+                entity.toString("UTF-8"));
+        try {
+            service.echoPathParams(1, 2, 3);
+        } catch (final Throwable t) {
+            return t;
+        }
+        throw new IllegalStateException("Expected the exception to be raised");
+    }
+}
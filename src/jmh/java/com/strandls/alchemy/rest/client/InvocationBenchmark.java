@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.strandls.alchemy.rest.client.metrics.InvocationListener;
+import com.strandls.alchemy.rest.client.metrics.InvocationMetrics;
+
+/**
+ * Benchmarks full proxy invocations against a no-op transport, with and
+ * without the {@link InvocationMetrics} listener to measure its overhead.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationBenchmark {
+    /**
+     * Whether to collect invocation metrics.
+     */
+    @Param({ "false", "true" })
+    private boolean metrics;
+
+    /**
+     * The request entity.
+     */
+    private final int[] entity = new int[] { 1, 2, 3 };
+
+    /**
+     * The proxy.
+     */
+    private TestWebserviceWithPathStub service;
+
+    /**
+     * Create the proxy.
+     *
+     * @throws Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        final CannedConnectorProvider transport = new CannedConnectorProvider();
+        transport.setResponse(Response.Status.OK, "[1,2,3]");
+        service =
+                Guice.createInjector(new BenchmarkModule(transport), new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        if (metrics) {
+                            // not exported to jmx.
+                            bind(InvocationListener.class).toInstance(
+                                    new InvocationMetrics(null));
+                        }
+                    }
+                }).getInstance(AlchemyRestClientFactory.class)
+                        .getInstance(TestWebserviceWithPathStub.class);
+    }
+
+    /**
+     * @return the result of a GET with path params.
+     */
+    @Benchmark
+    public int[] get() {
+        return service.echoPathParams(1, 2, 3);
+    }
+
+    /**
+     * @return the result of a POST with a json entity.
+     */
+    @Benchmark
+    public int[] post() {
+        return service.echo(entity);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Invocation.Builder;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.connector.PooledClientModule;
+import com.strandls.alchemy.rest.client.connector.PooledClientProvider;
+import com.strandls.alchemy.rest.client.request.RequestBuilderFilter;
+
+/**
+ * Benchmarks the throughput of concurrent proxy invocations against a local
+ * server over the pooled keep-alive connections of the
+ * {@link PooledClientProvider}, against a new connection per call.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(PooledClientBenchmark.THREADS)
+@Fork(1)
+public class PooledClientBenchmark {
+    /**
+     * The number of concurrent callers.
+     */
+    static final int THREADS = 8;
+
+    /**
+     * The base uri of the local server.
+     */
+    private static final URI BASE_URI = URI.create("http://localhost:9997/");
+
+    /**
+     * Whether connections are kept alive and reused.
+     */
+    @Param({ "true", "false" })
+    private boolean keepAlive;
+
+    /**
+     * The local server.
+     */
+    private HttpServer server;
+
+    /**
+     * The client provider.
+     */
+    private PooledClientProvider clientProvider;
+
+    /**
+     * The proxy.
+     */
+    private TestWebserviceWithPathStub service;
+
+    /**
+     * Start the server and create the proxy.
+     *
+     * @throws Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        server =
+                GrizzlyHttpServerFactory.createHttpServer(BASE_URI, new ResourceConfig(
+                        TestWebserviceWithPath.class, JacksonJsonProvider.class));
+        final Injector injector =
+                Guice.createInjector(new PooledClientModule().setMaxConnectionsPerRoute(THREADS),
+                        new ExceptionObjectMapperModule(), new AbstractModule() {
+                            @Override
+                            protected void configure() {
+                                bind(String.class).annotatedWith(
+                                        Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM))
+                                        .toInstance(BASE_URI.toString());
+                                if (!keepAlive) {
+                                    bind(RequestBuilderFilter.class).toInstance(
+                                            new RequestBuilderFilter() {
+                                                @Override
+                                                public void apply(final Builder builder) {
+                                                    // the server closes the
+                                                    // connection after the call.
+                                                    builder.header("Connection", "close");
+                                                }
+                                            });
+                                }
+                            }
+                        });
+        clientProvider = injector.getInstance(PooledClientProvider.class);
+        service =
+                injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                        TestWebserviceWithPathStub.class);
+    }
+
+    /**
+     * Release the pool and stop the server.
+     */
+    @TearDown
+    public void tearDown() {
+        clientProvider.close();
+        server.shutdownNow();
+    }
+
+    /**
+     * @return the result of a GET with query params.
+     */
+    @Benchmark
+    public int[] get() {
+        return service.echoQueryParams(1, 2, 3);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks analyzing a rest interface with a cold and a warm metadata
+ * cache.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestInterfaceAnalyzerBenchmark {
+    /**
+     * The analyzer with a warm cache.
+     */
+    private final RestInterfaceAnalyzer analyzer = new RestInterfaceAnalyzer();
+
+    /**
+     * @return the metadata analyzed by a new analyzer.
+     * @throws Exception
+     */
+    @Benchmark
+    public RestInterfaceMetadata analyzeCold() throws Exception {
+        return new RestInterfaceAnalyzer().analyze(TestWebserviceWithPathStub.class);
+    }
+
+    /**
+     * @return the cached metadata.
+     * @throws Exception
+     */
+    @Benchmark
+    public RestInterfaceMetadata analyzeWarm() throws Exception {
+        return analyzer.analyze(TestWebserviceWithPathStub.class);
+    }
+}
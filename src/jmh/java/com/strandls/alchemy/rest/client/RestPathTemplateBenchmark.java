@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks expanding request uris with path, matrix and query params.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestPathTemplateBenchmark {
+    /**
+     * The method arguments.
+     */
+    private final Object[] arguments = new Object[] { 1, 2, 3 };
+
+    /**
+     * Template with path params.
+     */
+    private RestPathTemplate pathParams;
+
+    /**
+     * Template with matrix params.
+     */
+    private RestPathTemplate matrixParams;
+
+    /**
+     * Template with path, matrix and query params.
+     */
+    private RestPathTemplate mixedParams;
+
+    /**
+     * Compile the templates.
+     *
+     * @throws Exception
+     */
+    @Setup
+    public void setup() throws Exception {
+        pathParams = createTemplate("echoPathParams");
+        matrixParams = createTemplate("echoMatrixParams");
+        mixedParams = createTemplate("echoMixedParams");
+    }
+
+    /**
+     * Compile the template for a method of the test webservice.
+     *
+     * @param methodName
+     *            the method name.
+     * @return the template.
+     * @throws Exception
+     */
+    private RestPathTemplate createTemplate(final String methodName) throws Exception {
+        final RestInterfaceMetadata metadata =
+                new RestInterfaceAnalyzer().analyze(TestWebserviceWithPathStub.class);
+        return new RestPathTemplate(BenchmarkModule.BASE_URI, metadata.getPath(), metadata
+                .getMethodMetaData().get(
+                        TestWebserviceWithPathStub.class.getMethod(methodName, int.class,
+                                int.class, int.class)));
+    }
+
+    /**
+     * @return the uri.
+     */
+    @Benchmark
+    public String expandPathParams() {
+        return pathParams.expand(arguments);
+    }
+
+    /**
+     * @return the uri.
+     */
+    @Benchmark
+    public String expandMatrixParams() {
+        return matrixParams.expand(arguments);
+    }
+
+    /**
+     * @return the uri.
+     */
+    @Benchmark
+    public String expandMixedParams() {
+        return mixedParams.expand(arguments);
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.loadtest;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.HdrHistogram.Histogram;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.media.multipart.MultiPartFeature;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.base.Preconditions;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.AlchemyRestClientFactory;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.TestWebserviceMultipart;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPath;
+import com.strandls.alchemy.rest.client.connector.PooledClientModule;
+import com.strandls.alchemy.rest.client.connector.PooledClientProvider;
+
+/**
+ * End to end load test of generated proxies. Starts the test services on an
+ * in-process grizzly server, drives proxies over the pooled client from a
+ * number of threads with a weighted mix of scenarios, and reports throughput
+ * and latency percentiles per scenario.
+ *
+ * The run fails if p99 latency or throughput regress beyond the configured
+ * tolerances against the baseline report. The load is closed loop, each
+ * thread issues its next call when the previous one returns, so latencies
+ * under saturation are understated and the gates are only meaningful
+ * against a baseline from the same machine and thread count.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Slf4j
+public class LoadTest {
+    /**
+     * A call to time.
+     */
+    interface Scenario {
+        /**
+         * Make the call.
+         *
+         * @throws Exception
+         *             on failure.
+         */
+        void call() throws Exception;
+    }
+
+    /**
+     * The highest latency tracked, in microseconds.
+     */
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * The upload size for the upload scenario.
+     */
+    private static final int UPLOAD_SIZE = 8 * 1024;
+
+    /**
+     * The options.
+     */
+    private final LoadTestConfig config;
+
+    /**
+     * The mapper used to read and write reports.
+     */
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * @param config
+     *            the options.
+     */
+    public LoadTest(final LoadTestConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Run the load test and exit with a non zero status on regression.
+     *
+     * @param args
+     *            unused, options are read from system properties.
+     * @throws Exception
+     */
+    public static void main(final String[] args) throws Exception {
+        final LoadTest loadTest =
+                new LoadTest(LoadTestConfig.fromProperties(System.getProperties()));
+        System.exit(loadTest.run() ? 0 : 1);
+    }
+
+    /**
+     * Run the load test, write the report and check it against the baseline.
+     *
+     * @return <code>true</code> if there were no regressions.
+     * @throws Exception
+     */
+    public boolean run() throws Exception {
+        final URI baseUri = URI.create("http://localhost:" + config.getPort() + "/");
+        final HttpServer server =
+                GrizzlyHttpServerFactory.createHttpServer(baseUri, new ResourceConfig(
+                        TestWebserviceWithPath.class, TestWebserviceMultipart.class,
+                        JacksonJsonProvider.class, MultiPartFeature.class));
+        final Injector injector =
+                Guice.createInjector(new PooledClientModule()
+                        .setMaxTotalConnections(config.getThreads())
+                        .setMaxConnectionsPerRoute(config.getThreads()),
+                        new ExceptionObjectMapperModule(), new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(String.class).annotatedWith(
+                                Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM))
+                                .toInstance(baseUri.toString());
+                    }
+                });
+        try {
+            // the multipart writer sets the boundary header while writing
+            // the entity, which the apache connector only sends if buffered.
+            injector.getInstance(Client.class).register(MultiPartFeature.class)
+                    .property(ClientProperties.REQUEST_ENTITY_PROCESSING,
+                            RequestEntityProcessing.BUFFERED);
+            final LoadTestReport report =
+                    drive(scenarios(injector.getInstance(AlchemyRestClientFactory.class)));
+            return check(report);
+        } finally {
+            injector.getInstance(PooledClientProvider.class).close();
+            server.shutdownNow();
+        }
+    }
+
+    /**
+     * @param clientFactory
+     *            the client factory.
+     * @return the scenarios in the mix, in mix order.
+     * @throws Exception
+     */
+    private Map<String, Scenario> scenarios(final AlchemyRestClientFactory clientFactory)
+            throws Exception {
+        final TestWebserviceWithPath service =
+                clientFactory.getInstance(TestWebserviceWithPath.class);
+        final TestWebserviceMultipart multipartService =
+                clientFactory.getInstance(TestWebserviceMultipart.class);
+        final byte[] upload = new byte[UPLOAD_SIZE];
+        Arrays.fill(upload, (byte) 'a');
+
+        final Map<String, Scenario> all = new LinkedHashMap<String, Scenario>();
+        all.put("echo", new Scenario() {
+            @Override
+            public void call() {
+                service.echo(new int[] { 1, 2, 3 });
+            }
+        });
+        all.put("echoPathParams", new Scenario() {
+            @Override
+            public void call() {
+                service.echoPathParams(1, 2, 3);
+            }
+        });
+        all.put("echoQueryParams", new Scenario() {
+            @Override
+            public void call() {
+                service.echoQueryParams(1, 2, 3);
+            }
+        });
+        all.put("multipart", new Scenario() {
+            @Override
+            public void call() throws IOException {
+                multipartService.multipartMapEchoPrimitive(true, "secret");
+            }
+        });
+        all.put("upload", new Scenario() {
+            @Override
+            public void call() throws IOException {
+                multipartService.multipartMapEchoWithoutDisposition(true, "secret",
+                        new ByteArrayInputStream(upload));
+            }
+        });
+
+        final Map<String, Scenario> scenarios = new LinkedHashMap<String, Scenario>();
+        for (final Map.Entry<String, Integer> entry : config.getMix().entrySet()) {
+            Preconditions.checkArgument(all.containsKey(entry.getKey()),
+                    "Unknown scenario %s, expected one of %s", entry.getKey(), all.keySet());
+            if (entry.getValue() > 0) {
+                scenarios.put(entry.getKey(), all.get(entry.getKey()));
+            }
+        }
+        Preconditions.checkArgument(!scenarios.isEmpty(), "No scenarios in mix %s",
+                config.getMix());
+        return scenarios;
+    }
+
+    /**
+     * Run the scenarios from the configured number of threads, through the
+     * warmup and then the measured period.
+     *
+     * @param scenarios
+     *            the scenarios.
+     * @return the report.
+     * @throws InterruptedException
+     */
+    private LoadTestReport drive(final Map<String, Scenario> scenarios)
+            throws InterruptedException {
+        final List<String> names = new ArrayList<String>(scenarios.keySet());
+        // scenario indices repeated by weight, picked from uniformly.
+        final List<Integer> weighted = new ArrayList<Integer>();
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = 0; j < config.getMix().get(names.get(i)); j++) {
+                weighted.add(i);
+            }
+        }
+        final Scenario[] calls = scenarios.values().toArray(new Scenario[names.size()]);
+
+        final long[] measureStart = new long[1];
+        final CyclicBarrier warmedUp = new CyclicBarrier(config.getThreads(), new Runnable() {
+            @Override
+            public void run() {
+                measureStart[0] = System.nanoTime();
+                log.info("Warmed up, measuring for {}s", config.getDurationSeconds());
+            }
+        });
+
+        final List<Worker> workers = new ArrayList<Worker>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < config.getThreads(); i++) {
+            final Worker worker = new Worker(calls, weighted, warmedUp, measureStart);
+            workers.add(worker);
+            threads.add(new Thread(worker, "loadtest-" + i));
+        }
+        log.info("Warming up {} threads for {}s", config.getThreads(), config.getWarmupSeconds());
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final double seconds = (System.nanoTime() - measureStart[0]) / 1e9;
+
+        final LoadTestReport report = new LoadTestReport();
+        report.setThreads(config.getThreads());
+        report.setSeconds(seconds);
+        final Histogram total = new Histogram(HIGHEST_LATENCY, 3);
+        long totalErrors = 0;
+        for (int i = 0; i < names.size(); i++) {
+            final Histogram histogram = new Histogram(HIGHEST_LATENCY, 3);
+            long errors = 0;
+            for (final Worker worker : workers) {
+                histogram.add(worker.histograms[i]);
+                errors += worker.errors[i];
+            }
+            total.add(histogram);
+            totalErrors += errors;
+            report.getScenarios().add(ScenarioResult.of(names.get(i), histogram, errors, seconds));
+        }
+        report.setTotal(ScenarioResult.of("total", total, totalErrors, seconds));
+        return report;
+    }
+
+    /**
+     * Write the report and check it against, or record it as, the baseline.
+     *
+     * @param report
+     *            the report.
+     * @return <code>true</code> if there were no regressions.
+     * @throws IOException
+     */
+    private boolean check(final LoadTestReport report) throws IOException {
+        final StringBuilder table = new StringBuilder();
+        table.append(String.format("%-16s %10s %8s %10s %8s %8s %8s %8s %8s%n", "scenario",
+                "count", "errors", "ops/s", "p50(us)", "p90", "p99", "p99.9", "max"));
+        for (final ScenarioResult result : report.getScenarios()) {
+            table.append(result).append(String.format("%n"));
+        }
+        table.append(report.getTotal());
+        log.info("Results over {} threads\n{}", report.getThreads(), table);
+
+        write(report, config.getReport());
+        log.info("Report written to {}", config.getReport());
+
+        final File baseline = config.getBaseline();
+        if (config.isUpdateBaseline()) {
+            write(report, baseline);
+            log.info("Baseline written to {}", baseline);
+            return true;
+        }
+        if (!baseline.isFile()) {
+            log.warn("No baseline at {}, set loadtest.updateBaseline=true to record one",
+                    baseline);
+            return true;
+        }
+
+        final List<String> regressions =
+                report.regressions(mapper.readValue(baseline, LoadTestReport.class),
+                        config.getP99Tolerance(), config.getThroughputTolerance());
+        for (final String regression : regressions) {
+            log.error("Regression against {}: {}", baseline, regression);
+        }
+        return regressions.isEmpty();
+    }
+
+    /**
+     * @param report
+     *            the report.
+     * @param file
+     *            the file to write to, parent directories are created.
+     * @throws IOException
+     */
+    private void write(final LoadTestReport report, final File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        mapper.writeValue(file, report);
+    }
+
+    /**
+     * A client thread, recording latencies and errors per scenario once
+     * warmed up.
+     */
+    private class Worker implements Runnable {
+        /**
+         * The scenarios.
+         */
+        private final Scenario[] calls;
+
+        /**
+         * The scenario indices repeated by weight.
+         */
+        private final List<Integer> weighted;
+
+        /**
+         * Tripped by all workers at the end of warmup.
+         */
+        private final CyclicBarrier warmedUp;
+
+        /**
+         * Holds the start of the measured period, set when warmed up.
+         */
+        private final long[] measureStart;
+
+        /**
+         * Latencies of successful calls per scenario.
+         */
+        private final Histogram[] histograms;
+
+        /**
+         * Failed calls per scenario.
+         */
+        private final long[] errors;
+
+        /**
+         * @param calls
+         *            the scenarios.
+         * @param weighted
+         *            the scenario indices repeated by weight.
+         * @param warmedUp
+         *            tripped by all workers at the end of warmup.
+         * @param measureStart
+         *            holds the start of the measured period.
+         */
+        Worker(final Scenario[] calls, final List<Integer> weighted,
+                final CyclicBarrier warmedUp, final long[] measureStart) {
+            this.calls = calls;
+            this.weighted = weighted;
+            this.warmedUp = warmedUp;
+            this.measureStart = measureStart;
+            histograms = new Histogram[calls.length];
+            for (int i = 0; i < calls.length; i++) {
+                histograms[i] = new Histogram(HIGHEST_LATENCY, 3);
+            }
+            errors = new long[calls.length];
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            loop(System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds()), false);
+            try {
+                warmedUp.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final BrokenBarrierException e) {
+                return;
+            }
+            loop(measureStart[0] + TimeUnit.SECONDS.toNanos(config.getDurationSeconds()), true);
+        }
+
+        /**
+         * Call randomly picked scenarios until the deadline.
+         *
+         * @param deadline
+         *            the deadline in {@link System#nanoTime()} terms.
+         * @param record
+         *            record latencies and errors if <code>true</code>.
+         */
+        private void loop(final long deadline, final boolean record) {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            long start;
+            while ((start = System.nanoTime()) < deadline) {
+                final int scenario = weighted.get(random.nextInt(weighted.size()));
+                try {
+                    calls[scenario].call();
+                    if (record) {
+                        histograms[scenario].recordValue(Math.min(HIGHEST_LATENCY,
+                                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+                    }
+                } catch (final Exception e) {
+                    if (record && errors[scenario]++ == 0) {
+                        log.warn("Call failed", e);
+                    }
+                }
+            }
+        }
+    }
+}
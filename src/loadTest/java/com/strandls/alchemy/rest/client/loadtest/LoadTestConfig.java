@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.loadtest;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import lombok.Data;
+
+import com.google.common.base.Splitter;
+
+/**
+ * The load test options, read from system properties prefixed with
+ * {@value #PREFIX}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Data
+public class LoadTestConfig {
+    /**
+     * The system property prefix.
+     */
+    public static final String PREFIX = "loadtest.";
+
+    /**
+     * The number of client threads.
+     */
+    private int threads = 8;
+
+    /**
+     * The warmup time in seconds, not recorded.
+     */
+    private int warmupSeconds = 10;
+
+    /**
+     * The measured time in seconds.
+     */
+    private int durationSeconds = 30;
+
+    /**
+     * The relative weights of the scenarios to run, by scenario name.
+     */
+    private Map<String, Integer> mix = parseMix("echo:4,echoPathParams:4,echoQueryParams:2,"
+            + "multipart:1,upload:1");
+
+    /**
+     * The port the test services listen on.
+     */
+    private int port = 9997;
+
+    /**
+     * The file to write the report to.
+     */
+    private File report = new File("build/reports/loadtest/report.json");
+
+    /**
+     * The baseline report to check for regressions.
+     */
+    private File baseline = new File("loadtest-baseline.json");
+
+    /**
+     * Write the report as the new baseline instead of checking against it.
+     */
+    private boolean updateBaseline = false;
+
+    /**
+     * The allowed fractional increase in p99 latency over the baseline.
+     */
+    private double p99Tolerance = 0.25;
+
+    /**
+     * The allowed fractional drop in throughput below the baseline.
+     */
+    private double throughputTolerance = 0.15;
+
+    /**
+     * Read the options from properties, defaulting missing ones.
+     *
+     * @param properties
+     *            the properties, usually the system properties.
+     * @return the config.
+     */
+    public static LoadTestConfig fromProperties(final Properties properties) {
+        final LoadTestConfig config = new LoadTestConfig();
+        config.setThreads(Integer.parseInt(get(properties, "threads", config.getThreads())));
+        config.setWarmupSeconds(Integer.parseInt(get(properties, "warmupSeconds",
+                config.getWarmupSeconds())));
+        config.setDurationSeconds(Integer.parseInt(get(properties, "durationSeconds",
+                config.getDurationSeconds())));
+        final String mix = properties.getProperty(PREFIX + "mix");
+        if (mix != null) {
+            config.setMix(parseMix(mix));
+        }
+        config.setPort(Integer.parseInt(get(properties, "port", config.getPort())));
+        config.setReport(new File(get(properties, "report", config.getReport())));
+        config.setBaseline(new File(get(properties, "baseline", config.getBaseline())));
+        config.setUpdateBaseline(Boolean.parseBoolean(get(properties, "updateBaseline",
+                config.isUpdateBaseline())));
+        config.setP99Tolerance(Double.parseDouble(get(properties, "p99Tolerance",
+                config.getP99Tolerance())));
+        config.setThroughputTolerance(Double.parseDouble(get(properties, "throughputTolerance",
+                config.getThroughputTolerance())));
+        return config;
+    }
+
+    /**
+     * Parse a scenario mix of the form "name:weight,name:weight".
+     *
+     * @param mix
+     *            the mix.
+     * @return the weights by scenario name, in the order given.
+     */
+    static Map<String, Integer> parseMix(final String mix) {
+        final Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+        for (final Map.Entry<String, String> entry : Splitter.on(',').trimResults()
+                .omitEmptyStrings().withKeyValueSeparator(':').split(mix).entrySet()) {
+            final int weight = Integer.parseInt(entry.getValue().trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + entry.getKey());
+            }
+            weights.put(entry.getKey().trim(), weight);
+        }
+        return weights;
+    }
+
+    /**
+     * @param properties
+     *            the properties.
+     * @param name
+     *            the option name without the prefix.
+     * @param defaultValue
+     *            the default value.
+     * @return the option value as a string.
+     */
+    private static String get(final Properties properties, final String name,
+            final Object defaultValue) {
+        return properties.getProperty(PREFIX + name, String.valueOf(defaultValue));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * The machine readable result of a load test run, also used as the baseline
+ * for later runs.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Data
+public class LoadTestReport {
+    /**
+     * The number of client threads.
+     */
+    private int threads;
+
+    /**
+     * The measured time in seconds.
+     */
+    private double seconds;
+
+    /**
+     * The per scenario results.
+     */
+    private List<ScenarioResult> scenarios = new ArrayList<ScenarioResult>();
+
+    /**
+     * The results across all scenarios.
+     */
+    private ScenarioResult total;
+
+    /**
+     * @param name
+     *            the scenario name.
+     * @return the result for the scenario, <code>null</code> if it was not
+     *         run.
+     */
+    public ScenarioResult getScenario(final String name) {
+        for (final ScenarioResult scenario : scenarios) {
+            if (scenario.getName().equals(name)) {
+                return scenario;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check this report against a baseline. Scenarios missing from the
+     * baseline are not checked, a baseline taken with a different thread
+     * count is not comparable and is rejected.
+     *
+     * @param baseline
+     *            the baseline report.
+     * @param p99Tolerance
+     *            the allowed fractional increase in p99 latency.
+     * @param throughputTolerance
+     *            the allowed fractional drop in throughput.
+     * @return the regressions found, empty if none.
+     */
+    public List<String> regressions(final LoadTestReport baseline, final double p99Tolerance,
+            final double throughputTolerance) {
+        final List<String> regressions = new ArrayList<String>();
+        if (baseline.getThreads() != threads) {
+            regressions.add(String.format("baseline has %d threads, run has %d",
+                    baseline.getThreads(), threads));
+            return regressions;
+        }
+
+        final List<ScenarioResult> results = new ArrayList<ScenarioResult>(scenarios);
+        results.add(total);
+        for (final ScenarioResult result : results) {
+            final ScenarioResult expected =
+                    result == total ? baseline.getTotal() : baseline.getScenario(result
+                            .getName());
+            if (expected == null) {
+                continue;
+            }
+            if (result.getErrors() > 0) {
+                regressions.add(String.format("%s: %d failed calls", result.getName(),
+                        result.getErrors()));
+            }
+            if (result.getP99() > expected.getP99() * (1 + p99Tolerance)) {
+                regressions.add(String.format("%s: p99 %dus over baseline %dus",
+                        result.getName(), result.getP99(), expected.getP99()));
+            }
+            if (result.getThroughput() < expected.getThroughput() * (1 - throughputTolerance)) {
+                regressions.add(String.format("%s: throughput %.1f/s under baseline %.1f/s",
+                        result.getName(), result.getThroughput(), expected.getThroughput()));
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.loadtest;
+
+import lombok.Data;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The measured throughput and latency percentiles of a scenario. Latencies
+ * are in microseconds.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Data
+public class ScenarioResult {
+    /**
+     * The scenario name.
+     */
+    private String name;
+
+    /**
+     * The number of successful calls.
+     */
+    private long count;
+
+    /**
+     * The number of failed calls.
+     */
+    private long errors;
+
+    /**
+     * Successful calls per second.
+     */
+    private double throughput;
+
+    /**
+     * The median latency.
+     */
+    private long p50;
+
+    /**
+     * The 90th percentile latency.
+     */
+    private long p90;
+
+    /**
+     * The 99th percentile latency.
+     */
+    private long p99;
+
+    /**
+     * The 99.9th percentile latency.
+     */
+    private long p999;
+
+    /**
+     * The maximum latency.
+     */
+    private long max;
+
+    /**
+     * @param name
+     *            the scenario name.
+     * @param histogram
+     *            the latencies of successful calls.
+     * @param errors
+     *            the number of failed calls.
+     * @param seconds
+     *            the measured time in seconds.
+     * @return the result.
+     */
+    public static ScenarioResult of(final String name, final Histogram histogram,
+            final long errors, final double seconds) {
+        final ScenarioResult result = new ScenarioResult();
+        result.setName(name);
+        result.setCount(histogram.getTotalCount());
+        result.setErrors(errors);
+        result.setThroughput(histogram.getTotalCount() / seconds);
+        result.setP50(histogram.getValueAtPercentile(50));
+        result.setP90(histogram.getValueAtPercentile(90));
+        result.setP99(histogram.getValueAtPercentile(99));
+        result.setP999(histogram.getValueAtPercentile(99.9));
+        result.setMax(histogram.getMaxValue());
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("%-16s %10d %8d %10.1f %8d %8d %8d %8d %8d", name, count, errors,
+                throughput, p50, p90, p99, p999, max);
+    }
+}
@@ -16,19 +16,13 @@
 
 package com.strandls.alchemy.rest.client;
 
-import java.io.File;
-import java.io.InputStream;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import javassist.Modifier;
 import javassist.util.proxy.MethodFilter;
-import javassist.util.proxy.MethodHandler;
 import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.ProxyObject;
 
@@ -36,41 +30,28 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
-import javax.ws.rs.CookieParam;
-import javax.ws.rs.FormParam;
-import javax.ws.rs.HeaderParam;
-import javax.ws.rs.HttpMethod;
-import javax.ws.rs.InternalServerErrorException;
-import javax.ws.rs.MatrixParam;
-import javax.ws.rs.PathParam;
-import javax.ws.rs.QueryParam;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.Invocation.Builder;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.Cookie;
-import javax.ws.rs.core.Form;
-import javax.ws.rs.core.GenericType;
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.UriBuilder;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-
-import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.glassfish.jersey.media.multipart.ContentDisposition;
-import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
-import org.glassfish.jersey.media.multipart.FormDataMultiPart;
-import org.glassfish.jersey.media.multipart.FormDataParam;
-import org.glassfish.jersey.media.multipart.MultiPart;
-import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
-import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
-import org.objenesis.ObjenesisStd;
 
+import org.objenesis.ObjenesisStd;
+import org.objenesis.instantiator.ObjectInstantiator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.strandls.alchemy.rest.client.cache.NegativeResultCache;
+import com.strandls.alchemy.rest.client.cache.ResponseCache;
+import com.strandls.alchemy.rest.client.exception.ResponseToJaxRsExceptionMapper;
 import com.strandls.alchemy.rest.client.exception.ResponseToThrowableMapper;
+import com.strandls.alchemy.rest.client.metrics.InvocationListener;
+import com.strandls.alchemy.rest.client.metrics.SlowCallSampler;
+import com.strandls.alchemy.rest.client.request.InvocationInterceptor;
+import com.strandls.alchemy.rest.client.request.NoOpRequestBuilderFilter;
 import com.strandls.alchemy.rest.client.request.RequestBuilderFilter;
 
 /**
@@ -80,340 +61,18 @@ import com.strandls.alchemy.rest.client.request.RequestBuilderFilter;
  *
  */
 @Singleton
-@Slf4j
 public class AlchemyRestClientFactory {
     /**
-     * Handles rest method invocation for a single rest service.
-     *
-     * @author Ashish Shinde
-     *
+     * Filter selecting the methods handled by the generated proxies. Shared
+     * across proxy factories so that javassist can reuse its own class cache
+     * as well.
      */
-    @RequiredArgsConstructor
-    private static class RestMethodInvocationHandler implements MethodHandler {
-        /**
-         * The base URI.
-         */
-        private final String baseUri;
-
-        /**
-         * Jax rs client provider.
-         */
-        private final Provider<Client> clientProvider;
-
-        /**
-         * Rest interface metadata.
-         */
-        private final RestInterfaceMetadata restInterfaceMetadata;
-
-        /**
-         * Maps server side errors to local errors.
-         */
-        private final ResponseToThrowableMapper responseToThrowableMapper;
-
-        /**
-         * The request builder filter.
-         */
-        private final RequestBuilderFilter builderFilter;
-
-        /**
-         * Create the path for the rest method.
-         *
-         * @param methodMetaData
-         *            the method meta data.
-         * @param arguments
-         *            the method arguments, used to add matrix and path
-         *            parameters to the generated path.
-         * @return the absolute remote rest path for this method invocation.
-         */
-        private String getPath(final RestMethodMetadata methodMetaData, final Object[] arguments) {
-            final UriBuilder uriBuilder = UriBuilder.fromPath(baseUri);
-
-            if (!StringUtils.isBlank(restInterfaceMetadata.getPath())) {
-                uriBuilder.path(restInterfaceMetadata.getPath());
-            }
-
-            if (!StringUtils.isBlank(methodMetaData.getPath())) {
-                uriBuilder.path(methodMetaData.getPath());
-            }
-
-            // add matrix parameters to the path
-            final Annotation[][] parameterAnnotations = methodMetaData.getParameterAnnotations();
-            final Map<String, Object> pathParamsMap = new LinkedHashMap<String, Object>();
-            for (int i = 0; i < parameterAnnotations.length && i < arguments.length; i++) {
-                final Annotation[] annotations = parameterAnnotations[i];
-
-                final Object argument = arguments[i];
-                for (final Annotation annotation : annotations) {
-                    if (annotation instanceof MatrixParam) {
-                        final String name = ((MatrixParam) annotation).value();
-                        Object[] values = new Object[] {};
-                        if (argument != null && argument.getClass().isArray()) {
-                            values = (Object[]) argument;
-                        } else if (argument instanceof Collection) {
-                            @SuppressWarnings("unchecked")
-                            final Collection<Object> collection = (Collection<Object>) argument;
-                            values = collection.toArray();
-                        } else {
-                            values = new Object[] { argument };
-                        }
-                        uriBuilder.matrixParam(name, values);
-                    } else if (annotation instanceof PathParam) {
-                        pathParamsMap.put(((PathParam) annotation).value(), argument);
-                    }
-                }
-            }
-
-            // add path params to the path
-            return uriBuilder.buildFromMap(pathParamsMap).toString();
-        }
-
-        /*
-         * (non-Javadoc)
-         * @see javassist.util.proxy.MethodHandler#invoke(java.lang.Object,
-         * java.lang.reflect.Method, java.lang.reflect.Method,
-         * java.lang.Object[])
-         */
+    private static final MethodFilter PUBLIC_METHOD_FILTER = new MethodFilter() {
         @Override
-        public Object invoke(final Object self, final Method thisMethod, final Method proceed,
-                final Object[] arguments) throws Throwable {
-
-            final RestMethodMetadata methodMetaData =
-                    restInterfaceMetadata.getMethodMetaData().get(thisMethod);
-
-            if (methodMetaData == null) {
-                throw new NotRestMethodException(thisMethod);
-            }
-
-            final String path = getPath(methodMetaData, arguments);
-            log.debug("Invoking rest service at {}", path);
-
-            final Client client = clientProvider.get();
-
-            WebTarget webTarget = client.target(path);
-            Entity<?> entity = null;
-
-            final Annotation[][] parameterAnnotations = methodMetaData.getParameterAnnotations();
-
-            final String bodyParameterMediaType =
-                    methodMetaData.getConsumed().isEmpty() ? null : methodMetaData.getConsumed()
-                            .get(0);
-
-            // set query params
-            for (int i = 0; i < arguments.length; i++) {
-                final Object argument = arguments[i];
-
-                if (parameterAnnotations.length <= i) {
-                    // body parameter without annotation
-                    entity = toEntity(argument, bodyParameterMediaType);
-                    continue;
-                }
-
-                final Annotation[] annotations = parameterAnnotations[i];
-
-                if (annotations == null || annotations.length == 0) {
-                    // body parameter without annotation
-                    entity = toEntity(argument, bodyParameterMediaType);
-                    continue;
-                }
-
-                for (final Annotation annotation : annotations) {
-                    if (annotation instanceof QueryParam) {
-                        final String key = ((QueryParam) annotation).value();
-                        final String value = ObjectUtils.toString(argument);
-                        webTarget = webTarget.queryParam(key, value);
-                    }
-                }
-
-            }
-
-            // create the request builder
-            Builder webRequestBuilder = webTarget.request();
-            webRequestBuilder.accept(methodMetaData.getProduced().toArray(new String[0]));
-            webRequestBuilder =
-                    webRequestBuilder.accept(methodMetaData.getConsumed().toArray(new String[0]));
-
-            if (builderFilter != null) {
-                builderFilter.apply(webRequestBuilder);
-            }
-
-            // for form params
-            Form formParams = null;
-            // process cookie and header params
-            for (int i = 0; i < arguments.length; i++) {
-                if (i >= parameterAnnotations.length) {
-                    continue;
-                }
-
-                final Annotation[] annotations = parameterAnnotations[i];
-                final Object argument = arguments[i];
-
-                for (final Annotation annotation : annotations) {
-                    if (annotation instanceof CookieParam) {
-                        // add cookie to the request
-                        Cookie cookie = null;
-                        if (argument instanceof Cookie) {
-                            cookie = (Cookie) argument;
-                        } else {
-                            cookie =
-                                    new Cookie(((CookieParam) annotation).value(),
-                                            ObjectUtils.toString(argument));
-                        }
-                        webRequestBuilder = webRequestBuilder.cookie(cookie);
-                    } else if (annotation instanceof HeaderParam) {
-                        // add header param
-                        final String key = ((HeaderParam) annotation).value();
-                        final String value = ObjectUtils.toString(argument);
-                        webRequestBuilder = webRequestBuilder.header(key, value);
-                    } else if (annotation instanceof FormParam) {
-                        if (formParams == null) {
-                            formParams = new javax.ws.rs.core.Form();
-                        }
-                        formParams.param(((FormParam) annotation).value(),
-                                ObjectUtils.toString(argument));
-                    }
-                }
-            }
-
-            if (formParams != null) {
-                // cannot have form parameters and body parameters without
-                // annotation
-                assert entity == null;
-
-                // for form parameters the method should be post
-                assert HttpMethod.POST.equals(methodMetaData.getHttpMethod());
-
-                entity = toEntity(formParams, MediaType.APPLICATION_FORM_URLENCODED);
-            }
-
-            final FormDataMultiPart formDataMultiPart =
-                    processFormDataParams(arguments, parameterAnnotations);
-
-            if (formDataMultiPart != null) {
-                // Cannot have form parameters and body parameters without
-                // annotation
-                assert entity == null;
-
-                // for form parameters the method should be post
-                assert HttpMethod.POST.equals(methodMetaData.getHttpMethod());
-
-                entity = toEntity(formDataMultiPart, formDataMultiPart.getMediaType().toString());
-            }
-
-            // Get the return type.
-            @SuppressWarnings("rawtypes")
-            final GenericType<?> returnType = new GenericType(thisMethod.getGenericReturnType()) {
-            };
-
-            try {
-                Object retval = null;
-                final String httpMethod = methodMetaData.getHttpMethod();
-                if (HttpMethod.GET.equals(httpMethod)) {
-                    retval = webRequestBuilder.get(returnType);
-                } else if (HttpMethod.PUT.equals(httpMethod)) {
-                    retval = webRequestBuilder.put(entity, returnType);
-                } else if (HttpMethod.POST.equals(httpMethod)) {
-                    retval = webRequestBuilder.post(entity, returnType);
-                } else if (HttpMethod.DELETE.equals(httpMethod)) {
-                    retval = webRequestBuilder.delete(returnType);
-                }
-                return retval;
-            } catch (final InternalServerErrorException e) {
-                throw responseToThrowableMapper.apply(e.getResponse());
-            }
-
+        public boolean isHandled(final Method method) {
+            return Modifier.isPublic(method.getModifiers());
         }
-
-        /**
-         * Process form data params.
-         *
-         * @param arguments
-         *            the function call arguments.
-         * @param parameterAnnotations
-         *            function parameter annotations.
-         * @return form data multipart object if the funtion contains form data
-         *         elements.
-         */
-        private FormDataMultiPart processFormDataParams(final Object[] arguments,
-                final Annotation[][] parameterAnnotations) {
-            FormDataMultiPart formDataMultiPart = null;
-            // map from param name to content disposition
-            final Map<String, ContentDisposition> contentDispositions =
-                    new HashMap<String, ContentDisposition>();
-
-            // map from param name to input streams
-            final Map<String, InputStream> inputstreams = new HashMap<String, InputStream>();
-            for (int i = 0; i < arguments.length; i++) {
-                if (i >= parameterAnnotations.length) {
-                    continue;
-                }
-
-                final Annotation[] annotations = parameterAnnotations[i];
-                for (final Annotation annotation : annotations) {
-                    if (annotation instanceof FormDataParam) {
-                        if (formDataMultiPart == null) {
-                            formDataMultiPart = new FormDataMultiPart();
-                        }
-
-                        final Object argument = arguments[i];
-                        final String paramName = ((FormDataParam) annotation).value();
-                        if (argument instanceof File) {
-                            formDataMultiPart.bodyPart(new FileDataBodyPart(paramName,
-                                    (File) argument));
-                        } else if (argument instanceof InputStream) {
-                            inputstreams.put(paramName, (InputStream) argument);
-                        } else if (argument instanceof FormDataContentDisposition) {
-                            contentDispositions.put(paramName, (ContentDisposition) argument);
-                        } else {
-                            formDataMultiPart.field(paramName, ObjectUtils.toString(argument));
-                        }
-
-                    }
-                }
-            }
-
-            if (formDataMultiPart != null && !inputstreams.isEmpty()) {
-                // we have input streams that may have content dispositions
-                for (final Entry<String, InputStream> streamEntry : inputstreams.entrySet()) {
-                    final String paramName = streamEntry.getKey();
-                    if (contentDispositions.containsKey(paramName)) {
-                        // we have a content disposition for this input stream
-                        final ContentDisposition contentDisposition =
-                                contentDispositions.get(paramName);
-                        final StreamDataBodyPart streamBodyPart =
-                                new StreamDataBodyPart(paramName, streamEntry.getValue(),
-                                        contentDisposition.getFileName());
-                        formDataMultiPart.bodyPart(streamBodyPart);
-                    } else {
-                        final StreamDataBodyPart streamBodyPart =
-                                new StreamDataBodyPart(paramName, streamEntry.getValue(), paramName);
-                        formDataMultiPart.bodyPart(streamBodyPart);
-                    }
-                }
-            }
-
-            return formDataMultiPart;
-        }
-
-        /**
-         * Converts an object to an entity.
-         *
-         * @param object
-         *            the object.
-         * @param bodyParameterMediaType
-         *            the media type. If <code>null</code>
-         *            {@link MediaType#MEDIA_TYPE_WILDCARD} will be used.
-         * @return converted entity.
-         */
-        private Entity<Object> toEntity(final Object object, String bodyParameterMediaType) {
-
-            if (object instanceof MultiPart) {
-                bodyParameterMediaType = ((MultiPart) object).getMediaType().toString();
-            }
-
-            return !StringUtils.isBlank(bodyParameterMediaType) ? Entity.entity(object,
-                    bodyParameterMediaType) : Entity.entity(object, MediaType.MEDIA_TYPE_WILDCARD);
-        }
-    }
+    };
 
     /**
      * The base uri named param name.
@@ -443,17 +102,100 @@ public class AlchemyRestClientFactory {
      */
     private final ObjenesisStd objenesis;
 
+    /**
+     * Cache from the service class to the instantiator of its generated proxy
+     * class. Keys are weak and values soft so that the service class and the
+     * proxy class can be unloaded along with their class loader.
+     */
+    private final LoadingCache<Class<?>, ObjectInstantiator<?>> proxyClassCache;
+
+    /**
+     * Cache from the service class to the method handler shared by all its
+     * proxies. Handlers hold the bulkhead, circuit breaker, latency and
+     * negative cache state of a service. Keys are weak so that service classes
+     * can be unloaded. Values are weak too, as handlers reference the methods
+     * and so the class of their service. The proxies hold their handler
+     * strongly, so all reachable proxies of a service share one handler and
+     * its state.
+     */
+    private final LoadingCache<Class<?>, RestMethodInvocationHandler> handlerCache;
+
     /**
      * Maps {@link Response} to a {@link Throwable} object for server side
      * exceptions.
      */
     private final ResponseToThrowableMapper responseToThrowableMapper;
 
+    /**
+     * Maps error {@link Response}s to jaxrs exceptions.
+     */
+    private final ResponseToJaxRsExceptionMapper jaxRsExceptionMapper;
+
     /**
      * The request biulder filter.
      */
     private final RequestBuilderFilter builderFilter;
 
+    /**
+     * Optional object mapper to read json responses directly.
+     */
+    private ObjectMapper responseObjectMapper;
+
+    /**
+     * Collapses concurrent identical invocations of {@link SingleFlight}
+     * methods across all proxies created by the factory.
+     */
+    private final SingleFlightGroup singleFlightGroup = new SingleFlightGroup();
+
+    /**
+     * Optional cache for GET responses.
+     */
+    private ResponseCache responseCache;
+
+    /**
+     * Limits the retries of {@link Retry} methods across all proxies created
+     * by the factory.
+     */
+    private RetryBudget retryBudget = new RetryBudget();
+
+    /**
+     * Optional listener notified of every invocation attempt.
+     */
+    private InvocationListener invocationListener;
+
+    /**
+     * Optional sampler timing the phases of invocations.
+     */
+    private SlowCallSampler slowCallSampler;
+
+    /**
+     * Interceptors called after the request builder filter, in order.
+     */
+    private List<InvocationInterceptor> interceptors = Collections.emptyList();
+
+    /**
+     * Creates the new factory mapping error responses with a new
+     * {@link ResponseToJaxRsExceptionMapper}.
+     *
+     * @param baseUri
+     *            the base URI for the rest service.
+     * @param clientProvider
+     *            the {@link Client} provider.
+     * @param interfaceAnalyzer
+     *            the interface analyzer.
+     * @param responseToThrowableMapper
+     *            maps server side exceptions.
+     * @param builderFilter
+     *            the request builder filter.
+     */
+    public AlchemyRestClientFactory(final String baseUri, final Provider<Client> clientProvider,
+            final RestInterfaceAnalyzer interfaceAnalyzer,
+            final ResponseToThrowableMapper responseToThrowableMapper,
+            final RequestBuilderFilter builderFilter) {
+        this(baseUri, clientProvider, interfaceAnalyzer, responseToThrowableMapper,
+                new ResponseToJaxRsExceptionMapper(), builderFilter);
+    }
+
     /**
      * Creates the new factory.
      *
@@ -463,48 +205,269 @@ public class AlchemyRestClientFactory {
      *            the {@link Client} provider.
      * @param interfaceAnalyzer
      *            the interface analyzer.
+     * @param responseToThrowableMapper
+     *            maps server side exceptions.
+     * @param jaxRsExceptionMapper
+     *            maps error responses to jaxrs exceptions.
+     * @param builderFilter
+     *            the request builder filter.
      */
     @Inject
     public AlchemyRestClientFactory(@Named(BASE_URI_NAMED_PARAM) final String baseUri,
             final Provider<Client> clientProvider, final RestInterfaceAnalyzer interfaceAnalyzer,
             final ResponseToThrowableMapper responseToThrowableMapper,
+            final ResponseToJaxRsExceptionMapper jaxRsExceptionMapper,
             final RequestBuilderFilter builderFilter) {
         this.baseUri = baseUri;
         this.clientProvider = clientProvider;
         this.interfaceAnalyzer = interfaceAnalyzer;
         this.objenesis = new ObjenesisStd();
         this.responseToThrowableMapper = responseToThrowableMapper;
+        this.jaxRsExceptionMapper = jaxRsExceptionMapper;
         this.builderFilter = builderFilter;
+        this.proxyClassCache =
+                CacheBuilder.newBuilder().weakKeys().softValues().recordStats()
+                        .build(new CacheLoader<Class<?>, ObjectInstantiator<?>>() {
+                            @Override
+                            public ObjectInstantiator<?> load(final Class<?> serviceClass) {
+                                return createProxyClass(serviceClass);
+                            }
+                        });
+        this.handlerCache =
+                CacheBuilder.newBuilder().weakKeys().weakValues().build(
+                        new CacheLoader<Class<?>, RestMethodInvocationHandler>() {
+                            @Override
+                            public RestMethodInvocationHandler load(final Class<?> serviceClass)
+                                    throws Exception {
+                                return createHandler(serviceClass);
+                            }
+                        });
     }
 
     /**
-     * Get an instance of a rest proxy instance for the service class.
+     * Generate the proxy class for the service class.
      *
      * @param serviceClass
      *            the service class.
-     * @return the proxy implementation that invokes the remote service.
-     * @throws Exception
+     * @return the instantiator of the generated proxy class.
      */
-    @SuppressWarnings("unchecked")
-    public <T> T getInstance(@NonNull final Class<T> serviceClass) throws Exception {
+    private ObjectInstantiator<?> createProxyClass(final Class<?> serviceClass) {
         final ProxyFactory factory = new ProxyFactory();
         if (serviceClass.isInterface()) {
-            factory.setInterfaces(new Class[] { serviceClass });
+            factory.setInterfaces(new Class<?>[] { serviceClass });
         } else {
             factory.setSuperclass(serviceClass);
         }
-        factory.setFilter(new MethodFilter() {
-            @Override
-            public boolean isHandled(final Method method) {
-                return Modifier.isPublic(method.getModifiers());
-            }
-        });
-
-        final Class<?> klass = factory.createClass();
-        final Object instance = objenesis.getInstantiatorOf(klass).newInstance();
-        ((ProxyObject) instance).setHandler(new RestMethodInvocationHandler(baseUri,
-                clientProvider, interfaceAnalyzer.analyze(serviceClass), responseToThrowableMapper,
-                builderFilter));
+        factory.setFilter(PUBLIC_METHOD_FILTER);
+        // javassist returns a raw class.
+        final Class<?> proxyClass = factory.createClass();
+        return objenesis.getInstantiatorOf(proxyClass);
+    }
+
+    /**
+     * Create the method handler shared by the proxies of the service class.
+     *
+     * @param serviceClass
+     *            the service class.
+     * @return the method handler.
+     * @throws NotRestInterfaceException
+     *             if the service class is not a rest interface.
+     */
+    private RestMethodInvocationHandler createHandler(final Class<?> serviceClass)
+            throws NotRestInterfaceException {
+        return new RestMethodInvocationHandler(baseUri, clientProvider,
+                interfaceAnalyzer.analyze(serviceClass), responseToThrowableMapper,
+                jaxRsExceptionMapper,
+                builderFilter instanceof NoOpRequestBuilderFilter ? null : builderFilter,
+                interceptors, responseObjectMapper, singleFlightGroup,
+                responseCache, retryBudget, invocationListener, slowCallSampler);
+    }
+
+    /**
+     * Set the object mapper used to read json responses directly instead of
+     * going through the jaxrs message body reader lookup. Should be set
+     * before any proxies are created.
+     *
+     * @param responseObjectMapper
+     *            the object mapper.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setResponseObjectMapper(
+            @ResponseObjectMapper final ObjectMapper responseObjectMapper) {
+        this.responseObjectMapper = responseObjectMapper;
+    }
+
+    /**
+     * Get an instance of a rest proxy instance for the service class.
+     *
+     * @param serviceClass
+     *            the service class.
+     * @return the proxy implementation that invokes the remote service.
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getInstance(@NonNull final Class<T> serviceClass) throws Exception {
+        // analyze first to fail fast on non rest classes.
+        interfaceAnalyzer.analyze(serviceClass);
+
+        final Object instance = proxyClassCache.getUnchecked(serviceClass).newInstance();
+        ((ProxyObject) instance).setHandler(handlerCache.getUnchecked(serviceClass));
         return (T) instance;
     }
+
+    /**
+     * @return hit and miss statistics for the generated proxy class cache.
+     */
+    public CacheStats getProxyCacheStats() {
+        return proxyClassCache.stats();
+    }
+
+    /**
+     * Set the cache for GET responses of {@link Cached} methods of all
+     * proxies. Should be set before any proxies are created.
+     *
+     * @param responseCache
+     *            the response cache.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setResponseCache(final ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Set the budget limiting the retries of {@link Retry} methods of all
+     * proxies. Should be set before any proxies are created.
+     *
+     * @param retryBudget
+     *            the retry budget.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setRetryBudget(@NonNull final RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
+    /**
+     * Get the retry budget with the counters for requests and retries made by
+     * {@link Retry} methods.
+     *
+     * @return the retry budget.
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Set the listener notified of every invocation attempt of all proxies,
+     * e.g. {@link com.strandls.alchemy.rest.client.metrics.InvocationMetrics}.
+     * Should be set before any proxies are created.
+     *
+     * @param invocationListener
+     *            the invocation listener.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setInvocationListener(final InvocationListener invocationListener) {
+        this.invocationListener = invocationListener;
+    }
+
+    /**
+     * Set the sampler timing the phases of invocations of all proxies and
+     * keeping the slowest sampled calls. Should be set before any proxies are
+     * created.
+     *
+     * @param slowCallSampler
+     *            the slow call sampler.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setSlowCallSampler(final SlowCallSampler slowCallSampler) {
+        this.slowCallSampler = slowCallSampler;
+    }
+
+    /**
+     * Set the interceptors for invocations of all proxies, called in order
+     * after the {@link RequestBuilderFilter}. Should be set before any
+     * proxies are created.
+     *
+     * @param interceptors
+     *            the interceptors.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setInvocationInterceptors(
+            @NonNull final List<InvocationInterceptor> interceptors) {
+        this.interceptors = ImmutableList.copyOf(interceptors);
+    }
+
+    /**
+     * Get the single flight group with the counters for requests executed
+     * and collapsed by {@link SingleFlight} methods.
+     *
+     * @return the single flight group.
+     */
+    public SingleFlightGroup getSingleFlightGroup() {
+        return singleFlightGroup;
+    }
+
+    /**
+     * Get the circuit breakers of the {@link CircuitBreaker} methods of a
+     * service, for their state, failure and slow call rates.
+     *
+     * @param serviceClass
+     *            the service class.
+     * @return the circuit breakers by rest method.
+     * @throws NotRestInterfaceException
+     *             if the service class is not a rest interface.
+     */
+    public Map<Method, MethodCircuitBreaker> getCircuitBreakers(
+            @NonNull final Class<?> serviceClass) throws NotRestInterfaceException {
+        interfaceAnalyzer.analyze(serviceClass);
+        return handlerCache.getUnchecked(serviceClass).getCircuitBreakers();
+    }
+
+    /**
+     * Get the negative caches of the {@link NegativeCache} methods of a
+     * service, for their hit and false positive rates.
+     *
+     * @param serviceClass
+     *            the service class.
+     * @return the negative caches by rest method.
+     * @throws NotRestInterfaceException
+     *             if the service class is not a rest interface.
+     */
+    public Map<Method, NegativeResultCache> getNegativeCaches(
+            @NonNull final Class<?> serviceClass) throws NotRestInterfaceException {
+        interfaceAnalyzer.analyze(serviceClass);
+        return handlerCache.getUnchecked(serviceClass).getNegativeCaches();
+    }
+
+    /**
+     * Get the recent latencies of successful invocations of the methods of a
+     * service.
+     *
+     * @param serviceClass
+     *            the service class.
+     * @return the latency histograms by rest method.
+     * @throws NotRestInterfaceException
+     *             if the service class is not a rest interface.
+     */
+    public Map<Method, LatencyHistogram> getLatencyHistograms(
+            @NonNull final Class<?> serviceClass) throws NotRestInterfaceException {
+        interfaceAnalyzer.analyze(serviceClass);
+        return handlerCache.getUnchecked(serviceClass).getLatencies();
+    }
+
+    /**
+     * Get the concurrency limiters of the {@link Bulkhead} methods of a
+     * service, for their limit, in flight and rejection counts.
+     *
+     * @param serviceClass
+     *            the service class.
+     * @return the limiters by the rest methods they limit. Methods sharing the
+     *         bulkhead of the service share the limiter.
+     * @throws NotRestInterfaceException
+     *             if the service class is not a rest interface.
+     */
+    public Map<Method, ConcurrencyLimiter> getConcurrencyLimiters(
+            @NonNull final Class<?> serviceClass) throws NotRestInterfaceException {
+        interfaceAnalyzer.analyze(serviceClass);
+        return handlerCache.getUnchecked(serviceClass).getConcurrencyLimiters();
+    }
 }
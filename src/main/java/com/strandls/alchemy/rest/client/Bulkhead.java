@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of concurrent invocations of a rest service so that a
+ * slow service cannot tie up every calling thread. Invocations beyond the
+ * limit fail fast with a {@link BulkheadRejectedException}.
+ *
+ * <p>
+ * When added to the rest interface all its methods share a single limit.
+ * Methods annotated themselves get a limit of their own, or none when the
+ * annotation value is <code>false</code>.
+ * </p>
+ *
+ * <p>
+ * The limit adapts between {@link #minLimit()} and {@link #maxLimit()} based
+ * on the measured round trip times, see {@link ConcurrencyLimiter}.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Bulkhead {
+    /**
+     * @return <code>false</code> to exempt a method of an interface annotated
+     *         with {@link Bulkhead}.
+     */
+    boolean value() default true;
+
+    /**
+     * @return the initial concurrency limit.
+     */
+    int initialLimit() default 20;
+
+    /**
+     * @return the lowest the limit can adapt to.
+     */
+    int minLimit() default 1;
+
+    /**
+     * @return the highest the limit can adapt to.
+     */
+    int maxLimit() default 200;
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import javax.ws.rs.ProcessingException;
+
+import lombok.Getter;
+
+/**
+ * Thrown by rest proxies when an invocation is rejected because the
+ * {@link Bulkhead} concurrency limit for the method has been reached.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class BulkheadRejectedException extends ProcessingException {
+
+    /**
+     * The serial version ID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The concurrency limit at the time of rejection.
+     */
+    @Getter
+    private final int limit;
+
+    /**
+     * Create the exception.
+     *
+     * @param service
+     *            the name of the rejected service method.
+     * @param limit
+     *            the concurrency limit at the time of rejection.
+     */
+    public BulkheadRejectedException(final String service, final int limit) {
+        super(service + " rejected, concurrency limit " + limit + " reached");
+        this.limit = limit;
+    }
+}
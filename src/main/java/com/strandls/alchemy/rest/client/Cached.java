@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the responses of a GET rest method in the
+ * {@link com.strandls.alchemy.rest.client.cache.ResponseCache} of the
+ * {@link AlchemyRestClientFactory}, following the http caching headers of the
+ * response, see
+ * {@link com.strandls.alchemy.rest.client.cache.ResponseCacheFilter}. Methods
+ * are not cached unless annotated, even if a response cache is configured.
+ *
+ * <p>
+ * Cached responses are shared by all callers of the method. Requests carrying
+ * an <code>Authorization</code> header and responses marked
+ * <code>private</code> are never stored, and a cached response is only served
+ * to requests with the same values of the headers named by its
+ * <code>Vary</code> header, including headers added by the
+ * {@link com.strandls.alchemy.rest.client.request.RequestBuilderFilter} or
+ * {@link com.strandls.alchemy.rest.client.request.InvocationInterceptor}s.
+ * </p>
+ *
+ * <p>
+ * Applies to all GET methods when added to the rest interface, and can be
+ * overridden per method. Methods returning streams are never cached.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Cached {
+    /**
+     * @return <code>false</code> to disable caching for a method of an
+     *         interface annotated with {@link Cached}.
+     */
+    boolean value() default true;
+
+    /**
+     * @return the maximum size in bytes of a cached response entity, larger
+     *         responses are not cached.
+     */
+    int maxEntitySize() default 1024 * 1024;
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stops invoking a rest method that keeps failing or responding slowly.
+ *
+ * <p>
+ * Each method gets a breaker of its own, tracking the outcomes of its last
+ * {@link #windowSize()} invocations. The breaker opens once the rate of
+ * failed or slow invocations reaches its threshold, and then rejects
+ * invocations locally with a {@link CircuitOpenException} for
+ * {@link #openMillis()}. After that a few probe invocations are let through,
+ * closing the breaker if they meet the thresholds, opening it again
+ * otherwise.
+ * </p>
+ *
+ * <p>
+ * Connection failures, timeouts and 5xx responses, including server side
+ * exceptions mapped by the
+ * {@link com.strandls.alchemy.rest.client.exception.ResponseToThrowableMapper}
+ * , count as failures. 4xx responses do not.
+ * </p>
+ *
+ * <p>
+ * Applies to all methods when added to the rest interface, and can be
+ * overridden per method.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface CircuitBreaker {
+    /**
+     * @return <code>false</code> to disable the breaker for a method of an
+     *         interface annotated with {@link CircuitBreaker}.
+     */
+    boolean value() default true;
+
+    /**
+     * @return the number of recent invocations tracked.
+     */
+    int windowSize() default 20;
+
+    /**
+     * @return the minimum number of tracked invocations before the breaker
+     *         can open.
+     */
+    int minimumCalls() default 10;
+
+    /**
+     * @return the percentage of failed invocations opening the breaker.
+     */
+    double failureRateThreshold() default 50;
+
+    /**
+     * @return the percentage of slow invocations opening the breaker.
+     */
+    double slowCallRateThreshold() default 100;
+
+    /**
+     * @return the duration in milliseconds beyond which an invocation is
+     *         slow.
+     */
+    long slowCallMillis() default 5000;
+
+    /**
+     * @return the time in milliseconds the breaker stays open before probing.
+     */
+    long openMillis() default 10000;
+
+    /**
+     * @return the number of probe invocations let through by a half open
+     *         breaker.
+     */
+    int halfOpenProbes() default 3;
+}
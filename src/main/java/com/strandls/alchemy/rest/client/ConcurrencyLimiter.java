@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import lombok.Getter;
+
+/**
+ * Concurrency limit adapted by additive increase / multiplicative decrease
+ * of measured round trip times.
+ *
+ * The limit grows by one for every timely invocation that completes while at
+ * least half the limit is in use, and shrinks by {@link #BACKOFF_RATIO} when
+ * an invocation fails to complete, or takes more than
+ * {@link #RTT_TOLERANCE} times the long term average round trip time. The
+ * long term average follows a slow exponential moving average so that the
+ * limit recovers after a lasting change in latency.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class ConcurrencyLimiter {
+    /**
+     * The factor the limit is multiplied by on overload.
+     */
+    static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * Round trip times exceeding this multiple of the average indicate
+     * overload.
+     */
+    static final double RTT_TOLERANCE = 2.0;
+
+    /**
+     * Weight of a new sample in the long term average round trip time.
+     */
+    private static final double RTT_SMOOTHING = 0.05;
+
+    /**
+     * The lowest the limit can adapt to.
+     */
+    @Getter
+    private final int minLimit;
+
+    /**
+     * The highest the limit can adapt to.
+     */
+    @Getter
+    private final int maxLimit;
+
+    /**
+     * The current limit.
+     */
+    private double limit;
+
+    /**
+     * The number of invocations in flight.
+     */
+    private int inFlight;
+
+    /**
+     * The long term average round trip time in nanoseconds, 0 before the
+     * first sample.
+     */
+    private double averageRtt;
+
+    /**
+     * The number of invocations rejected.
+     */
+    private long rejected;
+
+    /**
+     * Create the limiter.
+     *
+     * @param initialLimit
+     *            the initial limit.
+     * @param minLimit
+     *            the lowest the limit can adapt to.
+     * @param maxLimit
+     *            the highest the limit can adapt to.
+     */
+    public ConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limits " + minLimit + " - " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+    }
+
+    /**
+     * Create the limiter from the annotation.
+     *
+     * @param bulkhead
+     *            the bulkhead annotation.
+     */
+    ConcurrencyLimiter(final Bulkhead bulkhead) {
+        this(bulkhead.initialLimit(), bulkhead.minLimit(), bulkhead.maxLimit());
+    }
+
+    /**
+     * Acquire a permit for an invocation.
+     *
+     * @return <code>true</code> if acquired, <code>false</code> if the limit
+     *         has been reached and the invocation should be rejected.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Release the permit of a completed invocation and adapt the limit.
+     *
+     * @param rttNanos
+     *            the round trip time of the invocation in nanoseconds.
+     * @param dropped
+     *            <code>true</code> if the invocation failed to complete, for
+     *            e.g. with a connection failure or timeout.
+     */
+    public synchronized void release(final long rttNanos, final boolean dropped) {
+        final int used = inFlight--;
+        if (dropped || averageRtt > 0 && rttNanos > averageRtt * RTT_TOLERANCE) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } else if (used * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+
+        if (!dropped) {
+            averageRtt =
+                    averageRtt == 0 ? rttNanos : averageRtt + (rttNanos - averageRtt)
+                            * RTT_SMOOTHING;
+        }
+    }
+
+    /**
+     * @return the current concurrency limit.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the number of invocations in flight.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of invocations rejected.
+     */
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+}
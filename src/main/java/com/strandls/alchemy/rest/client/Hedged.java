@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sends a second, hedge, request for an invocation of a rest method if no
+ * response arrives within the {@link #percentile()} latency observed for the
+ * method, and uses whichever response arrives first. The other request is
+ * aborted and its response, if any, closed. Requests sent through the
+ * {@link com.strandls.alchemy.rest.client.connector.PooledClientProvider}
+ * client are aborted by shutting down their connection. With other
+ * connectors a request already sent cannot be aborted and runs to
+ * completion in the background. A hedge counts against
+ * {@link #maxOutstanding()} until it completes.
+ *
+ * <p>
+ * Applies to all GET, PUT and DELETE methods when added to the rest
+ * interface, and can be overridden per method. Other methods are hedged only
+ * if declared {@link #idempotent()}. Methods returning futures are never
+ * hedged. No hedges are sent until the latency of a few invocations has been
+ * observed.
+ * </p>
+ *
+ * <p>
+ * Input stream arguments cannot be sent twice, so methods taking input
+ * streams should not be hedged.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Hedged {
+    /**
+     * @return <code>false</code> to disable hedging for a method of an
+     *         interface annotated with {@link Hedged}.
+     */
+    boolean value() default true;
+
+    /**
+     * @return the percentile of the observed latency after which the hedge is
+     *         sent.
+     */
+    double percentile() default 95;
+
+    /**
+     * @return the maximum number of hedges outstanding at once for the
+     *         method.
+     */
+    int maxOutstanding() default 10;
+
+    /**
+     * @return <code>true</code> to hedge a method other than GET, PUT or
+     *         DELETE known to be idempotent.
+     */
+    boolean idempotent() default false;
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * {@link ResultStream} decoding elements of a json array or a sequence of
+ * newline delimited json values from a response with a streaming parser.
+ *
+ * @author Ashish Shinde
+ *
+ * @param <T>
+ *            the type of the elements.
+ */
+class JsonResultStream<T> implements ResultStream<T> {
+    /**
+     * The response being read.
+     */
+    private final Response response;
+
+    /**
+     * The reader for the elements.
+     */
+    private final ObjectReader reader;
+
+    /**
+     * The parser over the response entity, <code>null</code> once the stream
+     * is closed.
+     */
+    private JsonParser parser;
+
+    /**
+     * Indicates if the elements are enclosed in a json array.
+     */
+    private boolean inArray;
+
+    /**
+     * Indicates if the parser is positioned at the start of the next element.
+     */
+    private boolean hasNext;
+
+    /**
+     * Create the stream.
+     *
+     * @param response
+     *            the response with the json entity.
+     * @param reader
+     *            the reader for the elements.
+     */
+    JsonResultStream(final Response response, final ObjectReader reader) {
+        this.response = response;
+        this.reader = reader;
+
+        if (!response.hasEntity()) {
+            response.close();
+            return;
+        }
+
+        try {
+            parser = reader.getFactory().createParser(response.readEntity(InputStream.class));
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                inArray = true;
+                advance();
+            } else {
+                hasNext = token != null;
+                closeIfDone();
+            }
+        } catch (final IOException e) {
+            close();
+            throw new ProcessingException(e);
+        }
+    }
+
+    /**
+     * Move the parser to the start of the next element.
+     *
+     * @throws IOException
+     */
+    private void advance() throws IOException {
+        final JsonToken token = parser.nextToken();
+        hasNext = token != null && !(inArray && token == JsonToken.END_ARRAY);
+        closeIfDone();
+    }
+
+    /**
+     * Release the response once all elements have been read.
+     */
+    private void closeIfDone() {
+        if (!hasNext) {
+            close();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public T next() {
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            final T value = reader.readValue(parser);
+            advance();
+            return value;
+        } catch (final IOException e) {
+            close();
+            throw new ProcessingException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#remove()
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Cannot remove elements from a result stream");
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.strandls.alchemy.rest.client.ResultStream#close()
+     */
+    @Override
+    public void close() {
+        hasNext = false;
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (final IOException e) {
+                // the response is closed below anyway.
+            } finally {
+                parser = null;
+            }
+        }
+        response.close();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of recent latencies of a rest method.
+ *
+ * Latencies are counted in buckets of microseconds, four per power of two, so
+ * percentiles are accurate to within 25%. Once a window of samples has been
+ * recorded all counts are halved, so that the histogram follows the recent
+ * latencies. Recording is lock free.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class LatencyHistogram {
+    /**
+     * The number of samples after which counts are halved.
+     */
+    static final long WINDOW = 2048;
+
+    /**
+     * The minimum number of samples for percentiles to be available.
+     */
+    static final long MIN_SAMPLES = 20;
+
+    /**
+     * The number of sub buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 4;
+
+    /**
+     * Log2 of {@link #SUB_BUCKETS}.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * The sample counts by bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(
+            index(TimeUnit.NANOSECONDS.toMicros(Long.MAX_VALUE)) + 1);
+
+    /**
+     * The total sample count.
+     */
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * The number of samples after which counts are halved.
+     */
+    private final long window;
+
+    /**
+     * The minimum number of samples for percentiles to be available.
+     */
+    private final long minSamples;
+
+    /**
+     * Create a histogram of recent latencies.
+     */
+    public LatencyHistogram() {
+        this(WINDOW, MIN_SAMPLES);
+    }
+
+    /**
+     * Create the histogram.
+     *
+     * @param window
+     *            the number of samples after which counts are halved,
+     *            {@link Long#MAX_VALUE} to never halve counts.
+     * @param minSamples
+     *            the minimum number of samples for percentiles to be
+     *            available.
+     */
+    public LatencyHistogram(final long window, final long minSamples) {
+        this.window = window;
+        this.minSamples = Math.max(minSamples, 1);
+    }
+
+    /**
+     * Get the bucket for a latency.
+     *
+     * @param micros
+     *            the latency in microseconds.
+     * @return the bucket index.
+     */
+    static int index(final long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        return exponent * SUB_BUCKETS
+                + (int) ((micros >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1))
+                - SUB_BUCKETS;
+    }
+
+    /**
+     * Get the exclusive upper bound of the latencies in a bucket.
+     *
+     * @param index
+     *            the bucket index.
+     * @return the upper bound in microseconds.
+     */
+    static long upperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        final int exponent = index / SUB_BUCKETS + 1;
+        final int subBucket = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos
+     *            the latency in nanoseconds.
+     */
+    public void record(final long nanos) {
+        counts.incrementAndGet(index(TimeUnit.NANOSECONDS.toMicros(nanos)));
+        if (total.incrementAndGet() >= window) {
+            decay();
+        }
+    }
+
+    /**
+     * Halve all counts.
+     */
+    private synchronized void decay() {
+        if (total.get() < window) {
+            // already decayed by another thread.
+            return;
+        }
+
+        long sum = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long count;
+            do {
+                count = counts.get(i);
+            } while (!counts.compareAndSet(i, count, count / 2));
+            sum += count / 2;
+        }
+        total.set(sum);
+    }
+
+    /**
+     * Get a percentile of the recent latencies.
+     *
+     * @param percentile
+     *            the percentile between 0 and 100.
+     * @param unit
+     *            the unit of the returned latency.
+     * @return the latency at or below which the percentile of latencies fall,
+     *         -1 if too few latencies have been recorded.
+     */
+    public long getPercentile(final double percentile, final TimeUnit unit) {
+        final long count = total.get();
+        if (count < minSamples) {
+            return -1;
+        }
+
+        final long rank = Math.max((long) Math.ceil(count * percentile / 100), 1);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= rank) {
+                return unit.convert(upperBound(i), TimeUnit.MICROSECONDS);
+            }
+        }
+        return unit.convert(upperBound(counts.length() - 1), TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @return the number of recent samples, halved every window.
+     */
+    public long getCount() {
+        return total.get();
+    }
+}
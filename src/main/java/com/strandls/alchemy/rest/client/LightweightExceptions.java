@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Raises the exceptions of failed invocations of a rest method without a
+ * local stack trace. The stack trace of a remote failure says nothing about
+ * the failure, and decoding, logging and serializing deep local stack traces
+ * is a large part of the cost of expected errors used for control flow.
+ *
+ * <p>
+ * The exceptions are instances of the usual classes, the standard jax-rs
+ * exceptions for error statuses or the exceptions recreated from a marshalled
+ * server side exception. The stack trace filled in by their constructors is
+ * replaced with a single frame naming the rest method.
+ * </p>
+ *
+ * <p>
+ * Applies to all methods when added to the rest interface, and can be
+ * overridden per method.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface LightweightExceptions {
+    /**
+     * @return <code>false</code> to disable lightweight exceptions for a
+     *         method of an interface annotated with
+     *         {@link LightweightExceptions}.
+     */
+    boolean value() default true;
+}
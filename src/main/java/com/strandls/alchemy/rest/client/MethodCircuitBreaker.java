@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker of a rest method, see {@link CircuitBreaker}.
+ *
+ * Each state change starts a new epoch. Acquisitions are tagged with the
+ * epoch they were let through in and outcomes of invocations from an earlier
+ * epoch are ignored, so calls started while closed and completing after the
+ * breaker opened or went half open are not counted as probes.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Slf4j
+public class MethodCircuitBreaker {
+    /**
+     * Returned by {@link #tryAcquire()} for a rejected invocation.
+     */
+    public static final long REJECTED = -1;
+
+    /**
+     * The breaker states.
+     */
+    public enum State {
+        /**
+         * Invocations go through and their outcomes are tracked.
+         */
+        CLOSED,
+
+        /**
+         * Invocations are rejected.
+         */
+        OPEN,
+
+        /**
+         * A limited number of probe invocations go through.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The name of the method, for logging.
+     */
+    private final String name;
+
+    /**
+     * The minimum number of tracked invocations before the breaker can open.
+     */
+    private final int minimumCalls;
+
+    /**
+     * The percentage of failed invocations opening the breaker.
+     */
+    private final double failureRateThreshold;
+
+    /**
+     * The percentage of slow invocations opening the breaker.
+     */
+    private final double slowCallRateThreshold;
+
+    /**
+     * The duration in nanoseconds beyond which an invocation is slow.
+     */
+    private final long slowCallNanos;
+
+    /**
+     * The time in nanoseconds the breaker stays open.
+     */
+    private final long openNanos;
+
+    /**
+     * The number of probes let through when half open.
+     */
+    private final int halfOpenProbes;
+
+    /**
+     * Failed flags of the tracked invocations, a ring buffer.
+     */
+    private final boolean[] failed;
+
+    /**
+     * Slow flags of the tracked invocations, a ring buffer.
+     */
+    private final boolean[] slow;
+
+    /**
+     * The next ring buffer position.
+     */
+    private int next;
+
+    /**
+     * The number of tracked invocations.
+     */
+    private int calls;
+
+    /**
+     * The number of tracked failed invocations.
+     */
+    private int failures;
+
+    /**
+     * The number of tracked slow invocations.
+     */
+    private int slowCalls;
+
+    /**
+     * The current state.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * The epoch of the current state.
+     */
+    private long epoch;
+
+    /**
+     * The time the breaker opened in nanoseconds.
+     */
+    private long openedAt;
+
+    /**
+     * The number of probes let through since half open.
+     */
+    private int probesStarted;
+
+    /**
+     * The number of probes completed since half open.
+     */
+    private int probesCompleted;
+
+    /**
+     * The number of invocations rejected.
+     */
+    private long rejected;
+
+    /**
+     * Create the breaker.
+     *
+     * @param name
+     *            the name of the method, for logging.
+     * @param windowSize
+     *            the number of recent invocations tracked.
+     * @param minimumCalls
+     *            the minimum number of tracked invocations before the breaker
+     *            can open.
+     * @param failureRateThreshold
+     *            the percentage of failed invocations opening the breaker.
+     * @param slowCallRateThreshold
+     *            the percentage of slow invocations opening the breaker.
+     * @param slowCallMillis
+     *            the duration in milliseconds beyond which an invocation is
+     *            slow.
+     * @param openMillis
+     *            the time in milliseconds the breaker stays open.
+     * @param halfOpenProbes
+     *            the number of probes let through when half open.
+     */
+    public MethodCircuitBreaker(final String name, final int windowSize,
+            final int minimumCalls, final double failureRateThreshold,
+            final double slowCallRateThreshold, final long slowCallMillis,
+            final long openMillis, final int halfOpenProbes) {
+        if (windowSize < 1 || halfOpenProbes < 1) {
+            throw new IllegalArgumentException("Invalid window size " + windowSize
+                    + " or probes " + halfOpenProbes);
+        }
+        this.name = name;
+        this.minimumCalls = Math.min(Math.max(minimumCalls, 1), windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenProbes = halfOpenProbes;
+        failed = new boolean[windowSize];
+        slow = new boolean[windowSize];
+    }
+
+    /**
+     * Create the breaker from the annotation.
+     *
+     * @param name
+     *            the name of the method, for logging.
+     * @param circuitBreaker
+     *            the circuit breaker annotation.
+     */
+    MethodCircuitBreaker(final String name, final CircuitBreaker circuitBreaker) {
+        this(name, circuitBreaker.windowSize(), circuitBreaker.minimumCalls(), circuitBreaker
+                .failureRateThreshold(), circuitBreaker.slowCallRateThreshold(), circuitBreaker
+                .slowCallMillis(), circuitBreaker.openMillis(), circuitBreaker.halfOpenProbes());
+    }
+
+    /**
+     * Ask to let an invocation through.
+     *
+     * @return the epoch the invocation is let through in, to pass to
+     *         {@link #onComplete(long, long, boolean)} or
+     *         {@link #cancel(long)}, or {@link #REJECTED} if it should be
+     *         rejected.
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.CLOSED) {
+            return epoch;
+        }
+
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejected++;
+                return REJECTED;
+            }
+            state = State.HALF_OPEN;
+            epoch++;
+            probesStarted = 0;
+            probesCompleted = 0;
+            resetWindow();
+            log.info("Circuit breaker for {} half open", name);
+        }
+
+        if (probesStarted >= halfOpenProbes) {
+            rejected++;
+            return REJECTED;
+        }
+        probesStarted++;
+        return epoch;
+    }
+
+    /**
+     * Return an acquired permission for an invocation that was never made.
+     *
+     * @param acquiredEpoch
+     *            the epoch returned by {@link #tryAcquire()}.
+     */
+    public synchronized void cancel(final long acquiredEpoch) {
+        if (acquiredEpoch == epoch && state == State.HALF_OPEN
+                && probesStarted > probesCompleted) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * Record the outcome of an invocation let through.
+     *
+     * @param acquiredEpoch
+     *            the epoch returned by {@link #tryAcquire()}.
+     * @param nanos
+     *            the duration of the invocation in nanoseconds.
+     * @param failure
+     *            <code>true</code> if the invocation failed.
+     */
+    public synchronized void onComplete(final long acquiredEpoch, final long nanos,
+            final boolean failure) {
+        if (acquiredEpoch != epoch) {
+            // invocation started before the state changed.
+            return;
+        }
+
+        if (failed[next]) {
+            failures--;
+        }
+        if (slow[next]) {
+            slowCalls--;
+        }
+        failed[next] = failure;
+        slow[next] = nanos >= slowCallNanos;
+        if (failure) {
+            failures++;
+        }
+        if (slow[next]) {
+            slowCalls++;
+        }
+        next = (next + 1) % failed.length;
+        calls = Math.min(calls + 1, failed.length);
+
+        if (state == State.HALF_OPEN) {
+            if (++probesCompleted < halfOpenProbes) {
+                return;
+            }
+            if (isOverThreshold()) {
+                open();
+            } else {
+                state = State.CLOSED;
+                epoch++;
+                resetWindow();
+                log.info("Circuit breaker for {} closed", name);
+            }
+        } else if (calls >= minimumCalls && isOverThreshold()) {
+            open();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the failure or slow call rate of the
+     *         tracked invocations reached its threshold.
+     */
+    private boolean isOverThreshold() {
+        return failures * 100.0 / calls >= failureRateThreshold
+                || slowCalls * 100.0 / calls >= slowCallRateThreshold;
+    }
+
+    /**
+     * Open the breaker.
+     */
+    private void open() {
+        log.warn("Circuit breaker for {} open, {} failed and {} slow of {} calls", name,
+                failures, slowCalls, calls);
+        state = State.OPEN;
+        epoch++;
+        openedAt = System.nanoTime();
+    }
+
+    /**
+     * Forget the tracked invocations.
+     */
+    private void resetWindow() {
+        for (int i = 0; i < failed.length; i++) {
+            failed[i] = false;
+            slow[i] = false;
+        }
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    /**
+     * @return the current state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the percentage of tracked invocations that failed.
+     */
+    public synchronized double getFailureRate() {
+        return calls == 0 ? 0 : failures * 100.0 / calls;
+    }
+
+    /**
+     * @return the percentage of tracked invocations that were slow.
+     */
+    public synchronized double getSlowCallRate() {
+        return calls == 0 ? 0 : slowCalls * 100.0 / calls;
+    }
+
+    /**
+     * @return the number of invocations rejected.
+     */
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+}
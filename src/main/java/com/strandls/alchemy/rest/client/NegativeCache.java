@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Remembers 404 responses of a GET rest method per expanded uri, and answers
+ * repeated requests for the missing resource locally with a 404 response for
+ * {@link #ttlMillis()}. The local response is handled like the remote one,
+ * raised as a {@link javax.ws.rs.NotFoundException} or returned as an empty
+ * value for {@link NullOn404} and optional methods.
+ *
+ * <p>
+ * PUT, POST and DELETE invocations of the same rest interface forget the 404s
+ * of overlapping paths, i.e. of the written path, its parents and its
+ * children. 404s received while a write is in progress are not remembered.
+ * </p>
+ *
+ * <p>
+ * For very large key spaces the 404s can be kept in a pair of rotating
+ * bloom filters instead, with a memory footprint fixed by
+ * {@link #maxEntries()} and {@link #falsePositiveRate()}. A bloom filter can
+ * not forget single paths, writes clear it. A false positive answers a
+ * request for an existing resource with a 404, to measure the rate of these
+ * a {@link #verifyRate()} fraction of the hits is sent to the server anyway.
+ * </p>
+ *
+ * <p>
+ * The cache is keyed by the expanded uri alone. Headers and cookies, whether
+ * bound from parameters or added by the
+ * {@link com.strandls.alchemy.rest.client.request.RequestBuilderFilter} or
+ * {@link com.strandls.alchemy.rest.client.request.InvocationInterceptor}s, are
+ * not part of the key, so methods whose 404s depend on per caller headers,
+ * for e.g. credentials or tenants, should not be cached.
+ * </p>
+ *
+ * <p>
+ * Applies to synchronous GET methods not returning a
+ * {@link javax.ws.rs.core.Response} or a {@link ResultStream}. Applies to all
+ * methods when added to the rest interface, and can be overridden per method.
+ * Each method gets a cache of its own.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface NegativeCache {
+    /**
+     * @return <code>false</code> to disable the cache for a method of an
+     *         interface annotated with {@link NegativeCache}.
+     */
+    boolean value() default true;
+
+    /**
+     * @return the time in milliseconds a 404 is remembered for.
+     */
+    long ttlMillis() default 30000;
+
+    /**
+     * @return the maximum number of remembered 404s, the expected number of
+     *         404s per {@link #ttlMillis()} for bloom filters.
+     */
+    int maxEntries() default 10000;
+
+    /**
+     * @return <code>true</code> to remember 404s in bloom filters.
+     */
+    boolean bloomFilter() default false;
+
+    /**
+     * @return the false positive rate the bloom filters are sized for.
+     */
+    double falsePositiveRate() default 0.01;
+
+    /**
+     * @return the fraction of bloom filter hits sent to the server to measure
+     *         the actual false positive rate.
+     */
+    double verifyRate() default 0.01;
+}
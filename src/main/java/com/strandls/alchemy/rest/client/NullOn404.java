@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Returns <code>null</code> for 404 responses of a rest method instead of
+ * raising a {@link javax.ws.rs.NotFoundException}. The response is closed
+ * unread and no exception is created, which makes a missing resource as cheap
+ * as a found one.
+ *
+ * <p>
+ * Methods returning {@link com.google.common.base.Optional} get the same
+ * treatment without the annotation and return an absent value for 404
+ * responses. The annotation is ignored for methods returning a primitive.
+ * </p>
+ *
+ * <p>
+ * Applies to all methods when added to the rest interface, and can be
+ * overridden per method.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface NullOn404 {
+    /**
+     * @return <code>false</code> to raise a
+     *         {@link javax.ws.rs.NotFoundException} for a method of an
+     *         interface annotated with {@link NullOn404}.
+     */
+    boolean value() default true;
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Binds a single rest method argument to a part of the http request.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor
+public class ParameterBinding {
+    /**
+     * The part of the request an argument is bound to.
+     */
+    public static enum Type {
+        /**
+         * Unannotated argument sent as the request entity.
+         */
+        BODY,
+        /**
+         * {@link javax.ws.rs.PathParam}.
+         */
+        PATH,
+        /**
+         * {@link javax.ws.rs.MatrixParam}.
+         */
+        MATRIX,
+        /**
+         * {@link javax.ws.rs.QueryParam}.
+         */
+        QUERY,
+        /**
+         * {@link javax.ws.rs.HeaderParam}.
+         */
+        HEADER,
+        /**
+         * {@link javax.ws.rs.CookieParam}.
+         */
+        COOKIE,
+        /**
+         * {@link javax.ws.rs.FormParam}.
+         */
+        FORM,
+        /**
+         * {@link org.glassfish.jersey.media.multipart.FormDataParam}.
+         */
+        FORM_DATA
+    }
+
+    /**
+     * The binding type.
+     */
+    @NonNull
+    private final Type type;
+
+    /**
+     * The index of the argument in the method arguments.
+     */
+    private final int index;
+
+    /**
+     * The parameter name from the annotation, <code>null</code> for
+     * {@link Type#BODY}.
+     */
+    private final String name;
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.inject.BindingAnnotation;
+
+/**
+ * {@link BindingAnnotation} for the optional object mapper used by
+ * {@link AlchemyRestClientFactory} to read json responses directly, skipping
+ * the jaxrs message body reader lookup. Should be configured the same way as
+ * the mapper of the json provider registered with the client. Methods returning
+ * the raw entity, for e.g. a {@link String} or an {@link java.io.InputStream},
+ * are still read by the jaxrs readers.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER })
+@BindingAnnotation
+public @interface ResponseObjectMapper {
+}
@@ -19,30 +19,49 @@ package com.strandls.alchemy.rest.client;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import javax.inject.Singleton;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.CookieParam;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.HttpMethod;
+import javax.ws.rs.MatrixParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.reflections.ReflectionUtils;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Analyzes {@link Class} to extract {@link RestInterfaceMetadata}.
@@ -52,6 +71,12 @@ import com.google.common.cache.LoadingCache;
  */
 @Singleton
 public class RestInterfaceAnalyzer {
+    /**
+     * Http methods retried and hedged by default.
+     */
+    private static final Set<String> IDEMPOTENT_METHODS = ImmutableSet.of(HttpMethod.GET,
+            HttpMethod.PUT, HttpMethod.DELETE);
+
     /**
      * The cache from class to rest metadata.
      */
@@ -93,11 +118,13 @@ public class RestInterfaceAnalyzer {
     /**
      * Get rest meta data for the method.
      *
+     * @param klass
+     *            the analyzed class.
      * @param method
      *            the method to analyze.
      * @return the metadata for a method.
      */
-    private RestMethodMetadata analyzeMethod(final Method method) {
+    private RestMethodMetadata analyzeMethod(final Class<?> klass, final Method method) {
         String path = "";
         String httpMethod = null;
         final List<String> produced = new ArrayList<String>();
@@ -128,8 +155,296 @@ public class RestInterfaceAnalyzer {
             // no http method specified.
             return null;
         }
-        return new RestMethodMetadata(path, httpMethod, produced, consumed,
-                method.getParameterAnnotations());
+
+        final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        return new RestMethodMetadata(path, httpMethod, produced, consumed, parameterAnnotations,
+                compileInvocationPlan(klass, method, httpMethod, produced, consumed,
+                        parameterAnnotations));
+    }
+
+    /**
+     * Compile the plan to bind method arguments to a request.
+     *
+     * @param klass
+     *            the analyzed class.
+     * @param method
+     *            the rest method.
+     * @param httpMethod
+     *            the http method.
+     * @param produced
+     *            media types produced by the method.
+     * @param consumed
+     *            media types consumed by the method.
+     * @param parameterAnnotations
+     *            annotations on method parameters.
+     * @return the invocation plan.
+     */
+    private RestMethodInvocationPlan compileInvocationPlan(final Class<?> klass,
+            final Method method, final String httpMethod, final List<String> produced,
+            final List<String> consumed, final Annotation[][] parameterAnnotations) {
+        final boolean async = isAsync(method);
+        Type entityType =
+                async ? getTypeArgument(method.getGenericReturnType()) : method
+                        .getGenericReturnType();
+        final Class<?> entityClass = new GenericType<Object>(entityType).getRawType();
+        final boolean streamed =
+                entityClass == ResultStream.class || entityClass == Iterator.class;
+        final boolean optional = entityClass == Optional.class;
+        if (streamed || optional) {
+            entityType = getTypeArgument(entityType);
+        }
+
+        NullOn404 nullOn404 = method.getAnnotation(NullOn404.class);
+        if (nullOn404 == null) {
+            nullOn404 = klass.getAnnotation(NullOn404.class);
+        }
+        if (nullOn404 != null && (!nullOn404.value() || streamed || entityClass.isPrimitive()
+                && entityClass != void.class)) {
+            // null can not be returned for primitives.
+            nullOn404 = null;
+        }
+
+        SingleFlight singleFlight = null;
+        if (HttpMethod.GET.equals(httpMethod) && !async && !streamed
+                && entityClass != Response.class) {
+            singleFlight = method.getAnnotation(SingleFlight.class);
+            if (singleFlight == null) {
+                singleFlight = klass.getAnnotation(SingleFlight.class);
+            }
+            if (singleFlight != null && !singleFlight.value()) {
+                singleFlight = null;
+            }
+        }
+
+        Cached cached = null;
+        if (HttpMethod.GET.equals(httpMethod) && !streamed) {
+            cached = method.getAnnotation(Cached.class);
+            if (cached == null) {
+                cached = klass.getAnnotation(Cached.class);
+            }
+            if (cached != null && !cached.value()) {
+                cached = null;
+            }
+        }
+
+        NegativeCache negativeCache = null;
+        if (HttpMethod.GET.equals(httpMethod) && !async && !streamed
+                && entityClass != Response.class) {
+            negativeCache = method.getAnnotation(NegativeCache.class);
+            if (negativeCache == null) {
+                negativeCache = klass.getAnnotation(NegativeCache.class);
+            }
+            if (negativeCache != null && !negativeCache.value()) {
+                negativeCache = null;
+            }
+        }
+
+        Retry retry = null;
+        if (!async) {
+            retry = method.getAnnotation(Retry.class);
+            if (retry == null) {
+                retry = klass.getAnnotation(Retry.class);
+            }
+            if (retry != null && (!retry.value() || !retry.idempotent()
+                    && !IDEMPOTENT_METHODS.contains(httpMethod))) {
+                retry = null;
+            }
+        }
+
+        Hedged hedged = null;
+        if (!async) {
+            hedged = method.getAnnotation(Hedged.class);
+            if (hedged == null) {
+                hedged = klass.getAnnotation(Hedged.class);
+            }
+            if (hedged != null && (!hedged.value() || !hedged.idempotent()
+                    && !IDEMPOTENT_METHODS.contains(httpMethod))) {
+                hedged = null;
+            }
+        }
+
+        CircuitBreaker circuitBreaker = method.getAnnotation(CircuitBreaker.class);
+        if (circuitBreaker == null) {
+            circuitBreaker = klass.getAnnotation(CircuitBreaker.class);
+        }
+        if (circuitBreaker != null && !circuitBreaker.value()) {
+            circuitBreaker = null;
+        }
+
+        LightweightExceptions lightweightExceptions =
+                method.getAnnotation(LightweightExceptions.class);
+        if (lightweightExceptions == null) {
+            lightweightExceptions = klass.getAnnotation(LightweightExceptions.class);
+        }
+        if (lightweightExceptions != null && !lightweightExceptions.value()) {
+            lightweightExceptions = null;
+        }
+
+        return new RestMethodInvocationPlan(compileBindings(parameterAnnotations),
+                getBodyMediaType(consumed), getAcceptedMediaTypes(produced, consumed),
+                new GenericType<Object>(entityType), async, streamed, singleFlight,
+                method.getAnnotation(Bulkhead.class), retry, hedged, circuitBreaker,
+                lightweightExceptions, optional, optional || nullOn404 != null, negativeCache,
+                cached);
+    }
+
+    /**
+     * Compile the plan to bind method arguments to a request from the method
+     * metadata alone. Without the method the response entity is decoded as an
+     * {@link Object} and no invocation policies are applied.
+     *
+     * @param produced
+     *            media types produced by the method.
+     * @param consumed
+     *            media types consumed by the method.
+     * @param parameterAnnotations
+     *            annotations on method parameters.
+     * @return the invocation plan.
+     */
+    static RestMethodInvocationPlan compileInvocationPlan(final List<String> produced,
+            final List<String> consumed, final Annotation[][] parameterAnnotations) {
+        return new RestMethodInvocationPlan(compileBindings(parameterAnnotations),
+                getBodyMediaType(consumed), getAcceptedMediaTypes(produced, consumed),
+                new GenericType<Object>(Object.class), false, false, null, null, null, null,
+                null, null, false, false, null, null);
+    }
+
+    /**
+     * Compile the bindings of method arguments to the request.
+     *
+     * @param parameterAnnotations
+     *            annotations on method parameters.
+     * @return the bindings in argument order.
+     */
+    private static List<ParameterBinding> compileBindings(
+            final Annotation[][] parameterAnnotations) {
+        final List<ParameterBinding> bindings = new ArrayList<ParameterBinding>();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            if (parameterAnnotations[i].length == 0) {
+                // body parameter without annotation
+                bindings.add(new ParameterBinding(ParameterBinding.Type.BODY, i, null));
+                continue;
+            }
+
+            for (final Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof PathParam) {
+                    bindings.add(new ParameterBinding(ParameterBinding.Type.PATH, i,
+                            ((PathParam) annotation).value()));
+                } else if (annotation instanceof MatrixParam) {
+                    bindings.add(new ParameterBinding(ParameterBinding.Type.MATRIX, i,
+                            ((MatrixParam) annotation).value()));
+                } else if (annotation instanceof QueryParam) {
+                    bindings.add(new ParameterBinding(ParameterBinding.Type.QUERY, i,
+                            ((QueryParam) annotation).value()));
+                } else if (annotation instanceof HeaderParam) {
+                    bindings.add(new ParameterBinding(ParameterBinding.Type.HEADER, i,
+                            ((HeaderParam) annotation).value()));
+                } else if (annotation instanceof CookieParam) {
+                    bindings.add(new ParameterBinding(ParameterBinding.Type.COOKIE, i,
+                            ((CookieParam) annotation).value()));
+                } else if (annotation instanceof FormParam) {
+                    bindings.add(new ParameterBinding(ParameterBinding.Type.FORM, i,
+                            ((FormParam) annotation).value()));
+                } else if (annotation instanceof FormDataParam) {
+                    bindings.add(new ParameterBinding(ParameterBinding.Type.FORM_DATA, i,
+                            ((FormDataParam) annotation).value()));
+                }
+            }
+        }
+        return bindings;
+    }
+
+    /**
+     * Get the media type of the request entity.
+     *
+     * @param consumed
+     *            media types consumed by the method.
+     * @return the first consumed media type, the wildcard type if there is
+     *         none.
+     */
+    private static MediaType getBodyMediaType(final List<String> consumed) {
+        return consumed.isEmpty() || StringUtils.isBlank(consumed.get(0)) ? MediaType.WILDCARD_TYPE
+                : toMediaType(consumed.get(0));
+    }
+
+    /**
+     * Get the media types acceptable as a response.
+     *
+     * @param produced
+     *            media types produced by the method.
+     * @param consumed
+     *            media types consumed by the method.
+     * @return both the produced and the consumed media types.
+     */
+    private static MediaType[] getAcceptedMediaTypes(final List<String> produced,
+            final List<String> consumed) {
+        final List<MediaType> accepted = new ArrayList<MediaType>();
+        for (final String mediaType : produced) {
+            accepted.add(toMediaType(mediaType));
+        }
+        for (final String mediaType : consumed) {
+            accepted.add(toMediaType(mediaType));
+        }
+        return accepted.toArray(new MediaType[accepted.size()]);
+    }
+
+    /**
+     * Indicates if the method should be invoked asynchronously.
+     *
+     * @param method
+     *            the rest method.
+     * @return <code>true</code> if the method returns a {@link Future} or a
+     *         {@link ListenableFuture}.
+     */
+    public static boolean isAsync(final Method method) {
+        final Class<?> returnType = method.getReturnType();
+        return returnType == Future.class || returnType == ListenableFuture.class;
+    }
+
+    /**
+     * Get the type argument of a single parameter generic type like a future
+     * or an iterator.
+     *
+     * @param genericType
+     *            the generic type.
+     * @return the value type, {@link Object} if the type is not
+     *         parameterized.
+     */
+    private static Type getTypeArgument(final Type genericType) {
+        if (!(genericType instanceof ParameterizedType)) {
+            return Object.class;
+        }
+
+        final Type valueType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+        if (valueType instanceof WildcardType) {
+            return ((WildcardType) valueType).getUpperBounds()[0];
+        }
+        return valueType instanceof TypeVariable ? Object.class : valueType;
+    }
+
+    /**
+     * Parse a media type. Does not use {@link MediaType#valueOf(String)} as
+     * that needs a jaxrs runtime, which is not always available when
+     * generating stubs.
+     *
+     * @param mediaType
+     *            the media type string, for e.g. "application/json;
+     *            charset=UTF-8".
+     * @return the parsed media type.
+     */
+    private static MediaType toMediaType(final String mediaType) {
+        final String[] parts = mediaType.split(";");
+        final String[] typeAndSubtype = parts[0].trim().split("/", 2);
+        final Map<String, String> parameters = new LinkedHashMap<String, String>();
+        for (int i = 1; i < parts.length; i++) {
+            final String[] parameter = parts[i].split("=", 2);
+            if (parameter.length == 2) {
+                parameters.put(parameter[0].trim(),
+                        StringUtils.strip(parameter[1].trim(), "\""));
+            }
+        }
+        return new MediaType(typeAndSubtype[0], typeAndSubtype.length > 1 ? typeAndSubtype[1]
+                : MediaType.MEDIA_TYPE_WILDCARD, parameters);
     }
 
     /**
@@ -146,6 +461,7 @@ public class RestInterfaceAnalyzer {
         final List<String> produced = new ArrayList<String>();
         final List<String> consumed = new ArrayList<String>();
         String path = null;
+        Bulkhead bulkhead = null;
 
         @SuppressWarnings("unchecked")
         final Set<Annotation> declaredAnnotationList = ReflectionUtils.getAllAnnotations(klass);
@@ -160,6 +476,8 @@ public class RestInterfaceAnalyzer {
                 final Consumes consumes = (Consumes) annotation;
                 final String[] values = consumes.value();
                 consumed.addAll(Arrays.asList(values));
+            } else if (annotation instanceof Bulkhead) {
+                bulkhead = (Bulkhead) annotation;
             }
         }
 
@@ -176,7 +494,7 @@ public class RestInterfaceAnalyzer {
         });
 
         for (final Method method : methods) {
-            final RestMethodMetadata methodMetadata = analyzeMethod(method);
+            final RestMethodMetadata methodMetadata = analyzeMethod(klass, method);
             if (methodMetadata != null) {
                 methodMetadataMap.put(method, methodMetadata);
             }
@@ -187,6 +505,6 @@ public class RestInterfaceAnalyzer {
             throw new NotRestInterfaceException(klass);
         }
 
-        return new RestInterfaceMetadata(path, produced, consumed, methodMetadataMap);
+        return new RestInterfaceMetadata(path, produced, consumed, methodMetadataMap, bulkhead);
     }
 }
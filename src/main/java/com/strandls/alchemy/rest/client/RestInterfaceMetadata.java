@@ -22,6 +22,7 @@ import java.util.Map;
 
 import lombok.Data;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 
 /**
  * Metadata for the rest interface / implementing class obtained from
@@ -31,6 +32,7 @@ import lombok.NonNull;
  *
  */
 @Data
+@RequiredArgsConstructor
 public class RestInterfaceMetadata {
     /**
      * The base path.
@@ -54,4 +56,27 @@ public class RestInterfaceMetadata {
      */
     @NonNull
     private final Map<Method, RestMethodMetadata> methodMetaData;
+
+    /**
+     * The bulkhead shared by the methods of the interface, can be
+     * <code>null</code>.
+     */
+    private final Bulkhead bulkhead;
+
+    /**
+     * Create metadata without a bulkhead.
+     *
+     * @param path
+     *            the base path.
+     * @param produced
+     *            list of media types produced.
+     * @param consumed
+     *            list of media types consumed.
+     * @param methodMetaData
+     *            metadata for methods.
+     */
+    public RestInterfaceMetadata(final String path, final List<String> produced,
+            final List<String> consumed, final Map<Method, RestMethodMetadata> methodMetaData) {
+        this(path, produced, consumed, methodMetaData, null);
+    }
 }
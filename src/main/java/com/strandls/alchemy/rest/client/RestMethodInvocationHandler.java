@@ -0,0 +1,1800 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javassist.util.proxy.MethodHandler;
+
+import javax.inject.Provider;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.AsyncInvoker;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.glassfish.jersey.media.multipart.ContentDisposition;
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
+import org.glassfish.jersey.media.multipart.FormDataMultiPart;
+import org.glassfish.jersey.media.multipart.MultiPart;
+import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.strandls.alchemy.rest.client.cache.NegativeCacheFilter;
+import com.strandls.alchemy.rest.client.cache.NegativeResultCache;
+import com.strandls.alchemy.rest.client.cache.ResponseCache;
+import com.strandls.alchemy.rest.client.cache.ResponseCacheFilter;
+import com.strandls.alchemy.rest.client.connector.ExchangeAbort;
+import com.strandls.alchemy.rest.client.connector.ExchangeAbortFilter;
+import com.strandls.alchemy.rest.client.exception.ResponseToJaxRsExceptionMapper;
+import com.strandls.alchemy.rest.client.exception.ResponseToThrowableMapper;
+import com.strandls.alchemy.rest.client.metrics.ExchangeStats;
+import com.strandls.alchemy.rest.client.metrics.ExchangeStatsFilter;
+import com.strandls.alchemy.rest.client.metrics.InvocationEvent;
+import com.strandls.alchemy.rest.client.metrics.InvocationListener;
+import com.strandls.alchemy.rest.client.metrics.Phase;
+import com.strandls.alchemy.rest.client.metrics.PhaseTimer;
+import com.strandls.alchemy.rest.client.metrics.SlowCallSampler;
+import com.strandls.alchemy.rest.client.request.InvocationContext;
+import com.strandls.alchemy.rest.client.request.InvocationInterceptor;
+import com.strandls.alchemy.rest.client.request.RequestBuilderFilter;
+
+/**
+ * Handles rest method invocation for a single rest service.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Slf4j
+class RestMethodInvocationHandler implements MethodHandler {
+    /**
+     * A web target created by a client.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    @Data
+    private static class ClientTarget {
+        /**
+         * The client that created the target.
+         */
+        private final Client client;
+
+        /**
+         * The target.
+         */
+        private final WebTarget target;
+    }
+
+    /**
+     * Mapper for streamed responses and result copies if no
+     * {@link ResponseObjectMapper} is configured.
+     */
+    private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
+
+    /**
+     * Filter serving requests from the response cache.
+     */
+    private static final ResponseCacheFilter RESPONSE_CACHE_FILTER = new ResponseCacheFilter();
+
+    /**
+     * Filter collecting the response status and entity sizes for the
+     * {@link InvocationListener} and the phase timings of sampled calls.
+     */
+    private static final ExchangeStatsFilter EXCHANGE_STATS_FILTER = new ExchangeStatsFilter();
+
+    /**
+     * Filter answering requests for missing resources from negative caches.
+     */
+    private static final NegativeCacheFilter NEGATIVE_CACHE_FILTER = new NegativeCacheFilter();
+
+    /**
+     * Filter failing aborted requests of hedged invocations.
+     */
+    private static final ExchangeAbortFilter EXCHANGE_ABORT_FILTER = new ExchangeAbortFilter();
+
+    /**
+     * Response statuses indicating a transient failure worth retrying.
+     */
+    private static final Set<Integer> RETRIED_STATUSES = ImmutableSet.of(
+            Response.Status.BAD_GATEWAY.getStatusCode(),
+            Response.Status.SERVICE_UNAVAILABLE.getStatusCode(),
+            Response.Status.GATEWAY_TIMEOUT.getStatusCode());
+
+    /**
+     * Jax rs client provider.
+     */
+    private final Provider<Client> clientProvider;
+
+    /**
+     * Rest interface metadata.
+     */
+    private final RestInterfaceMetadata restInterfaceMetadata;
+
+    /**
+     * Maps server side errors to local errors.
+     */
+    private final ResponseToThrowableMapper responseToThrowableMapper;
+
+    /**
+     * Maps error responses to jaxrs exceptions.
+     */
+    private final ResponseToJaxRsExceptionMapper jaxRsExceptionMapper;
+
+    /**
+     * The request builder filter, <code>null</code> if a no-op.
+     */
+    private final RequestBuilderFilter builderFilter;
+
+    /**
+     * Interceptor chains of the rest methods that have interceptors.
+     */
+    private final Map<Method, InvocationInterceptor[]> interceptorChains;
+
+    /**
+     * Compiled paths for the rest methods.
+     */
+    private final Map<Method, RestPathTemplate> pathTemplates;
+
+    /**
+     * Web targets for methods with a static uri, reused as long as the
+     * client provider returns the same client.
+     */
+    private final Map<Method, AtomicReference<ClientTarget>> staticTargets;
+
+    /**
+     * Readers for json response entities keyed by the rest method. Contains
+     * only methods with streamed responses if no {@link ResponseObjectMapper}
+     * is configured.
+     */
+    private final Map<Method, ObjectReader> jsonReaders;
+
+    /**
+     * Collapses concurrent identical invocations of single flight methods.
+     */
+    private final SingleFlightGroup singleFlightGroup;
+
+    /**
+     * Copiers for results of single flight methods configured to copy
+     * results.
+     */
+    private final Map<Method, Function<Object, Object>> resultCopiers;
+
+    /**
+     * The response cache for {@link Cached} methods, can be <code>null</code>.
+     */
+    private final ResponseCache responseCache;
+
+    /**
+     * Concurrency limiters for methods with a {@link Bulkhead}. Methods
+     * sharing the bulkhead of the rest interface share the limiter.
+     */
+    private final Map<Method, ConcurrencyLimiter> concurrencyLimiters;
+
+    /**
+     * Limits the retries of {@link Retry} methods.
+     */
+    private final RetryBudget retryBudget;
+
+    /**
+     * Recent latencies of the rest methods.
+     */
+    private final Map<Method, LatencyHistogram> latencies;
+
+    /**
+     * Permits for outstanding hedges of {@link Hedged} methods.
+     */
+    private final Map<Method, Semaphore> hedgePermits;
+
+    /**
+     * Circuit breakers of {@link CircuitBreaker} methods.
+     */
+    private final Map<Method, MethodCircuitBreaker> circuitBreakers;
+
+    /**
+     * Negative caches of {@link NegativeCache} methods.
+     */
+    private final Map<Method, NegativeResultCache> negativeCaches;
+
+    /**
+     * All negative caches of the interface, invalidated by writes.
+     */
+    private final NegativeResultCache[] invalidatedCaches;
+
+    /**
+     * The filters the interface needs on the client, registered when the
+     * handler is created and on any other client before its first use.
+     */
+    private final Object[] clientFilters;
+
+    /**
+     * Notified of every invocation attempt, can be <code>null</code>.
+     */
+    private final InvocationListener invocationListener;
+
+    /**
+     * Times the phases of sampled invocations, can be <code>null</code>.
+     */
+    private final SlowCallSampler slowCallSampler;
+
+    /**
+     * Create the handler.
+     *
+     * @param baseUri
+     *            the base URI.
+     * @param clientProvider
+     *            jax rs client provider.
+     * @param restInterfaceMetadata
+     *            the rest interface metadata.
+     * @param responseToThrowableMapper
+     *            maps server side errors to local errors.
+     * @param jaxRsExceptionMapper
+     *            maps error responses to jaxrs exceptions.
+     * @param builderFilter
+     *            the request builder filter, applied before the cookie and
+     *            header params are set, can be <code>null</code>.
+     * @param interceptors
+     *            the interceptors, in chain order. Each method's chain has
+     *            the interceptors applicable to it.
+     * @param responseObjectMapper
+     *            the object mapper to read json responses with, can be
+     *            <code>null</code>.
+     * @param singleFlightGroup
+     *            collapses concurrent identical invocations of single flight
+     *            methods.
+     * @param responseCache
+     *            the response cache for GET requests, can be
+     *            <code>null</code>.
+     * @param retryBudget
+     *            limits the retries of {@link Retry} methods.
+     * @param invocationListener
+     *            notified of every invocation attempt, can be
+     *            <code>null</code>.
+     * @param slowCallSampler
+     *            times the phases of sampled invocations, can be
+     *            <code>null</code>.
+     */
+    RestMethodInvocationHandler(final String baseUri, final Provider<Client> clientProvider,
+            final RestInterfaceMetadata restInterfaceMetadata,
+            final ResponseToThrowableMapper responseToThrowableMapper,
+            final ResponseToJaxRsExceptionMapper jaxRsExceptionMapper,
+            final RequestBuilderFilter builderFilter,
+            final List<InvocationInterceptor> interceptors,
+            final ObjectMapper responseObjectMapper,
+            final SingleFlightGroup singleFlightGroup, final ResponseCache responseCache,
+            final RetryBudget retryBudget, final InvocationListener invocationListener,
+            final SlowCallSampler slowCallSampler) {
+        this.clientProvider = clientProvider;
+        this.restInterfaceMetadata = restInterfaceMetadata;
+        this.responseToThrowableMapper = responseToThrowableMapper;
+        this.jaxRsExceptionMapper = jaxRsExceptionMapper;
+        this.builderFilter = builderFilter;
+        this.singleFlightGroup = singleFlightGroup;
+        this.responseCache = responseCache;
+        this.retryBudget = retryBudget;
+        this.invocationListener = invocationListener;
+        this.slowCallSampler = slowCallSampler;
+
+        pathTemplates = new HashMap<Method, RestPathTemplate>();
+        staticTargets = new HashMap<Method, AtomicReference<ClientTarget>>();
+        jsonReaders = new HashMap<Method, ObjectReader>();
+        resultCopiers = new HashMap<Method, Function<Object, Object>>();
+        concurrencyLimiters = new HashMap<Method, ConcurrencyLimiter>();
+        latencies = new HashMap<Method, LatencyHistogram>();
+        hedgePermits = new HashMap<Method, Semaphore>();
+        circuitBreakers = new HashMap<Method, MethodCircuitBreaker>();
+        negativeCaches = new HashMap<Method, NegativeResultCache>();
+        interceptorChains = new HashMap<Method, InvocationInterceptor[]>();
+        final Bulkhead interfaceBulkhead = restInterfaceMetadata.getBulkhead();
+        final ConcurrencyLimiter interfaceLimiter =
+                interfaceBulkhead != null && interfaceBulkhead.value() ? new ConcurrencyLimiter(
+                        interfaceBulkhead) : null;
+        boolean cachedMethods = false;
+        for (final Map.Entry<Method, RestMethodMetadata> entry : restInterfaceMetadata
+                .getMethodMetaData().entrySet()) {
+            final RestMethodMetadata methodMetadata = entry.getValue();
+            final RestPathTemplate pathTemplate =
+                    new RestPathTemplate(baseUri, restInterfaceMetadata.getPath(), methodMetadata);
+            pathTemplates.put(entry.getKey(), pathTemplate);
+            if (pathTemplate.isStatic()) {
+                staticTargets.put(entry.getKey(), new AtomicReference<ClientTarget>());
+            }
+
+            final RestMethodInvocationPlan plan = methodMetadata.getInvocationPlan();
+            final ObjectMapper mapper =
+                    responseObjectMapper == null && plan.isStreamed() ? DEFAULT_MAPPER
+                            : responseObjectMapper;
+            if (mapper != null && !plan.isVoid() && (plan.isStreamed() || !plan.isRawEntity())) {
+                jsonReaders.put(entry.getKey(), mapper.reader(mapper.getTypeFactory()
+                        .constructType(plan.getEntityType().getType())));
+            }
+
+            if (plan.getSingleFlight() != null && plan.getSingleFlight().copy()) {
+                resultCopiers.put(entry.getKey(), createCopier(
+                        responseObjectMapper != null ? responseObjectMapper : DEFAULT_MAPPER,
+                        plan));
+            }
+
+            final Bulkhead bulkhead = plan.getBulkhead();
+            final ConcurrencyLimiter limiter =
+                    bulkhead == null ? interfaceLimiter : bulkhead.value() ? new ConcurrencyLimiter(
+                            bulkhead) : null;
+            if (limiter != null) {
+                concurrencyLimiters.put(entry.getKey(), limiter);
+            }
+
+            cachedMethods |= plan.getCached() != null;
+            latencies.put(entry.getKey(), new LatencyHistogram());
+            if (plan.getHedged() != null) {
+                hedgePermits.put(entry.getKey(), new Semaphore(plan.getHedged().maxOutstanding()));
+            }
+            if (plan.getCircuitBreaker() != null) {
+                circuitBreakers.put(entry.getKey(), new MethodCircuitBreaker(
+                        getName(entry.getKey()), plan.getCircuitBreaker()));
+            }
+            final NegativeCache negativeCache = plan.getNegativeCache();
+            if (negativeCache != null) {
+                negativeCaches.put(entry.getKey(), new NegativeResultCache(
+                        negativeCache.ttlMillis(), negativeCache.maxEntries(),
+                        negativeCache.bloomFilter(), negativeCache.falsePositiveRate(),
+                        negativeCache.verifyRate()));
+            }
+
+            final List<InvocationInterceptor> chain = new ArrayList<InvocationInterceptor>();
+            for (final InvocationInterceptor interceptor : interceptors) {
+                if (interceptor.isApplicable(entry.getKey(), methodMetadata)) {
+                    chain.add(interceptor);
+                }
+            }
+            if (!chain.isEmpty()) {
+                interceptorChains.put(entry.getKey(),
+                        chain.toArray(new InvocationInterceptor[chain.size()]));
+            }
+        }
+        invalidatedCaches =
+                negativeCaches.values().toArray(new NegativeResultCache[negativeCaches.size()]);
+
+        final List<Object> filters = new ArrayList<Object>();
+        if (responseCache != null && cachedMethods) {
+            filters.add(RESPONSE_CACHE_FILTER);
+        }
+        if (invocationListener != null || slowCallSampler != null) {
+            filters.add(EXCHANGE_STATS_FILTER);
+        }
+        if (!negativeCaches.isEmpty()) {
+            filters.add(NEGATIVE_CACHE_FILTER);
+        }
+        if (!hedgePermits.isEmpty()) {
+            filters.add(EXCHANGE_ABORT_FILTER);
+        }
+        clientFilters = filters.toArray();
+        registerFilters(clientProvider.get());
+    }
+
+    /**
+     * @return the negative caches by rest method.
+     */
+    Map<Method, NegativeResultCache> getNegativeCaches() {
+        return Collections.unmodifiableMap(negativeCaches);
+    }
+
+    /**
+     * @return the concurrency limiters by the rest methods they limit.
+     */
+    Map<Method, ConcurrencyLimiter> getConcurrencyLimiters() {
+        return Collections.unmodifiableMap(concurrencyLimiters);
+    }
+
+    /**
+     * @return the circuit breakers by rest method.
+     */
+    Map<Method, MethodCircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(circuitBreakers);
+    }
+
+    /**
+     * @param method
+     *            a rest method.
+     * @return the name of the method qualified by its simple class name.
+     */
+    private static String getName(final Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+
+    /**
+     * @return the recent latencies of successful invocations by rest method.
+     */
+    Map<Method, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /**
+     * Create a copier for results of a method that copies the result by
+     * serializing and deserializing it.
+     *
+     * @param mapper
+     *            the mapper.
+     * @param plan
+     *            the invocation plan.
+     * @return the copier.
+     */
+    private static Function<Object, Object> createCopier(final ObjectMapper mapper,
+            final RestMethodInvocationPlan plan) {
+        final ObjectReader reader =
+                mapper.reader(mapper.getTypeFactory().constructType(
+                        plan.getEntityType().getType()));
+        return new Function<Object, Object>() {
+            @Override
+            public Object apply(final Object input) {
+                if (plan.isOptional()) {
+                    return Optional.fromNullable(copy(((Optional<?>) input).orNull()));
+                }
+                return copy(input);
+            }
+
+            /**
+             * Copy a response entity.
+             *
+             * @param input
+             *            the entity.
+             * @return the copy.
+             */
+            private Object copy(final Object input) {
+                try {
+                    final TokenBuffer buffer = new TokenBuffer(mapper, false);
+                    mapper.writeValue(buffer, input);
+                    return reader.readValue(buffer.asParser());
+                } catch (final IOException e) {
+                    throw new ProcessingException("Error copying result", e);
+                }
+            }
+        };
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javassist.util.proxy.MethodHandler#invoke(java.lang.Object,
+     * java.lang.reflect.Method, java.lang.reflect.Method, java.lang.Object[])
+     */
+    @Override
+    public Object invoke(final Object self, final Method thisMethod, final Method proceed,
+            final Object[] arguments) throws Throwable {
+
+        final RestMethodMetadata methodMetaData =
+                restInterfaceMetadata.getMethodMetaData().get(thisMethod);
+
+        if (methodMetaData == null) {
+            throw new NotRestMethodException(thisMethod);
+        }
+
+        final PhaseTimer timer = slowCallSampler != null ? slowCallSampler.start() : null;
+        final String uri = pathTemplates.get(thisMethod).expand(arguments);
+        if (timer == null) {
+            return execute(thisMethod, methodMetaData, uri, arguments, null);
+        }
+
+        timer.addSince(Phase.PATH, timer.getStart());
+        final Object result;
+        try {
+            result = execute(thisMethod, methodMetaData, uri, arguments, timer);
+        } catch (final Throwable t) {
+            slowCallSampler.record(thisMethod, timer, t);
+            throw t;
+        }
+
+        if (!methodMetaData.getInvocationPlan().isAsync()) {
+            slowCallSampler.record(thisMethod, timer, null);
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        final ListenableFuture<Object> future = (ListenableFuture<Object>) result;
+        Futures.addCallback(future, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(final Object value) {
+                slowCallSampler.record(thisMethod, timer, null);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                slowCallSampler.record(thisMethod, timer, t);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return future;
+    }
+
+    /**
+     * Invoke the rest method, collapsing concurrent identical invocations of
+     * single flight methods.
+     *
+     * @param thisMethod
+     *            the invoked method.
+     * @param methodMetaData
+     *            the method metadata.
+     * @param uri
+     *            the expanded uri.
+     * @param arguments
+     *            the method arguments.
+     * @param timer
+     *            the phase timer of a sampled invocation, can be
+     *            <code>null</code>.
+     * @return the return value.
+     * @throws Throwable
+     *             the invocation failure.
+     */
+    private Object execute(final Method thisMethod, final RestMethodMetadata methodMetaData,
+            final String uri, final Object[] arguments, final PhaseTimer timer) throws Throwable {
+        final RestMethodInvocationPlan plan = methodMetaData.getInvocationPlan();
+        if (plan.getSingleFlight() != null) {
+            // only the leader's timer records the request phases.
+            return singleFlightGroup.execute(getRequestKey(thisMethod, plan, uri, arguments),
+                    new SingleFlightGroup.Call() {
+                @Override
+                public Object call() throws Throwable {
+                    return invoke(thisMethod, methodMetaData, uri, arguments, timer);
+                }
+            }, resultCopiers.get(thisMethod));
+        }
+        return invoke(thisMethod, methodMetaData, uri, arguments, timer);
+    }
+
+    /**
+     * Get the key identifying identical requests, used for single flight and
+     * response caching.
+     *
+     * @param method
+     *            the invoked method.
+     * @param plan
+     *            the invocation plan.
+     * @param uri
+     *            the expanded uri.
+     * @param arguments
+     *            the method arguments.
+     * @return the key.
+     */
+    private Object getRequestKey(final Method method, final RestMethodInvocationPlan plan,
+            final String uri, final Object[] arguments) {
+        final ParameterBinding[] headers = plan.getBindings(ParameterBinding.Type.HEADER);
+        final ParameterBinding[] cookies = plan.getBindings(ParameterBinding.Type.COOKIE);
+        final Object[] key = new Object[2 + headers.length + cookies.length];
+        int index = 0;
+        key[index++] = method;
+        key[index++] = uri;
+        for (final ParameterBinding binding : headers) {
+            key[index++] = ObjectUtils.toString(arguments[binding.getIndex()]);
+        }
+        for (final ParameterBinding binding : cookies) {
+            key[index++] = ObjectUtils.toString(arguments[binding.getIndex()]);
+        }
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Invoke the rest method, retrying transient failures as per its retry
+     * policy, if any.
+     *
+     * @param thisMethod
+     *            the invoked method.
+     * @param methodMetaData
+     *            the method metadata.
+     * @param uri
+     *            the expanded uri.
+     * @param arguments
+     *            the method arguments.
+     * @param timer
+     *            the phase timer of a sampled invocation, can be
+     *            <code>null</code>.
+     * @return the return value.
+     * @throws Throwable
+     *             the failure of the last attempt.
+     */
+    private Object invoke(final Method thisMethod, final RestMethodMetadata methodMetaData,
+            final String uri, final Object[] arguments, final PhaseTimer timer) throws Throwable {
+        final Retry retry = methodMetaData.getInvocationPlan().getRetry();
+        if (retry == null) {
+            return invokeOnce(thisMethod, methodMetaData, uri, arguments, 1, timer);
+        }
+
+        retryBudget.onRequest();
+        for (int attempt = 1;; attempt++) {
+            try {
+                return invokeOnce(thisMethod, methodMetaData, uri, arguments, attempt, timer);
+            } catch (final Throwable t) {
+                final long backoff =
+                        attempt < retry.maxAttempts() ? getBackoff(retry, attempt, t) : -1;
+                if (backoff < 0 || !retryBudget.tryRetry()) {
+                    throw t;
+                }
+
+                log.debug("Retrying {} in {} ms after {}", uri, backoff, t.toString());
+                try {
+                    Thread.sleep(backoff);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the backoff before retrying a failed attempt.
+     *
+     * @param retry
+     *            the retry policy.
+     * @param attempt
+     *            the number of the failed attempt, starting from 1.
+     * @param failure
+     *            the failure.
+     * @return the backoff in milliseconds, -1 if the failure should not be
+     *         retried.
+     */
+    private long getBackoff(final Retry retry, final int attempt, final Throwable failure) {
+        long retryAfter = 0;
+        if (failure instanceof WebApplicationException) {
+            final Response response = ((WebApplicationException) failure).getResponse();
+            if (response == null || !RETRIED_STATUSES.contains(response.getStatus())) {
+                return -1;
+            }
+
+            if (failure instanceof ServiceUnavailableException) {
+                final Date now = new Date();
+                final Date retryTime = ((ServiceUnavailableException) failure).getRetryTime(now);
+                if (retryTime != null) {
+                    retryAfter = Math.max(retryTime.getTime() - now.getTime(), 0);
+                }
+            }
+        } else if (!(failure instanceof ProcessingException)
+                || failure instanceof BulkheadRejectedException
+                || !(failure.getCause() instanceof IOException)) {
+            // only connection failures and timeouts are transient.
+            return -1;
+        }
+
+        if (retryAfter > retry.maxBackoffMillis()) {
+            return -1;
+        }
+
+        // full jitter over an exponentially growing ceiling.
+        final long ceiling =
+                Math.min(retry.maxBackoffMillis(), retry.initialBackoffMillis()
+                        * (1L << Math.min(attempt - 1, 20)));
+        return Math.max(retryAfter, (long) (ThreadLocalRandom.current().nextDouble() * ceiling));
+    }
+
+    /**
+     * Invoke the rest method unless rejected by its circuit breaker or within
+     * the concurrency limit of its bulkhead, if any, and record its outcome.
+     * Rejected attempts are reported to the {@link InvocationListener} too.
+     *
+     * @param thisMethod
+     *            the invoked method.
+     * @param methodMetaData
+     *            the method metadata.
+     * @param uri
+     *            the expanded uri.
+     * @param arguments
+     *            the method arguments.
+     * @param attempt
+     *            the attempt number, starting from 1.
+     * @param timer
+     *            the phase timer of a sampled invocation, can be
+     *            <code>null</code>.
+     * @return the return value.
+     * @throws Throwable
+     *             the exception mapped from an error response,
+     *             {@link CircuitOpenException} if the circuit breaker is open
+     *             or {@link BulkheadRejectedException} if the concurrency
+     *             limit has been reached.
+     */
+    private Object invokeOnce(final Method thisMethod, final RestMethodMetadata methodMetaData,
+            final String uri, final Object[] arguments, final int attempt, final PhaseTimer timer)
+            throws Throwable {
+        final MethodCircuitBreaker breaker = circuitBreakers.get(thisMethod);
+        final long breakerEpoch = breaker != null ? breaker.tryAcquire() : 0;
+        if (breakerEpoch == MethodCircuitBreaker.REJECTED) {
+            final CircuitOpenException e = new CircuitOpenException(getName(thisMethod));
+            notifyListener(thisMethod, attempt, null, 0, e);
+            throw e;
+        }
+
+        final ConcurrencyLimiter limiter = concurrencyLimiters.get(thisMethod);
+        if (limiter != null && !limiter.tryAcquire()) {
+            if (breaker != null) {
+                breaker.cancel(breakerEpoch);
+            }
+            final BulkheadRejectedException e =
+                    new BulkheadRejectedException(getName(thisMethod), limiter.getLimit());
+            notifyListener(thisMethod, attempt, null, 0, e);
+            throw e;
+        }
+
+        final ExchangeStats stats =
+                invocationListener != null || timer != null ? new ExchangeStats(timer) : null;
+        final long start = System.nanoTime();
+        final Object result;
+        try {
+            result = send(thisMethod, methodMetaData, uri, arguments, attempt, stats);
+        } catch (final Throwable t) {
+            completed(thisMethod, attempt, breakerEpoch, stats, start, t);
+            throw t;
+        }
+
+        if (!methodMetaData.getInvocationPlan().isAsync()) {
+            completed(thisMethod, attempt, breakerEpoch, stats, start, null);
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        final ListenableFuture<Object> future = (ListenableFuture<Object>) result;
+        Futures.addCallback(future, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(final Object value) {
+                completed(thisMethod, attempt, breakerEpoch, stats, start, null);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                completed(thisMethod, attempt, breakerEpoch, stats, start, t);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return future;
+    }
+
+    /**
+     * Record the outcome of a completed invocation with its circuit breaker,
+     * release its bulkhead permit, record its latency if successful and
+     * notify the {@link InvocationListener}.
+     *
+     * @param method
+     *            the invoked method.
+     * @param attempt
+     *            the attempt number.
+     * @param breakerEpoch
+     *            the circuit breaker epoch the invocation was let through in.
+     * @param stats
+     *            the exchange stats, <code>null</code> if there is no
+     *            listener.
+     * @param start
+     *            the start time in nanoseconds.
+     * @param failure
+     *            the failure, <code>null</code> if successful.
+     */
+    private void completed(final Method method, final int attempt, final long breakerEpoch,
+            final ExchangeStats stats, final long start, final Throwable failure) {
+        final long elapsed = System.nanoTime() - start;
+        final MethodCircuitBreaker breaker = circuitBreakers.get(method);
+        if (breaker != null) {
+            breaker.onComplete(breakerEpoch, elapsed, isServerFailure(failure));
+        }
+        final ConcurrencyLimiter limiter = concurrencyLimiters.get(method);
+        if (limiter != null) {
+            limiter.release(elapsed, failure instanceof ProcessingException);
+        }
+        if (failure == null) {
+            latencies.get(method).record(elapsed);
+        }
+        notifyListener(method, attempt, stats, elapsed, failure);
+    }
+
+    /**
+     * Notify the {@link InvocationListener}, if any, of an invocation attempt.
+     * Listener failures are logged and ignored.
+     *
+     * @param method
+     *            the invoked method.
+     * @param attempt
+     *            the attempt number.
+     * @param stats
+     *            the exchange stats, <code>null</code> if the request was not
+     *            sent.
+     * @param elapsed
+     *            the duration of the attempt in nanoseconds.
+     * @param failure
+     *            the failure, <code>null</code> if successful.
+     */
+    private void notifyListener(final Method method, final int attempt,
+            final ExchangeStats stats, final long elapsed, final Throwable failure) {
+        if (invocationListener == null) {
+            return;
+        }
+
+        int status = -1;
+        if (stats != null) {
+            status = stats.getStatus();
+        }
+        if (status < 0 && failure instanceof WebApplicationException
+                && ((WebApplicationException) failure).getResponse() != null) {
+            status = ((WebApplicationException) failure).getResponse().getStatus();
+        }
+
+        try {
+            invocationListener.onInvocation(new InvocationEvent(method, restInterfaceMetadata
+                    .getMethodMetaData().get(method).getHttpMethod(), attempt, status,
+                    failure != null ? failure.getClass() : null, stats != null ? stats
+                            .getRequestBytes() : -1, stats != null ? stats.getResponseBytes()
+                            : -1, elapsed));
+        } catch (final RuntimeException e) {
+            log.warn("Error notifying invocation listener", e);
+        }
+    }
+
+    /**
+     * Indicates if an invocation failure is a failure of the server or the
+     * connection to it, as opposed to a failure of the request.
+     *
+     * @param failure
+     *            the failure, can be <code>null</code>.
+     * @return <code>true</code> for connection failures, timeouts, 5xx
+     *         responses and exceptions mapped by the
+     *         {@link ResponseToThrowableMapper}, which only maps 500
+     *         responses.
+     */
+    private static boolean isServerFailure(final Throwable failure) {
+        if (failure == null) {
+            return false;
+        }
+        if (failure instanceof WebApplicationException) {
+            final Response response = ((WebApplicationException) failure).getResponse();
+            return response == null
+                    || response.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR;
+        }
+        return true;
+    }
+
+    /**
+     * Build the request for the rest method and pass it along the
+     * interceptor chain of the method to be sent.
+     *
+     * @param thisMethod
+     *            the invoked method.
+     * @param methodMetaData
+     *            the method metadata.
+     * @param uri
+     *            the expanded uri.
+     * @param arguments
+     *            the method arguments.
+     * @param attempt
+     *            the attempt number.
+     * @param stats
+     *            collects the response status, entity sizes and phase
+     *            timings, can be <code>null</code>.
+     * @return the return value.
+     * @throws Throwable
+     *             the exception mapped from an error response.
+     */
+    private Object send(final Method thisMethod, final RestMethodMetadata methodMetaData,
+            final String uri, final Object[] arguments, final int attempt,
+            final ExchangeStats stats) throws Throwable {
+        final RestMethodInvocationPlan plan = methodMetaData.getInvocationPlan();
+        final String httpMethod = methodMetaData.getHttpMethod();
+        final Client client = clientProvider.get();
+        final PhaseTimer timer = stats != null ? stats.getTimer() : null;
+
+        // register filters before the target is created, targets copy the
+        // client configuration. A no-op unless the client provider hands
+        // out a new client.
+        registerFilters(client);
+        final boolean cached = responseCache != null && plan.getCached() != null;
+        final NegativeResultCache negativeCache = negativeCaches.get(thisMethod);
+        final boolean invalidating =
+                invalidatedCaches.length > 0 && !HttpMethod.GET.equals(httpMethod);
+
+        final WebTarget webTarget = getTarget(client, thisMethod, uri);
+
+        // create the request builder
+        Builder webRequestBuilder = webTarget.request(plan.getAcceptedMediaTypes());
+
+        if (builderFilter != null) {
+            builderFilter.apply(webRequestBuilder);
+        }
+
+        // process cookie and header params
+        for (final ParameterBinding binding : plan.getBindings(ParameterBinding.Type.COOKIE)) {
+            final Object argument = arguments[binding.getIndex()];
+            final Cookie cookie =
+                    argument instanceof Cookie ? (Cookie) argument : new Cookie(
+                            binding.getName(), ObjectUtils.toString(argument));
+            webRequestBuilder = webRequestBuilder.cookie(cookie);
+        }
+
+        for (final ParameterBinding binding : plan.getBindings(ParameterBinding.Type.HEADER)) {
+            webRequestBuilder =
+                    webRequestBuilder.header(binding.getName(),
+                            ObjectUtils.toString(arguments[binding.getIndex()]));
+        }
+
+        if (cached) {
+            webRequestBuilder.property(ResponseCacheFilter.CACHE_PROPERTY, responseCache)
+                    .property(ResponseCacheFilter.KEY_PROPERTY,
+                            getRequestKey(thisMethod, plan, uri, arguments))
+                    .property(ResponseCacheFilter.MAX_ENTITY_SIZE_PROPERTY,
+                            plan.getCached().maxEntitySize());
+        }
+        if (stats != null) {
+            webRequestBuilder.property(ExchangeStatsFilter.STATS_PROPERTY, stats);
+        }
+        if (negativeCache != null) {
+            webRequestBuilder.property(NegativeCacheFilter.CACHE_PROPERTY, negativeCache);
+        } else if (invalidating) {
+            webRequestBuilder.property(NegativeCacheFilter.INVALIDATED_PROPERTY,
+                    invalidatedCaches);
+        }
+
+        final Entity<?> entity = toEntity(plan, arguments);
+
+        final Entity<?> requestEntity = HttpMethod.DELETE.equals(httpMethod) ? null : entity;
+        final InvocationInterceptor[] chain = interceptorChains.get(thisMethod);
+        if (chain == null) {
+            return exchange(thisMethod, plan, webRequestBuilder, httpMethod, requestEntity, timer);
+        }
+        return new InterceptedInvocation(chain, thisMethod, methodMetaData, uri, arguments,
+                attempt, webRequestBuilder, requestEntity, timer).proceed();
+    }
+
+    /**
+     * Send the request and read the response.
+     *
+     * @param thisMethod
+     *            the invoked method.
+     * @param plan
+     *            the invocation plan.
+     * @param webRequestBuilder
+     *            the request builder.
+     * @param httpMethod
+     *            the http method.
+     * @param requestEntity
+     *            the request entity, can be <code>null</code>.
+     * @param timer
+     *            the phase timer of a sampled invocation, can be
+     *            <code>null</code>.
+     * @return the return value.
+     * @throws Throwable
+     *             the exception mapped from an error response.
+     */
+    private Object exchange(final Method thisMethod, final RestMethodInvocationPlan plan,
+            final Builder webRequestBuilder, final String httpMethod,
+            final Entity<?> requestEntity, final PhaseTimer timer) throws Throwable {
+        if (plan.isAsync()) {
+            return invokeAsync(thisMethod, plan, webRequestBuilder, httpMethod, requestEntity,
+                    timer);
+        }
+
+        if (plan.getHedged() != null) {
+            return readResponse(thisMethod, plan,
+                    invokeHedged(thisMethod, plan, webRequestBuilder, httpMethod, requestEntity),
+                    timer);
+        }
+
+        final Response response =
+                requestEntity != null ? webRequestBuilder.method(httpMethod, requestEntity)
+                        : webRequestBuilder.method(httpMethod);
+        return readResponse(thisMethod, plan, response, timer);
+    }
+
+    /**
+     * An invocation passing along the interceptor chain of its method, ending
+     * in the request being sent.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    private class InterceptedInvocation implements InvocationContext {
+        /**
+         * The interceptor chain.
+         */
+        private final InvocationInterceptor[] chain;
+
+        /**
+         * The invoked method.
+         */
+        private final Method method;
+
+        /**
+         * The method metadata.
+         */
+        private final RestMethodMetadata metadata;
+
+        /**
+         * The expanded uri.
+         */
+        private final String uri;
+
+        /**
+         * The method arguments.
+         */
+        private final Object[] arguments;
+
+        /**
+         * The attempt number.
+         */
+        private final int attempt;
+
+        /**
+         * The request builder.
+         */
+        private final Builder requestBuilder;
+
+        /**
+         * The request entity, can be <code>null</code>.
+         */
+        private final Entity<?> requestEntity;
+
+        /**
+         * The phase timer, can be <code>null</code>.
+         */
+        private final PhaseTimer timer;
+
+        /**
+         * The index of the next interceptor to call.
+         */
+        private int next;
+
+        /**
+         * Create the invocation.
+         *
+         * @param chain
+         *            the interceptor chain.
+         * @param method
+         *            the invoked method.
+         * @param metadata
+         *            the method metadata.
+         * @param uri
+         *            the expanded uri.
+         * @param arguments
+         *            the method arguments.
+         * @param attempt
+         *            the attempt number.
+         * @param requestBuilder
+         *            the request builder.
+         * @param requestEntity
+         *            the request entity, can be <code>null</code>.
+         * @param timer
+         *            the phase timer, can be <code>null</code>.
+         */
+        InterceptedInvocation(final InvocationInterceptor[] chain, final Method method,
+                final RestMethodMetadata metadata, final String uri, final Object[] arguments,
+                final int attempt, final Builder requestBuilder, final Entity<?> requestEntity,
+                final PhaseTimer timer) {
+            this.chain = chain;
+            this.method = method;
+            this.metadata = metadata;
+            this.uri = uri;
+            this.arguments = arguments;
+            this.attempt = attempt;
+            this.requestBuilder = requestBuilder;
+            this.requestEntity = requestEntity;
+            this.timer = timer;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see
+         * com.strandls.alchemy.rest.client.request.InvocationContext#proceed()
+         */
+        @Override
+        public Object proceed() throws Throwable {
+            if (next == chain.length) {
+                return exchange(method, metadata.getInvocationPlan(), requestBuilder,
+                        metadata.getHttpMethod(), requestEntity, timer);
+            }
+
+            final int current = next++;
+            try {
+                return chain[current].intercept(this);
+            } finally {
+                // allow the interceptor to proceed again.
+                next = current;
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see
+         * com.strandls.alchemy.rest.client.request.InvocationContext#getMethod()
+         */
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see
+         * com.strandls.alchemy.rest.client.request.InvocationContext#getMetadata()
+         */
+        @Override
+        public RestMethodMetadata getMetadata() {
+            return metadata;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see
+         * com.strandls.alchemy.rest.client.request.InvocationContext#getArguments()
+         */
+        @Override
+        @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "EI_EXPOSE_REP",
+                justification = "Interceptors see the arguments the proxy was called with.")
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see com.strandls.alchemy.rest.client.request.InvocationContext#getUri()
+         */
+        @Override
+        public String getUri() {
+            return uri;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see
+         * com.strandls.alchemy.rest.client.request.InvocationContext#getAttempt()
+         */
+        @Override
+        public int getAttempt() {
+            return attempt;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see
+         * com.strandls.alchemy.rest.client.request.InvocationContext#getRequestBuilder
+         * ()
+         */
+        @Override
+        public Builder getRequestBuilder() {
+            return requestBuilder;
+        }
+    }
+
+    /**
+     * Send the request, and a hedge request if no response arrives within
+     * the hedging percentile of the recent latencies. The losing request is
+     * aborted, see {@link ExchangeAbort} for the connectors supporting the
+     * abort of requests already sent.
+     *
+     * @param method
+     *            the invoked method.
+     * @param plan
+     *            the invocation plan.
+     * @param webRequestBuilder
+     *            the request builder.
+     * @param httpMethod
+     *            the http method.
+     * @param entity
+     *            the request entity, can be <code>null</code>.
+     * @return the first response.
+     * @throws Throwable
+     *             the failure of the first request if all requests fail.
+     */
+    private Response invokeHedged(final Method method, final RestMethodInvocationPlan plan,
+            final Builder webRequestBuilder, final String httpMethod, final Entity<?> entity)
+            throws Throwable {
+        final long delay =
+                latencies.get(method).getPercentile(plan.getHedged().percentile(),
+                        TimeUnit.MICROSECONDS);
+        final ResponseRace race = new ResponseRace(webRequestBuilder, httpMethod, entity);
+        race.send(null);
+        if (delay < 0) {
+            return race.await();
+        }
+
+        try {
+            return race.await(delay, TimeUnit.MICROSECONDS);
+        } catch (final TimeoutException e) {
+            final Semaphore permits = hedgePermits.get(method);
+            if (permits.tryAcquire()) {
+                log.debug("Hedging {} after {} us", method, delay);
+                // the permit is held until the hedge completes, won or lost.
+                race.send(permits);
+            }
+        }
+        return race.await();
+    }
+
+    /**
+     * Invoke the request asynchronously.
+     *
+     * @param method
+     *            the invoked method.
+     * @param plan
+     *            the invocation plan.
+     * @param webRequestBuilder
+     *            the request builder.
+     * @param httpMethod
+     *            the http method.
+     * @param entity
+     *            the request entity, can be <code>null</code>.
+     * @param timer
+     *            the phase timer of a sampled invocation, can be
+     *            <code>null</code>.
+     * @return future completed with the response entity, or with the
+     *         exception mapped from an error response. Cancelling the future
+     *         cancels the request.
+     */
+    private ListenableFuture<Object> invokeAsync(final Method method,
+            final RestMethodInvocationPlan plan, final Builder webRequestBuilder,
+            final String httpMethod, final Entity<?> entity, final PhaseTimer timer) {
+        final SettableFuture<Object> result = SettableFuture.create();
+        final InvocationCallback<Response> callback = new InvocationCallback<Response>() {
+            @Override
+            public void completed(final Response response) {
+                if (result.isCancelled()) {
+                    response.close();
+                    return;
+                }
+
+                try {
+                    result.set(readResponse(method, plan, response, timer));
+                } catch (final Throwable t) {
+                    result.setException(t);
+                }
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                result.setException(throwable);
+            }
+        };
+
+        final AsyncInvoker asyncInvoker = webRequestBuilder.async();
+        final Future<Response> responseFuture =
+                entity != null ? asyncInvoker.method(httpMethod, entity, callback) : asyncInvoker
+                        .method(httpMethod, callback);
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    responseFuture.cancel(true);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
+
+    /**
+     * Races requests for an invocation. The first response wins, the other
+     * requests are aborted and their responses, if any, closed. Fails only if
+     * all requests fail.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    private static class ResponseRace {
+        /**
+         * The request builder.
+         */
+        private final Builder webRequestBuilder;
+
+        /**
+         * The http method.
+         */
+        private final String httpMethod;
+
+        /**
+         * The request entity, can be <code>null</code>.
+         */
+        private final Entity<?> entity;
+
+        /**
+         * The winning response.
+         */
+        private final SettableFuture<Response> winner = SettableFuture.create();
+
+        /**
+         * The number of requests not yet completed.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * The failure of the first failed request.
+         */
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        /**
+         * The aborts of the requests sent.
+         */
+        private final List<ExchangeAbort> aborts = new CopyOnWriteArrayList<ExchangeAbort>();
+
+        /**
+         * The abort of the winning request.
+         */
+        private final AtomicReference<ExchangeAbort> winning =
+                new AtomicReference<ExchangeAbort>();
+
+        /**
+         * @param webRequestBuilder
+         *            the request builder.
+         * @param httpMethod
+         *            the http method.
+         * @param entity
+         *            the request entity, can be <code>null</code>.
+         */
+        ResponseRace(final Builder webRequestBuilder, final String httpMethod,
+                final Entity<?> entity) {
+            this.webRequestBuilder = webRequestBuilder;
+            this.httpMethod = httpMethod;
+            this.entity = entity;
+            winner.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    for (final ExchangeAbort abort : aborts) {
+                        if (abort != winning.get()) {
+                            abort.abort();
+                        }
+                    }
+                }
+            }, MoreExecutors.sameThreadExecutor());
+        }
+
+        /**
+         * Send a request in the race.
+         *
+         * @param permits
+         *            the semaphore to release a permit to once the request
+         *            completes, can be <code>null</code>.
+         */
+        void send(final Semaphore permits) {
+            pending.incrementAndGet();
+            final ExchangeAbort abort = new ExchangeAbort();
+            final InvocationCallback<Response> callback = new InvocationCallback<Response>() {
+                @Override
+                public void completed(final Response response) {
+                    release(permits);
+                    pending.decrementAndGet();
+                    if (winning.compareAndSet(null, abort)) {
+                        winner.set(response);
+                    } else {
+                        // lost the race, release the connection.
+                        response.close();
+                    }
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    release(permits);
+                    failure.compareAndSet(null, throwable);
+                    if (pending.decrementAndGet() == 0) {
+                        winner.setException(failure.get());
+                    }
+                }
+            };
+
+            aborts.add(abort);
+            if (winner.isDone()) {
+                // decided while hedging, the request fails without being
+                // sent.
+                abort.abort();
+            }
+
+            webRequestBuilder.property(ExchangeAbortFilter.ABORT_PROPERTY, abort);
+            final AsyncInvoker asyncInvoker = webRequestBuilder.async();
+            if (entity != null) {
+                asyncInvoker.method(httpMethod, entity, callback);
+            } else {
+                asyncInvoker.method(httpMethod, callback);
+            }
+        }
+
+        /**
+         * Release a permit.
+         *
+         * @param permits
+         *            the semaphore, can be <code>null</code>.
+         */
+        private static void release(final Semaphore permits) {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+
+        /**
+         * Wait for the winning response.
+         *
+         * @return the winning response.
+         * @throws Throwable
+         *             the failure of the first request if all requests failed.
+         */
+        Response await() throws Throwable {
+            try {
+                return winner.get();
+            } catch (final ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Wait for the winning response for up to a timeout.
+         *
+         * @param timeout
+         *            the timeout.
+         * @param unit
+         *            the unit of the timeout.
+         * @return the winning response.
+         * @throws TimeoutException
+         *             if no request completed within the timeout.
+         * @throws Throwable
+         *             the failure of the first request if all requests failed.
+         */
+        Response await(final long timeout, final TimeUnit unit) throws Throwable {
+            try {
+                return winner.get(timeout, unit);
+            } catch (final ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Get the web target for an invocation. The uri including query params is
+     * expanded from the compiled template so that only a single target is
+     * created, and for static uris the target is reused across invocations.
+     *
+     * @param client
+     *            the client.
+     * @param method
+     *            the invoked method.
+     * @param uri
+     *            the expanded uri.
+     * @return the web target.
+     */
+    private WebTarget getTarget(final Client client, final Method method, final String uri) {
+        log.debug("Invoking rest service at {}", uri);
+
+        final AtomicReference<ClientTarget> staticTarget = staticTargets.get(method);
+        if (staticTarget == null) {
+            return client.target(uri);
+        }
+
+        final ClientTarget cached = staticTarget.get();
+        if (cached != null && cached.getClient() == client) {
+            return cached.getTarget();
+        }
+
+        final WebTarget target = client.target(uri);
+        staticTarget.set(new ClientTarget(client, target));
+        return target;
+    }
+
+    /**
+     * Register the filters needed by the interface with the client, if not
+     * already registered.
+     *
+     * @param client
+     *            the client.
+     */
+    private void registerFilters(final Client client) {
+        for (final Object filter : clientFilters) {
+            if (client.getConfiguration().isRegistered(filter.getClass())) {
+                continue;
+            }
+
+            synchronized (client) {
+                if (!client.getConfiguration().isRegistered(filter.getClass())) {
+                    client.register(filter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the method return value from the response.
+     *
+     * @param method
+     *            the invoked method.
+     * @param plan
+     *            the invocation plan.
+     * @param response
+     *            the response.
+     * @param timer
+     *            the phase timer of a sampled invocation, can be
+     *            <code>null</code>.
+     * @return the return value.
+     * @throws Throwable
+     *             the exception mapped from an error response.
+     */
+    private Object readResponse(final Method method, final RestMethodInvocationPlan plan,
+            final Response response, final PhaseTimer timer) throws Throwable {
+        if (plan.getEntityClass() == Response.class) {
+            // caller wants the raw response.
+            return response;
+        }
+
+        final long start = timer != null ? System.nanoTime() : 0;
+        if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+            if (plan.isEmptyOn404()
+                    && response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                // a missing resource is an expected result, skip exception mapping.
+                response.close();
+                return plan.isOptional() ? Optional.absent() : null;
+            }
+
+            final Throwable throwable = toThrowable(method, plan, response);
+            if (timer != null) {
+                timer.addSince(Phase.EXCEPTION_MAPPING, start);
+            }
+            throw throwable;
+        }
+
+        try {
+            final Object entity = readEntity(method, plan, response);
+            return plan.isOptional() ? Optional.fromNullable(entity) : entity;
+        } finally {
+            if (timer != null) {
+                timer.addSince(Phase.DESERIALIZATION, start);
+            }
+        }
+    }
+
+    /**
+     * Read the method return value from a successful response.
+     *
+     * @param method
+     *            the invoked method.
+     * @param plan
+     *            the invocation plan.
+     * @param response
+     *            the response.
+     * @return the return value.
+     */
+    private Object readEntity(final Method method, final RestMethodInvocationPlan plan,
+            final Response response) {
+
+        if (plan.isVoid()) {
+            response.close();
+            return null;
+        }
+
+        final ObjectReader jsonReader = jsonReaders.get(method);
+        if (plan.isStreamed()) {
+            return new JsonResultStream<Object>(response, jsonReader);
+        }
+
+        if (jsonReader != null && isJson(response.getMediaType())) {
+            try {
+                if (!response.hasEntity()) {
+                    return null;
+                }
+                return jsonReader.readValue(response.readEntity(InputStream.class));
+            } catch (final IOException e) {
+                throw new ProcessingException(e);
+            } finally {
+                response.close();
+            }
+        }
+
+        return response.readEntity(plan.getEntityType());
+    }
+
+    /**
+     * Map an error response to an exception.
+     *
+     * @param method
+     *            the invoked method.
+     * @param plan
+     *            the invocation plan.
+     * @param response
+     *            the error response.
+     * @return the mapped exception.
+     */
+    private Throwable toThrowable(final Method method, final RestMethodInvocationPlan plan,
+            final Response response) {
+        final boolean lightweight = plan.getLightweightExceptions() != null;
+        final Throwable throwable;
+        if (response.getStatus() == Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()) {
+            // possibly a marshalled server side exception.
+            throwable = responseToThrowableMapper.apply(response, !lightweight);
+        } else {
+            try {
+                // buffer and close entity input stream (if any) to prevent
+                // leaking connections.
+                response.bufferEntity();
+            } catch (final ProcessingException e) {
+                log.debug("Error buffering error response entity", e);
+            }
+            throwable = jaxRsExceptionMapper.apply(response, !lightweight);
+        }
+
+        if (lightweight) {
+            throwable.setStackTrace(getRemoteStackTrace(method));
+        }
+        return throwable;
+    }
+
+    /**
+     * @param method
+     *            the rest method.
+     * @return the stack trace for exceptions of {@link LightweightExceptions}
+     *         methods, a single frame naming the method.
+     */
+    private StackTraceElement[] getRemoteStackTrace(final Method method) {
+        return new StackTraceElement[] { new StackTraceElement(method.getDeclaringClass()
+                .getName(), method.getName(), null, -1) };
+    }
+
+    /**
+     * @param mediaType
+     *            the response media type.
+     * @return <code>true</code> if the media type is a json media type.
+     */
+    private boolean isJson(final MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        final String subtype = mediaType.getSubtype();
+        return "json".equalsIgnoreCase(subtype) || subtype.toLowerCase().endsWith("+json");
+    }
+
+    /**
+     * Create the request entity from the body, form or form data parameters.
+     *
+     * @param plan
+     *            the invocation plan.
+     * @param arguments
+     *            the method arguments.
+     * @return the request entity, <code>null</code> if the method does not
+     *         send an entity.
+     */
+    private Entity<?> toEntity(final RestMethodInvocationPlan plan, final Object[] arguments) {
+        if (plan.hasBindings(ParameterBinding.Type.FORM)) {
+            // cannot have form parameters and body parameters without
+            // annotation, and the method should be post.
+            assert plan.getBodyParameterIndex() < 0;
+
+            final Form formParams = new Form();
+            for (final ParameterBinding binding : plan.getBindings(ParameterBinding.Type.FORM)) {
+                formParams.param(binding.getName(),
+                        ObjectUtils.toString(arguments[binding.getIndex()]));
+            }
+            return toEntity(formParams, MediaType.APPLICATION_FORM_URLENCODED_TYPE);
+        }
+
+        if (plan.hasBindings(ParameterBinding.Type.FORM_DATA)) {
+            // Cannot have form parameters and body parameters without
+            // annotation, and the method should be post.
+            assert plan.getBodyParameterIndex() < 0;
+
+            final FormDataMultiPart formDataMultiPart = processFormDataParams(plan, arguments);
+            return toEntity(formDataMultiPart, formDataMultiPart.getMediaType());
+        }
+
+        if (plan.getBodyParameterIndex() >= 0) {
+            return toEntity(arguments[plan.getBodyParameterIndex()], plan.getBodyMediaType());
+        }
+        return null;
+    }
+
+    /**
+     * Process form data params.
+     *
+     * @param plan
+     *            the invocation plan.
+     * @param arguments
+     *            the function call arguments.
+     * @return form data multipart object for the form data arguments.
+     */
+    private FormDataMultiPart processFormDataParams(final RestMethodInvocationPlan plan,
+            final Object[] arguments) {
+        final FormDataMultiPart formDataMultiPart = new FormDataMultiPart();
+        // map from param name to content disposition
+        Map<String, ContentDisposition> contentDispositions = null;
+
+        // map from param name to input streams
+        Map<String, InputStream> inputstreams = null;
+        for (final ParameterBinding binding : plan.getBindings(ParameterBinding.Type.FORM_DATA)) {
+            final Object argument = arguments[binding.getIndex()];
+            final String paramName = binding.getName();
+            if (argument instanceof File) {
+                formDataMultiPart.bodyPart(new FileDataBodyPart(paramName, (File) argument));
+            } else if (argument instanceof InputStream) {
+                if (inputstreams == null) {
+                    inputstreams = new LinkedHashMap<String, InputStream>();
+                }
+                inputstreams.put(paramName, (InputStream) argument);
+            } else if (argument instanceof FormDataContentDisposition) {
+                if (contentDispositions == null) {
+                    contentDispositions = new HashMap<String, ContentDisposition>();
+                }
+                contentDispositions.put(paramName, (ContentDisposition) argument);
+            } else {
+                formDataMultiPart.field(paramName, ObjectUtils.toString(argument));
+            }
+        }
+
+        if (inputstreams != null) {
+            // we have input streams that may have content dispositions
+            for (final Map.Entry<String, InputStream> streamEntry : inputstreams.entrySet()) {
+                final String paramName = streamEntry.getKey();
+                final ContentDisposition contentDisposition =
+                        contentDispositions != null ? contentDispositions.get(paramName) : null;
+                // use the file name from the content disposition if we have
+                // one for this input stream
+                final String fileName =
+                        contentDisposition != null ? contentDisposition.getFileName() : paramName;
+                formDataMultiPart.bodyPart(new StreamDataBodyPart(paramName, streamEntry
+                        .getValue(), fileName));
+            }
+        }
+
+        return formDataMultiPart;
+    }
+
+    /**
+     * Converts an object to an entity.
+     *
+     * @param object
+     *            the object.
+     * @param bodyParameterMediaType
+     *            the media type.
+     * @return converted entity.
+     */
+    private Entity<Object> toEntity(final Object object, final MediaType bodyParameterMediaType) {
+        if (object instanceof MultiPart) {
+            return Entity.entity(object, ((MultiPart) object).getMediaType());
+        }
+        return Entity.entity(object, bodyParameterMediaType);
+    }
+}
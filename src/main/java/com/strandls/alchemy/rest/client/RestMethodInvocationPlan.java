@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.xml.transform.Source;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Immutable plan for binding the arguments of a rest method to an http
+ * request. Compiled once by {@link RestInterfaceAnalyzer} so that invoking a
+ * proxy method does not need to inspect parameter annotations.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Getter
+public class RestMethodInvocationPlan {
+    /**
+     * Empty bindings.
+     */
+    private static final ParameterBinding[] NO_BINDINGS = new ParameterBinding[0];
+
+    /**
+     * Entity classes read as the raw entity.
+     */
+    private static final Set<Class<?>> RAW_ENTITY_CLASSES = ImmutableSet.<Class<?>> of(
+            Response.class, String.class, byte[].class, char[].class, File.class);
+
+    /**
+     * Bindings keyed by the binding type.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<ParameterBinding.Type, ParameterBinding[]> bindings;
+
+    /**
+     * The index of the argument sent as the request entity, <code>-1</code>
+     * if the method does not have a body parameter.
+     */
+    private final int bodyParameterIndex;
+
+    /**
+     * The media type of the request entity.
+     */
+    private final MediaType bodyMediaType;
+
+    /**
+     * The media types acceptable as a response.
+     */
+    @Getter(onMethod = @_(@edu.umd.cs.findbugs.annotations.SuppressWarnings(
+            value = "EI_EXPOSE_REP",
+            justification = "Used on the invocation hot path and never modified.")))
+    private final MediaType[] acceptedMediaTypes;
+
+    /**
+     * The type of the response entity.
+     */
+    private final GenericType<Object> entityType;
+
+    /**
+     * The raw class of the response entity.
+     */
+    private final Class<?> entityClass;
+
+    /**
+     * Indicates if the method returns a future of the response entity and
+     * should be invoked asynchronously.
+     */
+    private final boolean async;
+
+    /**
+     * Indicates if the method returns a {@link ResultStream} or an
+     * {@link java.util.Iterator} of response entities decoded lazily.
+     */
+    private final boolean streamed;
+
+    /**
+     * The single flight configuration if concurrent identical invocations
+     * should be collapsed, else <code>null</code>.
+     */
+    private final SingleFlight singleFlight;
+
+    /**
+     * The bulkhead annotated on the method overriding the bulkhead of the
+     * rest interface, else <code>null</code>.
+     */
+    private final Bulkhead bulkhead;
+
+    /**
+     * The retry policy if failed invocations should be retried, else
+     * <code>null</code>.
+     */
+    private final Retry retry;
+
+    /**
+     * The hedging policy if slow invocations should be hedged, else
+     * <code>null</code>.
+     */
+    private final Hedged hedged;
+
+    /**
+     * The circuit breaker configuration, else <code>null</code>.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * The lightweight exceptions configuration if exceptions should be raised
+     * without a local stack trace, else <code>null</code>.
+     */
+    private final LightweightExceptions lightweightExceptions;
+
+    /**
+     * Indicates if the method returns a
+     * {@link com.google.common.base.Optional} of the response entity.
+     */
+    private final boolean optional;
+
+    /**
+     * Indicates if 404 responses are returned as an empty value, absent for
+     * optional results and <code>null</code> otherwise, instead of being
+     * raised as exceptions.
+     */
+    private final boolean emptyOn404;
+
+    /**
+     * The negative cache configuration if 404 responses should be
+     * remembered, else <code>null</code>.
+     */
+    private final NegativeCache negativeCache;
+
+    /**
+     * The response caching configuration if responses should be cached, else
+     * <code>null</code>.
+     */
+    private final Cached cached;
+
+    /**
+     * Create the plan.
+     *
+     * @param bindings
+     *            all argument bindings in argument order.
+     * @param bodyMediaType
+     *            the media type of the request entity.
+     * @param acceptedMediaTypes
+     *            the media types acceptable as a response.
+     * @param entityType
+     *            the type of the response entity, the element type for
+     *            streamed responses and the value type for optional
+     *            responses.
+     * @param async
+     *            <code>true</code> if the method returns a future of the
+     *            response entity.
+     * @param streamed
+     *            <code>true</code> if the response entities are decoded
+     *            lazily.
+     * @param singleFlight
+     *            the single flight configuration, can be <code>null</code>.
+     * @param bulkhead
+     *            the bulkhead annotated on the method, can be
+     *            <code>null</code>.
+     * @param retry
+     *            the retry policy, can be <code>null</code>.
+     * @param hedged
+     *            the hedging policy, can be <code>null</code>.
+     * @param circuitBreaker
+     *            the circuit breaker configuration, can be <code>null</code>.
+     * @param lightweightExceptions
+     *            the lightweight exceptions configuration, can be
+     *            <code>null</code>.
+     * @param optional
+     *            <code>true</code> if the method returns an optional response
+     *            entity.
+     * @param emptyOn404
+     *            <code>true</code> if 404 responses are returned as an empty
+     *            value.
+     * @param negativeCache
+     *            the negative cache configuration, can be <code>null</code>.
+     * @param cached
+     *            the response caching configuration, can be <code>null</code>.
+     */
+    RestMethodInvocationPlan(final List<ParameterBinding> bindings,
+            final MediaType bodyMediaType, final MediaType[] acceptedMediaTypes,
+            final GenericType<Object> entityType, final boolean async, final boolean streamed,
+            final SingleFlight singleFlight, final Bulkhead bulkhead, final Retry retry,
+            final Hedged hedged, final CircuitBreaker circuitBreaker,
+            final LightweightExceptions lightweightExceptions, final boolean optional,
+            final boolean emptyOn404, final NegativeCache negativeCache, final Cached cached) {
+        this.bindings =
+                new EnumMap<ParameterBinding.Type, ParameterBinding[]>(ParameterBinding.Type.class);
+        int bodyIndex = -1;
+        for (final ParameterBinding.Type type : ParameterBinding.Type.values()) {
+            final List<ParameterBinding> typeBindings = new ArrayList<ParameterBinding>();
+            for (final ParameterBinding binding : bindings) {
+                if (binding.getType() == type) {
+                    typeBindings.add(binding);
+                }
+            }
+            this.bindings.put(type, typeBindings.toArray(NO_BINDINGS));
+
+            if (type == ParameterBinding.Type.BODY && !typeBindings.isEmpty()) {
+                // the last unannotated argument wins.
+                bodyIndex = typeBindings.get(typeBindings.size() - 1).getIndex();
+            }
+        }
+        this.bodyParameterIndex = bodyIndex;
+        this.bodyMediaType = bodyMediaType;
+        this.acceptedMediaTypes = acceptedMediaTypes;
+        this.entityType = entityType;
+        this.entityClass = entityType.getRawType();
+        this.async = async;
+        this.streamed = streamed;
+        this.singleFlight = singleFlight;
+        this.bulkhead = bulkhead;
+        this.retry = retry;
+        this.hedged = hedged;
+        this.circuitBreaker = circuitBreaker;
+        this.lightweightExceptions = lightweightExceptions;
+        this.optional = optional;
+        this.emptyOn404 = emptyOn404;
+        this.negativeCache = negativeCache;
+        this.cached = cached;
+    }
+
+    /**
+     * Indicates if the method does not expect a response entity.
+     *
+     * @return <code>true</code> if the response entity is void.
+     */
+    public boolean isVoid() {
+        return entityClass == void.class || entityClass == Void.class;
+    }
+
+    /**
+     * Indicates if the method returns the response or its raw entity, read
+     * by the jax-rs built in entity providers rather than decoded as json.
+     *
+     * @return <code>true</code> if the response entity is a
+     *         {@link Response}, {@link String}, byte or char array,
+     *         {@link File}, {@link InputStream}, {@link Reader} or
+     *         {@link Source}.
+     */
+    public boolean isRawEntity() {
+        return RAW_ENTITY_CLASSES.contains(entityClass)
+                || InputStream.class.isAssignableFrom(entityClass)
+                || Reader.class.isAssignableFrom(entityClass)
+                || Source.class.isAssignableFrom(entityClass);
+    }
+
+    /**
+     * Get bindings of a type.
+     *
+     * @param type
+     *            the binding type.
+     * @return the bindings of the type in argument order, never
+     *         <code>null</code>.
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "EI_EXPOSE_REP",
+            justification = "Used on the invocation hot path and never modified.")
+    public ParameterBinding[] getBindings(final ParameterBinding.Type type) {
+        return bindings.get(type);
+    }
+
+    /**
+     * Indicates if the plan has bindings of a type.
+     *
+     * @param type
+     *            the binding type.
+     * @return <code>true</code> if at least one argument is bound as the
+     *         type.
+     */
+    public boolean hasBindings(final ParameterBinding.Type type) {
+        return bindings.get(type).length > 0;
+    }
+}
@@ -30,7 +30,7 @@ import lombok.RequiredArgsConstructor;
  * @author Ashish Shinde
  */
 @Getter
-@EqualsAndHashCode
+@EqualsAndHashCode(exclude = "invocationPlan")
 @RequiredArgsConstructor(onConstructor = @_(@edu.umd.cs.findbugs.annotations.SuppressWarnings(
         value = "EI_EXPOSE_REP", justification = "This is the best way of passing annotations.")))
 public class RestMethodMetadata {
@@ -65,4 +65,37 @@ public class RestMethodMetadata {
                     value = "EI_EXPOSE_REP",
                     justification = "This is the best way of passing annotations.")))
     private final Annotation[][] parameterAnnotations;
+
+    /**
+     * The compiled plan for binding arguments to a request. Derived from the
+     * rest of the metadata and hence not part of equality.
+     */
+    @NonNull
+    private final RestMethodInvocationPlan invocationPlan;
+
+    /**
+     * Create metadata with an invocation plan compiled from the metadata
+     * alone. The response entity is decoded as an {@link Object} and no
+     * invocation policies are applied.
+     *
+     * @param path
+     *            the path for the method.
+     * @param httpMethod
+     *            the {@link javax.ws.rs.HttpMethod}.
+     * @param produced
+     *            list of media types produced.
+     * @param consumed
+     *            list of media types consumed.
+     * @param parameterAnnotations
+     *            annotations on parameters keyed by the index of the
+     *            parameter.
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "EI_EXPOSE_REP",
+            justification = "This is the best way of passing annotations.")
+    public RestMethodMetadata(final String path, final String httpMethod,
+            final List<String> produced, final List<String> consumed,
+            final Annotation[][] parameterAnnotations) {
+        this(path, httpMethod, produced, consumed, parameterAnnotations, RestInterfaceAnalyzer
+                .compileInvocationPlan(produced, consumed, parameterAnnotations));
+    }
 }
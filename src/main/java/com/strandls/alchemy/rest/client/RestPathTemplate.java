@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.uri.UriComponent;
+
+/**
+ * The absolute uri of a rest method compiled into literal segments, template
+ * variable slots and query parameters. Expands to the same uri as building
+ * the path and query with {@link javax.ws.rs.core.UriBuilder} but without
+ * parsing the template on every invocation.
+ *
+ * @author Ashish Shinde
+ *
+ */
+class RestPathTemplate {
+    /**
+     * Per thread buffer to expand templates into.
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    /**
+     * Encoded literal segments. There is one more literal than variables, and
+     * variable i is placed between literals i and i + 1.
+     */
+    private final String[] literals;
+
+    /**
+     * Names of the template variables.
+     */
+    private final String[] variableNames;
+
+    /**
+     * Index of the argument holding the value of the template variable,
+     * <code>-1</code> if no argument is bound to the variable.
+     */
+    private final int[] variableArgumentIndexes;
+
+    /**
+     * Encoded matrix parameter names.
+     */
+    private final String[] matrixNames;
+
+    /**
+     * Index of the argument holding the value of the matrix parameter.
+     */
+    private final int[] matrixArgumentIndexes;
+
+    /**
+     * Encoded query parameter names.
+     */
+    private final String[] queryNames;
+
+    /**
+     * Index of the argument holding the value of the query parameter.
+     */
+    private final int[] queryArgumentIndexes;
+
+    /**
+     * The expanded uri if the uri has no template variables, matrix or query
+     * parameters, else <code>null</code>.
+     */
+    private final String staticUri;
+
+    /**
+     * Compile the path for a rest method.
+     *
+     * @param baseUri
+     *            the base uri.
+     * @param interfacePath
+     *            the path of the rest interface, can be <code>null</code>.
+     * @param methodMetadata
+     *            the method metadata.
+     */
+    RestPathTemplate(final String baseUri, final String interfacePath,
+            final RestMethodMetadata methodMetadata) {
+        final StringBuilder template = new StringBuilder();
+        appendPath(template, baseUri);
+        appendPath(template, interfacePath);
+        appendPath(template, methodMetadata.getPath());
+
+        final List<String> literalList = new ArrayList<String>();
+        final List<String> variableList = new ArrayList<String>();
+        int start = 0;
+        int open;
+        while ((open = template.indexOf("{", start)) >= 0) {
+            final int close = findClosingBrace(template, open);
+            literalList.add(encodeLiteral(template.substring(start, open)));
+
+            // strip the regular expression if any.
+            final String variable = template.substring(open + 1, close);
+            final int colon = variable.indexOf(':');
+            variableList.add((colon >= 0 ? variable.substring(0, colon) : variable).trim());
+            start = close + 1;
+        }
+        literalList.add(encodeLiteral(template.substring(start)));
+
+        literals = literalList.toArray(new String[literalList.size()]);
+        variableNames = variableList.toArray(new String[variableList.size()]);
+
+        final RestMethodInvocationPlan plan = methodMetadata.getInvocationPlan();
+        variableArgumentIndexes = new int[variableNames.length];
+        for (int i = 0; i < variableNames.length; i++) {
+            variableArgumentIndexes[i] = -1;
+            for (final ParameterBinding binding : plan.getBindings(ParameterBinding.Type.PATH)) {
+                if (binding.getName().equals(variableNames[i])) {
+                    variableArgumentIndexes[i] = binding.getIndex();
+                }
+            }
+        }
+
+        final ParameterBinding[] matrixBindings =
+                plan.getBindings(ParameterBinding.Type.MATRIX);
+        matrixNames = new String[matrixBindings.length];
+        matrixArgumentIndexes = new int[matrixBindings.length];
+        for (int i = 0; i < matrixBindings.length; i++) {
+            final StringBuilder name = new StringBuilder();
+            UriComponentEncoder.encode(matrixBindings[i].getName(),
+                    UriComponentEncoder.MATRIX_PARAM, true, name);
+            matrixNames[i] = name.toString();
+            matrixArgumentIndexes[i] = matrixBindings[i].getIndex();
+        }
+
+        final ParameterBinding[] queryBindings = plan.getBindings(ParameterBinding.Type.QUERY);
+        queryNames = new String[queryBindings.length];
+        queryArgumentIndexes = new int[queryBindings.length];
+        for (int i = 0; i < queryBindings.length; i++) {
+            final StringBuilder name = new StringBuilder();
+            UriComponentEncoder.encode(queryBindings[i].getName(),
+                    UriComponentEncoder.QUERY_PARAM, true, true, name);
+            queryNames[i] = name.toString();
+            queryArgumentIndexes[i] = queryBindings[i].getIndex();
+        }
+
+        staticUri =
+                variableNames.length == 0 && matrixNames.length == 0
+                        && queryNames.length == 0 ? literals[0] : null;
+    }
+
+    /**
+     * Append a path to the template, adding or removing a '/' separator as
+     * {@link javax.ws.rs.core.UriBuilder#path(String)} does.
+     *
+     * @param template
+     *            the template being built.
+     * @param path
+     *            the path to append, ignored if blank.
+     */
+    private static void appendPath(final StringBuilder template, final String path) {
+        if (StringUtils.isBlank(path)) {
+            return;
+        }
+
+        if (template.length() == 0) {
+            template.append(path);
+            return;
+        }
+
+        final boolean templateEndsWithSlash = template.charAt(template.length() - 1) == '/';
+        final boolean pathStartsWithSlash = path.charAt(0) == '/';
+        if (templateEndsWithSlash && pathStartsWithSlash) {
+            template.append(path, 1, path.length());
+        } else if (!templateEndsWithSlash && !pathStartsWithSlash) {
+            template.append('/').append(path);
+        } else {
+            template.append(path);
+        }
+    }
+
+    /**
+     * Find the brace closing a template variable, skipping braces in the
+     * variable's regular expression.
+     *
+     * @param template
+     *            the template.
+     * @param open
+     *            the index of the opening brace.
+     * @return the index of the closing brace.
+     */
+    private static int findClosingBrace(final CharSequence template, final int open) {
+        int depth = 0;
+        for (int i = open; i < template.length(); i++) {
+            final char c = template.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unclosed template variable in " + template);
+    }
+
+    /**
+     * Encode a literal part of the path.
+     *
+     * @param literal
+     *            the literal.
+     * @return the encoded literal.
+     */
+    private static String encodeLiteral(final String literal) {
+        return UriComponent.contextualEncode(literal, UriComponent.Type.PATH);
+    }
+
+    /**
+     * Indicates if the uri is the same for all invocations.
+     *
+     * @return <code>true</code> if the uri has no template variables, matrix
+     *         or query parameters.
+     */
+    boolean isStatic() {
+        return staticUri != null;
+    }
+
+    /**
+     * Expand the template with the method arguments.
+     *
+     * @param arguments
+     *            the method arguments.
+     * @return the absolute uri including the query string.
+     * @throws IllegalArgumentException
+     *             if a template variable or matrix parameter has no value.
+     */
+    String expand(final Object[] arguments) {
+        if (staticUri != null) {
+            return staticUri;
+        }
+
+        final StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+
+        for (int i = 0; i < variableNames.length; i++) {
+            buffer.append(literals[i]);
+            final int argumentIndex = variableArgumentIndexes[i];
+            final Object value = argumentIndex >= 0 ? arguments[argumentIndex] : null;
+            if (value == null) {
+                throw new IllegalArgumentException("The template variable '" + variableNames[i]
+                        + "' has no value");
+            }
+            UriComponentEncoder.encode(value.toString(), UriComponentEncoder.PATH_SEGMENT, false,
+                    buffer);
+        }
+        buffer.append(literals[variableNames.length]);
+
+        for (int i = 0; i < matrixNames.length; i++) {
+            final Object argument = arguments[matrixArgumentIndexes[i]];
+            if (argument != null && argument.getClass().isArray()) {
+                for (final Object value : (Object[]) argument) {
+                    appendMatrixParam(buffer, matrixNames[i], value);
+                }
+            } else if (argument instanceof Collection) {
+                for (final Object value : (Collection<?>) argument) {
+                    appendMatrixParam(buffer, matrixNames[i], value);
+                }
+            } else {
+                appendMatrixParam(buffer, matrixNames[i], argument);
+            }
+        }
+
+        for (int i = 0; i < queryNames.length; i++) {
+            buffer.append(i == 0 ? '?' : '&').append(queryNames[i]).append('=');
+            UriComponentEncoder.encode(ObjectUtils.toString(arguments[queryArgumentIndexes[i]]),
+                    UriComponentEncoder.QUERY_PARAM, true, true, buffer);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Append a matrix parameter.
+     *
+     * @param buffer
+     *            the path buffer.
+     * @param name
+     *            the encoded parameter name.
+     * @param value
+     *            the value.
+     */
+    private static void appendMatrixParam(final StringBuilder buffer, final String name,
+            final Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Matrix parameter '" + name + "' has null value");
+        }
+        buffer.append(';').append(name).append('=');
+        UriComponentEncoder.encode(value.toString(), UriComponentEncoder.MATRIX_PARAM, true,
+                buffer);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * A lazily decoded sequence of response entities. Rest methods returning a
+ * {@link ResultStream} or an {@link Iterator} decode a json array or
+ * newline delimited json values one element at a time from the response
+ * entity stream, instead of reading the complete response into memory.
+ *
+ * <p>
+ * The underlying connection is released when the stream is fully read or
+ * closed. Callers that may stop reading early should close the stream.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ * @param <T>
+ *            the type of the elements.
+ */
+public interface ResultStream<T> extends Iterator<T>, Closeable {
+    /**
+     * Close the stream and release the underlying connection. Closing an
+     * already closed stream has no effect.
+     */
+    @Override
+    void close();
+}
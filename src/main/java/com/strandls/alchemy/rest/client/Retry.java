@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Retries invocations of a rest method failing with a transient error, i.e.
+ * a connection failure or timeout, or a 502, 503 or 504 response.
+ *
+ * <p>
+ * Applies to all GET, PUT and DELETE methods when added to the rest
+ * interface, and can be overridden per method. Other methods are retried only
+ * if declared {@link #idempotent()}. Methods returning futures are never
+ * retried.
+ * </p>
+ *
+ * <p>
+ * Retries wait for a random backoff of up to {@link #initialBackoffMillis()}
+ * doubling with every attempt, and at least as long as asked by a
+ * <code>Retry-After</code> response header. Retries are also limited by the
+ * {@link RetryBudget} of the client factory so that they cannot amplify an
+ * outage.
+ * </p>
+ *
+ * <p>
+ * Input stream arguments cannot be sent again, so methods taking input
+ * streams should not be retried.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Retry {
+    /**
+     * @return <code>false</code> to disable retries for a method of an
+     *         interface annotated with {@link Retry}.
+     */
+    boolean value() default true;
+
+    /**
+     * @return the maximum number of attempts including the first.
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * @return the upper bound of the backoff before the first retry in
+     *         milliseconds.
+     */
+    long initialBackoffMillis() default 100;
+
+    /**
+     * @return the upper bound of any backoff in milliseconds. Invocations are
+     *         not retried if the server asks to retry after longer than this.
+     */
+    long maxBackoffMillis() default 5000;
+
+    /**
+     * @return <code>true</code> to retry a method other than GET, PUT or
+     *         DELETE known to be idempotent.
+     */
+    boolean idempotent() default false;
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+/**
+ * Limits retries to a fraction of the requests made, so that retries add a
+ * bounded amount of load to a failing service.
+ *
+ * Every request deposits {@link #getRatio()} tokens into the budget and every
+ * retry withdraws a token. Retries are refused while the budget holds less
+ * than a token. The budget starts with and never holds more than a reserve
+ * of tokens, which allows some retries at low request rates.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class RetryBudget {
+    /**
+     * The default fraction of requests that may be retried.
+     */
+    public static final double DEFAULT_RATIO = 0.1;
+
+    /**
+     * The default token reserve.
+     */
+    public static final int DEFAULT_RESERVE = 10;
+
+    /**
+     * Fixed point scale of the tokens, avoiding rounding errors from
+     * repeatedly adding fractional tokens.
+     */
+    private static final long TOKEN = 1000;
+
+    /**
+     * The fraction of requests that may be retried.
+     */
+    private final double ratio;
+
+    /**
+     * The scaled tokens deposited per request.
+     */
+    private final long deposit;
+
+    /**
+     * The maximum number of scaled tokens.
+     */
+    private final long reserve;
+
+    /**
+     * The scaled tokens available.
+     */
+    private long balance;
+
+    /**
+     * The number of requests made.
+     */
+    private long requests;
+
+    /**
+     * The number of retries made.
+     */
+    private long retries;
+
+    /**
+     * The number of retries refused.
+     */
+    private long refused;
+
+    /**
+     * Create a budget allowing {@link #DEFAULT_RATIO} of requests to be
+     * retried.
+     */
+    public RetryBudget() {
+        this(DEFAULT_RATIO, DEFAULT_RESERVE);
+    }
+
+    /**
+     * Create the budget.
+     *
+     * @param ratio
+     *            the fraction of requests that may be retried.
+     * @param reserve
+     *            the number of retries allowed beyond the ratio.
+     */
+    public RetryBudget(final double ratio, final int reserve) {
+        if (ratio < 0 || reserve < 0) {
+            throw new IllegalArgumentException("Invalid retry budget " + ratio + ", " + reserve);
+        }
+        this.ratio = ratio;
+        deposit = Math.round(ratio * TOKEN);
+        this.reserve = Math.max(reserve, 1) * TOKEN;
+        balance = reserve * TOKEN;
+    }
+
+    /**
+     * Record a request, excluding retries.
+     */
+    synchronized void onRequest() {
+        requests++;
+        balance = Math.min(reserve, balance + deposit);
+    }
+
+    /**
+     * Withdraw a token for a retry.
+     *
+     * @return <code>true</code> if the retry is allowed.
+     */
+    synchronized boolean tryRetry() {
+        if (balance < TOKEN) {
+            refused++;
+            return false;
+        }
+        balance -= TOKEN;
+        retries++;
+        return true;
+    }
+
+    /**
+     * @return the fraction of requests that may be retried.
+     */
+    public double getRatio() {
+        return ratio;
+    }
+
+    /**
+     * @return the number of requests made, excluding retries.
+     */
+    public synchronized long getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * @return the number of retries made.
+     */
+    public synchronized long getRetryCount() {
+        return retries;
+    }
+
+    /**
+     * @return the number of retries refused for lack of budget.
+     */
+    public synchronized long getRefusedCount() {
+        return refused;
+    }
+}
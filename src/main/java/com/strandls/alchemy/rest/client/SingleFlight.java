@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Collapses concurrent identical GET invocations of a rest method into a
+ * single in-flight request. Invocations are identical if they expand to the
+ * same uri and have the same header and cookie parameter values. All waiting
+ * callers get the result, or the exception, of the in-flight request.
+ *
+ * <p>
+ * Applies to all GET methods when added to the rest interface, and can be
+ * overridden per method. Methods returning futures, streams or raw
+ * {@link javax.ws.rs.core.Response}s are never collapsed.
+ * </p>
+ *
+ * <p>
+ * Headers added by the
+ * {@link com.strandls.alchemy.rest.client.request.RequestBuilderFilter} or
+ * {@link com.strandls.alchemy.rest.client.request.InvocationInterceptor}s are
+ * not part of the key, so methods whose responses depend on per caller
+ * headers, for e.g. credentials, should not be collapsed.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface SingleFlight {
+    /**
+     * @return <code>false</code> to disable collapsing for a method of an
+     *         interface annotated with {@link SingleFlight}.
+     */
+    boolean value() default true;
+
+    /**
+     * @return <code>true</code> if every caller, including the one whose
+     *         request was sent, should get its own copy of the decoded
+     *         result, for results that callers modify.
+     */
+    boolean copy() default false;
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Executes calls with the same key at most once at a time. Callers arriving
+ * while a call for their key is in flight wait for and share its outcome.
+ * Also counts the calls executed and collapsed.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class SingleFlightGroup {
+    /**
+     * A call executed by the group.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    interface Call {
+        /**
+         * Execute the call.
+         *
+         * @return the result.
+         * @throws Throwable
+         *             if the call fails.
+         */
+        Object call() throws Throwable;
+    }
+
+    /**
+     * In flight calls by key.
+     */
+    private final ConcurrentMap<Object, SettableFuture<Object>> inFlight =
+            new ConcurrentHashMap<Object, SettableFuture<Object>>();
+
+    /**
+     * The number of calls executed.
+     */
+    private final AtomicLong executed = new AtomicLong();
+
+    /**
+     * The number of calls that waited for an in flight call.
+     */
+    private final AtomicLong collapsed = new AtomicLong();
+
+    /**
+     * Execute the call unless a call with the same key is in flight, in which
+     * case wait for that call instead.
+     *
+     * @param key
+     *            the call key.
+     * @param call
+     *            the call.
+     * @param copier
+     *            copies the result for every caller, including the one
+     *            executing the call, leaving the shared result untouched while
+     *            it is copied. Can be <code>null</code> to share the result.
+     * @return the result of the call.
+     * @throws Throwable
+     *             the failure of the call.
+     */
+    Object execute(final Object key, final Call call, final Function<Object, Object> copier)
+            throws Throwable {
+        final SettableFuture<Object> flight = SettableFuture.create();
+        final SettableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            collapsed.incrementAndGet();
+            try {
+                final Object result = Uninterruptibles.getUninterruptibly(existing);
+                return copier != null && result != null ? copier.apply(result) : result;
+            } catch (final ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+
+        executed.incrementAndGet();
+        try {
+            final Object result = call.call();
+            inFlight.remove(key, flight);
+            flight.set(result);
+            return copier != null && result != null ? copier.apply(result) : result;
+        } catch (final Throwable t) {
+            inFlight.remove(key, flight);
+            flight.setException(t);
+            throw t;
+        }
+    }
+
+    /**
+     * @return the number of calls executed.
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * @return the number of calls collapsed into an in flight call.
+     */
+    public long getCollapsedCount() {
+        return collapsed.get();
+    }
+
+    /**
+     * @return the average number of callers served per executed call, 1 if
+     *         no call was collapsed.
+     */
+    public double getFanInRatio() {
+        final long executedCount = executed.get();
+        return executedCount == 0 ? 1.0 : (double) (executedCount + collapsed.get())
+                / executedCount;
+    }
+}
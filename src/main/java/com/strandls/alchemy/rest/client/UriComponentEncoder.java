@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+/**
+ * Table driven percent encoder for uri components. Encodes the same way as
+ * {@link javax.ws.rs.core.UriBuilder} does for template values, matrix and
+ * query parameters without allocating intermediate strings.
+ *
+ * @author Ashish Shinde
+ *
+ */
+final class UriComponentEncoder {
+    /**
+     * Characters that are never encoded.
+     */
+    private static final String UNRESERVED =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-._~";
+
+    /**
+     * Characters allowed in a path segment template value. Same as pchar
+     * without ';' which would start a matrix parameter.
+     */
+    static final boolean[] PATH_SEGMENT = createTable(UNRESERVED + "!$&'()*+,=:@");
+
+    /**
+     * Characters allowed in a matrix parameter name or value.
+     */
+    static final boolean[] MATRIX_PARAM = createTable(UNRESERVED + "!$&'()*+,:@");
+
+    /**
+     * Characters allowed in a query parameter name or value. Same as query
+     * without '=', '&amp;' and '+' which delimit parameters and encode spaces.
+     */
+    static final boolean[] QUERY_PARAM = createTable(UNRESERVED + "!$'()*,;:@/?");
+
+    /**
+     * Hex digits for percent encoding.
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Utility class.
+     */
+    private UriComponentEncoder() {
+    }
+
+    /**
+     * Create an encoding table.
+     *
+     * @param allowed
+     *            characters that are not encoded.
+     * @return table indexed by ascii characters, <code>true</code> for
+     *         characters that do not need encoding.
+     */
+    private static boolean[] createTable(final String allowed) {
+        final boolean[] table = new boolean[128];
+        for (int i = 0; i < allowed.length(); i++) {
+            table[allowed.charAt(i)] = true;
+        }
+        return table;
+    }
+
+    /**
+     * Percent encode a value.
+     *
+     * @param value
+     *            the value to encode.
+     * @param allowed
+     *            the encoding table.
+     * @param contextual
+     *            if <code>true</code> already percent encoded octets in the
+     *            value are retained, else '%' is encoded as well.
+     * @param out
+     *            the buffer to write the encoded value to.
+     */
+    static void encode(final CharSequence value, final boolean[] allowed,
+            final boolean contextual, final StringBuilder out) {
+        encode(value, allowed, contextual, false, out);
+    }
+
+    /**
+     * Percent encode a value.
+     *
+     * @param value
+     *            the value to encode.
+     * @param allowed
+     *            the encoding table.
+     * @param contextual
+     *            if <code>true</code> already percent encoded octets in the
+     *            value are retained, else '%' is encoded as well.
+     * @param spaceAsPlus
+     *            if <code>true</code> spaces are encoded as '+' as in form
+     *            encoded query parameters.
+     * @param out
+     *            the buffer to write the encoded value to.
+     */
+    static void encode(final CharSequence value, final boolean[] allowed,
+            final boolean contextual, final boolean spaceAsPlus, final StringBuilder out) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 128) {
+                if (allowed[c]) {
+                    out.append(c);
+                } else if (spaceAsPlus && c == ' ') {
+                    out.append('+');
+                } else if (contextual && c == '%' && i + 2 < length
+                        && isHexDigit(value.charAt(i + 1)) && isHexDigit(value.charAt(i + 2))) {
+                    out.append(c);
+                } else {
+                    appendOctet(c, out);
+                }
+                continue;
+            }
+
+            // utf-8 encode non ascii characters.
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, value.charAt(++i));
+            }
+
+            if (codePoint < 0x800) {
+                appendOctet(0xC0 | codePoint >> 6, out);
+                appendOctet(0x80 | codePoint & 0x3F, out);
+            } else if (codePoint < 0x10000) {
+                appendOctet(0xE0 | codePoint >> 12, out);
+                appendOctet(0x80 | codePoint >> 6 & 0x3F, out);
+                appendOctet(0x80 | codePoint & 0x3F, out);
+            } else {
+                appendOctet(0xF0 | codePoint >> 18, out);
+                appendOctet(0x80 | codePoint >> 12 & 0x3F, out);
+                appendOctet(0x80 | codePoint >> 6 & 0x3F, out);
+                appendOctet(0x80 | codePoint & 0x3F, out);
+            }
+        }
+    }
+
+    /**
+     * Append a percent encoded octet.
+     *
+     * @param octet
+     *            the octet.
+     * @param out
+     *            the output buffer.
+     */
+    private static void appendOctet(final int octet, final StringBuilder out) {
+        out.append('%').append(HEX_DIGITS[octet >> 4 & 0x0F]).append(HEX_DIGITS[octet & 0x0F]);
+    }
+
+    /**
+     * @param c
+     *            the character.
+     * @return <code>true</code> if the character is a hex digit.
+     */
+    private static boolean isHexDigit(final char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+}
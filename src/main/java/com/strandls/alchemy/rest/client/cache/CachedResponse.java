@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * An immutable cached response entity with its validators and freshness
+ * lifetime.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Getter
+@ToString(exclude = "entity")
+public class CachedResponse {
+    /**
+     * The response entity bytes.
+     */
+    @Getter(onMethod = @_(@edu.umd.cs.findbugs.annotations.SuppressWarnings(
+            value = "EI_EXPOSE_REP",
+            justification = "Cached entities are never modified.")))
+    private final byte[] entity;
+
+    /**
+     * The content type header, can be <code>null</code>.
+     */
+    private final String contentType;
+
+    /**
+     * The content encoding header, can be <code>null</code>.
+     */
+    private final String contentEncoding;
+
+    /**
+     * The entity tag header, can be <code>null</code>.
+     */
+    private final String entityTag;
+
+    /**
+     * The last modified header, can be <code>null</code>.
+     */
+    private final String lastModified;
+
+    /**
+     * The time until which the response is fresh, in milliseconds since the
+     * epoch.
+     */
+    private final long freshUntil;
+
+    /**
+     * The time until which the stale response may be served while it is
+     * revalidated in the background, in milliseconds since the epoch.
+     */
+    private final long staleUntil;
+
+    /**
+     * The request values, <code>null</code> if absent, of the headers named
+     * by the <code>Vary</code> header of the response, keyed by lower case
+     * header name.
+     */
+    private final Map<String, String> vary;
+
+    /**
+     * Create a cached response not varying by request headers.
+     *
+     * @param entity
+     *            the response entity bytes.
+     * @param contentType
+     *            the content type header, can be <code>null</code>.
+     * @param contentEncoding
+     *            the content encoding header, can be <code>null</code>.
+     * @param entityTag
+     *            the entity tag header, can be <code>null</code>.
+     * @param lastModified
+     *            the last modified header, can be <code>null</code>.
+     * @param freshUntil
+     *            the time until which the response is fresh.
+     * @param staleUntil
+     *            the time until which the stale response may be served while
+     *            revalidating.
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "EI_EXPOSE_REP2",
+            justification = "Cached entities are never modified.")
+    public CachedResponse(final byte[] entity, final String contentType,
+            final String contentEncoding, final String entityTag, final String lastModified,
+            final long freshUntil, final long staleUntil) {
+        this(entity, contentType, contentEncoding, entityTag, lastModified, freshUntil,
+                staleUntil, Collections.<String, String> emptyMap());
+    }
+
+    /**
+     * Create the cached response.
+     *
+     * @param entity
+     *            the response entity bytes.
+     * @param contentType
+     *            the content type header, can be <code>null</code>.
+     * @param contentEncoding
+     *            the content encoding header, can be <code>null</code>.
+     * @param entityTag
+     *            the entity tag header, can be <code>null</code>.
+     * @param lastModified
+     *            the last modified header, can be <code>null</code>.
+     * @param freshUntil
+     *            the time until which the response is fresh.
+     * @param staleUntil
+     *            the time until which the stale response may be served while
+     *            revalidating.
+     * @param vary
+     *            the request values of the headers named by the
+     *            <code>Vary</code> header of the response, keyed by lower case
+     *            header name.
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "EI_EXPOSE_REP2",
+            justification = "Cached entities are never modified.")
+    public CachedResponse(final byte[] entity, final String contentType,
+            final String contentEncoding, final String entityTag, final String lastModified,
+            final long freshUntil, final long staleUntil, final Map<String, String> vary) {
+        this.entity = entity;
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+        this.freshUntil = freshUntil;
+        this.staleUntil = staleUntil;
+        this.vary = Collections.unmodifiableMap(new HashMap<String, String>(vary));
+    }
+
+    /**
+     * Create a copy with a new freshness lifetime, for e.g. after a
+     * successful revalidation.
+     *
+     * @param newFreshUntil
+     *            the time until which the response is fresh.
+     * @param newStaleUntil
+     *            the time until which the stale response may be served while
+     *            revalidating.
+     * @return the copy.
+     */
+    public CachedResponse withLifetime(final long newFreshUntil, final long newStaleUntil) {
+        return new CachedResponse(entity, contentType, contentEncoding, entityTag, lastModified,
+                newFreshUntil, newStaleUntil, vary);
+    }
+
+    /**
+     * @param now
+     *            the current time in milliseconds.
+     * @return <code>true</code> if the response can be served without
+     *         revalidation.
+     */
+    public boolean isFresh(final long now) {
+        return now < freshUntil;
+    }
+
+    /**
+     * @param now
+     *            the current time in milliseconds.
+     * @return <code>true</code> if the stale response can be served while it
+     *         is revalidated in the background.
+     */
+    public boolean isStaleWhileRevalidate(final long now) {
+        return now >= freshUntil && now < staleUntil;
+    }
+
+    /**
+     * @return <code>true</code> if the response has a validator for
+     *         conditional requests.
+     */
+    public boolean hasValidator() {
+        return entityTag != null || lastModified != null;
+    }
+
+    /**
+     * @return the size of the cached entity in bytes.
+     */
+    public int size() {
+        return entity.length;
+    }
+
+    /**
+     * Create a response serving the cached entity.
+     *
+     * @return the response.
+     */
+    public Response toResponse() {
+        final Response.ResponseBuilder builder =
+                Response.ok(new ByteArrayInputStream(entity)).header(HttpHeaders.CONTENT_TYPE,
+                        contentType);
+        if (contentEncoding != null) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        if (entityTag != null) {
+            builder.header(HttpHeaders.ETAG, entityTag);
+        }
+        if (lastModified != null) {
+            builder.header(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+/**
+ * {@link ResponseCache} evicting the least recently used responses once the
+ * total size of the cached entities exceeds a configured limit.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Singleton
+public class LruResponseCache implements ResponseCache {
+    /**
+     * Named parameter for the maximum total size of cached entities in bytes.
+     */
+    public static final String MAX_SIZE_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.cache.LruResponseCache.maxSize";
+
+    /**
+     * The cached responses.
+     */
+    private final Cache<Object, CachedResponse> cache;
+
+    /**
+     * Create the cache.
+     *
+     * @param maxSize
+     *            the maximum total size of cached entities in bytes.
+     */
+    @Inject
+    public LruResponseCache(@Named(MAX_SIZE_NAMED_PARAM) final long maxSize) {
+        cache =
+                CacheBuilder.newBuilder().maximumWeight(maxSize)
+                        .weigher(new Weigher<Object, CachedResponse>() {
+                            @Override
+                            public int weigh(final Object key, final CachedResponse value) {
+                                return value.size();
+                            }
+                        }).recordStats().build();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.cache.ResponseCache#get(java.lang.Object)
+     */
+    @Override
+    public CachedResponse get(final Object key) {
+        return cache.getIfPresent(key);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.cache.ResponseCache#put(java.lang.Object,
+     * com.strandls.alchemy.rest.client.cache.CachedResponse)
+     */
+    @Override
+    public void put(final Object key, final CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.cache.ResponseCache#invalidate(java.lang
+     * .Object)
+     */
+    @Override
+    public void invalidate(final Object key) {
+        cache.invalidate(key);
+    }
+
+    /**
+     * @return the number of cached responses.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return hit and miss statistics of the cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import java.io.IOException;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.Response;
+
+/**
+ * Client filter answering GET requests for missing resources remembered by a
+ * {@link NegativeResultCache} with a local 404 response, remembering 404
+ * responses and invalidating the caches on writes.
+ *
+ * <p>
+ * GET requests are handled if they carry the {@link #CACHE_PROPERTY} property
+ * and PUT, POST and DELETE requests if they carry the
+ * {@link #INVALIDATED_PROPERTY} property, so that the filter can be
+ * registered on clients shared with other code. Writes invalidate the caches
+ * both when sent and when their response is received, a 404 received in
+ * between is not remembered.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class NegativeCacheFilter implements ClientRequestFilter, ClientResponseFilter {
+    /**
+     * Request property with the {@link NegativeResultCache} of a GET request.
+     */
+    public static final String CACHE_PROPERTY = NegativeCacheFilter.class.getName() + ".cache";
+
+    /**
+     * Request property with the {@link NegativeResultCache} array invalidated
+     * by a write request.
+     */
+    public static final String INVALIDATED_PROPERTY = NegativeCacheFilter.class.getName()
+            + ".invalidated";
+
+    /**
+     * Request property with the cache generation when the request was sent.
+     */
+    private static final String GENERATION_PROPERTY = NegativeCacheFilter.class.getName()
+            + ".generation";
+
+    /**
+     * Request property with the lookup outcome.
+     */
+    private static final String LOOKUP_PROPERTY = NegativeCacheFilter.class.getName()
+            + ".lookup";
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientRequestFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext) throws IOException {
+        final NegativeResultCache cache =
+                (NegativeResultCache) requestContext.getProperty(CACHE_PROPERTY);
+        if (cache != null && HttpMethod.GET.equals(requestContext.getMethod())) {
+            requestContext.setProperty(GENERATION_PROPERTY, cache.getGeneration());
+            final NegativeResultCache.Lookup lookup = cache.lookup(requestContext.getUri());
+            requestContext.setProperty(LOOKUP_PROPERTY, lookup);
+            if (lookup == NegativeResultCache.Lookup.HIT) {
+                requestContext.abortWith(Response.status(Response.Status.NOT_FOUND).build());
+            }
+            return;
+        }
+
+        invalidate(requestContext);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientResponseFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext, javax.ws.rs.client.ClientResponseContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext,
+            final ClientResponseContext responseContext) throws IOException {
+        final NegativeResultCache cache =
+                (NegativeResultCache) requestContext.getProperty(CACHE_PROPERTY);
+        if (cache != null && HttpMethod.GET.equals(requestContext.getMethod())) {
+            final Object lookup = requestContext.getProperty(LOOKUP_PROPERTY);
+            if (lookup == null || lookup == NegativeResultCache.Lookup.HIT) {
+                // served locally.
+                return;
+            }
+
+            final boolean missing =
+                    responseContext.getStatus() == Response.Status.NOT_FOUND.getStatusCode();
+            if (lookup == NegativeResultCache.Lookup.VERIFY
+                    && (missing || responseContext.getStatusInfo().getFamily()
+                            == Response.Status.Family.SUCCESSFUL)) {
+                cache.onVerified(missing);
+            }
+            if (missing) {
+                cache.store(requestContext.getUri(),
+                        (Long) requestContext.getProperty(GENERATION_PROPERTY));
+            }
+            return;
+        }
+
+        invalidate(requestContext);
+    }
+
+    /**
+     * Invalidate the caches of a write request, if any.
+     *
+     * @param requestContext
+     *            the request.
+     */
+    private void invalidate(final ClientRequestContext requestContext) {
+        final NegativeResultCache[] caches =
+                (NegativeResultCache[]) requestContext.getProperty(INVALIDATED_PROPERTY);
+        if (caches == null) {
+            return;
+        }
+
+        final String method = requestContext.getMethod();
+        if (HttpMethod.PUT.equals(method) || HttpMethod.POST.equals(method)
+                || HttpMethod.DELETE.equals(method)) {
+            for (final NegativeResultCache cache : caches) {
+                cache.invalidate(requestContext.getUri());
+            }
+        }
+    }
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Remembers the uris of missing resources of a rest method, see
+ * {@link com.strandls.alchemy.rest.client.NegativeCache}.
+ *
+ * <p>
+ * Exact caches remember each uri until it expires or a write to an
+ * overlapping path invalidates it. Bloom filter caches remember uris in a
+ * current and a previous filter, rotated every half time to live, so that a
+ * uri is remembered for between half and the full time to live. Concurrent
+ * writes to a filter may lose a uri, which only costs a round trip.
+ * </p>
+ *
+ * <p>
+ * Every invalidation starts a new generation. A 404 is only remembered if no
+ * invalidation happened since its request was sent, so that a response racing
+ * with a write that creates the resource is not remembered. Stores check the
+ * generation under a shared lock and invalidations hold the lock exclusively,
+ * so an invalidation can not slip in between the check and the store.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class NegativeResultCache {
+    /**
+     * The outcome of a lookup.
+     */
+    public enum Lookup {
+        /**
+         * The uri is not known to be missing, send the request.
+         */
+        MISS,
+
+        /**
+         * The uri is missing, answer locally.
+         */
+        HIT,
+
+        /**
+         * The uri is possibly missing, send the request to verify the bloom
+         * filter hit.
+         */
+        VERIFY
+    }
+
+    /**
+     * The time to live in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * Remembered uris mapped to their paths, <code>null</code> for bloom
+     * filter caches.
+     */
+    private final Cache<String, String> entries;
+
+    /**
+     * The expected number of insertions per bloom filter.
+     */
+    private final int expectedInsertions;
+
+    /**
+     * The false positive rate the bloom filters are sized for.
+     */
+    private final double falsePositiveRate;
+
+    /**
+     * The fraction of bloom filter hits verified.
+     */
+    private final double verifyRate;
+
+    /**
+     * The bloom filter receiving new uris.
+     */
+    private volatile BloomFilter<CharSequence> current;
+
+    /**
+     * The bloom filter rotated out last.
+     */
+    private volatile BloomFilter<CharSequence> previous;
+
+    /**
+     * The nano time of the next bloom filter rotation.
+     */
+    private volatile long rotateAt;
+
+    /**
+     * Indicates if no uri has been put in the bloom filters since they were
+     * last cleared.
+     */
+    private volatile boolean cleared = true;
+
+    /**
+     * The current generation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Shared by stores and held exclusively by invalidations.
+     */
+    private final ReadWriteLock generationLock = new ReentrantReadWriteLock();
+
+    /**
+     * The number of lookups answered locally.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * The number of lookups sent to the server.
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * The number of bloom filter hits sent to the server for verification.
+     */
+    private final AtomicLong verifyCount = new AtomicLong();
+
+    /**
+     * The number of verified bloom filter hits found to exist.
+     */
+    private final AtomicLong falsePositiveCount = new AtomicLong();
+
+    /**
+     * The number of verified bloom filter hits found to be missing.
+     */
+    private final AtomicLong truePositiveCount = new AtomicLong();
+
+    /**
+     * The number of remembered 404s.
+     */
+    private final AtomicLong storeCount = new AtomicLong();
+
+    /**
+     * The number of invalidations.
+     */
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /**
+     * Create the cache.
+     *
+     * @param ttlMillis
+     *            the time in milliseconds a 404 is remembered for.
+     * @param maxEntries
+     *            the maximum number of remembered uris, the expected number
+     *            of uris per time to live for bloom filters.
+     * @param bloomFilter
+     *            <code>true</code> to remember uris in bloom filters.
+     * @param falsePositiveRate
+     *            the false positive rate the bloom filters are sized for.
+     * @param verifyRate
+     *            the fraction of bloom filter hits to verify.
+     */
+    public NegativeResultCache(final long ttlMillis, final int maxEntries,
+            final boolean bloomFilter, final double falsePositiveRate, final double verifyRate) {
+        if (ttlMillis <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Time to live and maximum entries should be > 0");
+        }
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        expectedInsertions = maxEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.verifyRate = verifyRate;
+        if (bloomFilter) {
+            entries = null;
+            current = newFilter();
+            previous = newFilter();
+            rotateAt = System.nanoTime() + ttlNanos / 2;
+        } else {
+            entries =
+                    CacheBuilder.newBuilder().maximumSize(maxEntries)
+                            .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS).build();
+        }
+    }
+
+    /**
+     * @return the current generation, to be passed to
+     *         {@link #store(URI, long)} for the response of a request sent
+     *         now.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Look up a uri.
+     *
+     * @param uri
+     *            the request uri.
+     * @return the lookup outcome.
+     */
+    public Lookup lookup(final URI uri) {
+        final String key = uri.toString();
+        if (entries != null) {
+            if (entries.getIfPresent(key) == null) {
+                missCount.incrementAndGet();
+                return Lookup.MISS;
+            }
+            hitCount.incrementAndGet();
+            return Lookup.HIT;
+        }
+
+        final long now = System.nanoTime();
+        if (now - rotateAt >= 0) {
+            rotate(now);
+        }
+        if (!current.mightContain(key) && !previous.mightContain(key)) {
+            missCount.incrementAndGet();
+            return Lookup.MISS;
+        }
+        if (verifyRate > 0 && ThreadLocalRandom.current().nextDouble() < verifyRate) {
+            verifyCount.incrementAndGet();
+            return Lookup.VERIFY;
+        }
+        hitCount.incrementAndGet();
+        return Lookup.HIT;
+    }
+
+    /**
+     * Remember a missing uri, unless invalidated since its request was sent.
+     *
+     * @param uri
+     *            the request uri.
+     * @param requestGeneration
+     *            the generation when the request was sent.
+     */
+    public void store(final URI uri, final long requestGeneration) {
+        final String key = uri.toString();
+        generationLock.readLock().lock();
+        try {
+            if (generation.get() != requestGeneration) {
+                return;
+            }
+
+            if (entries != null) {
+                entries.put(key, getPath(uri));
+            } else {
+                final long now = System.nanoTime();
+                if (now - rotateAt >= 0) {
+                    rotate(now);
+                }
+                final BloomFilter<CharSequence> filter = current;
+                synchronized (filter) {
+                    filter.put(key);
+                }
+                cleared = false;
+            }
+        } finally {
+            generationLock.readLock().unlock();
+        }
+        storeCount.incrementAndGet();
+    }
+
+    /**
+     * Record the outcome of a verified bloom filter hit.
+     *
+     * @param missing
+     *            <code>true</code> if the server responded with a 404.
+     */
+    public void onVerified(final boolean missing) {
+        if (missing) {
+            truePositiveCount.incrementAndGet();
+        } else {
+            falsePositiveCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Forget the uris overlapping a written uri, i.e. with the same path, a
+     * parent path or a child path. Bloom filter caches forget all uris.
+     *
+     * @param uri
+     *            the written uri.
+     */
+    public void invalidate(final URI uri) {
+        invalidationCount.incrementAndGet();
+        final String path = getPath(uri);
+        generationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            if (entries == null) {
+                if (!cleared) {
+                    synchronized (this) {
+                        cleared = true;
+                        current = newFilter();
+                        previous = newFilter();
+                        rotateAt = System.nanoTime() + ttlNanos / 2;
+                    }
+                }
+                return;
+            }
+
+            final Iterator<Map.Entry<String, String>> iterator =
+                    entries.asMap().entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (overlaps(path, iterator.next().getValue())) {
+                    iterator.remove();
+                }
+            }
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of lookups answered locally.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of lookups sent to the server, excluding
+     *         verifications.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of bloom filter hits sent to the server for
+     *         verification.
+     */
+    public long getVerifyCount() {
+        return verifyCount.get();
+    }
+
+    /**
+     * @return the number of verified bloom filter hits found to exist.
+     */
+    public long getFalsePositiveCount() {
+        return falsePositiveCount.get();
+    }
+
+    /**
+     * @return the number of remembered 404s.
+     */
+    public long getStoreCount() {
+        return storeCount.get();
+    }
+
+    /**
+     * @return the number of invalidations.
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    /**
+     * @return the fraction of lookups answered locally, 0 if there were no
+     *         lookups.
+     */
+    public double getHitRate() {
+        final long hits = hitCount.get();
+        final long lookups = hits + missCount.get() + verifyCount.get();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the fraction of verified bloom filter hits found to exist, 0 if
+     *         none were verified. Always 0 for exact caches.
+     */
+    public double getFalsePositiveRate() {
+        final long falsePositives = falsePositiveCount.get();
+        final long verified = falsePositives + truePositiveCount.get();
+        return verified == 0 ? 0 : (double) falsePositives / verified;
+    }
+
+    /**
+     * @return the false positive probability of the current bloom filter
+     *         going by its fill, 0 for exact caches.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return entries == null ? current.expectedFpp() : 0;
+    }
+
+    /**
+     * Rotate the bloom filters if due. A previous filter older than half the
+     * time to live is dropped too.
+     *
+     * @param now
+     *            the nano time.
+     */
+    private synchronized void rotate(final long now) {
+        if (now - rotateAt < 0) {
+            return;
+        }
+        previous = now - rotateAt < ttlNanos / 2 ? current : newFilter();
+        current = newFilter();
+        rotateAt = now + ttlNanos / 2;
+    }
+
+    /**
+     * @return a new empty bloom filter.
+     */
+    private BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8), expectedInsertions,
+                falsePositiveRate);
+    }
+
+    /**
+     * Get the path of a uri without matrix parameters and trailing slashes.
+     *
+     * @param uri
+     *            the uri.
+     * @return the path.
+     */
+    static String getPath(final URI uri) {
+        final String rawPath = uri.getRawPath() == null ? "" : uri.getRawPath();
+        final StringBuilder path = new StringBuilder(rawPath.length());
+        boolean matrix = false;
+        for (int i = 0; i < rawPath.length(); i++) {
+            final char c = rawPath.charAt(i);
+            if (c == ';') {
+                matrix = true;
+            } else if (c == '/') {
+                matrix = false;
+            }
+            if (!matrix) {
+                path.append(c);
+            }
+        }
+
+        int length = path.length();
+        while (length > 0 && path.charAt(length - 1) == '/') {
+            length--;
+        }
+        return path.substring(0, length);
+    }
+
+    /**
+     * Indicates if two paths overlap, i.e. are equal or one is a parent of
+     * the other.
+     *
+     * @param path
+     *            a path.
+     * @param other
+     *            the other path.
+     * @return <code>true</code> if the paths overlap.
+     */
+    static boolean overlaps(final String path, final String other) {
+        if (path.length() > other.length()) {
+            return overlaps(other, path);
+        }
+        return other.startsWith(path)
+                && (other.length() == path.length() || other.charAt(path.length()) == '/');
+    }
+}
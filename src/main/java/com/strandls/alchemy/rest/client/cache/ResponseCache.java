@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+/**
+ * Client side cache of successful GET responses used by the rest proxies.
+ * Responses are stored and served following the http caching headers of the
+ * response, see {@link ResponseCacheFilter}.
+ *
+ * <p>
+ * Implementations should be thread safe and bound their size.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+public interface ResponseCache {
+    /**
+     * Get a cached response.
+     *
+     * @param key
+     *            the request key.
+     * @return the cached response, <code>null</code> if not cached.
+     */
+    CachedResponse get(Object key);
+
+    /**
+     * Cache a response, replacing any existing response for the key.
+     *
+     * @param key
+     *            the request key.
+     * @param response
+     *            the response.
+     */
+    void put(Object key, CachedResponse response);
+
+    /**
+     * Remove a cached response.
+     *
+     * @param key
+     *            the request key.
+     */
+    void invalidate(Object key);
+}
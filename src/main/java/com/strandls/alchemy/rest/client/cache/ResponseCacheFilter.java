@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.base.Objects;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Client filter serving GET requests from a {@link ResponseCache} following
+ * http caching semantics.
+ *
+ * <ul>
+ * <li>Successful responses are stored unless marked <code>no-store</code>.
+ * They are fresh for the <code>max-age</code> of the
+ * <code>Cache-Control</code> header, and not fresh at all if marked
+ * <code>no-cache</code>.</li>
+ * <li>Fresh responses are served without a request.</li>
+ * <li>Stale responses within their <code>stale-while-revalidate</code> window
+ * are served while a conditional request refreshes them in the background.</li>
+ * <li>Other stale responses are revalidated with a conditional request using
+ * <code>If-None-Match</code> and <code>If-Modified-Since</code>, and served
+ * from the cache if the server responds with <code>304 Not Modified</code>.</li>
+ * </ul>
+ *
+ * <p>
+ * The cache is shared by all callers, so requests carrying an
+ * <code>Authorization</code> header are neither served from nor stored in the
+ * cache, and responses marked <code>private</code> or varying by all headers
+ * are not stored. Other responses are only served to requests with the same
+ * values of the headers named by their <code>Vary</code> header, as sent after
+ * all filters have run. Only the most recent variant per key is kept.
+ * Entities larger than the {@link #MAX_ENTITY_SIZE_PROPERTY} are not stored,
+ * and are buffered only up to that size.
+ * </p>
+ *
+ * <p>
+ * The filter only handles requests carrying the {@link #CACHE_PROPERTY} and
+ * {@link #KEY_PROPERTY} properties and can be registered on clients shared
+ * with other code.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Slf4j
+public class ResponseCacheFilter implements ClientRequestFilter, ClientResponseFilter {
+    /**
+     * Request property with the {@link ResponseCache} to use.
+     */
+    public static final String CACHE_PROPERTY = ResponseCacheFilter.class.getName() + ".cache";
+
+    /**
+     * Request property with the cache key of the request.
+     */
+    public static final String KEY_PROPERTY = ResponseCacheFilter.class.getName() + ".key";
+
+    /**
+     * Request property with the maximum size in bytes of a cached entity,
+     * unbounded if absent.
+     */
+    public static final String MAX_ENTITY_SIZE_PROPERTY = ResponseCacheFilter.class.getName()
+            + ".maxEntitySize";
+
+    /**
+     * Header naming the request headers a response varies by.
+     */
+    private static final String VARY = "Vary";
+
+    /**
+     * Request property marking background revalidation requests.
+     */
+    private static final String REVALIDATION_PROPERTY = ResponseCacheFilter.class.getName()
+            + ".revalidation";
+
+    /**
+     * Request property with the cached response being revalidated.
+     */
+    private static final String CACHED_RESPONSE_PROPERTY = ResponseCacheFilter.class.getName()
+            + ".cachedResponse";
+
+    /**
+     * Request property marking requests served from the cache.
+     */
+    private static final String SERVED_PROPERTY = ResponseCacheFilter.class.getName()
+            + ".served";
+
+    /**
+     * Keys with a background revalidation in progress.
+     */
+    private final Set<Object> revalidating = Collections
+            .newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientRequestFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext) throws IOException {
+        final ResponseCache cache = (ResponseCache) requestContext.getProperty(CACHE_PROPERTY);
+        final Object key = requestContext.getProperty(KEY_PROPERTY);
+        if (cache == null || key == null || !isCacheable(requestContext)) {
+            return;
+        }
+
+        final CachedResponse cached = cache.get(key);
+        if (cached == null || !matches(cached, requestContext)) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (requestContext.getProperty(REVALIDATION_PROPERTY) == null) {
+            if (cached.isStaleWhileRevalidate(now)) {
+                revalidate(requestContext, cache, key);
+            }
+
+            if (cached.isFresh(now) || cached.isStaleWhileRevalidate(now)) {
+                requestContext.setProperty(SERVED_PROPERTY, Boolean.TRUE);
+                requestContext.abortWith(cached.toResponse());
+                return;
+            }
+        }
+
+        if (cached.hasValidator()) {
+            requestContext.setProperty(CACHED_RESPONSE_PROPERTY, cached);
+            if (cached.getEntityTag() != null) {
+                requestContext.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH,
+                        cached.getEntityTag());
+            }
+            if (cached.getLastModified() != null) {
+                requestContext.getHeaders().putSingle(HttpHeaders.IF_MODIFIED_SINCE,
+                        cached.getLastModified());
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientResponseFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext, javax.ws.rs.client.ClientResponseContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext,
+            final ClientResponseContext responseContext) throws IOException {
+        final ResponseCache cache = (ResponseCache) requestContext.getProperty(CACHE_PROPERTY);
+        final Object key = requestContext.getProperty(KEY_PROPERTY);
+        if (cache == null || key == null || !isCacheable(requestContext)
+                || requestContext.getProperty(SERVED_PROPERTY) != null) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final CacheDirectives directives =
+                new CacheDirectives(responseContext.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        final CachedResponse cached =
+                (CachedResponse) requestContext.getProperty(CACHED_RESPONSE_PROPERTY);
+        final Map<String, String> vary = getVary(requestContext, responseContext);
+
+        if (responseContext.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()
+                && cached != null) {
+            if (directives.noStore || directives.isPrivate || vary == null) {
+                cache.invalidate(key);
+            } else {
+                cache.put(key, cached.withLifetime(directives.getFreshUntil(now),
+                        directives.getStaleUntil(now)));
+            }
+            serve(cached, responseContext);
+            return;
+        }
+
+        if (responseContext.getStatus() != Response.Status.OK.getStatusCode()) {
+            return;
+        }
+
+        final String entityTag = responseContext.getHeaderString(HttpHeaders.ETAG);
+        final String lastModified = responseContext.getHeaderString(HttpHeaders.LAST_MODIFIED);
+        final Integer maxEntitySize =
+                (Integer) requestContext.getProperty(MAX_ENTITY_SIZE_PROPERTY);
+        if (directives.noStore || directives.isPrivate || vary == null
+                || !responseContext.hasEntity() || maxEntitySize != null
+                && responseContext.getLength() > maxEntitySize
+                || directives.getFreshUntil(now) <= now && entityTag == null
+                && lastModified == null) {
+            // nothing worth or allowed caching.
+            cache.invalidate(key);
+            return;
+        }
+
+        final byte[] entity = readEntity(responseContext, maxEntitySize);
+        if (entity == null) {
+            cache.invalidate(key);
+            return;
+        }
+
+        cache.put(key, new CachedResponse(entity,
+                responseContext.getHeaderString(HttpHeaders.CONTENT_TYPE),
+                responseContext.getHeaderString(HttpHeaders.CONTENT_ENCODING), entityTag,
+                lastModified, directives.getFreshUntil(now), directives.getStaleUntil(now),
+                vary));
+    }
+
+    /**
+     * Read the response entity for caching, replacing the entity stream of
+     * the response with the bytes read.
+     *
+     * @param responseContext
+     *            the response.
+     * @param maxEntitySize
+     *            the maximum size of a cached entity, can be
+     *            <code>null</code>.
+     * @return the entity, <code>null</code> if larger than the maximum size.
+     * @throws IOException
+     */
+    private byte[] readEntity(final ClientResponseContext responseContext,
+            final Integer maxEntitySize) throws IOException {
+        final InputStream entityStream = responseContext.getEntityStream();
+        if (maxEntitySize == null) {
+            final byte[] entity;
+            try {
+                entity = ByteStreams.toByteArray(entityStream);
+            } finally {
+                entityStream.close();
+            }
+            responseContext.setEntityStream(new ByteArrayInputStream(entity));
+            return entity;
+        }
+
+        // read one byte more than the limit to detect larger entities.
+        final byte[] buffered =
+                ByteStreams.toByteArray(ByteStreams.limit(entityStream, maxEntitySize + 1L));
+        if (buffered.length > maxEntitySize) {
+            // hand the rest of the entity through unbuffered.
+            responseContext.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(
+                    buffered), entityStream));
+            return null;
+        }
+
+        entityStream.close();
+        responseContext.setEntityStream(new ByteArrayInputStream(buffered));
+        return buffered;
+    }
+
+    /**
+     * Indicates if a request may be served from and stored in the cache.
+     *
+     * @param requestContext
+     *            the request.
+     * @return <code>true</code> for GET requests without credentials.
+     */
+    private static boolean isCacheable(final ClientRequestContext requestContext) {
+        return HttpMethod.GET.equals(requestContext.getMethod())
+                && requestContext.getHeaderString(HttpHeaders.AUTHORIZATION) == null;
+    }
+
+    /**
+     * Indicates if a cached response can be served for a request.
+     *
+     * @param cached
+     *            the cached response.
+     * @param requestContext
+     *            the request.
+     * @return <code>true</code> if the request has the same values of the
+     *         headers the cached response varies by.
+     */
+    private static boolean matches(final CachedResponse cached,
+            final ClientRequestContext requestContext) {
+        for (final Map.Entry<String, String> header : cached.getVary().entrySet()) {
+            if (!Objects.equal(header.getValue(),
+                    requestContext.getHeaderString(header.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the request values of the headers named by the <code>Vary</code>
+     * header of a response.
+     *
+     * @param requestContext
+     *            the request.
+     * @param responseContext
+     *            the response.
+     * @return the header values keyed by lower case header name,
+     *         <code>null</code> if the response varies by all headers.
+     */
+    private static Map<String, String> getVary(final ClientRequestContext requestContext,
+            final ClientResponseContext responseContext) {
+        final List<String> varyHeaders = responseContext.getHeaders().get(VARY);
+        if (varyHeaders == null) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, String> vary = new HashMap<String, String>();
+        for (final String varyHeader : varyHeaders) {
+            for (final String name : varyHeader.split(",")) {
+                final String headerName = name.trim().toLowerCase();
+                if ("*".equals(headerName)) {
+                    return null;
+                }
+                if (!headerName.isEmpty()) {
+                    vary.put(headerName, requestContext.getHeaderString(headerName));
+                }
+            }
+        }
+        return vary;
+    }
+
+    /**
+     * Replace a not modified response with the cached response.
+     *
+     * @param cached
+     *            the cached response.
+     * @param responseContext
+     *            the not modified response.
+     */
+    private void serve(final CachedResponse cached, final ClientResponseContext responseContext) {
+        responseContext.setStatus(Response.Status.OK.getStatusCode());
+        responseContext.setEntityStream(new ByteArrayInputStream(cached.getEntity()));
+        responseContext.getHeaders().putSingle(HttpHeaders.CONTENT_LENGTH,
+                String.valueOf(cached.size()));
+        if (cached.getContentType() != null) {
+            responseContext.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE,
+                    cached.getContentType());
+        }
+        if (cached.getContentEncoding() != null) {
+            responseContext.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING,
+                    cached.getContentEncoding());
+        }
+    }
+
+    /**
+     * Revalidate a cached response in the background, unless already being
+     * revalidated.
+     *
+     * @param requestContext
+     *            the request served from the stale response.
+     * @param cache
+     *            the cache.
+     * @param key
+     *            the cache key.
+     */
+    private void revalidate(final ClientRequestContext requestContext,
+            final ResponseCache cache, final Object key) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+
+        try {
+            final Builder builder =
+                    requestContext.getClient().target(requestContext.getUri()).request();
+            for (final Map.Entry<String, List<String>> header : requestContext
+                    .getStringHeaders().entrySet()) {
+                for (final String value : header.getValue()) {
+                    builder.header(header.getKey(), value);
+                }
+            }
+            builder.property(CACHE_PROPERTY, cache).property(KEY_PROPERTY, key)
+                    .property(REVALIDATION_PROPERTY, Boolean.TRUE);
+
+            builder.async().get(new InvocationCallback<Response>() {
+                @Override
+                public void completed(final Response response) {
+                    revalidating.remove(key);
+                    response.close();
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    revalidating.remove(key);
+                    log.debug("Revalidation of {} failed", requestContext.getUri(), throwable);
+                }
+            });
+        } catch (final RuntimeException e) {
+            revalidating.remove(key);
+            log.debug("Revalidation of {} failed", requestContext.getUri(), e);
+        }
+    }
+
+    /**
+     * The <code>Cache-Control</code> directives relevant to a private cache.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    private static class CacheDirectives {
+        /**
+         * The response must not be stored.
+         */
+        private boolean noStore;
+
+        /**
+         * The response must be revalidated before use.
+         */
+        private boolean noCache;
+
+        /**
+         * The response is intended for a single user.
+         */
+        private boolean isPrivate;
+
+        /**
+         * The freshness lifetime in seconds.
+         */
+        private long maxAge;
+
+        /**
+         * The time in seconds after expiry during which the stale response
+         * may be served while revalidating.
+         */
+        private long staleWhileRevalidate;
+
+        /**
+         * Parse the directives.
+         *
+         * @param cacheControl
+         *            the <code>Cache-Control</code> header value, can be
+         *            <code>null</code>.
+         */
+        CacheDirectives(final String cacheControl) {
+            if (cacheControl == null) {
+                return;
+            }
+
+            for (final String directive : cacheControl.split(",")) {
+                final String[] nameValue = directive.trim().split("=", 2);
+                final String name = nameValue[0].trim().toLowerCase();
+                if ("no-store".equals(name)) {
+                    noStore = true;
+                } else if ("no-cache".equals(name)) {
+                    noCache = true;
+                } else if ("private".equals(name)) {
+                    isPrivate = true;
+                } else if ("max-age".equals(name) && nameValue.length == 2) {
+                    maxAge = parseSeconds(nameValue[1]);
+                } else if ("stale-while-revalidate".equals(name) && nameValue.length == 2) {
+                    staleWhileRevalidate = parseSeconds(nameValue[1]);
+                }
+            }
+        }
+
+        /**
+         * @param value
+         *            a delta seconds directive value.
+         * @return the seconds, 0 if not valid.
+         */
+        private static long parseSeconds(final String value) {
+            try {
+                return Math.max(0, Long.parseLong(value.trim().replace("\"", "")));
+            } catch (final NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * @param now
+         *            the current time in milliseconds.
+         * @return the time until which the response is fresh.
+         */
+        long getFreshUntil(final long now) {
+            return noCache ? now : now + maxAge * 1000;
+        }
+
+        /**
+         * @param now
+         *            the current time in milliseconds.
+         * @return the time until which the stale response may be served while
+         *         revalidating.
+         */
+        long getStaleUntil(final long now) {
+            return noCache ? now : getFreshUntil(now) + staleWhileRevalidate * 1000;
+        }
+    }
+}
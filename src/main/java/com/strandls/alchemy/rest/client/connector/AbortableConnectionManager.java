@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.connector;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Connection manager tracking the connections leased for requests carrying
+ * an {@link ExchangeAbort}, so that aborting the exchange can shut down its
+ * connection. All other calls are delegated to the wrapped manager.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class AbortableConnectionManager implements HttpClientConnectionManager {
+    /**
+     * The wrapped manager.
+     */
+    private final HttpClientConnectionManager delegate;
+
+    /**
+     * The exchanges of leased connections.
+     */
+    private final ConcurrentMap<HttpClientConnection, ExchangeAbort> exchanges =
+            new ConcurrentHashMap<HttpClientConnection, ExchangeAbort>();
+
+    /**
+     * @param delegate
+     *            the wrapped manager.
+     */
+    public AbortableConnectionManager(final HttpClientConnectionManager delegate) {
+        this.delegate = delegate;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.apache.http.conn.HttpClientConnectionManager#requestConnection(org
+     * .apache.http.conn.routing.HttpRoute, java.lang.Object)
+     */
+    @Override
+    public ConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+        final ConnectionRequest request = delegate.requestConnection(route, state);
+        final ExchangeAbort abort = ExchangeAbort.getCurrent();
+        if (abort == null) {
+            return request;
+        }
+
+        abort.leasing(request);
+        return new ConnectionRequest() {
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+
+            @Override
+            public HttpClientConnection get(final long timeout, final TimeUnit tunit)
+                    throws InterruptedException, ExecutionException,
+                    ConnectionPoolTimeoutException {
+                final HttpClientConnection connection = request.get(timeout, tunit);
+                exchanges.put(connection, abort);
+                abort.attach(connection);
+                return connection;
+            }
+        };
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.apache.http.conn.HttpClientConnectionManager#releaseConnection(org
+     * .apache.http.HttpClientConnection, java.lang.Object, long,
+     * java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public void releaseConnection(final HttpClientConnection conn, final Object newState,
+            final long validDuration, final TimeUnit timeUnit) {
+        final ExchangeAbort abort = exchanges.remove(conn);
+        if (abort != null) {
+            abort.detach();
+        }
+        delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.apache.http.conn.HttpClientConnectionManager#connect(org.apache.http
+     * .HttpClientConnection, org.apache.http.conn.routing.HttpRoute, int,
+     * org.apache.http.protocol.HttpContext)
+     */
+    @Override
+    public void connect(final HttpClientConnection conn, final HttpRoute route,
+            final int connectTimeout, final HttpContext context) throws IOException {
+        delegate.connect(conn, route, connectTimeout, context);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.apache.http.conn.HttpClientConnectionManager#upgrade(org.apache.http
+     * .HttpClientConnection, org.apache.http.conn.routing.HttpRoute,
+     * org.apache.http.protocol.HttpContext)
+     */
+    @Override
+    public void upgrade(final HttpClientConnection conn, final HttpRoute route,
+            final HttpContext context) throws IOException {
+        delegate.upgrade(conn, route, context);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.apache.http.conn.HttpClientConnectionManager#routeComplete(org.apache
+     * .http.HttpClientConnection, org.apache.http.conn.routing.HttpRoute,
+     * org.apache.http.protocol.HttpContext)
+     */
+    @Override
+    public void routeComplete(final HttpClientConnection conn, final HttpRoute route,
+            final HttpContext context) throws IOException {
+        delegate.routeComplete(conn, route, context);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.apache.http.conn.HttpClientConnectionManager#closeIdleConnections
+     * (long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public void closeIdleConnections(final long idletime, final TimeUnit tunit) {
+        delegate.closeIdleConnections(idletime, tunit);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.apache.http.conn.HttpClientConnectionManager#closeExpiredConnections()
+     */
+    @Override
+    public void closeExpiredConnections() {
+        delegate.closeExpiredConnections();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.apache.http.conn.HttpClientConnectionManager#shutdown()
+     */
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.connector;
+
+import java.io.IOException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.concurrent.Cancellable;
+
+/**
+ * Handle aborting an http exchange that is in flight, for instance the losing
+ * request of a hedged invocation.
+ *
+ * <p>
+ * The handle is passed to the {@link ExchangeAbortFilter} as the
+ * {@link ExchangeAbortFilter#ABORT_PROPERTY} request property. A request
+ * aborted before it is sent fails in the filter. A request sent through a
+ * client from the {@link PooledClientProvider} is tracked by its
+ * {@link AbortableConnectionManager}, and aborting it cancels its pending
+ * connection lease or shuts down its leased connection, failing the request
+ * and freeing the connection at once.
+ * </p>
+ *
+ * <p>
+ * Other connectors, like the default http url connection connector, cannot
+ * be reached once the request is sent, and an aborted request already sent
+ * runs to completion.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Slf4j
+public class ExchangeAbort {
+    /**
+     * The handle of the request being sent by the current thread, set by the
+     * {@link ExchangeAbortFilter} and read by the
+     * {@link AbortableConnectionManager} when leasing a connection, including
+     * the leases of retries. The connector sends the request on the thread
+     * running the request filters.
+     */
+    private static final ThreadLocal<ExchangeAbort> CURRENT = new ThreadLocal<ExchangeAbort>();
+
+    /**
+     * Indicates the exchange has been aborted.
+     */
+    private boolean aborted;
+
+    /**
+     * The pending connection lease.
+     */
+    private Cancellable lease;
+
+    /**
+     * The leased connection.
+     */
+    private HttpClientConnection connection;
+
+    /**
+     * Abort the exchange. Has no effect once the connection of the exchange
+     * has been released.
+     */
+    public synchronized void abort() {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+        if (lease != null) {
+            lease.cancel();
+        }
+        if (connection != null) {
+            shutdown(connection);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the exchange has been aborted.
+     */
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Track the pending connection lease of the exchange, cancelling it if the
+     * exchange has been aborted so that retries of the exchange fail.
+     *
+     * @param lease
+     *            the lease.
+     */
+    synchronized void leasing(final Cancellable lease) {
+        this.lease = lease;
+        if (aborted) {
+            lease.cancel();
+        }
+    }
+
+    /**
+     * Track the connection leased for the exchange, shutting it down if the
+     * exchange has been aborted.
+     *
+     * @param connection
+     *            the leased connection.
+     */
+    synchronized void attach(final HttpClientConnection connection) {
+        lease = null;
+        this.connection = connection;
+        if (aborted) {
+            shutdown(connection);
+        }
+    }
+
+    /**
+     * Stop tracking the connection of the exchange, on its release to the
+     * pool.
+     */
+    synchronized void detach() {
+        lease = null;
+        connection = null;
+    }
+
+    /**
+     * Set the handle of the request being sent by the current thread.
+     *
+     * @param abort
+     *            the handle, <code>null</code> if the request cannot be
+     *            aborted.
+     */
+    static void setCurrent(final ExchangeAbort abort) {
+        if (abort == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(abort);
+        }
+    }
+
+    /**
+     * Get the handle of the request being sent by the current thread.
+     *
+     * @return the handle, <code>null</code> if none.
+     */
+    static ExchangeAbort getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Shut down a connection, failing the exchange using it.
+     *
+     * @param connection
+     *            the connection.
+     */
+    private static void shutdown(final HttpClientConnection connection) {
+        try {
+            connection.shutdown();
+        } catch (final IOException e) {
+            log.debug("Error shutting down aborted connection.", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.connector;
+
+import java.io.IOException;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+/**
+ * Client filter failing requests whose {@link ExchangeAbort} has been aborted
+ * before they are sent, and handing the {@link ExchangeAbort} of other
+ * requests to the {@link AbortableConnectionManager} of the connector.
+ *
+ * <p>
+ * Requests are handled if they carry the {@link #ABORT_PROPERTY} property, so
+ * that the filter can be registered on clients shared with other code.
+ * </p>
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class ExchangeAbortFilter implements ClientRequestFilter, ClientResponseFilter {
+    /**
+     * Request property with the {@link ExchangeAbort} of a request.
+     */
+    public static final String ABORT_PROPERTY = ExchangeAbortFilter.class.getName() + ".abort";
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientRequestFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext) throws IOException {
+        final ExchangeAbort abort = (ExchangeAbort) requestContext.getProperty(ABORT_PROPERTY);
+        if (abort != null && abort.isAborted()) {
+            throw new IOException("Request to " + requestContext.getUri() + " aborted.");
+        }
+        ExchangeAbort.setCurrent(abort);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientResponseFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext, javax.ws.rs.client.ClientResponseContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext,
+            final ClientResponseContext responseContext) throws IOException {
+        // the exchange is complete.
+        ExchangeAbort.setCurrent(null);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.connector;
+
+import javax.ws.rs.client.Client;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
+import com.google.inject.name.Names;
+
+/**
+ * Binds {@link Client} to a {@link PooledClientProvider}. This is the
+ * recommended client binding for the proxies.
+ *
+ * The binding is opt-in rather than a default of the factory. Applications
+ * bind the {@link Client} themselves to configure ssl, authentication and
+ * providers, a default binding would conflict with theirs. The provider also
+ * starts an eviction thread and a jvm shutdown hook, which a library should
+ * not do unless asked to.
+ *
+ * The pool settings default to sensible values and can be changed with the
+ * chained setters before the module is installed, e.g.
+ *
+ * <pre>
+ * new PooledClientModule().setMaxConnectionsPerRoute(50).setReadTimeout(10000)
+ * </pre>
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PooledClientModule extends AbstractModule {
+    /**
+     * The maximum number of pooled connections.
+     */
+    private int maxTotalConnections = 200;
+
+    /**
+     * The maximum number of pooled connections per route.
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    /**
+     * The time in milliseconds after which idle connections are closed.
+     */
+    private long idleTimeout = 30000;
+
+    /**
+     * The inactivity period in milliseconds after which pooled connections are
+     * validated before reuse.
+     */
+    private int validateAfterInactivity = 2000;
+
+    /**
+     * The connect timeout in milliseconds, zero for no timeout.
+     */
+    private int connectTimeout = 5000;
+
+    /**
+     * The read timeout in milliseconds, zero for no timeout.
+     */
+    private int readTimeout = 30000;
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.inject.AbstractModule#configure()
+     */
+    @Override
+    protected void configure() {
+        bindConstant().annotatedWith(
+                Names.named(PooledClientProvider.MAX_TOTAL_CONNECTIONS_NAMED_PARAM)).to(
+                maxTotalConnections);
+        bindConstant().annotatedWith(
+                Names.named(PooledClientProvider.MAX_CONNECTIONS_PER_ROUTE_NAMED_PARAM)).to(
+                maxConnectionsPerRoute);
+        bindConstant().annotatedWith(Names.named(PooledClientProvider.IDLE_TIMEOUT_NAMED_PARAM))
+                .to(idleTimeout);
+        bindConstant().annotatedWith(
+                Names.named(PooledClientProvider.VALIDATE_AFTER_INACTIVITY_NAMED_PARAM)).to(
+                validateAfterInactivity);
+        bindConstant().annotatedWith(
+                Names.named(PooledClientProvider.CONNECT_TIMEOUT_NAMED_PARAM)).to(connectTimeout);
+        bindConstant().annotatedWith(Names.named(PooledClientProvider.READ_TIMEOUT_NAMED_PARAM))
+                .to(readTimeout);
+        bind(Client.class).toProvider(PooledClientProvider.class).in(Singleton.class);
+    }
+}
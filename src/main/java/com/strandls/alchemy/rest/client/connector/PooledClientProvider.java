@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.connector;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.strandls.alchemy.rest.client.reader.VoidMessageBodyReader;
+
+/**
+ * Provides a single, shared {@link Client} backed by a pool of keep-alive
+ * http connections.
+ *
+ * The proxies call {@link #get()} on every invocation, so a provider building
+ * a new client per call opens a new connection for every request. This
+ * provider instead hands out the same client, whose apache http connector
+ * leases connections from a {@link PoolingHttpClientConnectionManager}.
+ * Expired and idle connections are evicted in the background and pooled
+ * connections idle for longer than the validation interval are checked
+ * before reuse. The connections of requests aborted through an
+ * {@link ExchangeAbort} are shut down at once.
+ *
+ * The provider owns the client and its pool. {@link #close()} releases both
+ * and is also invoked from a jvm shutdown hook if the provider is never
+ * closed explicitly.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Singleton
+@Slf4j
+public class PooledClientProvider implements Provider<Client>, Closeable {
+    /**
+     * Named parameter for the maximum number of pooled connections.
+     */
+    public static final String MAX_TOTAL_CONNECTIONS_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.connector.PooledClientProvider.maxTotalConnections";
+
+    /**
+     * Named parameter for the maximum number of pooled connections per route.
+     */
+    public static final String MAX_CONNECTIONS_PER_ROUTE_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.connector.PooledClientProvider.maxPerRoute";
+
+    /**
+     * Named parameter for the time in milliseconds after which idle pooled
+     * connections are closed.
+     */
+    public static final String IDLE_TIMEOUT_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.connector.PooledClientProvider.idleTimeout";
+
+    /**
+     * Named parameter for the inactivity period in milliseconds after which a
+     * pooled connection is validated before being reused.
+     */
+    public static final String VALIDATE_AFTER_INACTIVITY_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.connector.PooledClientProvider.validateAfter";
+
+    /**
+     * Named parameter for the connect timeout in milliseconds.
+     */
+    public static final String CONNECT_TIMEOUT_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.connector.PooledClientProvider.connectTimeout";
+
+    /**
+     * Named parameter for the read timeout in milliseconds.
+     */
+    public static final String READ_TIMEOUT_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.connector.PooledClientProvider.readTimeout";
+
+    /**
+     * The connection pool.
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * The shared client.
+     */
+    private final Client client;
+
+    /**
+     * Evicts expired and idle connections from the pool.
+     */
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Closes the provider on jvm shutdown.
+     */
+    private final Thread shutdownHook;
+
+    /**
+     * Indicates the provider has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create the provider and its connection pool.
+     *
+     * @param jsonProvider
+     *            the json provider to register with the client.
+     * @param maxTotalConnections
+     *            the maximum number of pooled connections.
+     * @param maxConnectionsPerRoute
+     *            the maximum number of pooled connections per route.
+     * @param idleTimeout
+     *            the time in milliseconds after which idle connections are
+     *            closed.
+     * @param validateAfterInactivity
+     *            the inactivity period in milliseconds after which pooled
+     *            connections are validated before reuse.
+     * @param connectTimeout
+     *            the connect timeout in milliseconds, zero for no timeout.
+     * @param readTimeout
+     *            the read timeout in milliseconds, zero for no timeout.
+     */
+    @Inject
+    public PooledClientProvider(final JacksonJsonProvider jsonProvider,
+            @Named(MAX_TOTAL_CONNECTIONS_NAMED_PARAM) final int maxTotalConnections,
+            @Named(MAX_CONNECTIONS_PER_ROUTE_NAMED_PARAM) final int maxConnectionsPerRoute,
+            @Named(IDLE_TIMEOUT_NAMED_PARAM) final long idleTimeout,
+            @Named(VALIDATE_AFTER_INACTIVITY_NAMED_PARAM) final int validateAfterInactivity,
+            @Named(CONNECT_TIMEOUT_NAMED_PARAM) final int connectTimeout,
+            @Named(READ_TIMEOUT_NAMED_PARAM) final int readTimeout) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotalConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+
+        final ClientConfig clientConfig = new ClientConfig();
+        clientConfig.connectorProvider(new ApacheConnectorProvider());
+        clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER,
+                new AbortableConnectionManager(connectionManager));
+        clientConfig.property(ClientProperties.CONNECT_TIMEOUT, connectTimeout);
+        clientConfig.property(ClientProperties.READ_TIMEOUT, readTimeout);
+        clientConfig.register(jsonProvider);
+        clientConfig.register(VoidMessageBodyReader.class);
+        client = ClientBuilder.newClient(clientConfig);
+
+        evictor =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setDaemon(true).setNameFormat("alchemy-connection-evictor-%d").build());
+        final long evictionInterval = Math.max(idleTimeout / 2, 1);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        }, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+
+        shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        }, "alchemy-client-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.inject.Provider#get()
+     */
+    @Override
+    public Client get() {
+        if (closed) {
+            throw new IllegalStateException("Client provider has been closed.");
+        }
+        return client;
+    }
+
+    /**
+     * @return the current leased, available and pending connection counts of
+     *         the pool.
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Close the client and release all pooled connections.
+     */
+    @Override
+    public void close() {
+        if (shutdown()) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (final IllegalStateException e) {
+                // jvm is already shutting down.
+            }
+        }
+    }
+
+    /**
+     * Release the client and the pool.
+     *
+     * @return <code>true</code> if this call closed the provider,
+     *         <code>false</code> if it was already closed.
+     */
+    private synchronized boolean shutdown() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        evictor.shutdownNow();
+        try {
+            client.close();
+        } finally {
+            connectionManager.shutdown();
+        }
+        log.debug("Closed pooled client provider.");
+        return true;
+    }
+}
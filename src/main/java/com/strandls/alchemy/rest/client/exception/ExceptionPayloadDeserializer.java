@@ -17,6 +17,10 @@
 package com.strandls.alchemy.rest.client.exception;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.InternalServerErrorException;
 
@@ -26,20 +30,100 @@ import org.reflections.ReflectionUtils;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 
 /**
  * Deserializer for {@link ExceptionPayload} that tries to recreate the original
  * exception.
  *
+ * The payload is read in a single pass without building a tree. The exception
+ * object is deserialized directly from the stream when the exception class
+ * precedes it, as it does in payloads written by
+ * {@link ThrowableToResponseMapper}, and is buffered as tokens otherwise.
+ *
+ * Exception classes are resolved by name once and readers for them are built
+ * once, both in bounded caches of the deserializer, which belongs to a single
+ * object mapper. Unknown class names are cached as such for a minute. The
+ * exception classes can be restricted to packages listed in the
+ * {@link #ALLOWED_PACKAGES_ATTRIBUTE} deserialization attribute, see
+ * {@link ResponseToThrowableMapper#setAllowedPackages(java.util.Set)}.
+ * Exceptions of other classes are decoded as
+ * {@link InternalServerErrorException}s with the payload message. Objects
+ * without an exception class name are not exception payloads and fail to
+ * deserialize.
+ *
  * @author Ashish Shinde
  *
  */
 @Slf4j
 public class ExceptionPayloadDeserializer extends JsonDeserializer<ExceptionPayload> {
+    /**
+     * Deserialization attribute with the {@link Collection} of package names
+     * exception classes are allowed from, including sub packages. All
+     * packages are allowed if not set.
+     */
+    public static final String ALLOWED_PACKAGES_ATTRIBUTE = ExceptionPayloadDeserializer.class
+            .getName() + ".allowedPackages";
+
+    /**
+     * The maximum number of exception classes and readers cached.
+     */
+    private static final int MAX_CACHED_CLASSES = 1024;
+
+    /**
+     * The time in minutes unknown class names are cached for.
+     */
+    private static final long UNKNOWN_CLASS_EXPIRY_MINUTES = 1;
+
+    /**
+     * Exception classes by name. The deserializer is cached by and so
+     * belongs to a single object mapper.
+     */
+    private final LoadingCache<String, Class<? extends Throwable>> classes = CacheBuilder
+            .newBuilder().maximumSize(MAX_CACHED_CLASSES)
+            .build(new CacheLoader<String, Class<? extends Throwable>>() {
+                @Override
+                public Class<? extends Throwable> load(final String className)
+                        throws ClassNotFoundException {
+                    final Class<?> clazz = ReflectionUtils.forName(className);
+                    if (clazz == null || !Throwable.class.isAssignableFrom(clazz)) {
+                        throw new ClassNotFoundException(className);
+                    }
+                    return clazz.asSubclass(Throwable.class);
+                }
+            });
+
+    /**
+     * Class names that cannot be loaded or are not {@link Throwable}s, for a
+     * while.
+     */
+    private final Cache<String, Boolean> unknownClasses = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_CLASSES)
+            .expireAfterWrite(UNKNOWN_CLASS_EXPIRY_MINUTES, TimeUnit.MINUTES).build();
+
+    /**
+     * Readers by exception class.
+     */
+    private final Cache<Class<?>, ObjectReader> readers = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_CLASSES).build();
+
+    /*
+     * (non-Javadoc)
+     * @see com.fasterxml.jackson.databind.JsonDeserializer#isCachable()
+     */
+    @Override
+    public boolean isCachable() {
+        return true;
+    }
 
     /*
      * (non-Javadoc)
@@ -48,30 +132,133 @@ public class ExceptionPayloadDeserializer extends JsonDeserializer<ExceptionPayl
      * .jackson.core.JsonParser,
      * com.fasterxml.jackson.databind.DeserializationContext)
      */
-    @SuppressWarnings("unchecked")
     @Override
     public ExceptionPayload deserialize(final JsonParser jp, final DeserializationContext ctxt)
             throws IOException, JsonProcessingException {
         final ObjectMapper sourceObjectMapper = ((ObjectMapper) jp.getCodec());
 
-        final ObjectNode tree = jp.readValueAsTree();
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jp.nextToken();
+        }
+        if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            throw ctxt.mappingException(ExceptionPayload.class);
+        }
 
+        String className = null;
         String message = null;
-        if (tree.has("exceptionMessage")) {
-            message = tree.get("exceptionMessage").asText();
+        Throwable exception = null;
+        TokenBuffer bufferedException = null;
+        Throwable failure = null;
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            final String field = jp.getCurrentName();
+            jp.nextToken();
+            if ("exceptionClassFQN".equals(field)) {
+                className = jp.getValueAsString();
+            } else if ("exceptionMessage".equals(field)) {
+                message = jp.getValueAsString();
+            } else if ("exception".equals(field) && className != null && failure == null) {
+                try {
+                    exception = getReader(sourceObjectMapper, className, ctxt).readValue(jp);
+                } catch (final Throwable t) {
+                    // the parser position is unknown, stop reading.
+                    failure = t;
+                    break;
+                }
+            } else if ("exception".equals(field)) {
+                bufferedException = new TokenBuffer(jp);
+                bufferedException.copyCurrentStructure(jp);
+            } else {
+                jp.skipChildren();
+            }
         }
 
-        Throwable exception = null;
-        try {
-            final String className = tree.get("exceptionClassFQN").asText();
-            final Class<? extends Throwable> clazz =
-                    (Class<? extends Throwable>) ReflectionUtils.forName(className);
-            exception = sourceObjectMapper.treeToValue(tree.get("exception"), clazz);
-        } catch (final Throwable t) {
-            log.warn("Error deserializing exception class", t);
+        if (className == null) {
+            // not an exception payload.
+            throw ctxt.mappingException("Missing exceptionClassFQN in exception payload");
+        }
+        if (exception == null && failure == null && bufferedException != null) {
+            try {
+                exception =
+                        getReader(sourceObjectMapper, className, ctxt).readValue(
+                                bufferedException.asParser(jp.getCodec()));
+            } catch (final Throwable t) {
+                failure = t;
+            }
+        }
+        if (exception == null) {
+            if (failure instanceof ClassNotFoundException) {
+                // unknown classes are logged on resolution.
+                log.debug("Error deserializing exception class", failure);
+            } else {
+                log.warn("Error deserializing exception class", failure);
+            }
             exception = new InternalServerErrorException(message);
         }
 
         return new ExceptionPayload(exception.getClass().getName(), message, exception);
     }
+
+    /**
+     * @param mapper
+     *            the object mapper.
+     * @param className
+     *            the exception class name.
+     * @param ctxt
+     *            the deserialization context.
+     * @return the reader for the exception class.
+     * @throws ClassNotFoundException
+     *             if the class cannot be loaded, is not a throwable or is not
+     *             allowed.
+     * @throws ExecutionException
+     *             if the reader cannot be created.
+     */
+    private ObjectReader getReader(final ObjectMapper mapper, final String className,
+            final DeserializationContext ctxt) throws ClassNotFoundException,
+            ExecutionException {
+        if (className == null || !isAllowed(className, ctxt)) {
+            throw new ClassNotFoundException("Exception class not allowed " + className);
+        }
+        if (unknownClasses.getIfPresent(className) != null) {
+            throw new ClassNotFoundException(className);
+        }
+        final Class<? extends Throwable> clazz;
+        try {
+            clazz = classes.get(className);
+        } catch (final ExecutionException e) {
+            log.warn("Cannot deserialize exception class {}", className);
+            unknownClasses.put(className, Boolean.TRUE);
+            throw new ClassNotFoundException(className, e.getCause());
+        }
+        return readers.get(clazz, new Callable<ObjectReader>() {
+            @Override
+            public ObjectReader call() {
+                return mapper.reader(clazz);
+            }
+        });
+    }
+
+    /**
+     * @param className
+     *            the exception class name.
+     * @param ctxt
+     *            the deserialization context.
+     * @return <code>true</code> if the class is in an allowed package.
+     */
+    private boolean isAllowed(final String className, final DeserializationContext ctxt) {
+        @SuppressWarnings("unchecked")
+        final Collection<String> packages =
+                (Collection<String>) ctxt.getAttribute(ALLOWED_PACKAGES_ATTRIBUTE);
+        if (packages == null) {
+            return true;
+        }
+        for (final String packageName : packages) {
+            if (className.startsWith(packageName)
+                    && className.length() > packageName.length()
+                    && className.charAt(packageName.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
 }
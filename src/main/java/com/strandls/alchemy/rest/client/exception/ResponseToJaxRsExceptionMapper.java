@@ -46,6 +46,10 @@ import com.google.common.base.Function;
  */
 @Singleton
 public class ResponseToJaxRsExceptionMapper implements Function<Response, Exception> {
+    /**
+     * The stack trace of exceptions without a local stack trace.
+     */
+    private static final StackTraceElement[] NO_STACK_TRACE = new StackTraceElement[0];
 
     /*
      * (non-Javadoc)
@@ -103,6 +107,25 @@ public class ResponseToJaxRsExceptionMapper implements Function<Response, Except
         }
     }
 
+    /**
+     * Map a response to an exception, optionally without a local stack trace.
+     * The exceptions are always instances of the standard jax-rs exception
+     * classes, the stack trace filled in by their constructors is dropped.
+     *
+     * @param response
+     *            the response.
+     * @param writableStackTrace
+     *            <code>false</code> to drop the local stack trace.
+     * @return the exception.
+     */
+    public Exception apply(final Response response, final boolean writableStackTrace) {
+        final Exception exception = apply(response);
+        if (!writableStackTrace) {
+            exception.setStackTrace(NO_STACK_TRACE);
+        }
+        return exception;
+    }
+
     /**
      * Convert an exception to an exception. Ripped off from
      * {@link JerseyInvocation}.
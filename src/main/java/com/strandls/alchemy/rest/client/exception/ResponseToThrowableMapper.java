@@ -18,38 +18,92 @@ package com.strandls.alchemy.rest.client.exception;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 
-import org.apache.commons.io.IOUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.ObjectUtils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
 
 /**
  * Converts a {@link Response} to a {@link Throwable} object.
  *
+ * Entities of any media type, including none as sent by older servers, are
+ * decoded from a buffer of at most {@link #getMaxEntitySize()} bytes read in a
+ * single pass over the entity stream. Larger entities are closed unread.
+ * Entities that are not exception payloads but have an exception message map
+ * to a {@link WebApplicationException} with the message, others to the
+ * standard jax-rs exception for the status. Their response keeps the entity
+ * read, buffered if its length is known or else as the bytes read.
+ *
+ * Exception classes can be restricted to a set of allowed packages with
+ * {@link #setAllowedPackages(Set)}.
+ *
  * @author Ashish Shinde
  *
  */
+@Slf4j
 @Singleton
 public class ResponseToThrowableMapper implements Function<Response, Throwable> {
     /**
-     * The object mapper to be used.
+     * Named parameter for the maximum size in bytes of error entities read.
+     */
+    public static final String MAX_ENTITY_SIZE_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.exception.ResponseToThrowableMapper.maxEntitySize";
+
+    /**
+     * Named parameter for the {@link Set} of package names exception classes
+     * are allowed from.
+     */
+    public static final String ALLOWED_PACKAGES_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.exception.ResponseToThrowableMapper.allowedPackages";
+
+    /**
+     * The default maximum size in bytes of error entities read.
      */
-    private final ObjectMapper exceptionObjectMapper;
+    public static final int DEFAULT_MAX_ENTITY_SIZE = 1024 * 1024;
+
+    /**
+     * The stack trace of exceptions without a local stack trace.
+     */
+    private static final StackTraceElement[] NO_STACK_TRACE = new StackTraceElement[0];
+
+    /**
+     * Reads exception payloads.
+     */
+    private ObjectReader payloadReader;
+
+    /**
+     * Reads payloads that are not decoded for their message.
+     */
+    private final ObjectReader messageReader;
 
     /**
      * From response to a {@link ProcessingException}.
      */
     private final ResponseToJaxRsExceptionMapper jaxRxExceptionMapper;
 
+    /**
+     * The maximum size in bytes of error entities read.
+     */
+    private int maxEntitySize = DEFAULT_MAX_ENTITY_SIZE;
+
     /**
      * @param exceptionObjectMapper
      */
@@ -57,53 +111,136 @@ public class ResponseToThrowableMapper implements Function<Response, Throwable>
     public ResponseToThrowableMapper(
             @ThrowableObjectMapper final ObjectMapper exceptionObjectMapper,
             final ResponseToJaxRsExceptionMapper jaxRxExceptionMapper) {
-        this.exceptionObjectMapper = exceptionObjectMapper;
+        this.payloadReader = exceptionObjectMapper.reader(ExceptionPayload.class);
+        this.messageReader = exceptionObjectMapper.reader(Map.class);
         this.jaxRxExceptionMapper = jaxRxExceptionMapper;
     }
 
+    /**
+     * @return the maximum size in bytes of error entities read.
+     */
+    public int getMaxEntitySize() {
+        return maxEntitySize;
+    }
+
+    /**
+     * Set the maximum size in bytes of error entities read. Larger entities
+     * are not decoded.
+     *
+     * @param maxEntitySize
+     *            the maximum size in bytes.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setMaxEntitySize(@Named(MAX_ENTITY_SIZE_NAMED_PARAM) final int maxEntitySize) {
+        Preconditions.checkArgument(maxEntitySize > 0, "Max entity size should be positive");
+        this.maxEntitySize = maxEntitySize;
+    }
+
+    /**
+     * Restrict the exception classes decoded to the given packages, including
+     * their sub packages. Exceptions of other classes are decoded as
+     * {@link javax.ws.rs.InternalServerErrorException}s with the payload
+     * message. All packages are allowed by default.
+     *
+     * @param allowedPackages
+     *            the package names.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setAllowedPackages(
+            @Named(ALLOWED_PACKAGES_NAMED_PARAM) final Set<String> allowedPackages) {
+        payloadReader =
+                payloadReader.withAttribute(ExceptionPayloadDeserializer.ALLOWED_PACKAGES_ATTRIBUTE,
+                        ImmutableSet.copyOf(allowedPackages));
+    }
+
     /*
      * (non-Javadoc)
      * @see com.google.common.base.Function#apply(java.lang.Object)
      */
     @Override
     public Throwable apply(final Response input) {
-        // Buffer and close entity input stream (if any) to prevent
-        // leaking connections (see JERSEY-2157).
-        input.bufferEntity();
+        return apply(input, true);
+    }
+
+    /**
+     * Map a response to an exception. Exceptions recreated from a payload
+     * have their stack trace filled in by their constructors.
+     *
+     * @param input
+     *            the response.
+     * @param writableStackTrace
+     *            <code>false</code> to drop the local stack trace of the
+     *            jax-rs exceptions the response maps to if not decoded.
+     * @return the exception.
+     */
+    public Throwable apply(final Response input, final boolean writableStackTrace) {
+        final int length = input.getLength();
+        if (length > maxEntitySize) {
+            input.close();
+            return jaxRxExceptionMapper.apply(input, writableStackTrace);
+        }
 
-        String payLoadStr = null;
+        // read and close the entity stream once to prevent leaking
+        // connections (see JERSEY-2157), a truncated entity fails to parse.
+        final byte[] entity;
+        final Response readResponse;
         try {
-            payLoadStr = IOUtils.toString(input.readEntity(InputStream.class));
-        } catch (final IOException e1) {
-            return jaxRxExceptionMapper.apply(input);
+            if (length >= 0) {
+                input.bufferEntity();
+                entity = input.readEntity(byte[].class);
+                readResponse = input;
+            } else {
+                try {
+                    entity =
+                            ByteStreams.toByteArray(new BoundedInputStream(input
+                                    .readEntity(InputStream.class), maxEntitySize));
+                } finally {
+                    input.close();
+                }
+                readResponse = withEntity(input, entity);
+            }
+        } catch (final IOException e) {
+            log.debug("Error reading exception payload", e);
+            input.close();
+            return jaxRxExceptionMapper.apply(input, writableStackTrace);
+        } catch (final ProcessingException e) {
+            log.debug("Error reading exception payload", e);
+            input.close();
+            return jaxRxExceptionMapper.apply(input, writableStackTrace);
         }
+
         try {
-            final ExceptionPayload payload =
-                    exceptionObjectMapper.readValue(payLoadStr, ExceptionPayload.class);
+            final ExceptionPayload payload = payloadReader.readValue(entity);
             return payload.getException();
         } catch (final IOException e) {
-            final String message = getMessage(payLoadStr);
-            if (message != null) {
-                return new WebApplicationException(message, input.getStatus());
+            log.debug("Error decoding exception payload", e);
+        }
+
+        final String message = getMessage(entity);
+        if (message != null) {
+            final WebApplicationException exception =
+                    new WebApplicationException(message, readResponse);
+            if (!writableStackTrace) {
+                exception.setStackTrace(NO_STACK_TRACE);
             }
+            return exception;
         }
 
-        // falback to standard jersey conversion
-        return jaxRxExceptionMapper.apply(input);
+        // falback to standard jersey conversion, keeping the entity read.
+        return jaxRxExceptionMapper.apply(readResponse, writableStackTrace);
     }
 
     /**
-     * Get message from the payload.
+     * Get the message from a payload that is not decoded.
      *
-     * @param payLoadStr
-     * @return
+     * @param entity
+     *            the entity bytes read.
+     * @return the exception message of the payload, <code>null</code> if not
+     *         found.
      */
-    private String getMessage(final String payLoadStr) {
-
+    private String getMessage(final byte[] entity) {
         try {
-            @SuppressWarnings("unchecked")
-            final Map<String, Object> exceptionObject =
-                    exceptionObjectMapper.readValue(payLoadStr, Map.class);
+            final Map<?, ?> exceptionObject = messageReader.readValue(entity);
             if (exceptionObject.containsKey("exceptionMessage")) {
                 return ObjectUtils.toString(exceptionObject.get("exceptionMessage"));
             }
@@ -112,4 +249,27 @@ public class ResponseToThrowableMapper implements Function<Response, Throwable>
         }
         return null;
     }
+
+    /**
+     * Copy a response whose entity has been consumed, with the entity bytes
+     * read.
+     *
+     * @param response
+     *            the consumed response.
+     * @param entity
+     *            the entity bytes read.
+     * @return a response with the status and headers of the response and the
+     *         entity bytes as its entity.
+     */
+    private static Response withEntity(final Response response, final byte[] entity) {
+        final Response.ResponseBuilder builder =
+                Response.status(response.getStatusInfo()).entity(entity);
+        for (final Map.Entry<String, List<String>> header : response.getStringHeaders()
+                .entrySet()) {
+            for (final String value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+        return builder.build();
+    }
 }
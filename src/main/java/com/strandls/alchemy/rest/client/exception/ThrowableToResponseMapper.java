@@ -16,20 +16,48 @@
 
 package com.strandls.alchemy.rest.client.exception;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import lombok.extern.slf4j.Slf4j;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
 import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 
 /**
- * Converts a {@link Throwable} to a {@link Response}.
+ * Converts a {@link Throwable} to a {@link Response}. The exception payload is
+ * sent as json, which {@link ResponseToThrowableMapper} requires to decode it.
+ *
+ * The payload is written straight to the response output stream with a
+ * writer built once. In compact mode, see {@link #setCompact(boolean)}, the
+ * serialized exception only has its message and the properties declared by
+ * the exception classes below {@link Throwable}, enough for the client to
+ * recreate it. The properties are written by the property writers of the
+ * serializer the object mapper resolves for the exception class, honouring
+ * their serializers, formats and inclusion.
  *
  * @author Ashish Shinde
  *
@@ -37,17 +65,73 @@ import com.google.common.base.Function;
 @Slf4j
 @Singleton
 public class ThrowableToResponseMapper implements Function<Throwable, Response> {
+    /**
+     * Named parameter for the compact payload mode.
+     */
+    public static final String COMPACT_NAMED_PARAM =
+            "com.strandls.alchemy.rest.client.exception.ThrowableToResponseMapper.compact";
+
+    /**
+     * The maximum number of exception classes whose properties are cached.
+     */
+    private static final int MAX_CACHED_CLASSES = 1024;
+
     /**
      * The object mapper to be used.
      */
     private final ObjectMapper exceptionObjectMapper;
 
+    /**
+     * Writes exception payloads.
+     */
+    private final ObjectWriter payloadWriter;
+
+    /**
+     * The properties written for exception classes in compact mode.
+     */
+    private final LoadingCache<Class<?>, List<BeanPropertyWriter>> compactProperties;
+
+    /**
+     * Write compact payloads.
+     */
+    private boolean compact;
+
     /**
      * @param exceptionObjectMapper
      */
     @Inject
     public ThrowableToResponseMapper(@ThrowableObjectMapper final ObjectMapper exceptionObjectMapper) {
         this.exceptionObjectMapper = exceptionObjectMapper;
+        payloadWriter = exceptionObjectMapper.writerFor(ExceptionPayload.class);
+        compactProperties =
+                CacheBuilder.newBuilder().maximumSize(MAX_CACHED_CLASSES)
+                        .build(new CacheLoader<Class<?>, List<BeanPropertyWriter>>() {
+                            @Override
+                            public List<BeanPropertyWriter> load(final Class<?> clazz)
+                                    throws JsonMappingException {
+                                return findCompactProperties(clazz);
+                            }
+                        });
+    }
+
+    /**
+     * @return <code>true</code> if compact payloads are written.
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Write compact payloads, leaving out the properties of the serialized
+     * exception declared by {@link Throwable} and its mixins except the
+     * message. Off by default.
+     *
+     * @param compact
+     *            <code>true</code> to write compact payloads.
+     */
+    @com.google.inject.Inject(optional = true)
+    public void setCompact(@Named(COMPACT_NAMED_PARAM) final boolean compact) {
+        this.compact = compact;
     }
 
     /*
@@ -56,19 +140,125 @@ public class ThrowableToResponseMapper implements Function<Throwable, Response>
      */
     @Override
     public Response apply(final Throwable input) {
+        final int statusCode =
+                input instanceof WebApplicationException ? ((WebApplicationException) input)
+                        .getResponse().getStatus() : Status.INTERNAL_SERVER_ERROR.getStatusCode();
+
+        if (!exceptionObjectMapper.canSerialize(input.getClass())) {
+            log.warn("Error serializing exception.", input);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).type(MediaType.TEXT_PLAIN_TYPE)
+                    .entity(input.getMessage()).build();
+        }
 
-        final ExceptionPayload payLoad = new ExceptionPayload(input);
+        return Response.status(Status.fromStatusCode(statusCode))
+                .type(MediaType.APPLICATION_JSON_TYPE).entity(new StreamingOutput() {
+                    @Override
+                    public void write(final OutputStream output) throws IOException {
+                        if (compact) {
+                            writeCompact(input, output);
+                        } else {
+                            payloadWriter.writeValue(output, new ExceptionPayload(input));
+                        }
+                    }
+                }).build();
+    }
+
+    /**
+     * Write a compact payload.
+     *
+     * @param exception
+     *            the exception.
+     * @param output
+     *            the output stream.
+     * @throws IOException
+     */
+    private void writeCompact(final Throwable exception, final OutputStream output)
+            throws IOException {
+        final List<BeanPropertyWriter> properties =
+                compactProperties.getUnchecked(exception.getClass());
+        final DefaultSerializerProvider provider = createSerializerProvider();
+        final JsonGenerator generator = exceptionObjectMapper.getFactory().createGenerator(output);
         try {
-            final int statusCode =
-                    input instanceof WebApplicationException ? ((WebApplicationException) input)
-                            .getResponse().getStatus() : Status.INTERNAL_SERVER_ERROR
-                            .getStatusCode();
-
-            return Response.status(Status.fromStatusCode(statusCode))
-                                    .entity(exceptionObjectMapper.writeValueAsString(payLoad)).build();
-        } catch (final JsonProcessingException e) {
-            log.warn("Error deserializing exception.", e);
-            return Response.status(Status.INTERNAL_SERVER_ERROR).entity(input.getMessage()).build();
+            generator.writeStartObject();
+            generator.writeStringField("exceptionClassFQN", exception.getClass().getName());
+            generator.writeStringField("exceptionMessage", exception.getMessage());
+            generator.writeObjectFieldStart("exception");
+            generator.writeStringField("message", exception.getMessage());
+            for (final BeanPropertyWriter property : properties) {
+                try {
+                    property.serializeAsField(exception, generator, provider);
+                } catch (final IOException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw JsonMappingException.wrapWithPath(e, exception, property.getName());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * @param clazz
+     *            the exception class.
+     * @return the writers of the serialized properties of the class, other
+     *         than the message, declared below {@link Throwable}.
+     * @throws JsonMappingException
+     *             if the serializer for the class cannot be resolved.
+     */
+    private List<BeanPropertyWriter> findCompactProperties(final Class<?> clazz)
+            throws JsonMappingException {
+        final List<BeanPropertyWriter> properties = new ArrayList<BeanPropertyWriter>();
+        final JsonSerializer<Object> serializer =
+                createSerializerProvider().findValueSerializer(clazz, null);
+        if (!(serializer instanceof BeanSerializerBase)) {
+            return properties;
+        }
+        for (final BeanPropertyWriter property : new BeanProperties(
+                (BeanSerializerBase) serializer).getProperties()) {
+            final AnnotatedMember member = property.getMember();
+            if (member == null || member.getDeclaringClass() == Throwable.class
+                    || "message".equals(property.getName())) {
+                continue;
+            }
+            properties.add(property);
+        }
+        return properties;
+    }
+
+    /**
+     * @return a serializer provider for the configuration of the object
+     *         mapper, as the object mapper creates for each value it writes.
+     */
+    private DefaultSerializerProvider createSerializerProvider() {
+        return ((DefaultSerializerProvider) exceptionObjectMapper.getSerializerProvider())
+                .createInstance(exceptionObjectMapper.getSerializationConfig(),
+                        exceptionObjectMapper.getSerializerFactory());
+    }
+
+    /**
+     * Exposes the resolved property writers of a bean serializer.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    @SuppressWarnings("serial")
+    private static class BeanProperties extends BeanSerializer {
+        /**
+         * @param serializer
+         *            the bean serializer.
+         */
+        BeanProperties(final BeanSerializerBase serializer) {
+            super(serializer);
+        }
+
+        /**
+         * @return the property writers, in serialization order.
+         */
+        BeanPropertyWriter[] getProperties() {
+            return _props;
         }
     }
 }
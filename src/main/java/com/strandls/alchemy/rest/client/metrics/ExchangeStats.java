@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+import com.google.common.io.CountingInputStream;
+
+/**
+ * Status and entity sizes of a request / response exchange, collected by
+ * the {@link ExchangeStatsFilter}, which also times the serialization and
+ * exchange phases of sampled invocations.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class ExchangeStats {
+    /**
+     * The response status.
+     */
+    private volatile int status = -1;
+
+    /**
+     * The number of request entity bytes written.
+     */
+    private volatile long requestBytes = -1;
+
+    /**
+     * The response content length header value.
+     */
+    private volatile long contentLength = -1;
+
+    /**
+     * Counts the response entity bytes read.
+     */
+    private volatile CountingInputStream responseStream;
+
+    /**
+     * The timer of a sampled invocation, <code>null</code> if not sampled.
+     */
+    private final PhaseTimer timer;
+
+    /**
+     * The time the request was handed to the connector in nanoseconds, 0 if
+     * not timed.
+     */
+    private volatile long requestStart;
+
+    /**
+     * Nanoseconds spent serializing the request entity.
+     */
+    private volatile long serializationNanos;
+
+    /**
+     * Create stats for an invocation that is not sampled.
+     */
+    public ExchangeStats() {
+        this(null);
+    }
+
+    /**
+     * Create the stats.
+     *
+     * @param timer
+     *            the timer of a sampled invocation, <code>null</code> if not
+     *            sampled.
+     */
+    public ExchangeStats(final PhaseTimer timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * @return the timer of a sampled invocation, <code>null</code> if not
+     *         sampled.
+     */
+    public PhaseTimer getTimer() {
+        return timer;
+    }
+
+    /**
+     * @return the response status, -1 if no response was received.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the number of request entity bytes sent, -1 if unknown.
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return the number of response entity bytes read so far, or the
+     *         response content length if the entity was not read through the
+     *         client. -1 if unknown.
+     */
+    public long getResponseBytes() {
+        final CountingInputStream stream = responseStream;
+        return stream != null ? stream.getCount() : contentLength;
+    }
+
+    /**
+     * Record the response.
+     *
+     * @param status
+     *            the response status.
+     * @param contentLength
+     *            the response content length, -1 if unknown.
+     */
+    void onResponse(final int status, final long contentLength) {
+        this.status = status;
+        this.contentLength = contentLength;
+        if (timer != null) {
+            timer.setStatus(status);
+            if (requestStart != 0) {
+                timer.add(Phase.EXCHANGE, System.nanoTime() - requestStart - serializationNanos);
+            }
+        }
+    }
+
+    /**
+     * Record the request being handed to the connector.
+     */
+    void onRequest() {
+        if (timer != null) {
+            requestStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * Record the request entity written.
+     *
+     * @param bytes
+     *            the number of bytes written.
+     * @param nanos
+     *            the nanoseconds spent writing the entity.
+     */
+    void onRequestEntity(final long bytes, final long nanos) {
+        requestBytes = bytes;
+        if (timer != null) {
+            serializationNanos = nanos;
+            timer.add(Phase.SERIALIZATION, nanos);
+        }
+    }
+
+    /**
+     * Record the response entity being read.
+     *
+     * @param stream
+     *            counts the bytes read.
+     */
+    void onResponseEntity(final CountingInputStream stream) {
+        responseStream = stream;
+    }
+}
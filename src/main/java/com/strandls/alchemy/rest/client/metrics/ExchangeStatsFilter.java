@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.annotation.Priority;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * Client filter and interceptor collecting {@link ExchangeStats} for requests
+ * carrying the {@link #STATS_PROPERTY} property. Other requests are left
+ * untouched, so the filter can be registered on clients shared with other
+ * code.
+ *
+ * Has the lowest priority so that it runs closest to the connector, after
+ * all other request filters and before all other response filters.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Priority(Integer.MAX_VALUE)
+public class ExchangeStatsFilter implements ClientRequestFilter, ClientResponseFilter,
+        WriterInterceptor, ReaderInterceptor {
+    /**
+     * Request property with the {@link ExchangeStats} to collect.
+     */
+    public static final String STATS_PROPERTY = ExchangeStatsFilter.class.getName() + ".stats";
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientRequestFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext) throws IOException {
+        final ExchangeStats stats = (ExchangeStats) requestContext.getProperty(STATS_PROPERTY);
+        if (stats != null) {
+            stats.onRequest();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.client.ClientResponseFilter#filter(javax.ws.rs.client.
+     * ClientRequestContext, javax.ws.rs.client.ClientResponseContext)
+     */
+    @Override
+    public void filter(final ClientRequestContext requestContext,
+            final ClientResponseContext responseContext) throws IOException {
+        final ExchangeStats stats = (ExchangeStats) requestContext.getProperty(STATS_PROPERTY);
+        if (stats != null) {
+            stats.onResponse(responseContext.getStatus(), responseContext.getLength());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.ext.WriterInterceptor#aroundWriteTo(javax.ws.rs.ext.
+     * WriterInterceptorContext)
+     */
+    @Override
+    public void aroundWriteTo(final WriterInterceptorContext context) throws IOException,
+            WebApplicationException {
+        final ExchangeStats stats = (ExchangeStats) context.getProperty(STATS_PROPERTY);
+        if (stats == null) {
+            context.proceed();
+            return;
+        }
+
+        final OutputStream outputStream = context.getOutputStream();
+        final CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+        context.setOutputStream(countingStream);
+        final long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            context.setOutputStream(outputStream);
+            stats.onRequestEntity(countingStream.getCount(), System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * javax.ws.rs.ext.ReaderInterceptor#aroundReadFrom(javax.ws.rs.ext.
+     * ReaderInterceptorContext)
+     */
+    @Override
+    public Object aroundReadFrom(final ReaderInterceptorContext context) throws IOException,
+            WebApplicationException {
+        final ExchangeStats stats = (ExchangeStats) context.getProperty(STATS_PROPERTY);
+        if (stats != null) {
+            // entities may be read lazily, so count as they are read.
+            final CountingInputStream countingStream =
+                    new CountingInputStream(context.getInputStream());
+            context.setInputStream(countingStream);
+            stats.onResponseEntity(countingStream);
+        }
+        return context.proceed();
+    }
+}
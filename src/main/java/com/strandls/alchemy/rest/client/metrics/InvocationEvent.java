@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+import java.lang.reflect.Method;
+
+import lombok.Data;
+
+/**
+ * A completed, failed or rejected invocation attempt of a rest method.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Data
+public class InvocationEvent {
+    /**
+     * The invoked rest method.
+     */
+    private final Method method;
+
+    /**
+     * The {@link javax.ws.rs.HttpMethod}.
+     */
+    private final String httpMethod;
+
+    /**
+     * The attempt number, greater than 1 for retries.
+     */
+    private final int attempt;
+
+    /**
+     * The response status, -1 if no response was received.
+     */
+    private final int status;
+
+    /**
+     * The class of the exception the invocation failed with,
+     * <code>null</code> if successful.
+     */
+    private final Class<? extends Throwable> exceptionClass;
+
+    /**
+     * The number of request entity bytes sent, -1 if unknown.
+     */
+    private final long requestBytes;
+
+    /**
+     * The number of response entity bytes received, -1 if unknown.
+     */
+    private final long responseBytes;
+
+    /**
+     * The duration of the invocation in nanoseconds. For streamed responses
+     * the time until the response started.
+     */
+    private final long durationNanos;
+
+    /**
+     * @return <code>true</code> if the invocation succeeded.
+     */
+    public boolean isSuccessful() {
+        return exceptionClass == null;
+    }
+}
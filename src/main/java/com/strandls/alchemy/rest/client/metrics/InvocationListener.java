@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+/**
+ * Listener notified of every invocation attempt made by the rest proxies,
+ * for e.g. to collect metrics. Listeners are called on the invoking thread,
+ * or the thread completing an asynchronous invocation, and should be fast
+ * and thread safe.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public interface InvocationListener {
+    /**
+     * Called when an invocation attempt completes, fails or is rejected.
+     *
+     * @param event
+     *            the invocation event.
+     */
+    public void onInvocation(final InvocationEvent event);
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link InvocationListener} collecting {@link MethodMetrics} per rest method
+ * and exporting them as MXBeans of type <code>InvocationMetrics</code> in the
+ * {@link #JMX_DOMAIN} domain, keyed by service class and method signature.
+ *
+ * To use bind {@link InvocationListener} to this class.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Singleton
+@Slf4j
+public class InvocationMetrics implements InvocationListener, Closeable {
+    /**
+     * The JMX domain of the exported metrics.
+     */
+    public static final String JMX_DOMAIN = "com.strandls.alchemy.rest.client";
+
+    /**
+     * Metrics by rest method.
+     */
+    private final ConcurrentMap<Method, MethodMetrics> metrics =
+            new ConcurrentHashMap<Method, MethodMetrics>();
+
+    /**
+     * The server to export metrics to, can be <code>null</code>.
+     */
+    private final MBeanServer mBeanServer;
+
+    /**
+     * Create metrics exported to the platform MBean server.
+     */
+    public InvocationMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Create the metrics.
+     *
+     * @param mBeanServer
+     *            the server to export metrics to, <code>null</code> to not
+     *            export metrics.
+     */
+    public InvocationMetrics(final MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.InvocationListener#onInvocation
+     * (com.strandls.alchemy.rest.client.metrics.InvocationEvent)
+     */
+    @Override
+    public void onInvocation(final InvocationEvent event) {
+        MethodMetrics methodMetrics = metrics.get(event.getMethod());
+        if (methodMetrics == null) {
+            methodMetrics = register(event.getMethod());
+        }
+        methodMetrics.record(event);
+    }
+
+    /**
+     * Create and export the metrics for a method.
+     *
+     * @param method
+     *            the rest method.
+     * @return the metrics for the method.
+     */
+    private MethodMetrics register(final Method method) {
+        final MethodMetrics methodMetrics = new MethodMetrics();
+        final MethodMetrics existing = metrics.putIfAbsent(method, methodMetrics);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (mBeanServer != null) {
+            try {
+                mBeanServer.registerMBean(methodMetrics, getObjectName(method));
+            } catch (final JMException e) {
+                log.warn("Error exporting metrics for {}", method, e);
+            }
+        }
+        return methodMetrics;
+    }
+
+    /**
+     * Get the JMX name of the metrics of a method.
+     *
+     * @param method
+     *            the rest method.
+     * @return the object name.
+     * @throws JMException
+     *             if the name is malformed.
+     */
+    static ObjectName getObjectName(final Method method) throws JMException {
+        final StringBuilder methodName = new StringBuilder(method.getName()).append('(');
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            methodName.append(i > 0 ? "," : "").append(parameterTypes[i].getSimpleName());
+        }
+        methodName.append(')');
+        return new ObjectName(JMX_DOMAIN + ":type=InvocationMetrics,service="
+                + ObjectName.quote(method.getDeclaringClass().getName()) + ",method="
+                + ObjectName.quote(methodName.toString()));
+    }
+
+    /**
+     * @return the metrics by rest method.
+     */
+    public Map<Method, MethodMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Stop exporting the metrics.
+     */
+    @Override
+    public void close() {
+        if (mBeanServer == null) {
+            return;
+        }
+        for (final Method method : metrics.keySet()) {
+            try {
+                mBeanServer.unregisterMBean(getObjectName(method));
+            } catch (final JMException e) {
+                log.debug("Error unexporting metrics for {}", method, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.strandls.alchemy.rest.client.LatencyHistogram;
+
+/**
+ * Lock free invocation metrics of a rest method.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class MethodMetrics implements MethodMetricsMXBean {
+    /**
+     * The number of invocation attempts.
+     */
+    private final AtomicLong invocations = new AtomicLong();
+
+    /**
+     * The number of failed invocation attempts.
+     */
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * The number of 4xx responses.
+     */
+    private final AtomicLong clientErrors = new AtomicLong();
+
+    /**
+     * The number of 5xx responses.
+     */
+    private final AtomicLong serverErrors = new AtomicLong();
+
+    /**
+     * The number of retry attempts.
+     */
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * The total request entity bytes.
+     */
+    private final AtomicLong requestBytes = new AtomicLong();
+
+    /**
+     * The total response entity bytes.
+     */
+    private final AtomicLong responseBytes = new AtomicLong();
+
+    /**
+     * The total latency in nanoseconds.
+     */
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Histogram of all latencies.
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram(Long.MAX_VALUE, 1);
+
+    /**
+     * Record an invocation attempt.
+     *
+     * @param event
+     *            the invocation event.
+     */
+    void record(final InvocationEvent event) {
+        invocations.incrementAndGet();
+        if (!event.isSuccessful()) {
+            errors.incrementAndGet();
+        }
+
+        final int status = event.getStatus();
+        if (status >= 500) {
+            serverErrors.incrementAndGet();
+        } else if (status >= 400) {
+            clientErrors.incrementAndGet();
+        }
+
+        if (event.getAttempt() > 1) {
+            retries.incrementAndGet();
+        }
+        if (event.getRequestBytes() > 0) {
+            requestBytes.addAndGet(event.getRequestBytes());
+        }
+        if (event.getResponseBytes() > 0) {
+            responseBytes.addAndGet(event.getResponseBytes());
+        }
+
+        totalNanos.addAndGet(event.getDurationNanos());
+        latencies.record(event.getDurationNanos());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getInvocationCount
+     * ()
+     */
+    @Override
+    public long getInvocationCount() {
+        return invocations.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getErrorCount()
+     */
+    @Override
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getClientErrorCount
+     * ()
+     */
+    @Override
+    public long getClientErrorCount() {
+        return clientErrors.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getServerErrorCount
+     * ()
+     */
+    @Override
+    public long getServerErrorCount() {
+        return serverErrors.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getRetryCount()
+     */
+    @Override
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getRequestBytes()
+     */
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getResponseBytes()
+     */
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getMeanLatencyMicros
+     * ()
+     */
+    @Override
+    public long getMeanLatencyMicros() {
+        final long count = invocations.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.get() / count);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getLatencyP50Micros
+     * ()
+     */
+    @Override
+    public long getLatencyP50Micros() {
+        return latencies.getPercentile(50, TimeUnit.MICROSECONDS);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getLatencyP99Micros
+     * ()
+     */
+    @Override
+    public long getLatencyP99Micros() {
+        return latencies.getPercentile(99, TimeUnit.MICROSECONDS);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * com.strandls.alchemy.rest.client.metrics.MethodMetricsMXBean#getLatencyP999Micros
+     * ()
+     */
+    @Override
+    public long getLatencyP999Micros() {
+        return latencies.getPercentile(99.9, TimeUnit.MICROSECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+/**
+ * Management interface for the invocation metrics of a rest method.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public interface MethodMetricsMXBean {
+    /**
+     * @return the number of invocation attempts.
+     */
+    public long getInvocationCount();
+
+    /**
+     * @return the number of failed or rejected invocation attempts.
+     */
+    public long getErrorCount();
+
+    /**
+     * @return the number of 4xx responses.
+     */
+    public long getClientErrorCount();
+
+    /**
+     * @return the number of 5xx responses.
+     */
+    public long getServerErrorCount();
+
+    /**
+     * @return the number of retry attempts.
+     */
+    public long getRetryCount();
+
+    /**
+     * @return the total number of request entity bytes sent.
+     */
+    public long getRequestBytes();
+
+    /**
+     * @return the total number of response entity bytes received.
+     */
+    public long getResponseBytes();
+
+    /**
+     * @return the mean latency in microseconds.
+     */
+    public long getMeanLatencyMicros();
+
+    /**
+     * @return the median latency in microseconds.
+     */
+    public long getLatencyP50Micros();
+
+    /**
+     * @return the 99th percentile latency in microseconds.
+     */
+    public long getLatencyP99Micros();
+
+    /**
+     * @return the 99.9th percentile latency in microseconds.
+     */
+    public long getLatencyP999Micros();
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client.metrics;
+
+/**
+ * The phases of a rest proxy invocation timed by a {@link PhaseTimer}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public enum Phase {
+    /**
+     * Expanding the request uri from the method arguments.
+     */
+    PATH,
+
+    /**
+     * Serializing the request entity. Entities are serialized onto the
+     * connection, so this includes sending the entity.
+     */
+    SERIALIZATION,
+
+    /**
+     * From the request being handed to the connector until the response
+     * headers are received, excluding entity serialization. Covers connection
+     * acquisition, network transfer and the server time, which cannot be told
+     * apart at the jaxrs client level.
+     */
+    EXCHANGE,
+
+    /**
+     * Reading the response entity into the return value.
+     */
+    DESERIALIZATION,
+
+    /**
+     * Mapping an error response to an exception.
+     */
+    EXCEPTION_MAPPING;
+}
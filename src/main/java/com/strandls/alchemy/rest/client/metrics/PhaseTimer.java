@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates the time spent in each {@link Phase} of a sampled invocation,
+ * across all its attempts. Phases may be recorded from the invoking thread
+ * and from client threads, so recording is thread safe.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class PhaseTimer {
+    /**
+     * The phases, cached to avoid copying the values array.
+     */
+    static final Phase[] PHASES = Phase.values();
+
+    /**
+     * The wall clock start time in milliseconds.
+     */
+    private final long startMillis = System.currentTimeMillis();
+
+    /**
+     * The start time in nanoseconds.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * Nanoseconds spent by phase ordinal.
+     */
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(PHASES.length);
+
+    /**
+     * The status of the last response received, -1 if none.
+     */
+    private volatile int status = -1;
+
+    /**
+     * Add time spent in a phase.
+     *
+     * @param phase
+     *            the phase.
+     * @param nanos
+     *            the time in nanoseconds.
+     */
+    public void add(final Phase phase, final long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    /**
+     * Add the time elapsed in a phase since a start time.
+     *
+     * @param phase
+     *            the phase.
+     * @param phaseStart
+     *            the start time of the phase in nanoseconds.
+     */
+    public void addSince(final Phase phase, final long phaseStart) {
+        add(phase, System.nanoTime() - phaseStart);
+    }
+
+    /**
+     * @param phase
+     *            the phase.
+     * @return the nanoseconds spent in the phase so far.
+     */
+    public long getNanos(final Phase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    /**
+     * @return the start time in nanoseconds.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the wall clock start time in milliseconds.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return the status of the last response received, -1 if none.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @param status
+     *            the status of a response received.
+     */
+    void setStatus(final int status) {
+        this.status = status;
+    }
+}
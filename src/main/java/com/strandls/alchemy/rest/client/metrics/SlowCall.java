@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * A sampled invocation with its phase breakdown.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Data
+public class SlowCall {
+    /**
+     * The invoked rest method.
+     */
+    private final Method method;
+
+    /**
+     * The wall clock start time in milliseconds.
+     */
+    private final long startMillis;
+
+    /**
+     * The duration of the invocation in nanoseconds. For asynchronous methods
+     * until the returned future completes.
+     */
+    private final long durationNanos;
+
+    /**
+     * The nanoseconds spent by phase. Time not covered by the phases, like
+     * request building, retry backoff or waiting for a single flight leader,
+     * is {@link #getOtherNanos()}.
+     */
+    private final Map<Phase, Long> phaseNanos;
+
+    /**
+     * The status of the last response received, -1 if none.
+     */
+    private final int status;
+
+    /**
+     * The class of the exception the invocation failed with,
+     * <code>null</code> if successful.
+     */
+    private final Class<? extends Throwable> exceptionClass;
+
+    /**
+     * Create a sample from a phase timer.
+     *
+     * @param method
+     *            the invoked method.
+     * @param timer
+     *            the timer of the invocation.
+     * @param durationNanos
+     *            the duration of the invocation in nanoseconds.
+     * @param failure
+     *            the failure, <code>null</code> if successful.
+     */
+    SlowCall(final Method method, final PhaseTimer timer, final long durationNanos,
+            final Throwable failure) {
+        this.method = method;
+        startMillis = timer.getStartMillis();
+        this.durationNanos = durationNanos;
+        final Map<Phase, Long> nanos = new EnumMap<Phase, Long>(Phase.class);
+        for (final Phase phase : PhaseTimer.PHASES) {
+            nanos.put(phase, timer.getNanos(phase));
+        }
+        phaseNanos = Collections.unmodifiableMap(nanos);
+        status = timer.getStatus();
+        exceptionClass = failure != null ? failure.getClass() : null;
+    }
+
+    /**
+     * @return the nanoseconds not accounted for by any phase.
+     */
+    public long getOtherNanos() {
+        long other = durationNanos;
+        for (final Long nanos : phaseNanos.values()) {
+            other -= nanos;
+        }
+        return Math.max(other, 0);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client.metrics;
+
+import java.lang.reflect.Method;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples invocations with a {@link PhaseTimer} and keeps the slowest
+ * sampled calls per rest method with their phase breakdown.
+ *
+ * Only one in every sample interval invocations is timed. Invocations that
+ * are not sampled cost an atomic increment and allocate nothing, so the
+ * sampler can be left on in production.
+ *
+ * To use bind an instance, there is deliberately no default constructor so
+ * that the sampler is not created by just-in-time bindings.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class SlowCallSampler {
+    /**
+     * Orders slow calls slowest first.
+     */
+    private static final Comparator<SlowCall> SLOWEST_FIRST = new Comparator<SlowCall>() {
+        @Override
+        public int compare(final SlowCall o1, final SlowCall o2) {
+            return Long.compare(o2.getDurationNanos(), o1.getDurationNanos());
+        }
+    };
+
+    /**
+     * The slowest calls of a method.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    private static class SlowestCalls {
+        /**
+         * The calls, <code>null</code> for empty slots.
+         */
+        private final SlowCall[] calls;
+
+        /**
+         * The duration of the fastest call kept once all slots are filled,
+         * faster calls are not recorded.
+         */
+        private volatile long threshold = -1;
+
+        /**
+         * @param size
+         *            the number of calls to keep.
+         */
+        SlowestCalls(final int size) {
+            calls = new SlowCall[size];
+        }
+
+        /**
+         * Record a call, replacing the fastest call kept if all slots are
+         * filled.
+         *
+         * @param call
+         *            the call.
+         */
+        synchronized void add(final SlowCall call) {
+            int fastest = 0;
+            for (int i = 0; i < calls.length; i++) {
+                if (calls[i] == null) {
+                    fastest = i;
+                    break;
+                }
+                if (calls[i].getDurationNanos() < calls[fastest].getDurationNanos()) {
+                    fastest = i;
+                }
+            }
+            if (calls[fastest] != null
+                    && calls[fastest].getDurationNanos() >= call.getDurationNanos()) {
+                // raced with a slower call.
+                return;
+            }
+            calls[fastest] = call;
+
+            long min = Long.MAX_VALUE;
+            for (final SlowCall slowCall : calls) {
+                if (slowCall == null) {
+                    return;
+                }
+                min = Math.min(min, slowCall.getDurationNanos());
+            }
+            threshold = min;
+        }
+
+        /**
+         * @return the calls kept, slowest first.
+         */
+        synchronized List<SlowCall> get() {
+            final List<SlowCall> result = new ArrayList<SlowCall>(calls.length);
+            for (final SlowCall call : calls) {
+                if (call != null) {
+                    result.add(call);
+                }
+            }
+            Collections.sort(result, SLOWEST_FIRST);
+            return result;
+        }
+    }
+
+    /**
+     * Time one in these many invocations.
+     */
+    private final int sampleInterval;
+
+    /**
+     * The number of slow calls kept per method.
+     */
+    private final int size;
+
+    /**
+     * Counts invocations to pick the samples.
+     */
+    private final AtomicLong invocations = new AtomicLong();
+
+    /**
+     * The slowest calls by method.
+     */
+    private final ConcurrentMap<Method, SlowestCalls> slowestCalls =
+            new ConcurrentHashMap<Method, SlowestCalls>();
+
+    /**
+     * Create the sampler.
+     *
+     * @param sampleInterval
+     *            time one in these many invocations, 1 to time all.
+     * @param size
+     *            the number of slow calls kept per method.
+     */
+    public SlowCallSampler(final int sampleInterval, final int size) {
+        if (sampleInterval < 1 || size < 1) {
+            throw new IllegalArgumentException("Sample interval and size should be positive");
+        }
+        this.sampleInterval = sampleInterval;
+        this.size = size;
+    }
+
+    /**
+     * Start timing an invocation if it is sampled.
+     *
+     * @return the timer for the invocation, <code>null</code> if not sampled.
+     */
+    public PhaseTimer start() {
+        if (sampleInterval > 1 && invocations.incrementAndGet() % sampleInterval != 0) {
+            return null;
+        }
+        return new PhaseTimer();
+    }
+
+    /**
+     * Record a completed sampled invocation.
+     *
+     * @param method
+     *            the invoked method.
+     * @param timer
+     *            the timer returned by {@link #start()}.
+     * @param failure
+     *            the failure, <code>null</code> if successful.
+     */
+    public void record(final Method method, final PhaseTimer timer, final Throwable failure) {
+        final long duration = System.nanoTime() - timer.getStart();
+        SlowestCalls calls = slowestCalls.get(method);
+        if (calls == null) {
+            calls = new SlowestCalls(size);
+            final SlowestCalls existing = slowestCalls.putIfAbsent(method, calls);
+            if (existing != null) {
+                calls = existing;
+            }
+        }
+
+        if (duration > calls.threshold) {
+            calls.add(new SlowCall(method, timer, duration, failure));
+        }
+    }
+
+    /**
+     * @param method
+     *            a rest method.
+     * @return the slowest sampled calls of the method, slowest first.
+     */
+    public List<SlowCall> getSlowestCalls(final Method method) {
+        final SlowestCalls calls = slowestCalls.get(method);
+        return calls != null ? calls.get() : Collections.<SlowCall> emptyList();
+    }
+
+    /**
+     * Discard all samples.
+     */
+    public void reset() {
+        slowestCalls.clear();
+    }
+
+    /**
+     * Dump the slowest sampled calls of all methods with their phase
+     * breakdown in milliseconds.
+     *
+     * @return the dump.
+     */
+    public String dump() {
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        final StringBuilder dump = new StringBuilder();
+        for (final Map.Entry<Method, SlowestCalls> entry : slowestCalls.entrySet()) {
+            final Method method = entry.getKey();
+            dump.append(method.getDeclaringClass().getName()).append('.')
+                    .append(method.getName()).append('\n');
+            for (final SlowCall call : entry.getValue().get()) {
+                dump.append("  ").append(dateFormat.format(new Date(call.getStartMillis())))
+                        .append(" total=").append(toMillis(call.getDurationNanos()));
+                for (final Map.Entry<Phase, Long> phase : call.getPhaseNanos().entrySet()) {
+                    dump.append(' ').append(phase.getKey().name().toLowerCase()).append('=')
+                            .append(toMillis(phase.getValue()));
+                }
+                dump.append(" other=").append(toMillis(call.getOtherNanos()))
+                        .append(" status=").append(call.getStatus());
+                if (call.getExceptionClass() != null) {
+                    dump.append(" exception=").append(call.getExceptionClass().getName());
+                }
+                dump.append('\n');
+            }
+        }
+        return dump.toString();
+    }
+
+    /**
+     * @param nanos
+     *            a duration in nanoseconds.
+     * @return the duration in milliseconds with three decimals.
+     */
+    private static String toMillis(final long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client.request;
+
+import java.lang.reflect.Method;
+
+import javax.ws.rs.client.Invocation.Builder;
+
+import com.strandls.alchemy.rest.client.RestMethodMetadata;
+
+/**
+ * The context of an intercepted rest method invocation, passed along the
+ * {@link InvocationInterceptor} chain.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public interface InvocationContext {
+    /**
+     * @return the invoked rest method.
+     */
+    public Method getMethod();
+
+    /**
+     * @return the rest method metadata.
+     */
+    public RestMethodMetadata getMetadata();
+
+    /**
+     * @return the method arguments.
+     */
+    public Object[] getArguments();
+
+    /**
+     * @return the expanded request uri.
+     */
+    public String getUri();
+
+    /**
+     * @return the attempt number, greater than 1 for retries.
+     */
+    public int getAttempt();
+
+    /**
+     * @return the builder for the request, with the parameters bound.
+     *         Changes apply to requests sent by later calls to
+     *         {@link #proceed()}.
+     */
+    public Builder getRequestBuilder();
+
+    /**
+     * Call the next interceptor in the chain, or send the request and read
+     * the response if this is the last one. Can be called more than once.
+     *
+     * @return the return value of the rest method, for asynchronous methods
+     *         a {@link com.google.common.util.concurrent.ListenableFuture}.
+     * @throws Throwable
+     *             the invocation failure.
+     */
+    public Object proceed() throws Throwable;
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.strandls.alchemy.rest.client.request;
+
+import java.lang.reflect.Method;
+
+import com.strandls.alchemy.rest.client.RestMethodMetadata;
+
+/**
+ * Around advice for rest method invocations. Interceptors form an ordered
+ * chain, resolved once per rest method when the proxy class is created, and
+ * are called for every request sent, after the request has been built and
+ * within the retry, bulkhead and circuit breaker policies of the method.
+ *
+ * An interceptor can modify the request through
+ * {@link InvocationContext#getRequestBuilder()}, time or inspect the result
+ * of {@link InvocationContext#proceed()}, call it again to retry or skip it
+ * and return a result of its own.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public interface InvocationInterceptor {
+    /**
+     * Indicates if the interceptor applies to a rest method. Called once per
+     * method when the proxy class is created.
+     *
+     * @param method
+     *            the rest method.
+     * @param metadata
+     *            the rest method metadata.
+     * @return <code>true</code> to add the interceptor to the chain of the
+     *         method.
+     */
+    public boolean isApplicable(final Method method, final RestMethodMetadata metadata);
+
+    /**
+     * Intercept an invocation.
+     *
+     * @param context
+     *            the invocation context.
+     * @return the return value of the rest method, for asynchronous methods
+     *         a {@link com.google.common.util.concurrent.ListenableFuture}.
+     * @throws Throwable
+     *             the invocation failure.
+     */
+    public Object intercept(final InvocationContext context) throws Throwable;
+}
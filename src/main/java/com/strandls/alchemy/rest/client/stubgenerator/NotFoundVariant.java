@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.stubgenerator;
+
+/**
+ * The variant of GET stub methods to generate for callers that expect a
+ * missing resource. The variants map 404 responses to an empty value without
+ * creating an exception. The original methods are always generated.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public enum NotFoundVariant {
+    /**
+     * Generate no variants.
+     */
+    NONE,
+
+    /**
+     * The variant of method <code>getFoo</code> is named
+     * <code>getFooOptional</code> and returns a
+     * {@link com.google.common.base.Optional} of the result, absent for 404
+     * responses.
+     */
+    OPTIONAL,
+
+    /**
+     * The variant of method <code>getFoo</code> is named
+     * <code>getFooOrNull</code>, is annotated with
+     * {@link com.strandls.alchemy.rest.client.NullOn404} and returns
+     * <code>null</code> for 404 responses.
+     */
+    NULL_ON_404;
+}
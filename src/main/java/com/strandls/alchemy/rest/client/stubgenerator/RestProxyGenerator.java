@@ -56,6 +56,17 @@ import com.sun.codemodel.writer.FileCodeWriter;
  */
 @Setter
 public class RestProxyGenerator extends Task {
+    /**
+     * Indicates if asynchronous variants of the stub methods should be
+     * generated.
+     */
+    private boolean asyncMethods;
+
+    /**
+     * The not found variant of GET stub methods to generate.
+     */
+    private NotFoundVariant notFoundVariant = NotFoundVariant.NONE;
+
     /**
      * The suffix to be appended to the generated package. Can be
      * <code>null</code>.
@@ -253,7 +264,7 @@ public class RestProxyGenerator extends Task {
             try {
 
                 stubGenerator.generateStubInterface(klass, stubClassName, destinationPackage,
-                        codeWriter);
+                        codeWriter, asyncMethods, notFoundVariant);
                 log("Generated " + stubClassName, Project.MSG_INFO);
             } catch (final Exception e) {
                 log("Stub generation failed for " + klass.getCanonicalName(), Project.MSG_ERR);
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 
@@ -39,15 +40,20 @@ import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
 
 import lombok.RequiredArgsConstructor;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.strandls.alchemy.rest.client.NotRestInterfaceException;
+import com.strandls.alchemy.rest.client.NullOn404;
 import com.strandls.alchemy.rest.client.RestInterfaceAnalyzer;
 import com.strandls.alchemy.rest.client.RestInterfaceMetadata;
 import com.strandls.alchemy.rest.client.RestMethodMetadata;
+import com.strandls.alchemy.rest.client.ResultStream;
 import com.sun.codemodel.CodeWriter;
 import com.sun.codemodel.JAnnotatable;
 import com.sun.codemodel.JAnnotationArrayMember;
@@ -78,6 +84,21 @@ public class ServiceStubGenerator {
      */
     private static final String ANNOTATION_VALUE_PARAM_NAME = "value";
 
+    /**
+     * Suffix for names of asynchronous method variants.
+     */
+    private static final String ASYNC_METHOD_SUFFIX = "Async";
+
+    /**
+     * Suffix for names of {@link NotFoundVariant#OPTIONAL} method variants.
+     */
+    private static final String OPTIONAL_METHOD_SUFFIX = "Optional";
+
+    /**
+     * Suffix for names of {@link NotFoundVariant#NULL_ON_404} method variants.
+     */
+    private static final String NULL_ON_404_METHOD_SUFFIX = "OrNull";
+
     /**
      * The rest interface analyzer.
      */
@@ -131,22 +152,45 @@ public class ServiceStubGenerator {
      *            the method.
      * @param methodMetaData
      *            the method metadata.
+     * @param async
+     *            if <code>true</code> adds the asynchronous variant of the
+     *            method returning a {@link ListenableFuture} of the result.
+     * @param notFoundVariant
+     *            the not found variant of the method to add,
+     *            {@link NotFoundVariant#NONE} for the method itself.
      */
     private void addMethod(final JCodeModel jCodeModel, final JDefinedClass jParentClass,
-            final Method method, final RestMethodMetadata methodMetaData) {
-        final String mehtodName = method.getName();
+            final Method method, final RestMethodMetadata methodMetaData, final boolean async,
+            final NotFoundVariant notFoundVariant) {
+        String mehtodName = method.getName();
 
-        final JType result =
+        JType result =
                 typeToJType(method.getReturnType(), method.getGenericReturnType(), jCodeModel);
+        if (async) {
+            mehtodName += ASYNC_METHOD_SUFFIX;
+            result = jCodeModel.ref(ListenableFuture.class).narrow(result.boxify());
+        } else if (notFoundVariant == NotFoundVariant.OPTIONAL) {
+            mehtodName += OPTIONAL_METHOD_SUFFIX;
+            result = jCodeModel.ref(Optional.class).narrow(result.boxify());
+        } else if (notFoundVariant == NotFoundVariant.NULL_ON_404) {
+            mehtodName += NULL_ON_404_METHOD_SUFFIX;
+            result = result.boxify();
+        }
 
         final JMethod jMethod = jParentClass.method(JMod.PUBLIC, result, mehtodName);
+        if (notFoundVariant == NotFoundVariant.NULL_ON_404) {
+            addAnnotation(jMethod, NullOn404.class);
+        }
 
-        @SuppressWarnings("unchecked")
-        final Class<? extends Throwable>[] exceptionTypes =
-                (Class<? extends Throwable>[]) method.getExceptionTypes();
+        if (!async) {
+            // asynchronous variants report exceptions through the future.
+            @SuppressWarnings("unchecked")
+            final Class<? extends Throwable>[] exceptionTypes =
+                    (Class<? extends Throwable>[]) method.getExceptionTypes();
 
-        for (final Class<? extends Throwable> exceptionCType : exceptionTypes) {
-            jMethod._throws(exceptionCType);
+            for (final Class<? extends Throwable> exceptionCType : exceptionTypes) {
+                jMethod._throws(exceptionCType);
+            }
         }
 
         addSingleValueAnnotation(jMethod, Path.class, ANNOTATION_VALUE_PARAM_NAME,
@@ -236,6 +280,99 @@ public class ServiceStubGenerator {
     public void generateStubInterface(final Class<?> serviceClass,
             final String destinationInterfaceName, final String destinationPackage,
             final CodeWriter codeWriter) throws NotRestInterfaceException, Exception {
+        generateStubInterface(serviceClass, destinationInterfaceName, destinationPackage,
+                codeWriter, false);
+    }
+
+    /**
+     * Indicates if a method can have a not found variant. Only synchronous GET
+     * methods returning a single response entity qualify.
+     *
+     * @param method
+     *            the method.
+     * @param methodMetaData
+     *            the method metadata.
+     * @return <code>true</code> if the method can have a not found variant.
+     */
+    private boolean hasNotFoundVariant(final Method method,
+            final RestMethodMetadata methodMetaData) {
+        final Class<?> returnType = method.getReturnType();
+        return HttpMethod.GET.equals(methodMetaData.getHttpMethod())
+                && !RestInterfaceAnalyzer.isAsync(method) && returnType != void.class
+                && returnType != Void.class && returnType != Response.class
+                && returnType != Optional.class && returnType != ResultStream.class
+                && returnType != Iterator.class;
+    }
+
+    /**
+     * Generate a stub interface for a rest web service implemented by the input
+     * service class, optionally with an asynchronous variant of every method.
+     * The asynchronous variant of method <code>getFoo</code> is named
+     * <code>getFooAsync</code> and returns a {@link ListenableFuture} of the
+     * result.
+     *
+     * <p>
+     * The code writer is not close to allow for appends to same code writer.
+     * The caller should close the code writer.
+     * </p>
+     *
+     * @param serviceClass
+     *            the input rest service class.
+     * @param destinationInterfaceName
+     *            the name of the destination interface
+     * @param destinationPackage
+     *            the destination package name.
+     * @param codeWriter
+     *            the writer to output the source to.
+     * @param asyncMethods
+     *            if <code>true</code> asynchronous variants of methods are
+     *            generated.
+     * @throws NotRestInterfaceException
+     *             if the service class is not a rest service.
+     * @throws Exception
+     *             if code generation fails.
+     */
+    public void generateStubInterface(final Class<?> serviceClass,
+            final String destinationInterfaceName, final String destinationPackage,
+            final CodeWriter codeWriter, final boolean asyncMethods)
+                    throws NotRestInterfaceException, Exception {
+        generateStubInterface(serviceClass, destinationInterfaceName, destinationPackage,
+                codeWriter, asyncMethods, NotFoundVariant.NONE);
+    }
+
+    /**
+     * Generate a stub interface for a rest web service implemented by the input
+     * service class, optionally with asynchronous and not found variants of
+     * methods. See {@link NotFoundVariant} for the not found variants of GET
+     * methods.
+     *
+     * <p>
+     * The code writer is not close to allow for appends to same code writer.
+     * The caller should close the code writer.
+     * </p>
+     *
+     * @param serviceClass
+     *            the input rest service class.
+     * @param destinationInterfaceName
+     *            the name of the destination interface
+     * @param destinationPackage
+     *            the destination package name.
+     * @param codeWriter
+     *            the writer to output the source to.
+     * @param asyncMethods
+     *            if <code>true</code> asynchronous variants of methods are
+     *            generated.
+     * @param notFoundVariant
+     *            the not found variant of GET methods to generate.
+     * @throws NotRestInterfaceException
+     *             if the service class is not a rest service.
+     * @throws Exception
+     *             if code generation fails.
+     */
+    public void generateStubInterface(final Class<?> serviceClass,
+            final String destinationInterfaceName, final String destinationPackage,
+            final CodeWriter codeWriter, final boolean asyncMethods,
+            final NotFoundVariant notFoundVariant) throws NotRestInterfaceException, Exception {
         final RestInterfaceMetadata metaData = interfaceAnalyzer.analyze(serviceClass);
 
         final JCodeModel jCodeModel = new JCodeModel();
@@ -272,8 +409,18 @@ public class ServiceStubGenerator {
         for (final Entry<Method, RestMethodMetadata> methodEntry : methodEntries) {
             final Method method = methodEntry.getKey();
             final RestMethodMetadata methodMetaData = methodEntry.getValue();
-            addMethod(jCodeModel, jInterface, method, methodMetaData);
+            addMethod(jCodeModel, jInterface, method, methodMetaData, false,
+                    NotFoundVariant.NONE);
+
+            if (asyncMethods && !RestInterfaceAnalyzer.isAsync(method)) {
+                addMethod(jCodeModel, jInterface, method, methodMetaData, true,
+                        NotFoundVariant.NONE);
+            }
 
+            if (notFoundVariant != NotFoundVariant.NONE
+                    && hasNotFoundVariant(method, methodMetaData)) {
+                addMethod(jCodeModel, jInterface, method, methodMetaData, false, notFoundVariant);
+            }
         }
 
         jCodeModel.build(codeWriter);
@@ -19,6 +19,7 @@ package com.strandls.alchemy.rest.client;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -30,14 +31,26 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.core.Application;
 
@@ -60,14 +73,19 @@ import org.junit.Before;
 import org.junit.Test;
 import org.reflections.ReflectionUtils;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
 import com.google.common.base.Predicate;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Provides;
 import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.exception.ResponseToThrowableMapper;
 import com.strandls.alchemy.rest.client.reader.VoidMessageBodyReader;
+import com.strandls.alchemy.rest.client.request.NoOpRequestBuilderFilter;
 
 /**
  * Unit tests for {@link AlchemyRestClientFactory}.
@@ -125,6 +143,8 @@ public class AlchemyRestClientFactoryTest extends JerseyTest {
         final ResourceConfig application =
                 new ResourceConfig(TestWebserviceWithPath.class, TestWebserviceWithPutDelete.class,
                         TestWebserviceMultipart.class, TestWebserviceExceptionHandling.class,
+                        TestWebserviceStreaming.class, TestWebserviceSlow.class,
+                        TestWebserviceFlaky.class, TestWebserviceHedging.class,
                         JacksonJsonProvider.class);
         final Injector injector =
                 Guice.createInjector(new ClientModule(), new ExceptionObjectMapperModule());
@@ -216,6 +236,26 @@ public class AlchemyRestClientFactoryTest extends JerseyTest {
 
     }
 
+    /**
+     * Test a factory created with the constructor without the jax-rs
+     * exception mapper maps error responses.
+     *
+     * @throws Exception
+     */
+    @Test(expected = NotFoundException.class)
+    public void testException404WithoutJaxRsExceptionMapper() throws Exception {
+        final Injector injector =
+                Guice.createInjector(new ClientModule(), new ExceptionObjectMapperModule());
+        final AlchemyRestClientFactory factory =
+                new AlchemyRestClientFactory(getBaseUri().toString(),
+                        injector.getProvider(Client.class),
+                        injector.getInstance(RestInterfaceAnalyzer.class),
+                        injector.getInstance(ResponseToThrowableMapper.class),
+                        new NoOpRequestBuilderFilter());
+        factory.getInstance(TestWebserviceExceptionHandling.class).failInternal404();
+        fail("Should have thrown an exception");
+    }
+
     /**
      * Test method for
      * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
@@ -383,6 +423,418 @@ public class AlchemyRestClientFactoryTest extends JerseyTest {
         }
     }
 
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test json responses are read with the configured
+     * {@link ResponseObjectMapper}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceWithResponseObjectMapper() throws Exception {
+        final Injector injector =
+                Guice.createInjector(new ClientModule(), new ExceptionObjectMapperModule(),
+                        new AbstractModule() {
+                            @Override
+                            protected void configure() {
+                                bind(ObjectMapper.class).annotatedWith(
+                                        ResponseObjectMapper.class).toInstance(new ObjectMapper());
+                            }
+                        });
+        final TestWebserviceWithPath service =
+                injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                        TestWebserviceWithPath.class);
+
+        final Random r = new Random();
+        final int[] args = new int[] { r.nextInt(), r.nextInt(), r.nextInt() };
+        assertArrayEquals(args, service.echoMixedParams(args[0], args[1], args[2]));
+        assertArrayEquals(args, service.echoQueryParams(args[0], args[1], args[2]));
+
+        // raw entities are not decoded.
+        final TestWebserviceStreamingStub streaming =
+                injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                        TestWebserviceStreamingStub.class);
+        final String json = "[{\"index\":0},{\"index\":1}]";
+        assertEquals(json, streaming.arrayText(2));
+        assertEquals(json, IOUtils.toString(streaming.arrayStream(2)));
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test methods returning futures are invoked asynchronously.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceAsync() throws Exception {
+        final TestWebserviceAsyncStub service =
+                clientFactory.getInstance(TestWebserviceAsyncStub.class);
+
+        final Random r = new Random();
+        final int[] args = new int[] { r.nextInt(), r.nextInt(), r.nextInt() };
+
+        final ListenableFuture<int[]> pathFuture =
+                service.echoPathParams(args[0], args[1], args[2]);
+        final Future<int[]> queryFuture = service.echoQueryParams(args[0], args[1], args[2]);
+        final ListenableFuture<int[]> bodyFuture = service.echo(args);
+        final ListenableFuture<Void> noOpFuture = service.noOp();
+
+        assertArrayEquals(args, pathFuture.get(10, TimeUnit.SECONDS));
+        assertArrayEquals(args, queryFuture.get(10, TimeUnit.SECONDS));
+        assertArrayEquals(args, bodyFuture.get(10, TimeUnit.SECONDS));
+        assertNull(noOpFuture.get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test futures are completed with the mapped exceptions on failures.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceAsyncExceptionMapping() throws Exception {
+        final TestWebserviceAsyncStub service =
+                clientFactory.getInstance(TestWebserviceAsyncStub.class);
+
+        try {
+            service.fail().get(10, TimeUnit.SECONDS);
+            fail("Should have thrown an exception");
+        } catch (final ExecutionException e) {
+            assertEquals(TestWebserviceExceptionHandling.EXCEPTION_STRING, e.getCause()
+                    .getMessage());
+        }
+
+        try {
+            service.failInternal404().get(10, TimeUnit.SECONDS);
+            fail("Should have thrown an exception");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof NotFoundException);
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test json arrays and newline delimited json are streamed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceStreamed() throws Exception {
+        final TestWebserviceStreamingStub service =
+                clientFactory.getInstance(TestWebserviceStreamingStub.class);
+
+        final int count = 10000;
+        @Cleanup
+        final ResultStream<Map<String, Integer>> array = service.array(count);
+        int index = 0;
+        while (array.hasNext()) {
+            assertEquals(Integer.valueOf(index++),
+                    array.next().get(TestWebserviceStreaming.INDEX));
+        }
+        assertEquals(count, index);
+
+        final Iterator<Map<String, Integer>> ndjson = service.ndjson(count);
+        index = 0;
+        while (ndjson.hasNext()) {
+            assertEquals(Integer.valueOf(index++),
+                    ndjson.next().get(TestWebserviceStreaming.INDEX));
+        }
+        assertEquals(count, index);
+
+        assertFalse(service.array(0).hasNext());
+        assertFalse(service.ndjson(0).hasNext());
+
+        // closing early releases the connection for the next requests.
+        for (int i = 0; i < 20; i++) {
+            final ResultStream<Map<String, Integer>> partial = service.array(count);
+            assertEquals(Integer.valueOf(0), partial.next().get(TestWebserviceStreaming.INDEX));
+            partial.close();
+            assertFalse(partial.hasNext());
+        }
+    }
+
+    /**
+     * Invoke a method concurrently.
+     *
+     * @param callers
+     *            the number of concurrent callers.
+     * @param callable
+     *            the invocation.
+     * @return the results of the callers.
+     * @throws Exception
+     */
+    private <T> List<T> invokeConcurrently(final int callers, final Callable<T> callable)
+            throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Callable<T>> callables = Collections.nCopies(callers, callable);
+            final List<T> results = new ArrayList<>();
+            for (final Future<T> future : executor.invokeAll(callables)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test concurrent identical single flight invocations are collapsed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceSingleFlight() throws Exception {
+        final TestWebserviceSlowStub service =
+                clientFactory.getInstance(TestWebserviceSlowStub.class);
+        final SingleFlightGroup group = clientFactory.getSingleFlightGroup();
+        final int callers = 8;
+
+        int invocations = TestWebserviceSlow.INVOCATIONS.get();
+        List<Map<String, Integer>> results =
+                invokeConcurrently(callers, new Callable<Map<String, Integer>>() {
+                    @Override
+                    public Map<String, Integer> call() throws Exception {
+                        return service.echo("shared");
+                    }
+                });
+        assertTrue(TestWebserviceSlow.INVOCATIONS.get() - invocations < callers);
+        assertEquals(callers, group.getExecutedCount() + group.getCollapsedCount());
+        assertTrue(group.getCollapsedCount() > 0);
+        assertTrue(group.getFanInRatio() > 1);
+        for (final Map<String, Integer> result : results) {
+            assertEquals(results.get(0), result);
+        }
+
+        // copied results are equal but not shared.
+        results = invokeConcurrently(callers, new Callable<Map<String, Integer>>() {
+            @Override
+            public Map<String, Integer> call() throws Exception {
+                return service.echoCopy("copied");
+            }
+        });
+        final Set<Map<String, Integer>> identities =
+                Collections.newSetFromMap(new IdentityHashMap<Map<String, Integer>, Boolean>());
+        identities.addAll(results);
+        assertEquals(callers, identities.size());
+
+        invocations = TestWebserviceSlow.INVOCATIONS.get();
+        invokeConcurrently(callers, new Callable<Map<String, Integer>>() {
+            @Override
+            public Map<String, Integer> call() throws Exception {
+                return service.echoNotCollapsed("notCollapsed");
+            }
+        });
+        assertEquals(callers, TestWebserviceSlow.INVOCATIONS.get() - invocations);
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test invocations beyond the bulkhead limit are rejected.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceBulkhead() throws Exception {
+        final TestWebserviceBulkheadStub service =
+                clientFactory.getInstance(TestWebserviceBulkheadStub.class);
+        final Map<Method, ConcurrencyLimiter> limiters =
+                clientFactory.getConcurrencyLimiters(TestWebserviceBulkheadStub.class);
+        final ConcurrencyLimiter limiter =
+                limiters.get(TestWebserviceBulkheadStub.class.getMethod("echo", String.class));
+        final int callers = 6;
+
+        List<Map<String, Integer>> results =
+                invokeConcurrently(callers, new Callable<Map<String, Integer>>() {
+                    @Override
+                    public Map<String, Integer> call() throws Exception {
+                        try {
+                            return service.echo("limited");
+                        } catch (final BulkheadRejectedException e) {
+                            assertEquals(2, e.getLimit());
+                            return null;
+                        }
+                    }
+                });
+        assertEquals(callers - 2, Collections.frequency(results, null));
+        assertEquals(callers - 2, limiter.getRejectedCount());
+        assertEquals(0, limiter.getInFlight());
+
+        results = invokeConcurrently(callers, new Callable<Map<String, Integer>>() {
+            @Override
+            public Map<String, Integer> call() throws Exception {
+                try {
+                    return service.echoOwnLimit("ownLimit");
+                } catch (final BulkheadRejectedException e) {
+                    return null;
+                }
+            }
+        });
+        assertEquals(callers - 1, Collections.frequency(results, null));
+        assertEquals(callers - 2, limiter.getRejectedCount());
+
+        results = invokeConcurrently(callers, new Callable<Map<String, Integer>>() {
+            @Override
+            public Map<String, Integer> call() throws Exception {
+                return service.echoUnlimited("unlimited");
+            }
+        });
+        assertFalse(results.contains(null));
+        assertEquals(2, limiters.size());
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test transient failures of idempotent methods are retried.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceRetry() throws Exception {
+        final TestWebserviceFlakyStub service =
+                clientFactory.getInstance(TestWebserviceFlakyStub.class);
+        final RetryBudget budget = clientFactory.getRetryBudget();
+
+        assertEquals(Collections.singletonMap("recovers", 3), service.get("recovers", 2, null));
+        assertEquals(2, budget.getRetryCount());
+
+        try {
+            service.get("fails", 5, null);
+            fail("Expected failure after the last attempt.");
+        } catch (final ServiceUnavailableException e) {
+            assertEquals(3, TestWebserviceFlaky.ATTEMPTS.get("fails").get());
+        }
+
+        // non idempotent methods are not retried unless declared idempotent.
+        try {
+            service.post("post", 1, null);
+            fail("Expected post to not be retried.");
+        } catch (final ServiceUnavailableException e) {
+            assertEquals(1, TestWebserviceFlaky.ATTEMPTS.get("post").get());
+        }
+        assertEquals(Collections.singletonMap("idempotent", 2),
+                service.postIdempotent("idempotent", 1, null));
+
+        // retry after is honored, unless longer than the maximum backoff.
+        final long start = System.currentTimeMillis();
+        assertEquals(Collections.singletonMap("retryAfter", 2),
+                service.get("retryAfter", 1, "1"));
+        assertTrue(System.currentTimeMillis() - start >= 1000);
+        try {
+            service.getShortBackoff("retryAfterTooLong", 1, "1");
+            fail("Expected retry after longer than the maximum backoff to not be retried.");
+        } catch (final ServiceUnavailableException e) {
+            assertEquals(1, TestWebserviceFlaky.ATTEMPTS.get("retryAfterTooLong").get());
+        }
+        assertEquals(6, budget.getRetryCount());
+        assertEquals(5, budget.getRequestCount());
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test slow requests are hedged.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceHedged() throws Exception {
+        final TestWebserviceHedgingStub service =
+                clientFactory.getInstance(TestWebserviceHedgingStub.class);
+        // warm up the latencies.
+        for (int i = 0; i < 50; i++) {
+            service.echo("warmup" + i, 0);
+            service.echoNoHedges("warmupNoHedges" + i, 0);
+        }
+        assertTrue(clientFactory.getLatencyHistograms(TestWebserviceHedgingStub.class)
+                .get(TestWebserviceHedgingStub.class.getMethod("echo", String.class, long.class))
+                .getCount() >= 50);
+
+        long start = System.currentTimeMillis();
+        assertEquals(Collections.singletonMap("hedged", 2), service.echo("hedged", 2000));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+
+        // no hedges beyond the outstanding limit.
+        start = System.currentTimeMillis();
+        assertEquals(Collections.singletonMap("notHedged", 1),
+                service.echoNoHedges("notHedged", 300));
+        assertTrue(System.currentTimeMillis() - start >= 300);
+        assertEquals(1, TestWebserviceHedging.REQUESTS.get("notHedged").get());
+    }
+
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test the circuit breaker opens on server errors only.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceCircuitBreaker() throws Exception {
+        final TestWebserviceBreakerStub service =
+                clientFactory.getInstance(TestWebserviceBreakerStub.class);
+        final Map<Method, MethodCircuitBreaker> breakers =
+                clientFactory.getCircuitBreakers(TestWebserviceBreakerStub.class);
+
+        // client errors do not open the breaker.
+        for (int i = 0; i < 8; i++) {
+            try {
+                service.missing("missing");
+                fail("Expected not found.");
+            } catch (final NotFoundException e) {
+                // expected
+            }
+        }
+        assertEquals(MethodCircuitBreaker.State.CLOSED, breakers.get(
+                TestWebserviceBreakerStub.class.getMethod("missing", String.class)).getState());
+
+        for (int i = 0; i < 4; i++) {
+            try {
+                service.get("broken", 100, null);
+                fail("Expected service unavailable.");
+            } catch (final ServiceUnavailableException e) {
+                // expected
+            }
+        }
+
+        // rejected locally once open.
+        try {
+            service.get("broken", 100, null);
+            fail("Expected the circuit to be open.");
+        } catch (final CircuitOpenException e) {
+            assertEquals(4, TestWebserviceFlaky.ATTEMPTS.get("broken").get());
+        }
+        assertEquals(MethodCircuitBreaker.State.OPEN, breakers.get(
+                TestWebserviceBreakerStub.class.getMethod("get", String.class, int.class,
+                        String.class)).getState());
+    }
+
     /**
      * Test method for
      * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
@@ -417,6 +869,35 @@ public class AlchemyRestClientFactoryTest extends JerseyTest {
         clientFactory.getInstance(Object.class);
     }
 
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
+     * .
+     *
+     * Test the generated proxy class is reused across proxy instances.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetInstanceReusesProxyClass() throws Exception {
+        final CacheStats before = clientFactory.getProxyCacheStats();
+        final TestWebserviceWithPutDelete service1 =
+                clientFactory.getInstance(TestWebserviceWithPutDelete.class);
+        final TestWebserviceWithPutDelete service2 =
+                clientFactory.getInstance(TestWebserviceWithPutDelete.class);
+
+        assertNotSame(service1, service2);
+        assertEquals(service1.getClass(), service2.getClass());
+
+        final CacheStats stats = clientFactory.getProxyCacheStats().minus(before);
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.hitCount());
+
+        // both instances should still be functional.
+        assertTrue(service1.put("someURI"));
+        assertTrue(service2.delete("someURI"));
+    }
+
     /**
      * Test method for
      * {@link com.strandls.alchemy.rest.client.AlchemyRestClientFactory#getInstance(java.lang.Class, java.lang.String, javax.ws.rs.client.Client)}
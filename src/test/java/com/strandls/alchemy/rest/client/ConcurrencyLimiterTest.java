@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConcurrencyLimiter}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class ConcurrencyLimiterTest {
+    /**
+     * A typical round trip time in nanoseconds.
+     */
+    private static final long RTT = 10000000;
+
+    /**
+     * Test invocations beyond the limit are rejected.
+     */
+    @Test
+    public void testRejection() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+
+        limiter.release(RTT, false);
+        assertEquals(1, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /**
+     * Test the limit grows with timely invocations using the limit.
+     */
+    @Test
+    public void testAdditiveIncrease() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 4);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(RTT, false);
+        }
+        // a single invocation uses half the initial limit only.
+        assertEquals(3, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.release(RTT, false);
+            limiter.release(RTT, false);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    /**
+     * Test the limit shrinks on slow or dropped invocations.
+     */
+    @Test
+    public void testMultiplicativeDecrease() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 5, 10);
+        limiter.tryAcquire();
+        limiter.release(RTT, false);
+        assertEquals(10, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.release(RTT * 3, false);
+        assertEquals(9, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.release(RTT, true);
+        assertEquals(8, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(RTT, true);
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    /**
+     * Test invalid limits are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimits() {
+        new ConcurrencyLimiter(1, 5, 2);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class LatencyHistogramTest {
+    /**
+     * Test bucket bounds contain the latencies of the bucket.
+     */
+    @Test
+    public void testBuckets() {
+        for (long micros = 0; micros < 100000; micros += 7) {
+            final int index = LatencyHistogram.index(micros);
+            assertTrue(micros < LatencyHistogram.upperBound(index));
+            assertTrue(index == 0 || micros >= LatencyHistogram.upperBound(index - 1));
+        }
+    }
+
+    /**
+     * Test percentiles are accurate within the bucket resolution.
+     */
+    @Test
+    public void testPercentile() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(-1, histogram.getPercentile(50, TimeUnit.MILLISECONDS));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertPercentile(50, histogram.getPercentile(50, TimeUnit.MILLISECONDS));
+        assertPercentile(95, histogram.getPercentile(95, TimeUnit.MILLISECONDS));
+        assertPercentile(100, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Test old samples decay.
+     */
+    @Test
+    public void testDecay() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < LatencyHistogram.WINDOW; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(LatencyHistogram.WINDOW / 2, histogram.getCount());
+
+        // recent slow samples dominate after a few windows.
+        for (int i = 0; i < 3 * LatencyHistogram.WINDOW; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertPercentile(100, histogram.getPercentile(50, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Assert a percentile is within the bucket resolution.
+     *
+     * @param expected
+     *            the expected latency.
+     * @param actual
+     *            the actual latency.
+     */
+    private void assertPercentile(final long expected, final long actual) {
+        assertTrue(actual + " not close to " + expected, actual >= expected
+                && actual <= expected * 1.25 + 1);
+    }
+}
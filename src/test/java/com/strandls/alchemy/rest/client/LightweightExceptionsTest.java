@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.name.Names;
+
+/**
+ * Unit tests for {@link LightweightExceptions} methods.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class LightweightExceptionsTest extends JerseyTest {
+    /**
+     * The client side proxy.
+     */
+    private TestWebserviceLightweightStub service;
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        final ResourceConfig application =
+                new ResourceConfig(TestWebserviceExceptionHandling.class,
+                        JacksonJsonProvider.class);
+        final Injector injector = Guice.createInjector(new ExceptionObjectMapperModule());
+        application.register(injector.getInstance(TestExceptionMapper.class));
+        return application;
+    }
+
+    /**
+     * Create the proxy.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setup() throws Exception {
+        client().register(new JacksonJsonProvider());
+        final Injector injector =
+                Guice.createInjector(new ExceptionObjectMapperModule(), new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(String.class).annotatedWith(
+                                Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM))
+                                .toInstance(getBaseUri().toString());
+                    }
+
+                    @Provides
+                    Client getClient() {
+                        return client();
+                    }
+                });
+        service =
+                injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                        TestWebserviceLightweightStub.class);
+    }
+
+    /**
+     * Test recreated server side exceptions have the remote stack trace.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRecreatedException() throws Exception {
+        try {
+            service.failWithACustomException();
+            fail("Should have thrown an exception");
+        } catch (final TestCustomException e) {
+            assertEquals(10, e.getStatusCode());
+            assertRemoteStackTrace("failWithACustomException", e);
+        }
+        try {
+            service.fail();
+            fail("Should have thrown an exception");
+        } catch (final Exception e) {
+            assertEquals(Exception.class, e.getClass());
+            assertRemoteStackTrace("fail", e);
+        }
+    }
+
+    /**
+     * Test jax-rs exceptions have the remote stack trace.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJaxRsException() throws Exception {
+        final NotFoundException first = getNotFound();
+        assertEquals(NotFoundException.class, first.getClass());
+        assertRemoteStackTrace("missing", first);
+        assertNotSame(first, getNotFound());
+
+        try {
+            service.missingWithStackTrace();
+            fail("Should have thrown an exception");
+        } catch (final NotFoundException e) {
+            assertTrue(e.getStackTrace().length > 1);
+        }
+    }
+
+    /**
+     * @return the not found exception raised.
+     * @throws Exception
+     */
+    private NotFoundException getNotFound() throws Exception {
+        try {
+            service.missing();
+        } catch (final NotFoundException e) {
+            return e;
+        }
+        throw new AssertionError("Should have thrown a not found exception");
+    }
+
+    /**
+     * @param methodName
+     *            the rest method name.
+     * @param throwable
+     *            the exception raised.
+     */
+    private void assertRemoteStackTrace(final String methodName, final Throwable throwable) {
+        assertArrayEquals(new StackTraceElement[] { new StackTraceElement(
+                TestWebserviceLightweightStub.class.getName(), methodName, null, -1) },
+                throwable.getStackTrace());
+    }
+}
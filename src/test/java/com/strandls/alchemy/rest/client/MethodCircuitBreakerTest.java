@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.strandls.alchemy.rest.client.MethodCircuitBreaker.State;
+
+/**
+ * Unit tests for {@link MethodCircuitBreaker}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class MethodCircuitBreakerTest {
+    /**
+     * The open duration in milliseconds.
+     */
+    private static final long OPEN_MILLIS = 50;
+
+    /**
+     * A fast call duration in nanoseconds.
+     */
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * A slow call duration in nanoseconds.
+     */
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    /**
+     * @return a breaker tracking 10 calls opening at 50% failures or 80% slow
+     *         calls.
+     */
+    private MethodCircuitBreaker createBreaker() {
+        return new MethodCircuitBreaker("test", 10, 5, 50, 80, 100, OPEN_MILLIS, 2);
+    }
+
+    /**
+     * Make calls through the breaker.
+     *
+     * @param breaker
+     *            the breaker.
+     * @param count
+     *            the number of calls.
+     * @param nanos
+     *            the call duration.
+     * @param failure
+     *            indicates if the calls fail.
+     */
+    private void call(final MethodCircuitBreaker breaker, final int count, final long nanos,
+            final boolean failure) {
+        for (int i = 0; i < count; i++) {
+            final long epoch = breaker.tryAcquire();
+            assertTrue(epoch != MethodCircuitBreaker.REJECTED);
+            breaker.onComplete(epoch, nanos, failure);
+        }
+    }
+
+    /**
+     * Test the breaker opens on failures and rejects calls.
+     */
+    @Test
+    public void testOpensOnFailures() {
+        final MethodCircuitBreaker breaker = createBreaker();
+        // too few calls to open.
+        call(breaker, 4, FAST, true);
+        assertEquals(State.CLOSED, breaker.getState());
+
+        call(breaker, 1, FAST, true);
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(MethodCircuitBreaker.REJECTED, breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    /**
+     * Test the breaker stays closed below the failure rate threshold.
+     */
+    @Test
+    public void testRollingWindow() {
+        final MethodCircuitBreaker breaker = createBreaker();
+        for (int i = 0; i < 20; i++) {
+            call(breaker, 1, FAST, i % 3 == 0);
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.getFailureRate() < 50);
+    }
+
+    /**
+     * Test the breaker opens on slow calls.
+     */
+    @Test
+    public void testOpensOnSlowCalls() {
+        final MethodCircuitBreaker breaker = createBreaker();
+        call(breaker, 5, SLOW, false);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    /**
+     * Test successful probes close the breaker.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHalfOpenCloses() throws Exception {
+        final MethodCircuitBreaker breaker = createBreaker();
+        call(breaker, 5, FAST, true);
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        // only the probes go through.
+        final long epoch = breaker.tryAcquire();
+        assertTrue(epoch != MethodCircuitBreaker.REJECTED);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertEquals(epoch, breaker.tryAcquire());
+        assertEquals(MethodCircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onComplete(epoch, FAST, false);
+        breaker.onComplete(epoch, FAST, false);
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * Test failed probes open the breaker again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHalfOpenReopens() throws Exception {
+        final MethodCircuitBreaker breaker = createBreaker();
+        call(breaker, 5, FAST, true);
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        final long epoch = breaker.tryAcquire();
+        assertEquals(epoch, breaker.tryAcquire());
+        breaker.onComplete(epoch, FAST, false);
+        breaker.onComplete(epoch, FAST, true);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    /**
+     * Test calls started while closed do not count as probes when they
+     * complete half open.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStaleCallNotProbe() throws Exception {
+        final MethodCircuitBreaker breaker = createBreaker();
+        final long closedEpoch = breaker.tryAcquire();
+        call(breaker, 5, FAST, true);
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        final long epoch = breaker.tryAcquire();
+        assertEquals(epoch, breaker.tryAcquire());
+        breaker.onComplete(closedEpoch, FAST, false);
+        breaker.onComplete(epoch, FAST, false);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+
+        breaker.onComplete(epoch, FAST, true);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    /**
+     * Test cancelled probes can be retried.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCancelProbe() throws Exception {
+        final MethodCircuitBreaker breaker = createBreaker();
+        call(breaker, 5, FAST, true);
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        final long epoch = breaker.tryAcquire();
+        assertEquals(epoch, breaker.tryAcquire());
+        breaker.cancel(epoch);
+        assertEquals(epoch, breaker.tryAcquire());
+    }
+}
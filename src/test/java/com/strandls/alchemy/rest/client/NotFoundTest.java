@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.common.base.Optional;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.name.Names;
+
+/**
+ * Unit tests for methods returning {@link Optional} or annotated with
+ * {@link NullOn404}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class NotFoundTest extends JerseyTest {
+    /**
+     * The client side proxy.
+     */
+    private TestWebserviceNotFoundStub service;
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestWebserviceWithPath.class, JacksonJsonProvider.class);
+    }
+
+    /**
+     * Create the proxy.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setup() throws Exception {
+        client().register(new JacksonJsonProvider());
+        final Injector injector =
+                Guice.createInjector(new ExceptionObjectMapperModule(), new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(String.class).annotatedWith(
+                                Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM))
+                                .toInstance(getBaseUri().toString());
+                    }
+
+                    @Provides
+                    Client getClient() {
+                        return client();
+                    }
+                });
+        service =
+                injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                        TestWebserviceNotFoundStub.class);
+    }
+
+    /**
+     * Test found resources are returned as is or wrapped.
+     */
+    @Test
+    public void testFound() {
+        final int[] expected = new int[] { 1, 2, 3 };
+        assertArrayEquals(expected, service.echoPathParams(1, 2, 3).get());
+        assertArrayEquals(expected, service.echoPathParamsOrNull(1, 2, 3));
+
+        final Optional<int[]> first = service.echoPathParamsSingleFlight(1, 2, 3);
+        assertArrayEquals(expected, first.get());
+        assertNotSame(first.get(), service.echoPathParamsSingleFlight(1, 2, 3).get());
+    }
+
+    /**
+     * Test 404 responses are returned as empty values.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMissing() throws Exception {
+        assertFalse(service.missing().isPresent());
+        assertFalse(service.missingAsync().get().isPresent());
+        assertNull(service.missingOrNull());
+    }
+
+    /**
+     * Test 404 responses are raised when not mapped to empty values.
+     */
+    @Test
+    public void testMissingRaised() {
+        try {
+            service.missingOrFail();
+            fail("Should have thrown an exception");
+        } catch (final NotFoundException e) {
+            assertEquals(404, e.getResponse().getStatus());
+        }
+
+        try {
+            service.missingPrimitive();
+            fail("Should have thrown an exception");
+        } catch (final NotFoundException e) {
+            assertEquals(404, e.getResponse().getStatus());
+        }
+    }
+}
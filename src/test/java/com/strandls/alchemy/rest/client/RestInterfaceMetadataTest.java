@@ -21,6 +21,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
@@ -95,4 +96,18 @@ public class RestInterfaceMetadataTest {
         assertNotNull(methodData1.toString());
     }
 
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.RestInterfaceMetadata#RestInterfaceMetadata(String, java.util.List, java.util.List, java.util.Map)}
+     * .
+     */
+    @Test
+    public void testConstructorWithoutBulkhead() {
+        final RestInterfaceMetadata metadata =
+                new RestInterfaceMetadata(methodData1.getPath(), methodData1.getProduced(),
+                        methodData1.getConsumed(), methodData1.getMethodMetaData());
+        assertNull(metadata.getBulkhead());
+        assertEquals(methodData1, metadata);
+    }
+
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RestMethodInvocationPlan}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class RestMethodInvocationPlanTest {
+    /**
+     * Get the plan for a method of {@link TestWebserviceWithPath}.
+     *
+     * @param methodName
+     *            the method name.
+     * @param parameterTypes
+     *            the parameter types.
+     * @return the compiled plan.
+     * @throws Exception
+     */
+    private RestMethodInvocationPlan getPlan(final String methodName,
+            final Class<?>... parameterTypes) throws Exception {
+        return new RestInterfaceAnalyzer().analyze(TestWebserviceWithPath.class)
+                .getMethodMetaData()
+                .get(TestWebserviceWithPath.class.getMethod(methodName, parameterTypes))
+                .getInvocationPlan();
+    }
+
+    /**
+     * Test path, matrix and query parameters are bound by argument index.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMixedParams() throws Exception {
+        final RestMethodInvocationPlan plan =
+                getPlan("echoMixedParams", int.class, int.class, int.class);
+
+        assertArrayEquals(new ParameterBinding[] { new ParameterBinding(
+                ParameterBinding.Type.PATH, 0, "param1") },
+                plan.getBindings(ParameterBinding.Type.PATH));
+        assertArrayEquals(new ParameterBinding[] { new ParameterBinding(
+                ParameterBinding.Type.MATRIX, 1, "param2") },
+                plan.getBindings(ParameterBinding.Type.MATRIX));
+        assertArrayEquals(new ParameterBinding[] { new ParameterBinding(
+                ParameterBinding.Type.QUERY, 2, "param3") },
+                plan.getBindings(ParameterBinding.Type.QUERY));
+        assertFalse(plan.hasBindings(ParameterBinding.Type.HEADER));
+        assertEquals(-1, plan.getBodyParameterIndex());
+
+        // produced and consumed media types are accepted.
+        assertArrayEquals(new MediaType[] { MediaType.APPLICATION_JSON_TYPE,
+                MediaType.APPLICATION_JSON_TYPE }, plan.getAcceptedMediaTypes());
+    }
+
+    /**
+     * Test unannotated arguments are bound to the request body.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBodyParam() throws Exception {
+        final RestMethodInvocationPlan plan = getPlan("echo", int[].class);
+
+        assertEquals(0, plan.getBodyParameterIndex());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, plan.getBodyMediaType());
+    }
+
+    /**
+     * Test form parameters.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFormParams() throws Exception {
+        final RestMethodInvocationPlan plan =
+                getPlan("echoFormParams", int.class, int.class, int.class);
+
+        assertEquals(2, plan.getBindings(ParameterBinding.Type.FORM).length);
+        assertEquals(1, plan.getBindings(ParameterBinding.Type.QUERY).length);
+        assertEquals(MediaType.WILDCARD_TYPE, plan.getBodyMediaType());
+        assertArrayEquals(new MediaType[] { MediaType.APPLICATION_JSON_TYPE },
+                plan.getAcceptedMediaTypes());
+    }
+}
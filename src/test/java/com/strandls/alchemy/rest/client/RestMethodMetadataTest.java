@@ -107,4 +107,28 @@ public class RestMethodMetadataTest {
         assertNotNull(methodData1.toString());
     }
 
+    /**
+     * Test method for
+     * {@link com.strandls.alchemy.rest.client.RestMethodMetadata#RestMethodMetadata(String, String, java.util.List, java.util.List, java.lang.annotation.Annotation[][])}
+     * .
+     */
+    @Test
+    public void testConstructorWithoutPlan() {
+        final RestMethodMetadata metadata =
+                new RestMethodMetadata(methodData1.getPath(), methodData1.getHttpMethod(),
+                        methodData1.getProduced(), methodData1.getConsumed(),
+                        methodData1.getParameterAnnotations());
+        assertEquals(methodData1, metadata);
+
+        final RestMethodInvocationPlan plan = metadata.getInvocationPlan();
+        final RestMethodInvocationPlan analyzedPlan = methodData1.getInvocationPlan();
+        assertEquals(analyzedPlan.getBodyMediaType(), plan.getBodyMediaType());
+        assertEquals(analyzedPlan.getAcceptedMediaTypes().length,
+                plan.getAcceptedMediaTypes().length);
+        for (final ParameterBinding.Type type : ParameterBinding.Type.values()) {
+            assertEquals(analyzedPlan.getBindings(type).length, plan.getBindings(type).length);
+        }
+        assertEquals(Object.class, plan.getEntityClass());
+    }
+
 }
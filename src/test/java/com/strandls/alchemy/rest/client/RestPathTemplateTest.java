@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.UriBuilder;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RestPathTemplate}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class RestPathTemplateTest {
+    /**
+     * The base uri.
+     */
+    private static final String BASE_URI = "http://localhost:9998/";
+
+    /**
+     * Values with characters that need encoding.
+     */
+    private static final String[] VALUES = new String[] { "plain", "a b", "a/b", "a%20b",
+        "\u00e4\u20ac\ud83d\ude00", "a;b=c", "a+b", "a?b#c", "~._-!$&'()*,:@", "a=b&c" };
+
+    /**
+     * Compile the template for a method of {@link TestWebserviceWithPath}.
+     *
+     * @param methodName
+     *            the method name.
+     * @return the compiled template.
+     * @throws Exception
+     */
+    private RestPathTemplate compile(final String methodName) throws Exception {
+        final RestInterfaceMetadata metadata =
+                new RestInterfaceAnalyzer().analyze(TestWebserviceWithPath.class);
+        return new RestPathTemplate(BASE_URI, metadata.getPath(), metadata.getMethodMetaData()
+                .get(TestWebserviceWithPath.class.getMethod(methodName, int.class, int.class,
+                        int.class)));
+    }
+
+    /**
+     * Test path parameters are expanded and encoded as
+     * {@link UriBuilder#buildFromMap(Map)} does.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPathParams() throws Exception {
+        final RestPathTemplate template = compile("echoPathParams");
+        assertFalse(template.isStatic());
+
+        for (final String value : VALUES) {
+            final Map<String, Object> values = new HashMap<String, Object>();
+            values.put("param1", value);
+            values.put("param2", 2);
+            values.put("param3", value);
+            final String expected =
+                    UriBuilder.fromPath(BASE_URI).path("/test")
+                            .path("/echoPathParams/{param1}/{param2}/{param3}")
+                            .buildFromMap(values).toString();
+
+            assertEquals(expected, template.expand(new Object[] { value, 2, value }));
+        }
+    }
+
+    /**
+     * Test matrix, path and query parameters are expanded and encoded as
+     * {@link UriBuilder} does.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMixedParams() throws Exception {
+        final RestPathTemplate template = compile("echoMixedParams");
+
+        for (final String value : VALUES) {
+            final Map<String, Object> values = new HashMap<String, Object>();
+            values.put("param1", value);
+            final String expected =
+                    UriBuilder.fromPath(BASE_URI).path("/test")
+                            .path("/echoMixedParams/{param1}/").matrixParam("param2", value)
+                            .queryParam("param3", value).buildFromMap(values).toString();
+
+            assertEquals(expected, template.expand(new Object[] { value, value, value }));
+        }
+    }
+
+    /**
+     * Test query parameters are appended and encoded as
+     * {@link UriBuilder#queryParam(String, Object...)} does.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQueryParams() throws Exception {
+        final RestPathTemplate template = compile("echoQueryParams");
+        assertFalse(template.isStatic());
+
+        for (final String value : VALUES) {
+            final String expected =
+                    UriBuilder.fromPath(BASE_URI).path("/test").path("/echoQueryParams")
+                            .queryParam("param1", value).queryParam("param2", 2)
+                            .queryParam("param3", "").build().toString();
+
+            assertEquals(expected, template.expand(new Object[] { value, 2, null }));
+        }
+    }
+
+    /**
+     * Test uris without template variables, matrix and query parameters are
+     * expanded once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStaticPath() throws Exception {
+        final RestInterfaceMetadata metadata =
+                new RestInterfaceAnalyzer().analyze(TestWebserviceWithPath.class);
+        final RestPathTemplate template =
+                new RestPathTemplate(BASE_URI, metadata.getPath(), metadata.getMethodMetaData()
+                        .get(TestWebserviceWithPath.class.getMethod("noOp")));
+        assertTrue(template.isStatic());
+
+        final String path = template.expand(new Object[0]);
+        assertEquals("http://localhost:9998/test/noOp", path);
+        assertSame(path, template.expand(new Object[0]));
+    }
+
+    /**
+     * Test missing path parameter values are rejected.
+     *
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullPathParam() throws Exception {
+        compile("echoPathParams").expand(new Object[] { null, 2, 3 });
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RetryBudget}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class RetryBudgetTest {
+    /**
+     * Test the reserve allows retries at low request rates.
+     */
+    @Test
+    public void testReserve() {
+        final RetryBudget budget = new RetryBudget(0, 2);
+        budget.onRequest();
+        assertTrue(budget.tryRetry());
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+        assertEquals(2, budget.getRetryCount());
+        assertEquals(1, budget.getRefusedCount());
+    }
+
+    /**
+     * Test retries are limited to the ratio of requests once the reserve is
+     * used up.
+     */
+    @Test
+    public void testRatio() {
+        final RetryBudget budget = new RetryBudget(0.1, 0);
+        for (int i = 0; i < 1000; i++) {
+            budget.onRequest();
+            budget.tryRetry();
+        }
+        assertEquals(1000, budget.getRequestCount());
+        assertTrue(budget.getRetryCount() >= 99 && budget.getRetryCount() <= 100);
+        assertEquals(1000 - budget.getRetryCount(), budget.getRefusedCount());
+    }
+
+    /**
+     * Test the balance never exceeds the reserve.
+     */
+    @Test
+    public void testBalanceCapped() {
+        final RetryBudget budget = new RetryBudget(0.5, 1);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+
+/**
+ * Unit tests for {@link SingleFlightGroup}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class SingleFlightGroupTest {
+    /**
+     * Copies lists.
+     */
+    private static final Function<Object, Object> COPIER = new Function<Object, Object>() {
+        @Override
+        public Object apply(final Object input) {
+            return new ArrayList<Object>((List<?>) input);
+        }
+    };
+
+    /**
+     * Test the caller executing the call and a waiting caller both get
+     * copies, leaving the shared result untouched.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCopyForEveryCaller() throws Exception {
+        final SingleFlightGroup group = new SingleFlightGroup();
+        final List<Integer> shared = new ArrayList<Integer>(Arrays.asList(1));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Object> leader = executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    try {
+                        return group.execute("key", new SingleFlightGroup.Call() {
+                            @Override
+                            public Object call() throws Throwable {
+                                started.countDown();
+                                release.await();
+                                return shared;
+                            }
+                        }, COPIER);
+                    } catch (final Throwable t) {
+                        throw new Exception(t);
+                    }
+                }
+            });
+            started.await();
+            final Future<Object> waiter = executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    try {
+                        return group.execute("key", null, COPIER);
+                    } catch (final Throwable t) {
+                        throw new Exception(t);
+                    }
+                }
+            });
+            while (group.getCollapsedCount() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertNotSame(shared, leader.get());
+            assertNotSame(shared, waiter.get());
+            assertEquals(shared, leader.get());
+            assertEquals(shared, waiter.get());
+            assertEquals(1, group.getExecutedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.concurrent.Future;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Asynchronous client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceWithPath} and
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceExceptionHandling}.
+ *
+ */
+@Path("/")
+public interface TestWebserviceAsyncStub {
+
+    @Path("/test/echoPathParams/{param1}/{param2}/{param3}")
+    @Produces({ "application/json" })
+    @Consumes({ "application/json" })
+    @GET
+    public ListenableFuture<int[]> echoPathParams(@PathParam("param1") final int arg0,
+            @PathParam("param2") final int arg1, @PathParam("param3") final int arg2);
+
+    @Path("/test/echoQueryParams")
+    @Produces({ "application/json" })
+    @Consumes({ "application/json" })
+    @GET
+    public Future<int[]> echoQueryParams(@QueryParam("param1") final int arg0,
+            @QueryParam("param2") final int arg1, @QueryParam("param3") final int arg2);
+
+    @Produces({ "application/json" })
+    @Consumes({ "application/json" })
+    @Path("/test")
+    @POST
+    public ListenableFuture<int[]> echo(final int[] arg0);
+
+    @Path("/test/noOp")
+    @POST
+    public ListenableFuture<Void> noOp();
+
+    @Path("/exception/fail")
+    @GET
+    public ListenableFuture<Void> fail();
+
+    @Path("/exception/fail404")
+    @GET
+    public ListenableFuture<Void> failInternal404();
+}
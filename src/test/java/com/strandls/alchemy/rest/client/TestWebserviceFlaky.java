@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A webservice that is unavailable for the first few attempts per key.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Path("/flaky")
+public class TestWebserviceFlaky {
+    /**
+     * The number of attempts by key.
+     */
+    public static final ConcurrentMap<String, AtomicInteger> ATTEMPTS =
+            new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Fail the first few attempts for a key.
+     *
+     * @param key
+     *            the key.
+     * @param failures
+     *            the number of attempts to fail.
+     * @param retryAfter
+     *            the retry after header value for failures, can be blank.
+     * @return service unavailable response for the first failed attempts,
+     *         else map from the key to the attempt number.
+     */
+    @GET
+    @Path("{key}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get(@PathParam("key") final String key,
+            @QueryParam("failures") final int failures,
+            @QueryParam("retryAfter") final String retryAfter) {
+        ATTEMPTS.putIfAbsent(key, new AtomicInteger());
+        final int attempt = ATTEMPTS.get(key).incrementAndGet();
+        if (attempt <= failures) {
+            final ResponseBuilder builder = Response.status(Response.Status.SERVICE_UNAVAILABLE);
+            if (!StringUtils.isBlank(retryAfter)) {
+                builder.header(HttpHeaders.RETRY_AFTER, retryAfter);
+            }
+            return builder.build();
+        }
+        return Response.ok(Collections.singletonMap(key, attempt)).build();
+    }
+
+    /**
+     * Fail the first few attempts for a key.
+     *
+     * @param key
+     *            the key.
+     * @param failures
+     *            the number of attempts to fail.
+     * @param retryAfter
+     *            the retry after header value for failures, can be blank.
+     * @return service unavailable response for the first failed attempts,
+     *         else map from the key to the attempt number.
+     */
+    @POST
+    @Path("{key}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response post(@PathParam("key") final String key,
+            @QueryParam("failures") final int failures,
+            @QueryParam("retryAfter") final String retryAfter) {
+        return get(key, failures, retryAfter);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+/**
+ * Retrying client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceFlaky}.
+ *
+ */
+@Path("/flaky")
+@Retry(initialBackoffMillis = 10)
+public interface TestWebserviceFlakyStub {
+
+    @Path("{key}")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, Integer> get(@PathParam("key") final String arg0,
+            @QueryParam("failures") final int arg1, @QueryParam("retryAfter") final String arg2);
+
+    @Path("{key}")
+    @Produces({ "application/json" })
+    @GET
+    @Retry(initialBackoffMillis = 10, maxBackoffMillis = 500)
+    public Map<String, Integer> getShortBackoff(@PathParam("key") final String arg0,
+            @QueryParam("failures") final int arg1, @QueryParam("retryAfter") final String arg2);
+
+    @Path("{key}")
+    @Produces({ "application/json" })
+    @POST
+    public Map<String, Integer> post(@PathParam("key") final String arg0,
+            @QueryParam("failures") final int arg1, @QueryParam("retryAfter") final String arg2);
+
+    @Path("{key}")
+    @Produces({ "application/json" })
+    @POST
+    @Retry(initialBackoffMillis = 10, idempotent = true)
+    public Map<String, Integer> postIdempotent(@PathParam("key") final String arg0,
+            @QueryParam("failures") final int arg1, @QueryParam("retryAfter") final String arg2);
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * A webservice that is slow for the first request per key.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Path("/hedging")
+public class TestWebserviceHedging {
+    /**
+     * The number of requests by key.
+     */
+    public static final ConcurrentMap<String, AtomicInteger> REQUESTS =
+            new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Echoes the key, after a delay for the first request for the key.
+     *
+     * @param key
+     *            the key.
+     * @param firstDelay
+     *            the delay for the first request in milliseconds.
+     * @return map from the key to the request number.
+     * @throws InterruptedException
+     */
+    @GET
+    @Path("{key}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Integer> echo(@PathParam("key") final String key,
+            @QueryParam("firstDelay") final long firstDelay) throws InterruptedException {
+        REQUESTS.putIfAbsent(key, new AtomicInteger());
+        final int request = REQUESTS.get(key).incrementAndGet();
+        if (request == 1) {
+            Thread.sleep(firstDelay);
+        }
+        return Collections.singletonMap(key, request);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+/**
+ * Hedging client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceHedging}.
+ *
+ */
+@Path("/hedging")
+@Hedged
+public interface TestWebserviceHedgingStub {
+
+    @Path("{key}")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, Integer> echo(@PathParam("key") final String arg0,
+            @QueryParam("firstDelay") final long arg1);
+
+    @Path("{key}")
+    @Produces({ "application/json" })
+    @GET
+    @Hedged(maxOutstanding = 0)
+    public Map<String, Integer> echoNoHedges(@PathParam("key") final String arg0,
+            @QueryParam("firstDelay") final long arg1);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+/**
+ * Lightweight exceptions client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceExceptionHandling}.
+ *
+ */
+@Path("/exception")
+@LightweightExceptions
+public interface TestWebserviceLightweightStub {
+
+    @Path("/fail")
+    @GET
+    public void fail() throws Exception;
+
+    @Path("/failCustom")
+    @GET
+    public void failWithACustomException() throws Exception;
+
+    @Path("/missing")
+    @GET
+    public void missing() throws Exception;
+
+    @Path("/missing")
+    @GET
+    @LightweightExceptions(false)
+    public void missingWithStackTrace() throws Exception;
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceWithPath} mapping 404
+ * responses to empty values.
+ *
+ */
+@Path("/test")
+@Produces(MediaType.APPLICATION_JSON)
+public interface TestWebserviceNotFoundStub {
+
+    @Path("/echoPathParams/{param1}/{param2}/{param3}")
+    @GET
+    public Optional<int[]> echoPathParams(@PathParam("param1") int arg0,
+            @PathParam("param2") int arg1, @PathParam("param3") int arg2);
+
+    @Path("/echoPathParams/{param1}/{param2}/{param3}")
+    @GET
+    @NullOn404
+    public int[] echoPathParamsOrNull(@PathParam("param1") int arg0,
+            @PathParam("param2") int arg1, @PathParam("param3") int arg2);
+
+    @Path("/echoPathParams/{param1}/{param2}/{param3}")
+    @GET
+    @SingleFlight
+    public Optional<int[]> echoPathParamsSingleFlight(@PathParam("param1") int arg0,
+            @PathParam("param2") int arg1, @PathParam("param3") int arg2);
+
+    @Path("/missing")
+    @GET
+    public Optional<int[]> missing();
+
+    @Path("/missing")
+    @GET
+    public ListenableFuture<Optional<int[]>> missingAsync();
+
+    @Path("/missing")
+    @GET
+    @NullOn404
+    public int[] missingOrNull();
+
+    @Path("/missing")
+    @GET
+    @NullOn404(false)
+    public int[] missingOrFail();
+
+    @Path("/missing")
+    @GET
+    @NullOn404
+    public int missingPrimitive();
+}
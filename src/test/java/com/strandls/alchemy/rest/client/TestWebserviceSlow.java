@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * A webservice with slow responses that counts its invocations.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Path("/slow")
+public class TestWebserviceSlow {
+    /**
+     * The response delay in milliseconds.
+     */
+    public static final long DELAY_MILLIS = 500;
+
+    /**
+     * The number of invocations.
+     */
+    public static final AtomicInteger INVOCATIONS = new AtomicInteger();
+
+    /**
+     * Echoes the key after a delay.
+     *
+     * @param key
+     *            the key.
+     * @return map from the key to the invocation number.
+     * @throws InterruptedException
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Integer> echo(@QueryParam("key") final String key)
+            throws InterruptedException {
+        final int invocation = INVOCATIONS.incrementAndGet();
+        Thread.sleep(DELAY_MILLIS);
+        return Collections.singletonMap(key, invocation);
+    }
+}
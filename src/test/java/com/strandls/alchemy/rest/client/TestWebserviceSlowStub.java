@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+/**
+ * Single flight client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceSlow}.
+ *
+ */
+@Path("/slow")
+@SingleFlight
+public interface TestWebserviceSlowStub {
+
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, Integer> echo(@QueryParam("key") final String arg0);
+
+    @Produces({ "application/json" })
+    @GET
+    @SingleFlight(copy = true)
+    public Map<String, Integer> echoCopy(@QueryParam("key") final String arg0);
+
+    @Produces({ "application/json" })
+    @GET
+    @SingleFlight(false)
+    public Map<String, Integer> echoNotCollapsed(@QueryParam("key") final String arg0);
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * A webservice returning large sequences of json values.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Path("/streaming")
+public class TestWebserviceStreaming {
+    /**
+     * Media type for newline delimited json.
+     */
+    public static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * The name of the index property of the elements.
+     */
+    public static final String INDEX = "index";
+
+    /**
+     * Elements as a json array.
+     *
+     * @param count
+     *            the number of elements.
+     * @return the elements.
+     */
+    @GET
+    @Path("/array")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<Map<String, Integer>> array(@QueryParam("count") final int count) {
+        final List<Map<String, Integer>> elements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            elements.add(Collections.singletonMap(INDEX, i));
+        }
+        return elements;
+    }
+
+    /**
+     * Elements as newline delimited json.
+     *
+     * @param count
+     *            the number of elements.
+     * @return the elements.
+     */
+    @GET
+    @Path("/ndjson")
+    @Produces(NDJSON)
+    public String ndjson(@QueryParam("count") final int count) {
+        final StringBuilder elements = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            elements.append("{\"").append(INDEX).append("\":").append(i).append("}\n");
+        }
+        return elements.toString();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+/**
+ * Streaming client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.TestWebserviceStreaming}.
+ *
+ */
+@Path("/streaming")
+public interface TestWebserviceStreamingStub {
+
+    @Path("/array")
+    @Produces({ "application/json" })
+    @GET
+    public ResultStream<Map<String, Integer>> array(@QueryParam("count") final int arg0);
+
+    @Path("/array")
+    @Produces({ "application/json" })
+    @GET
+    public String arrayText(@QueryParam("count") final int arg0);
+
+    @Path("/array")
+    @Produces({ "application/json" })
+    @GET
+    public InputStream arrayStream(@QueryParam("count") final int arg0);
+
+    @Path("/ndjson")
+    @Produces({ TestWebserviceStreaming.NDJSON })
+    @GET
+    public Iterator<Map<String, Integer>> ndjson(@QueryParam("count") final int arg0);
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Provides;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.AlchemyRestClientFactory;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.NegativeCache;
+
+/**
+ * Unit tests for {@link NegativeCacheFilter} with {@link NegativeCache}
+ * methods.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class NegativeCacheFilterTest extends JerseyTest {
+    /**
+     * The client factory.
+     */
+    private AlchemyRestClientFactory clientFactory;
+
+    /**
+     * The client stub.
+     */
+    private TestWebserviceEntitiesStub service;
+
+    /**
+     * The negative caches of the stub.
+     */
+    private Map<Method, NegativeResultCache> caches;
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestWebserviceEntities.class, JacksonJsonProvider.class);
+    }
+
+    /**
+     * Setup the client.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setup() throws Exception {
+        client().register(new JacksonJsonProvider());
+        clientFactory =
+                Guice.createInjector(new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(String.class).annotatedWith(
+                                Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM))
+                                .toInstance(getBaseUri().toString());
+                    }
+
+                    @Provides
+                    Client getClient() {
+                        return client();
+                    }
+                }, new ExceptionObjectMapperModule()).getInstance(AlchemyRestClientFactory.class);
+        service = clientFactory.getInstance(TestWebserviceEntitiesStub.class);
+        caches = clientFactory.getNegativeCaches(TestWebserviceEntitiesStub.class);
+    }
+
+    /**
+     * Test 404s are remembered and raised or returned as empty values
+     * locally.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMissing() throws Exception {
+        final int requests = TestWebserviceEntities.REQUESTS.get();
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.get("missing");
+                fail("Should have thrown an exception");
+            } catch (final NotFoundException e) {
+                assertEquals(404, e.getResponse().getStatus());
+            }
+            assertFalse(service.find("missing").isPresent());
+        }
+        // one request per method, each method has a cache of its own.
+        assertEquals(requests + 2, TestWebserviceEntities.REQUESTS.get());
+
+        final NegativeResultCache cache = getCache("find");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getStoreCount());
+        assertEquals(0.5, cache.getHitRate(), 0);
+    }
+
+    /**
+     * Test writes invalidate 404s of overlapping paths only.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalidation() throws Exception {
+        assertFalse(service.find("created").isPresent());
+        assertFalse(service.find("other").isPresent());
+
+        service.put("created", 1);
+        assertEquals(Integer.valueOf(1), service.find("created").get());
+
+        final int requests = TestWebserviceEntities.REQUESTS.get();
+        assertFalse(service.find("other").isPresent());
+        assertEquals(requests, TestWebserviceEntities.REQUESTS.get());
+
+        service.delete("created");
+        assertFalse(service.find("created").isPresent());
+        assertEquals(requests + 1, TestWebserviceEntities.REQUESTS.get());
+    }
+
+    /**
+     * Test writes through one proxy invalidate the 404s remembered by another
+     * proxy of the same service.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalidationAcrossProxies() throws Exception {
+        final TestWebserviceEntitiesStub other =
+                clientFactory.getInstance(TestWebserviceEntitiesStub.class);
+        assertFalse(service.find("shared").isPresent());
+
+        other.put("shared", 2);
+        assertEquals(Integer.valueOf(2), service.find("shared").get());
+    }
+
+    /**
+     * Test 404s remembered in bloom filters, cleared by any write.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBloomFilter() throws Exception {
+        final int requests = TestWebserviceEntities.REQUESTS.get();
+        assertFalse(service.findBloom("bloom").isPresent());
+        assertFalse(service.findBloom("bloom").isPresent());
+        assertEquals(requests + 1, TestWebserviceEntities.REQUESTS.get());
+
+        service.put("unrelated", 1);
+        assertFalse(service.findBloom("bloom").isPresent());
+        assertEquals(requests + 2, TestWebserviceEntities.REQUESTS.get());
+
+        final NegativeResultCache cache = getCache("findBloom");
+        assertEquals(1, cache.getHitCount());
+        // invalidated when the write is sent and when it completes.
+        assertEquals(2, cache.getInvalidationCount());
+        assertEquals(0, cache.getFalsePositiveRate(), 0);
+    }
+
+    /**
+     * Test methods can opt out of the negative cache of the interface.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDisabled() throws Exception {
+        final int requests = TestWebserviceEntities.REQUESTS.get();
+        assertFalse(service.findUncached("uncached").isPresent());
+        assertFalse(service.findUncached("uncached").isPresent());
+        assertEquals(requests + 2, TestWebserviceEntities.REQUESTS.get());
+        assertEquals(3, caches.size());
+    }
+
+    /**
+     * @param methodName
+     *            the stub method name.
+     * @return the negative cache of the method.
+     * @throws Exception
+     */
+    private NegativeResultCache getCache(final String methodName) throws Exception {
+        return caches.get(TestWebserviceEntitiesStub.class.getMethod(methodName, String.class));
+    }
+}
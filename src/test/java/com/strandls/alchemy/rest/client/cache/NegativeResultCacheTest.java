@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link NegativeResultCache}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class NegativeResultCacheTest {
+    /**
+     * Test paths are stripped of matrix parameters, queries and trailing
+     * slashes.
+     */
+    @Test
+    public void testGetPath() {
+        assertEquals("/a/b/c",
+                NegativeResultCache.getPath(URI.create("http://host/a;x=1/b/c/?q=2")));
+        assertEquals("", NegativeResultCache.getPath(URI.create("http://host/")));
+    }
+
+    /**
+     * Test paths overlap with themselves, their parents and children only.
+     */
+    @Test
+    public void testOverlaps() {
+        assertTrue(NegativeResultCache.overlaps("/a/b", "/a/b"));
+        assertTrue(NegativeResultCache.overlaps("/a", "/a/b"));
+        assertTrue(NegativeResultCache.overlaps("/a/b/c", "/a/b"));
+        assertFalse(NegativeResultCache.overlaps("/a/b", "/a/bc"));
+        assertFalse(NegativeResultCache.overlaps("/a/b", "/a/c"));
+    }
+
+    /**
+     * Test 404s of requests racing with an invalidation are not stored.
+     */
+    @Test
+    public void testGeneration() {
+        final NegativeResultCache cache = new NegativeResultCache(60000, 10, false, 0.01, 0);
+        final URI uri = URI.create("http://host/a/1");
+        final long generation = cache.getGeneration();
+        cache.invalidate(URI.create("http://host/a"));
+        cache.store(uri, generation);
+        assertEquals(NegativeResultCache.Lookup.MISS, cache.lookup(uri));
+
+        cache.store(uri, cache.getGeneration());
+        assertEquals(NegativeResultCache.Lookup.HIT, cache.lookup(uri));
+        assertEquals(1, cache.getStoreCount());
+    }
+
+    /**
+     * Test 404s expire.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExpiry() throws Exception {
+        for (final boolean bloomFilter : new boolean[] { false, true }) {
+            final NegativeResultCache cache = new NegativeResultCache(20, 10, bloomFilter, 0.01, 0);
+            final URI uri = URI.create("http://host/a/1");
+            cache.store(uri, cache.getGeneration());
+            assertEquals(NegativeResultCache.Lookup.HIT, cache.lookup(uri));
+            Thread.sleep(50);
+            assertEquals(NegativeResultCache.Lookup.MISS, cache.lookup(uri));
+        }
+    }
+
+    /**
+     * Test verified bloom filter hits are counted for the false positive rate.
+     */
+    @Test
+    public void testFalsePositiveRate() {
+        final NegativeResultCache cache = new NegativeResultCache(60000, 100, true, 0.01, 1);
+        final URI uri = URI.create("http://host/a/1");
+        cache.store(uri, cache.getGeneration());
+        assertEquals(NegativeResultCache.Lookup.VERIFY, cache.lookup(uri));
+        cache.onVerified(false);
+        cache.onVerified(true);
+        cache.onVerified(true);
+        cache.onVerified(true);
+
+        assertEquals(1, cache.getVerifyCount());
+        assertEquals(1, cache.getFalsePositiveCount());
+        assertEquals(0.25, cache.getFalsePositiveRate(), 0);
+        assertTrue(cache.getExpectedFalsePositiveRate() > 0);
+    }
+}
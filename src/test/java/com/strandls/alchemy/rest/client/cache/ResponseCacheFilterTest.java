@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Map;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Provides;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.AlchemyRestClientFactory;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.request.RequestBuilderFilter;
+
+/**
+ * Unit tests for {@link ResponseCacheFilter} with {@link LruResponseCache}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class ResponseCacheFilterTest extends JerseyTest {
+    /**
+     * The response cache.
+     */
+    private LruResponseCache cache;
+
+    /**
+     * The client stub.
+     */
+    private TestWebserviceCachedStub service;
+
+    /**
+     * The tenant header added by the request builder filter.
+     */
+    private volatile String tenant = "first";
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestWebserviceCached.class, JacksonJsonProvider.class);
+    }
+
+    /**
+     * Setup the client with a response cache.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setup() throws Exception {
+        client().register(new JacksonJsonProvider());
+        cache = new LruResponseCache(1024 * 1024);
+        service =
+                Guice.createInjector(new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(String.class).annotatedWith(
+                                Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM))
+                                .toInstance(getBaseUri().toString());
+                        bind(ResponseCache.class).toInstance(cache);
+                        bind(RequestBuilderFilter.class).toInstance(new RequestBuilderFilter() {
+                            @Override
+                            public void apply(final Builder builder) {
+                                builder.header(TestWebserviceCached.TENANT_HEADER, tenant);
+                            }
+                        });
+                    }
+
+                    @Provides
+                    Client getClient() {
+                        return client();
+                    }
+                }, new ExceptionObjectMapperModule()).getInstance(AlchemyRestClientFactory.class)
+                .getInstance(TestWebserviceCachedStub.class);
+    }
+
+    /**
+     * Test fresh responses are served from the cache.
+     */
+    @Test
+    public void testFresh() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        final Map<String, String> first = service.fresh("fresh");
+        assertEquals(first, service.fresh("fresh"));
+        assertEquals(requests + 1, TestWebserviceCached.REQUESTS.get());
+
+        // different query params are cached separately.
+        assertNotEquals(first, service.fresh("other"));
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Test no-cache responses are revalidated with conditional requests.
+     */
+    @Test
+    public void testRevalidated() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        final int notModified = TestWebserviceCached.NOT_MODIFIED.get();
+
+        final Map<String, String> first = service.revalidated("revalidated");
+        assertEquals(first, service.revalidated("revalidated"));
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+        assertEquals(notModified + 1, TestWebserviceCached.NOT_MODIFIED.get());
+
+        // modified resources are fetched again.
+        TestWebserviceCached.VERSION.incrementAndGet();
+        assertNotEquals(first, service.revalidated("revalidated"));
+        assertEquals(notModified + 1, TestWebserviceCached.NOT_MODIFIED.get());
+    }
+
+    /**
+     * Test stale responses are served while revalidated in the background.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        final int notModified = TestWebserviceCached.NOT_MODIFIED.get();
+
+        final Map<String, String> first = service.stale("stale");
+        assertEquals(first, service.stale("stale"));
+
+        // wait for the background revalidation.
+        for (int i = 0; i < 100 && TestWebserviceCached.NOT_MODIFIED.get() == notModified; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(notModified + 1, TestWebserviceCached.NOT_MODIFIED.get());
+    }
+
+    /**
+     * Test no-store responses are not cached.
+     */
+    @Test
+    public void testNoStore() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        assertNotEquals(service.noStore("noStore"), service.noStore("noStore"));
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test methods are only cached if annotated.
+     */
+    @Test
+    public void testUncached() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        assertNotEquals(service.uncached("uncached"), service.uncached("uncached"));
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test requests with credentials are not cached.
+     */
+    @Test
+    public void testAuthorized() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        assertNotEquals(service.authorized("authorized", "Basic dXNlcg=="),
+                service.authorized("authorized", "Basic dXNlcg=="));
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test private responses are not cached.
+     */
+    @Test
+    public void testPrivate() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        assertNotEquals(service.privateResponse("private"), service.privateResponse("private"));
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test cached responses are only served to requests with the same values
+     * of the headers they vary by, including filter added headers.
+     */
+    @Test
+    public void testVary() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        final Map<String, String> first = service.tenant("tenant");
+        assertEquals("first", first.get("tenant"));
+        assertEquals(first, service.tenant("tenant"));
+        assertEquals(requests + 1, TestWebserviceCached.REQUESTS.get());
+
+        tenant = "second";
+        assertEquals("second", service.tenant("tenant").get("tenant"));
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+    }
+
+    /**
+     * Test entities larger than the maximum size are not cached but still
+     * read in full.
+     */
+    @Test
+    public void testMaxEntitySize() {
+        final int requests = TestWebserviceCached.REQUESTS.get();
+        assertEquals(2048, service.large("large", 2048).get("padding").length());
+        assertEquals(2048, service.large("large", 2048).get("padding").length());
+        assertEquals(requests + 2, TestWebserviceCached.REQUESTS.get());
+        assertEquals(0, cache.size());
+
+        final Map<String, String> small = service.large("small", 16);
+        assertEquals(small, service.large("small", 16));
+        assertEquals(requests + 3, TestWebserviceCached.REQUESTS.get());
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A webservice with cacheable responses.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Path("/cached")
+public class TestWebserviceCached {
+    /**
+     * The header the tenant responses vary by.
+     */
+    public static final String TENANT_HEADER = "X-Tenant";
+
+    /**
+     * The number of requests served.
+     */
+    public static final AtomicInteger REQUESTS = new AtomicInteger();
+
+    /**
+     * The number of not modified responses.
+     */
+    public static final AtomicInteger NOT_MODIFIED = new AtomicInteger();
+
+    /**
+     * The version of the resources, used as the entity tag.
+     */
+    public static final AtomicInteger VERSION = new AtomicInteger();
+
+    /**
+     * Build a response for the key with the given cache control.
+     *
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @param cacheControl
+     *            the cache control header.
+     * @return the response.
+     */
+    private Response respond(final Request request, final String key, final String cacheControl) {
+        return respond(request, key, cacheControl, new HashMap<String, String>()).build();
+    }
+
+    /**
+     * Build a response for the key with the given cache control and extra
+     * entity values.
+     *
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @param cacheControl
+     *            the cache control header.
+     * @param entity
+     *            the extra entity values.
+     * @return the response builder.
+     */
+    private ResponseBuilder respond(final Request request, final String key,
+            final String cacheControl, final Map<String, String> entity) {
+        final int requestNumber = REQUESTS.incrementAndGet();
+        final EntityTag entityTag = new EntityTag(String.valueOf(VERSION.get()));
+        final ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            NOT_MODIFIED.incrementAndGet();
+            return notModified.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+
+        entity.put("key", key);
+        entity.put("request", String.valueOf(requestNumber));
+        entity.put("version", entityTag.getValue());
+        return Response.ok(entity).tag(entityTag).header(HttpHeaders.CACHE_CONTROL, cacheControl);
+    }
+
+    /**
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @return a response fresh for a minute.
+     */
+    @GET
+    @Path("/fresh")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response fresh(@Context final Request request, @QueryParam("key") final String key) {
+        return respond(request, key, "max-age=60");
+    }
+
+    /**
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @return a response to be revalidated on every use.
+     */
+    @GET
+    @Path("/revalidated")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response revalidated(@Context final Request request,
+            @QueryParam("key") final String key) {
+        return respond(request, key, "no-cache");
+    }
+
+    /**
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @return a response that is immediately stale but can be served while
+     *         revalidating.
+     */
+    @GET
+    @Path("/stale")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response stale(@Context final Request request, @QueryParam("key") final String key) {
+        return respond(request, key, "max-age=0, stale-while-revalidate=60");
+    }
+
+    /**
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @return a response that must not be cached.
+     */
+    @GET
+    @Path("/noStore")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response noStore(@Context final Request request, @QueryParam("key") final String key) {
+        return respond(request, key, "no-store");
+    }
+
+    /**
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @return a response fresh for a minute for a single user.
+     */
+    @GET
+    @Path("/private")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response privateResponse(@Context final Request request,
+            @QueryParam("key") final String key) {
+        return respond(request, key, "private, max-age=60");
+    }
+
+    /**
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @param tenant
+     *            the tenant header.
+     * @return a response fresh for a minute varying by the tenant header.
+     */
+    @GET
+    @Path("/tenant")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response tenant(@Context final Request request, @QueryParam("key") final String key,
+            @HeaderParam(TENANT_HEADER) final String tenant) {
+        final Map<String, String> entity = new HashMap<>();
+        entity.put("tenant", tenant);
+        return respond(request, key, "max-age=60", entity).header("Vary", TENANT_HEADER)
+                .build();
+    }
+
+    /**
+     * @param request
+     *            the request.
+     * @param key
+     *            the key.
+     * @param size
+     *            the size of the padding in the entity.
+     * @return a response fresh for a minute with a padded entity.
+     */
+    @GET
+    @Path("/large")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response large(@Context final Request request, @QueryParam("key") final String key,
+            @QueryParam("size") final int size) {
+        final Map<String, String> entity = new HashMap<>();
+        entity.put("padding", StringUtils.repeat("x", size));
+        return respond(request, key, "max-age=60", entity).build();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+import com.strandls.alchemy.rest.client.Cached;
+
+/**
+ * Client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.cache.TestWebserviceCached}.
+ *
+ */
+@Path("/cached")
+@Cached
+public interface TestWebserviceCachedStub {
+
+    @Path("/fresh")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, String> fresh(@QueryParam("key") final String arg0);
+
+    @Path("/revalidated")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, String> revalidated(@QueryParam("key") final String arg0);
+
+    @Path("/stale")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, String> stale(@QueryParam("key") final String arg0);
+
+    @Path("/noStore")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, String> noStore(@QueryParam("key") final String arg0);
+
+    @Path("/fresh")
+    @Produces({ "application/json" })
+    @GET
+    @Cached(false)
+    public Map<String, String> uncached(@QueryParam("key") final String arg0);
+
+    @Path("/fresh")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, String> authorized(@QueryParam("key") final String arg0,
+            @HeaderParam("Authorization") final String arg1);
+
+    @Path("/private")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, String> privateResponse(@QueryParam("key") final String arg0);
+
+    @Path("/tenant")
+    @Produces({ "application/json" })
+    @GET
+    public Map<String, String> tenant(@QueryParam("key") final String arg0);
+
+    @Path("/large")
+    @Produces({ "application/json" })
+    @GET
+    @Cached(maxEntitySize = 1024)
+    public Map<String, String> large(@QueryParam("key") final String arg0,
+            @QueryParam("size") final int arg1);
+}
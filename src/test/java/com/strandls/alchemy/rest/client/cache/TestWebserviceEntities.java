@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * A webservice of entities that may not exist.
+ *
+ * @author Ashish Shinde
+ *
+ */
+@Path("/entities")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class TestWebserviceEntities {
+    /**
+     * The number of GET requests served.
+     */
+    public static final AtomicInteger REQUESTS = new AtomicInteger();
+
+    /**
+     * The entities by id.
+     */
+    public static final ConcurrentMap<String, Integer> ENTITIES =
+            new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * @param id
+     *            the entity id.
+     * @return the entity.
+     */
+    @GET
+    @Path("/{id}")
+    public Integer get(@PathParam("id") final String id) {
+        REQUESTS.incrementAndGet();
+        final Integer entity = ENTITIES.get(id);
+        if (entity == null) {
+            throw new NotFoundException();
+        }
+        return entity;
+    }
+
+    /**
+     * @param id
+     *            the entity id.
+     * @param entity
+     *            the entity.
+     */
+    @PUT
+    @Path("/{id}")
+    public void put(@PathParam("id") final String id, final Integer entity) {
+        ENTITIES.put(id, entity);
+    }
+
+    /**
+     * @param id
+     *            the entity id.
+     */
+    @DELETE
+    @Path("/{id}")
+    public void delete(@PathParam("id") final String id) {
+        ENTITIES.remove(id);
+    }
+}
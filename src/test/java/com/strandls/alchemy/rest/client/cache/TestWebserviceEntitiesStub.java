@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.cache;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+
+import com.google.common.base.Optional;
+import com.strandls.alchemy.rest.client.NegativeCache;
+
+/**
+ * Client side stub interface for
+ * {@link com.strandls.alchemy.rest.client.cache.TestWebserviceEntities} with
+ * negative caching.
+ *
+ */
+@Path("/entities")
+@Produces({ "application/json" })
+@Consumes({ "application/json" })
+@NegativeCache
+public interface TestWebserviceEntitiesStub {
+
+    @Path("/{id}")
+    @GET
+    public Integer get(@PathParam("id") final String arg0);
+
+    @Path("/{id}")
+    @GET
+    public Optional<Integer> find(@PathParam("id") final String arg0);
+
+    @Path("/{id}")
+    @GET
+    @NegativeCache(bloomFilter = true, verifyRate = 0)
+    public Optional<Integer> findBloom(@PathParam("id") final String arg0);
+
+    @Path("/{id}")
+    @GET
+    @NegativeCache(false)
+    public Optional<Integer> findUncached(@PathParam("id") final String arg0);
+
+    @Path("/{id}")
+    @PUT
+    public void put(@PathParam("id") final String arg0, final Integer arg1);
+
+    @Path("/{id}")
+    @DELETE
+    public void delete(@PathParam("id") final String arg0);
+}
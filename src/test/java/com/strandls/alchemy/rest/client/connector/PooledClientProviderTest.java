@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.connector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Application;
+
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.AlchemyRestClientFactory;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.TestWebserviceHedging;
+import com.strandls.alchemy.rest.client.TestWebserviceHedgingStub;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPath;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPathStub;
+
+/**
+ * Unit tests for {@link PooledClientProvider}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class PooledClientProviderTest extends JerseyTest {
+    /**
+     * The client provider.
+     */
+    private PooledClientProvider clientProvider;
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestWebserviceWithPath.class, TestWebserviceHedging.class,
+                JacksonJsonProvider.class);
+    }
+
+    /**
+     * Create an injector using the pooled client.
+     *
+     * @return the injector.
+     */
+    private Injector createInjector() {
+        return Guice.createInjector(new PooledClientModule(), new ExceptionObjectMapperModule(),
+                new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(String.class).annotatedWith(
+                                Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM))
+                                .toInstance(getBaseUri().toString());
+                    }
+                });
+    }
+
+    /**
+     * Create the stub for the test webservice.
+     *
+     * @return the stub.
+     * @throws Exception
+     */
+    private TestWebserviceWithPathStub createStub() throws Exception {
+        final Injector injector = createInjector();
+        clientProvider = injector.getInstance(PooledClientProvider.class);
+        return injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                TestWebserviceWithPathStub.class);
+    }
+
+    /**
+     * Release the pool.
+     */
+    @After
+    public void cleanup() {
+        if (clientProvider != null) {
+            clientProvider.close();
+        }
+    }
+
+    /**
+     * Test the module binds a single client backed by the pool.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSingleClient() throws Exception {
+        final Injector injector = createInjector();
+        clientProvider = injector.getInstance(PooledClientProvider.class);
+        assertSame(injector.getInstance(Client.class), injector.getInstance(Client.class));
+        assertSame(clientProvider.get(), injector.getInstance(Client.class));
+    }
+
+    /**
+     * Test connections are returned to the pool and reused.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConnectionsReused() throws Exception {
+        final TestWebserviceWithPathStub service = createStub();
+        for (int i = 0; i < 20; i++) {
+            assertArrayEquals(new int[] { i, 2, 3 }, service.echoQueryParams(i, 2, 3));
+        }
+
+        final PoolStats stats = clientProvider.getPoolStats();
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getAvailable());
+    }
+
+    /**
+     * Test the client cannot be used once the provider is closed.
+     *
+     * @throws Exception
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testClose() throws Exception {
+        createStub();
+        clientProvider.close();
+        // closing again is harmless.
+        clientProvider.close();
+        clientProvider.get();
+    }
+
+    /**
+     * Test the losing request of a hedged invocation is aborted and its
+     * connection released at once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHedgeLoserAborted() throws Exception {
+        final Injector injector = createInjector();
+        clientProvider = injector.getInstance(PooledClientProvider.class);
+        final TestWebserviceHedgingStub service =
+                injector.getInstance(AlchemyRestClientFactory.class).getInstance(
+                        TestWebserviceHedgingStub.class);
+        // warm up the latencies.
+        for (int i = 0; i < 50; i++) {
+            service.echo("pooledWarmup" + i, 0);
+        }
+
+        final long start = System.currentTimeMillis();
+        assertEquals(Collections.singletonMap("pooledHedged", 2),
+                service.echo("pooledHedged", 5000));
+        // the slow request no longer holds a connection.
+        while (clientProvider.getPoolStats().getLeased() > 0) {
+            assertTrue(System.currentTimeMillis() - start < 2000);
+            Thread.sleep(10);
+        }
+        assertEquals(2, TestWebserviceHedging.REQUESTS.get("pooledHedged").get());
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.exception;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.Path;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Guice;
+import com.google.inject.Key;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+
+/**
+ * Unit tests for {@link ResponseToThrowableMapper}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class ResponseToThrowableMapperTest extends JerseyTest {
+    /**
+     * The maximum entity size for the tests.
+     */
+    private static final int MAX_ENTITY_SIZE = 4096;
+
+    /**
+     * The exception payload served, set up by the test.
+     */
+    private static volatile String payload;
+
+    /**
+     * Serves error responses.
+     */
+    @Path("/errors")
+    public static class ErrorService {
+        /**
+         * @return the payload as json.
+         */
+        @GET
+        @Path("/json")
+        public Response json() {
+            return Response.status(Status.INTERNAL_SERVER_ERROR)
+                    .type(MediaType.APPLICATION_JSON_TYPE).entity(payload).build();
+        }
+
+        /**
+         * @return the payload without a media type, as older servers send
+         *         it.
+         */
+        @GET
+        @Path("/untyped")
+        public Response untyped() {
+            return Response.status(Status.INTERNAL_SERVER_ERROR)
+                    .entity(payload.getBytes(Charsets.UTF_8)).build();
+        }
+
+        /**
+         * @return the payload as html.
+         */
+        @GET
+        @Path("/html")
+        public Response html() {
+            return Response.status(Status.INTERNAL_SERVER_ERROR).type(MediaType.TEXT_HTML_TYPE)
+                    .entity(payload).build();
+        }
+    }
+
+    /**
+     * The exception object mapper.
+     */
+    private ObjectMapper exceptionObjectMapper;
+
+    /**
+     * The mapper under test.
+     */
+    private ResponseToThrowableMapper mapper;
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(ErrorService.class);
+    }
+
+    /**
+     * Setup the mapper.
+     */
+    @Before
+    public void setup() {
+        exceptionObjectMapper =
+                Guice.createInjector(new ExceptionObjectMapperModule()).getInstance(
+                        Key.get(ObjectMapper.class, ThrowableObjectMapper.class));
+        mapper =
+                new ResponseToThrowableMapper(exceptionObjectMapper,
+                        new ResponseToJaxRsExceptionMapper());
+        mapper.setMaxEntitySize(MAX_ENTITY_SIZE);
+    }
+
+    /**
+     * Test a json exception payload is decoded to the exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApplyJson() throws Exception {
+        payload =
+                exceptionObjectMapper.writeValueAsString(new ExceptionPayload(
+                        new IllegalStateException("failed")));
+        final Throwable throwable = mapper.apply(get("json"));
+        assertEquals(IllegalStateException.class, throwable.getClass());
+        assertEquals("failed", throwable.getMessage());
+    }
+
+    /**
+     * Test a payload with the exception before its class is decoded.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApplyJsonExceptionFirst() throws Exception {
+        payload =
+                "{\"exception\":{\"message\":\"failed\"},\"exceptionMessage\":\"failed\","
+                        + "\"exceptionClassFQN\":\"java.lang.IllegalStateException\"}";
+        final Throwable throwable = mapper.apply(get("json"));
+        assertEquals(IllegalStateException.class, throwable.getClass());
+        assertEquals("failed", throwable.getMessage());
+    }
+
+    /**
+     * Test an unknown exception class maps to an internal server error with
+     * the message.
+     */
+    @Test
+    public void testApplyJsonUnknownClass() {
+        payload =
+                "{\"exceptionClassFQN\":\"com.example.NoSuchException\","
+                        + "\"exceptionMessage\":\"failed\",\"exception\":{}}";
+        final Throwable throwable = mapper.apply(get("json"));
+        assertEquals(InternalServerErrorException.class, throwable.getClass());
+        assertEquals("failed", throwable.getMessage());
+    }
+
+    /**
+     * Test exception classes outside the allowed packages are not decoded.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApplyAllowedPackages() throws Exception {
+        payload =
+                exceptionObjectMapper.writeValueAsString(new ExceptionPayload(
+                        new IllegalStateException("failed")));
+        mapper.setAllowedPackages(ImmutableSet.of("javax.ws.rs", "java.lan"));
+        Throwable throwable = mapper.apply(get("json"));
+        assertEquals(InternalServerErrorException.class, throwable.getClass());
+        assertEquals("failed", throwable.getMessage());
+
+        mapper.setAllowedPackages(ImmutableSet.of("java"));
+        throwable = mapper.apply(get("json"));
+        assertEquals(IllegalStateException.class, throwable.getClass());
+    }
+
+    /**
+     * Test html entities keep their entity if small and larger ones are not
+     * buffered.
+     */
+    @Test
+    public void testApplyHtml() {
+        payload = "<html><body>failed</body></html>";
+        final Response small = get("html");
+        InternalServerErrorException exception =
+                (InternalServerErrorException) mapper.apply(small);
+        assertEquals(payload, exception.getResponse().readEntity(String.class));
+
+        payload =
+                "<html><body>" + StringUtils.repeat("failed ", MAX_ENTITY_SIZE) + "</body></html>";
+        final Response large = get("html");
+        exception = (InternalServerErrorException) mapper.apply(large);
+        try {
+            exception.getResponse().readEntity(String.class);
+            fail("Large entity should be closed unread");
+        } catch (final IllegalStateException e) {
+            // closed without reading.
+        }
+    }
+
+    /**
+     * Test json entities over the maximum size are not decoded.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApplyJsonTooLarge() throws Exception {
+        payload =
+                exceptionObjectMapper.writeValueAsString(new ExceptionPayload(
+                        new IllegalStateException(StringUtils.repeat("x", MAX_ENTITY_SIZE))));
+        final Throwable throwable = mapper.apply(get("json"));
+        assertTrue(throwable instanceof InternalServerErrorException);
+    }
+
+    /**
+     * Test a json entity that is not an exception payload is kept on the
+     * response of the jax-rs exception.
+     */
+    @Test
+    public void testApplyJsonNotPayload() {
+        payload = "{\"error\":\"failed\"}";
+        final InternalServerErrorException exception =
+                (InternalServerErrorException) mapper.apply(get("json"));
+        final Response response = exception.getResponse();
+        assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+        assertEquals(payload, response.readEntity(String.class));
+    }
+
+    /**
+     * Test a payload without a media type is decoded.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApplyUntyped() throws Exception {
+        payload =
+                exceptionObjectMapper.writeValueAsString(new ExceptionPayload(
+                        new IllegalStateException("failed")));
+        final Throwable throwable = mapper.apply(get("untyped"));
+        assertEquals(IllegalStateException.class, throwable.getClass());
+        assertEquals("failed", throwable.getMessage());
+    }
+
+    /**
+     * Test a payload that cannot be decoded maps to a web application
+     * exception with its exception message.
+     */
+    @Test
+    public void testApplyExceptionMessage() {
+        payload = "{\"exceptionMessage\":\"failed\"}";
+        final Throwable throwable = mapper.apply(get("untyped"));
+        assertEquals(WebApplicationException.class, throwable.getClass());
+        assertEquals("failed", throwable.getMessage());
+        assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                ((WebApplicationException) throwable).getResponse().getStatus());
+    }
+
+    /**
+     * @param path
+     *            the error path.
+     * @return the error response.
+     */
+    private Response get(final String path) {
+        return target("errors").path(path).request().get();
+    }
+}
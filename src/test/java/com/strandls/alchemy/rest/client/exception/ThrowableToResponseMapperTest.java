@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.exception;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import lombok.Getter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.google.inject.Guice;
+import com.google.inject.Key;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.TestCustomException;
+
+/**
+ * Unit tests for {@link ThrowableToResponseMapper}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class ThrowableToResponseMapperTest {
+    /**
+     * An exception with annotated properties.
+     *
+     * @author Ashish Shinde
+     *
+     */
+    @SuppressWarnings("serial")
+    @JsonInclude(Include.NON_NULL)
+    @JsonPropertyOrder({ "code", "time", "detail" })
+    public static class AnnotatedException extends Exception {
+        /**
+         * A date formatted as a string.
+         */
+        @Getter
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd", timezone = "UTC")
+        private final Date time;
+
+        /**
+         * A code serialized as a string.
+         */
+        @Getter
+        @JsonSerialize(using = ToStringSerializer.class)
+        private final int code;
+
+        /**
+         * A detail left out when <code>null</code>.
+         */
+        @Getter
+        private final String detail = null;
+
+        /**
+         * @param time
+         * @param code
+         */
+        public AnnotatedException(final Date time, final int code) {
+            super("annotated");
+            this.time = time;
+            this.code = code;
+        }
+    }
+
+    /**
+     * The exception object mapper.
+     */
+    private ObjectMapper exceptionObjectMapper;
+
+    /**
+     * The mapper under test.
+     */
+    private ThrowableToResponseMapper mapper;
+
+    /**
+     * Setup the mapper.
+     */
+    @Before
+    public void setup() {
+        exceptionObjectMapper =
+                Guice.createInjector(new ExceptionObjectMapperModule()).getInstance(
+                        Key.get(ObjectMapper.class, ThrowableObjectMapper.class));
+        mapper = new ThrowableToResponseMapper(exceptionObjectMapper);
+    }
+
+    /**
+     * Test the full payload round trip.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApply() throws Exception {
+        final Response response = mapper.apply(new TestCustomException(42));
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+
+        final String json = write(response);
+        assertTrue(json, json.contains("\"localizedMessage\""));
+        assertDecoded(json);
+    }
+
+    /**
+     * Test the compact payload only has the message and declared properties
+     * and round trips.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApplyCompact() throws Exception {
+        final String full = write(mapper.apply(new TestCustomException(42)));
+        mapper.setCompact(true);
+        final String json = write(mapper.apply(new TestCustomException(42)));
+        assertEquals("{\"exceptionClassFQN\":\"" + TestCustomException.class.getName()
+                + "\",\"exceptionMessage\":\"Failed with status code:42\",\"exception\":"
+                + "{\"message\":\"Failed with status code:42\",\"statusCode\":42}}", json);
+        assertTrue(json.length() < full.length());
+        assertFalse(json.contains("localizedMessage"));
+        assertDecoded(json);
+    }
+
+    /**
+     * Test the compact payload writes properties with their serializers,
+     * formats and inclusion.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApplyCompactAnnotated() throws Exception {
+        mapper.setCompact(true);
+        final String json = write(mapper.apply(new AnnotatedException(new Date(0), 7)));
+        assertEquals("{\"exceptionClassFQN\":\"" + AnnotatedException.class.getName()
+                + "\",\"exceptionMessage\":\"annotated\",\"exception\":"
+                + "{\"message\":\"annotated\",\"code\":\"7\",\"time\":\"1970-01-01\"}}",
+                json);
+    }
+
+    /**
+     * @param json
+     *            the payload.
+     * @throws Exception
+     */
+    private void assertDecoded(final String json) throws Exception {
+        final ExceptionPayload payload =
+                exceptionObjectMapper.readValue(json, ExceptionPayload.class);
+        assertEquals("Failed with status code:42", payload.getExceptionMessage());
+        assertEquals(42, ((TestCustomException) payload.getException()).getStatusCode());
+    }
+
+    /**
+     * @param response
+     *            the mapped response.
+     * @return the entity written.
+     * @throws Exception
+     */
+    private String write(final Response response) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return output.toString("UTF-8");
+    }
+}
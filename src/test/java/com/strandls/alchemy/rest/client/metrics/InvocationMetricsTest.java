@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.MBeanServer;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.AlchemyRestClientFactory;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.TestWebserviceFlaky;
+import com.strandls.alchemy.rest.client.TestWebserviceFlakyStub;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPath;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPathStub;
+
+/**
+ * Unit tests for {@link InvocationMetrics} and the {@link InvocationListener}
+ * notifications.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class InvocationMetricsTest extends JerseyTest {
+    /**
+     * The metrics.
+     */
+    private InvocationMetrics metrics;
+
+    /**
+     * The events received.
+     */
+    private final List<InvocationEvent> events = new CopyOnWriteArrayList<InvocationEvent>();
+
+    /**
+     * The client factory.
+     */
+    private AlchemyRestClientFactory factory;
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestWebserviceWithPath.class, TestWebserviceFlaky.class,
+                JacksonJsonProvider.class);
+    }
+
+    /**
+     * Setup the factory with a listener recording events and the metrics.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setup() throws Exception {
+        client().register(new JacksonJsonProvider());
+        metrics = new InvocationMetrics();
+        final Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(String.class).annotatedWith(
+                        Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM)).toInstance(
+                        getBaseUri().toString());
+                bind(InvocationListener.class).toInstance(new InvocationListener() {
+                    @Override
+                    public void onInvocation(final InvocationEvent event) {
+                        events.add(event);
+                        metrics.onInvocation(event);
+                    }
+                });
+            }
+
+            @Provides
+            Client getClient() {
+                return client();
+            }
+        }, new ExceptionObjectMapperModule());
+        factory = injector.getInstance(AlchemyRestClientFactory.class);
+    }
+
+    /**
+     * Unregister the metrics.
+     */
+    @After
+    public void cleanup() {
+        metrics.close();
+    }
+
+    /**
+     * Test successful invocations report the status and entity sizes.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSuccessfulInvocation() throws Exception {
+        final TestWebserviceWithPathStub service =
+                factory.getInstance(TestWebserviceWithPathStub.class);
+        assertArrayEquals(new int[] { 1, 2, 3 }, service.echo(new int[] { 1, 2, 3 }));
+
+        assertEquals(1, events.size());
+        final InvocationEvent event = events.get(0);
+        assertEquals(TestWebserviceWithPathStub.class.getMethod("echo", int[].class),
+                event.getMethod());
+        assertEquals("POST", event.getHttpMethod());
+        assertEquals(1, event.getAttempt());
+        assertEquals(200, event.getStatus());
+        assertTrue(event.isSuccessful());
+        assertNull(event.getExceptionClass());
+        assertEquals("[1,2,3]".length(), event.getRequestBytes());
+        assertEquals("[1,2,3]".length(), event.getResponseBytes());
+        assertTrue(event.getDurationNanos() > 0);
+    }
+
+    /**
+     * Test failed attempts and retries are reported.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedInvocation() throws Exception {
+        final TestWebserviceFlakyStub service = factory.getInstance(TestWebserviceFlakyStub.class);
+        service.get("metricsRetried", 1, null);
+
+        assertEquals(2, events.size());
+        assertEquals(503, events.get(0).getStatus());
+        assertEquals(1, events.get(0).getAttempt());
+        assertEquals(ServiceUnavailableException.class, events.get(0).getExceptionClass());
+        assertEquals(200, events.get(1).getStatus());
+        assertEquals(2, events.get(1).getAttempt());
+        assertTrue(events.get(1).isSuccessful());
+
+        final MethodMetrics methodMetrics =
+                metrics.getMetrics().get(
+                        TestWebserviceFlakyStub.class.getMethod("get", String.class, int.class,
+                                String.class));
+        assertEquals(2, methodMetrics.getInvocationCount());
+        assertEquals(1, methodMetrics.getErrorCount());
+        assertEquals(1, methodMetrics.getServerErrorCount());
+        assertEquals(0, methodMetrics.getClientErrorCount());
+        assertEquals(1, methodMetrics.getRetryCount());
+        assertTrue(methodMetrics.getResponseBytes() > 0);
+        assertTrue(methodMetrics.getLatencyP50Micros() > 0);
+
+        try {
+            service.post("metricsFailed", 1, null);
+            fail("Expected failure");
+        } catch (final ServiceUnavailableException e) {
+            assertEquals(3, events.size());
+            assertFalse(events.get(2).isSuccessful());
+        }
+    }
+
+    /**
+     * Test the metrics are exported to and unregistered from JMX.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJmxExport() throws Exception {
+        final TestWebserviceWithPathStub service =
+                factory.getInstance(TestWebserviceWithPathStub.class);
+        service.echoQueryParams(1, 2, 3);
+        service.echoQueryParams(4, 5, 6);
+
+        final Method method =
+                TestWebserviceWithPathStub.class.getMethod("echoQueryParams", int.class, int.class,
+                        int.class);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(InvocationMetrics.getObjectName(method)));
+        assertEquals(2L,
+                server.getAttribute(InvocationMetrics.getObjectName(method), "InvocationCount"));
+
+        metrics.close();
+        assertFalse(server.isRegistered(InvocationMetrics.getObjectName(method)));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Provides;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.AlchemyRestClientFactory;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.TestWebserviceFlaky;
+import com.strandls.alchemy.rest.client.TestWebserviceFlakyStub;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPath;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPathStub;
+
+/**
+ * Unit tests for {@link SlowCallSampler}.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class SlowCallSamplerTest extends JerseyTest {
+    /**
+     * The sampler, sampling all calls and keeping the two slowest.
+     */
+    private final SlowCallSampler sampler = new SlowCallSampler(1, 2);
+
+    /**
+     * The client factory.
+     */
+    private AlchemyRestClientFactory factory;
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestWebserviceWithPath.class, TestWebserviceFlaky.class,
+                JacksonJsonProvider.class);
+    }
+
+    /**
+     * Setup the factory with the sampler.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setup() throws Exception {
+        client().register(new JacksonJsonProvider());
+        factory = createFactory(sampler);
+    }
+
+    /**
+     * Create a factory with a sampler.
+     *
+     * @param slowCallSampler
+     *            the sampler.
+     * @return the factory.
+     */
+    private AlchemyRestClientFactory createFactory(final SlowCallSampler slowCallSampler) {
+        return Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(String.class).annotatedWith(
+                        Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM)).toInstance(
+                        getBaseUri().toString());
+                bind(SlowCallSampler.class).toInstance(slowCallSampler);
+            }
+
+            @Provides
+            Client getClient() {
+                return client();
+            }
+        }, new ExceptionObjectMapperModule()).getInstance(AlchemyRestClientFactory.class);
+    }
+
+    /**
+     * Test only one in every sample interval invocations is timed.
+     */
+    @Test
+    public void testSampleInterval() {
+        final SlowCallSampler everyThird = new SlowCallSampler(3, 1);
+        assertNull(everyThird.start());
+        assertNull(everyThird.start());
+        assertNotNull(everyThird.start());
+        assertNull(everyThird.start());
+    }
+
+    /**
+     * Test the slowest calls are kept with their phase breakdown.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSlowestCalls() throws Exception {
+        final TestWebserviceWithPathStub service =
+                factory.getInstance(TestWebserviceWithPathStub.class);
+        for (int i = 0; i < 5; i++) {
+            service.echo(new int[] { i });
+        }
+
+        final Method method = TestWebserviceWithPathStub.class.getMethod("echo", int[].class);
+        final List<SlowCall> calls = sampler.getSlowestCalls(method);
+        assertEquals(2, calls.size());
+        assertTrue(calls.get(0).getDurationNanos() >= calls.get(1).getDurationNanos());
+
+        final SlowCall call = calls.get(0);
+        assertEquals(200, call.getStatus());
+        assertNull(call.getExceptionClass());
+        assertTrue(call.getPhaseNanos().get(Phase.PATH) > 0);
+        assertTrue(call.getPhaseNanos().get(Phase.SERIALIZATION) > 0);
+        assertTrue(call.getPhaseNanos().get(Phase.EXCHANGE) > 0);
+        assertTrue(call.getPhaseNanos().get(Phase.DESERIALIZATION) > 0);
+        assertEquals(0L, (long) call.getPhaseNanos().get(Phase.EXCEPTION_MAPPING));
+
+        long phases = call.getOtherNanos();
+        for (final Long nanos : call.getPhaseNanos().values()) {
+            phases += nanos;
+        }
+        assertEquals(call.getDurationNanos(), phases);
+
+        assertTrue(sampler.dump().contains(TestWebserviceWithPathStub.class.getName() + ".echo"));
+        sampler.reset();
+        assertTrue(sampler.getSlowestCalls(method).isEmpty());
+    }
+
+    /**
+     * Test calls sampled after unsampled calls to a static uri, whose target
+     * is reused, record the exchange.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSampledAfterUnsampled() throws Exception {
+        final SlowCallSampler everyThird = new SlowCallSampler(3, 1);
+        final TestWebserviceWithPathStub service =
+                createFactory(everyThird).getInstance(TestWebserviceWithPathStub.class);
+        for (int i = 0; i < 3; i++) {
+            service.echo(new int[] { i });
+        }
+
+        final List<SlowCall> calls =
+                everyThird.getSlowestCalls(TestWebserviceWithPathStub.class.getMethod("echo",
+                        int[].class));
+        assertEquals(1, calls.size());
+        assertEquals(200, calls.get(0).getStatus());
+        assertTrue(calls.get(0).getPhaseNanos().get(Phase.SERIALIZATION) > 0);
+        assertTrue(calls.get(0).getPhaseNanos().get(Phase.EXCHANGE) > 0);
+    }
+
+    /**
+     * Test failed calls record the exception mapping phase.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedCall() throws Exception {
+        final TestWebserviceFlakyStub service = factory.getInstance(TestWebserviceFlakyStub.class);
+        try {
+            service.post("sampledFailure", 1, null);
+            fail("Expected failure");
+        } catch (final ServiceUnavailableException e) {
+            final List<SlowCall> calls =
+                    sampler.getSlowestCalls(TestWebserviceFlakyStub.class.getMethod("post",
+                            String.class, int.class, String.class));
+            assertEquals(1, calls.size());
+            assertEquals(503, calls.get(0).getStatus());
+            assertEquals(ServiceUnavailableException.class, calls.get(0).getExceptionClass());
+            assertTrue(calls.get(0).getPhaseNanos().get(Phase.EXCEPTION_MAPPING) > 0);
+            assertTrue(sampler.dump().contains("exception="
+                    + ServiceUnavailableException.class.getName()));
+        }
+    }
+}
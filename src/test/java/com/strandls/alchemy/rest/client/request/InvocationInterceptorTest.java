@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2015 Strand Life Sciences.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.strandls.alchemy.rest.client.request;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Provides;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+import com.strandls.alchemy.rest.client.AlchemyRestClientFactory;
+import com.strandls.alchemy.rest.client.ExceptionObjectMapperModule;
+import com.strandls.alchemy.rest.client.RestMethodMetadata;
+import com.strandls.alchemy.rest.client.TestWebserviceFlaky;
+import com.strandls.alchemy.rest.client.TestWebserviceFlakyStub;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPath;
+import com.strandls.alchemy.rest.client.TestWebserviceWithPathStub;
+
+/**
+ * Unit tests for the {@link InvocationInterceptor} chain.
+ *
+ * @author Ashish Shinde
+ *
+ */
+public class InvocationInterceptorTest extends JerseyTest {
+    /**
+     * Records the interceptors called, in order.
+     */
+    private final List<String> calls = new CopyOnWriteArrayList<String>();
+
+    /**
+     * The client factory.
+     */
+    private AlchemyRestClientFactory factory;
+
+    /**
+     * Records its calls and proceeds.
+     */
+    private final InvocationInterceptor recording = new InvocationInterceptor() {
+        @Override
+        public boolean isApplicable(final Method method, final RestMethodMetadata metadata) {
+            return true;
+        }
+
+        @Override
+        public Object intercept(final InvocationContext context) throws Throwable {
+            calls.add("recording:" + context.getMethod().getName() + ":"
+                    + context.getAttempt());
+            return context.proceed();
+        }
+    };
+
+    /**
+     * Answers echoQueryParams without sending a request.
+     */
+    private final InvocationInterceptor shortCircuit = new InvocationInterceptor() {
+        @Override
+        public boolean isApplicable(final Method method, final RestMethodMetadata metadata) {
+            return method.getName().equals("echoQueryParams");
+        }
+
+        @Override
+        public Object intercept(final InvocationContext context) throws Throwable {
+            calls.add("shortCircuit");
+            return new int[] { -1 };
+        }
+    };
+
+    /**
+     * Sends POST requests again once if they are unavailable.
+     */
+    private final InvocationInterceptor retrying = new InvocationInterceptor() {
+        @Override
+        public boolean isApplicable(final Method method, final RestMethodMetadata metadata) {
+            return "POST".equals(metadata.getHttpMethod());
+        }
+
+        @Override
+        public Object intercept(final InvocationContext context) throws Throwable {
+            try {
+                return context.proceed();
+            } catch (final ServiceUnavailableException e) {
+                calls.add("retrying:" + context.getUri());
+                return context.proceed();
+            }
+        }
+    };
+
+    /*
+     * (non-Javadoc)
+     * @see org.glassfish.jersey.test.JerseyTest#configure()
+     */
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestWebserviceWithPath.class, TestWebserviceFlaky.class,
+                JacksonJsonProvider.class);
+    }
+
+    /**
+     * Setup the factory with a recording request builder filter, replacing
+     * the request headers, and the interceptors.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setup() throws Exception {
+        client().register(new JacksonJsonProvider());
+        factory = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(String.class).annotatedWith(
+                        Names.named(AlchemyRestClientFactory.BASE_URI_NAMED_PARAM)).toInstance(
+                        getBaseUri().toString());
+                bind(RequestBuilderFilter.class).toInstance(new RequestBuilderFilter() {
+                    @Override
+                    public void apply(final Builder builder) {
+                        calls.add("filter");
+                        builder.headers(new MultivaluedHashMap<String, Object>());
+                    }
+                });
+                bind(new TypeLiteral<List<InvocationInterceptor>>() {
+                }).toInstance(Arrays.asList(recording, shortCircuit, retrying));
+            }
+
+            @Provides
+            Client getClient() {
+                return client();
+            }
+        }, new ExceptionObjectMapperModule()).getInstance(AlchemyRestClientFactory.class);
+    }
+
+    /**
+     * Test the interceptors applicable to a method are called in order after
+     * the request builder filter.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChainOrder() throws Exception {
+        final TestWebserviceWithPathStub service =
+                factory.getInstance(TestWebserviceWithPathStub.class);
+        assertArrayEquals(new int[] { 1, 2, 3 }, service.echoPathParams(1, 2, 3));
+        assertEquals(Arrays.asList("filter", "recording:echoPathParams:1"), calls);
+    }
+
+    /**
+     * Test the request builder filter is applied before the header params
+     * are set.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFilterBeforeHeaderParams() throws Exception {
+        final TestWebserviceWithPathStub service =
+                factory.getInstance(TestWebserviceWithPathStub.class);
+        assertArrayEquals(new int[] { 1, 2, 3 }, service.echoHeaderParams(1, 2, 3));
+        assertEquals(Arrays.asList("filter", "recording:echoHeaderParams:1"), calls);
+    }
+
+    /**
+     * Test an interceptor can return a result without sending the request.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShortCircuit() throws Exception {
+        final TestWebserviceWithPathStub service =
+                factory.getInstance(TestWebserviceWithPathStub.class);
+        assertArrayEquals(new int[] { -1 }, service.echoQueryParams(1, 2, 3));
+        assertEquals(Arrays.asList("filter", "recording:echoQueryParams:1", "shortCircuit"),
+                calls);
+    }
+
+    /**
+     * Test an interceptor can proceed more than once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testProceedAgain() throws Exception {
+        final TestWebserviceFlakyStub service = factory.getInstance(TestWebserviceFlakyStub.class);
+        assertEquals(Collections.singletonMap("intercepted", 2),
+                service.post("intercepted", 1, null));
+        assertEquals(2, TestWebserviceFlaky.ATTEMPTS.get("intercepted").get());
+        assertEquals(Arrays.asList("filter", "recording:post:1",
+                "retrying:" + getBaseUri() + "flaky/intercepted?failures=1&retryAfter="), calls);
+    }
+}
@@ -108,4 +108,88 @@ public class ServiceStubGeneratorTest {
 
     }
 
+    /**
+     * Test method for
+     * {@link ServiceStubGenerator#generateStubInterface(Class, String, String, com.sun.codemodel.CodeWriter, boolean)}
+     * .
+     *
+     * Ensures asynchronous method variants are generated.
+     *
+     * @throws NotRestInterfaceException
+     * @throws Exception
+     */
+    @Test
+    public void testAsyncMethods() throws NotRestInterfaceException, Exception {
+        @Cleanup
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final SingleStreamCodeWriter writer = new SingleStreamCodeWriter(out);
+        stubGenerator.generateStubInterface(TestWebserviceWithGenericTypes.class,
+                TestWebserviceWithGenericTypes.class.getSimpleName() + "Stub",
+                TestWebserviceWithGenericTypes.class.getPackage().getName() + ".stub", writer,
+                true);
+        writer.close();
+        assertEquals(FileUtils.readFileToString(
+                new File("src/test/resources/com/strandls/alchemy/rest/client/stubgenerator"
+                        + "/TestWebserviceWithGenericTypesAsync.txt")).trim(),
+                new String(out.toByteArray(), Charset.defaultCharset()).trim());
+    }
+
+    /**
+     * Test method for
+     * {@link ServiceStubGenerator#generateStubInterface(Class, String, String, com.sun.codemodel.CodeWriter, boolean, NotFoundVariant)}
+     * .
+     *
+     * Ensures optional variants of GET methods are generated.
+     *
+     * @throws NotRestInterfaceException
+     * @throws Exception
+     */
+    @Test
+    public void testOptionalMethods() throws NotRestInterfaceException, Exception {
+        assertNotFoundVariant(NotFoundVariant.OPTIONAL, "TestWebserviceWithPathStubOptional.txt");
+    }
+
+    /**
+     * Test method for
+     * {@link ServiceStubGenerator#generateStubInterface(Class, String, String, com.sun.codemodel.CodeWriter, boolean, NotFoundVariant)}
+     * .
+     *
+     * Ensures null on 404 variants of GET methods are generated.
+     *
+     * @throws NotRestInterfaceException
+     * @throws Exception
+     */
+    @Test
+    public void testNullOn404Methods() throws NotRestInterfaceException, Exception {
+        assertNotFoundVariant(NotFoundVariant.NULL_ON_404, "TestWebserviceWithPathStubOrNull.txt");
+    }
+
+    /**
+     * Generate the stub for {@link TestWebserviceWithPath} with not found
+     * variants and compare it with the expected source.
+     *
+     * @param notFoundVariant
+     *            the not found variant.
+     * @param expectedFile
+     *            the expected source file name.
+     * @throws Exception
+     */
+    private void assertNotFoundVariant(final NotFoundVariant notFoundVariant,
+            final String expectedFile) throws Exception {
+        @Cleanup
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final SingleStreamCodeWriter writer = new SingleStreamCodeWriter(out);
+        stubGenerator.generateStubInterface(TestWebserviceWithPath.class,
+                TestWebserviceWithPath.class.getSimpleName() + "Stub",
+                TestWebserviceWithPath.class.getPackage().getName() + ".stub", writer, false,
+                notFoundVariant);
+        writer.close();
+        final File expected =
+                new File("src/test/resources/com/strandls/alchemy/rest/client/stubgenerator/"
+                        + expectedFile);
+        assertEquals(FileUtils.readFileToString(expected).trim(),
+                new String(out.toByteArray(), Charset.defaultCharset()).trim());
+    }
 }